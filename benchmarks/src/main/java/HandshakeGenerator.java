@@ -0,0 +1,259 @@
+import com.server.config.ServerConfig;
+import com.server.contract.HttpMethod;
+import com.server.logging.LogLevel;
+import com.server.logging.Logging;
+import com.server.metrics.LatencyHistogram;
+import com.server.pojos.HttpResponse;
+import com.server.tls.TlsPolicy;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HandshakeGenerator: TLS handshake rate and session resumption of a real Server over loopback.
+ * - Starts a TLS Server in-process on an ephemeral port with a throwaway EC key pair generated by
+ *   keytool, serving one tiny GET route.
+ * - N client threads each loop: connect, handshake, send one request with "Connection: close",
+ *   read the response, close. Every request therefore pays for a handshake.
+ * - resume=true (default) lets the client offer its cached session (TLS 1.2 session ID or
+ *   TLS 1.3 ticket), so after the first connection per thread handshakes are abbreviated;
+ *   resume=false invalidates each session, forcing full handshakes. TLS 1.3 tickets are
+ *   single-use on the JDK client, so with many client threads some connections find no
+ *   ticket left and do a full handshake (TLS 1.2 session IDs resume every time).
+ * - Reports handshakes/s, handshake latency (connect to handshake done) and the resumption
+ *   ratio seen by the client and by the server's http_server_tls_* counters.
+ * - Run from the benchmark jar:
+ *     java -cp benchmarks/target/benchmarks.jar HandshakeGenerator transport=NIO resume=false
+ *   Options (defaults): transport (NIO), connections (16), duration (10) and warmup (3) in
+ *   seconds, resume (true), protocol (TLSv1.3).
+ */
+public final class HandshakeGenerator {
+    private static final String PATH = "/hs";
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    private final int connections;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final boolean resume;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private HandshakeGenerator(int connections, long warmupNanos, long durationNanos, boolean resume) {
+        this.connections = connections;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.resume = resume;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parse(args);
+        final ServerConfig.Transport transport = ServerConfig.Transport.valueOf(options.getOrDefault("transport", "NIO"));
+        final int connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+        final int duration = Integer.parseInt(options.getOrDefault("duration", "10"));
+        final int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        final boolean resume = Boolean.parseBoolean(options.getOrDefault("resume", "true"));
+        final String protocol = options.getOrDefault("protocol", "TLSv1.3");
+
+        Logging.setLevel(LogLevel.WARN);
+        final Path keyStore = generateKeyStore();
+
+        final ServerConfig config = new ServerConfig.Builder()
+                .setTransport(transport)
+                .setTls(new TlsPolicy.Builder(keyStore, PASSWORD).build())
+                .build();
+        final Server server = new Server(0, config);
+        final HttpResponse response = new HttpResponse.Builder()
+                .setStatusCode(200)
+                .addHeader("Content-Type", "text/plain")
+                .setEntity("ok")
+                .build();
+        server.addRoute(HttpMethod.GET, PATH, request -> response);
+
+        final Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        if (!server.awaitStarted(Duration.ofSeconds(10))) {
+            throw new IllegalStateException("Server did not start");
+        }
+
+        final HandshakeGenerator generator = new HandshakeGenerator(connections, warmup * 1_000_000_000L,
+                duration * 1_000_000_000L, resume);
+        System.out.printf("%s transport, %s, %d connections, resume=%s: %ds warm-up + %ds measured%n",
+                transport, protocol, connections, resume, warmup, duration);
+        generator.run(server.getPort(), clientContext(keyStore), protocol, server);
+        server.stop(Duration.ofSeconds(1));
+        Files.deleteIfExists(keyStore);
+        System.exit(0);
+    }
+
+    private void run(int port, SSLContext context, String protocol, Server server) throws InterruptedException {
+        final byte[] request = ("GET " + PATH + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        final long start = System.nanoTime();
+        final long measureFrom = start + warmupNanos;
+        final long end = measureFrom + durationNanos;
+
+        final List<Thread> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            final Thread client = new Thread(() -> drive(port, context, protocol, request, measureFrom, end), "client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+            client.start();
+        }
+        final long[] serverBefore = awaitAndSnapshot(server, measureFrom);
+        for (Thread client : clients) {
+            client.join();
+        }
+        final long[] serverAfter = serverTlsCounters(server);
+
+        final long completed = latency.getCount();
+        final double seconds = durationNanos / 1e9;
+        final long serverHandshakes = serverAfter[0] - serverBefore[0];
+        System.out.printf("Handshakes: %d (%d errors)%n", completed, errors.sum());
+        System.out.printf("Rate:       %.1f handshakes/s%n", completed / seconds);
+        System.out.printf("Latency:    mean %s  p50 %s  p90 %s  p99 %s  max %s%n",
+                millis(completed == 0 ? 0 : latency.getSumNanos() / completed), millis(latency.percentile(0.5)),
+                millis(latency.percentile(0.9)), millis(latency.percentile(0.99)), millis(latency.percentile(1.0)));
+        System.out.printf("Resumed:    client %.1f%%  server %.1f%% of %d%n",
+                completed == 0 ? 0 : 100.0 * resumed.sum() / completed,
+                serverHandshakes == 0 ? 0 : 100.0 * (serverAfter[1] - serverBefore[1]) / serverHandshakes, serverHandshakes);
+    }
+
+    // One connection per request, so every request is a handshake
+    private void drive(int port, SSLContext context, String protocol, byte[] request, long measureFrom, long end) {
+        final byte[] buffer = new byte[4096];
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            final long startMillis = System.currentTimeMillis();
+            try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port)) {
+                socket.setTcpNoDelay(true);
+                socket.setEnabledProtocols(new String[]{protocol});
+                socket.startHandshake();
+                final long handshake = System.nanoTime() - now;
+                final SSLSession session = socket.getSession();
+
+                final OutputStream out = socket.getOutputStream();
+                out.write(request);
+                out.flush();
+                final InputStream in = socket.getInputStream();
+                int read = in.read(buffer);
+                final boolean ok = read >= 12 && buffer[9] == '2';
+                while (read >= 0) {
+                    read = in.read(buffer);                 // until the server closes
+                }
+
+                if (now >= measureFrom) {
+                    if (ok) {
+                        latency.record(handshake);
+                        if (session.getCreationTime() < startMillis) {
+                            resumed.increment();
+                        }
+                    } else {
+                        errors.increment();
+                    }
+                }
+                if (!resume) {
+                    session.invalidate();
+                }
+            } catch (IOException e) {
+                if (now >= measureFrom) {
+                    errors.increment();
+                }
+            }
+        }
+    }
+
+    // Server counters when the warm-up ends
+    private static long[] awaitAndSnapshot(Server server, long measureFrom) throws InterruptedException {
+        final long wait = measureFrom - System.nanoTime();
+        if (wait > 0) {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+        return serverTlsCounters(server);
+    }
+
+    // {handshakes, resumed} from the server's Prometheus text
+    private static long[] serverTlsCounters(Server server) {
+        final long[] counters = new long[2];
+        for (String line : server.getMetrics().scrape().split("\n")) {
+            if (line.startsWith("http_server_tls_handshakes_total ")) {
+                counters[0] = (long) Double.parseDouble(line.substring(line.indexOf(' ') + 1));
+            } else if (line.startsWith("http_server_tls_resumed_total ")) {
+                counters[1] = (long) Double.parseDouble(line.substring(line.indexOf(' ') + 1));
+            }
+        }
+        return counters;
+    }
+
+    // Throwaway EC key pair + self-signed certificate for localhost
+    private static Path generateKeyStore() throws IOException, InterruptedException {
+        final Path keyStore = Files.createTempFile("handshake-benchmark", ".p12");
+        Files.delete(keyStore);
+        final Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "server", "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "1",
+                "-storetype", "PKCS12", "-keystore", keyStore.toString(), "-storepass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        final String output = new String(keytool.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (keytool.waitFor() != 0) {
+            throw new IOException("keytool failed: " + output);
+        }
+        return keyStore;
+    }
+
+    // Client context trusting exactly the generated certificate
+    private static SSLContext clientContext(Path keyStore) throws Exception {
+        final KeyStore server = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStore)) {
+            server.load(in, PASSWORD);
+        }
+        final KeyStore trusted = KeyStore.getInstance("PKCS12");
+        trusted.load(null, null);
+        trusted.setCertificateEntry("server", server.getCertificate("server"));
+        final TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(trusted);
+        final SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trust.getTrustManagers(), null);
+        return context;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+
+    // name=value options
+    private static Map<String, String> parse(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,225 @@
+import com.server.config.ServerConfig;
+import com.server.contract.HttpMethod;
+import com.server.logging.LogLevel;
+import com.server.logging.Logging;
+import com.server.metrics.LatencyHistogram;
+import com.server.pojos.HttpResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadGenerator: end-to-end throughput and latency of a real Server over loopback.
+ * - Starts a Server in-process on an ephemeral port with the chosen transport and executor
+ *   mode, serving one GET route with a fixed-size body.
+ * - Drives it from N client threads, each with one keep-alive connection sending requests
+ *   back-to-back (closed loop: one outstanding request per connection).
+ * - Requests during the warm-up are discarded; afterwards every request's latency goes into
+ *   a LatencyHistogram and throughput is completed requests / measured seconds.
+ * - Lives in the default package because Server does; run from the benchmark jar:
+ *     java -cp benchmarks/target/benchmarks.jar LoadGenerator transport=NIO connections=64
+ *   Options (defaults): transport (BLOCKING), executor (FIXED), connections (64),
+ *   duration (10) and warmup (3) in seconds, bodySize (16), acceptors (1), reusePort (false).
+ */
+public final class LoadGenerator {
+    private static final String PATH = "/load";
+
+    private final int connections;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final LongAdder errors = new LongAdder();
+
+    private LoadGenerator(int connections, long warmupNanos, long durationNanos) {
+        this.connections = connections;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parse(args);
+        final ServerConfig.Transport transport = ServerConfig.Transport.valueOf(options.getOrDefault("transport", "BLOCKING"));
+        final ServerConfig.ExecutorMode executor = ServerConfig.ExecutorMode.valueOf(options.getOrDefault("executor", "FIXED"));
+        final int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        final int duration = Integer.parseInt(options.getOrDefault("duration", "10"));
+        final int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        final int bodySize = Integer.parseInt(options.getOrDefault("bodySize", "16"));
+        final int acceptors = Integer.parseInt(options.getOrDefault("acceptors", "1"));
+        final boolean reusePort = Boolean.parseBoolean(options.getOrDefault("reusePort", "false"));
+
+        // Access log lines would measure the logger, not the server
+        Logging.setLevel(LogLevel.WARN);
+
+        final ServerConfig config = new ServerConfig.Builder()
+                .setTransport(transport)
+                .setExecutorMode(executor)
+                .setMaxRequestsPerConnection(0)
+                .setAcceptorThreads(acceptors)
+                .setReusePort(reusePort)
+                .build();
+        final Server server = new Server(0, config);
+        final HttpResponse response = new HttpResponse.Builder()
+                .setStatusCode(200)
+                .addHeader("Content-Type", "text/plain")
+                .setEntity("x".repeat(bodySize))
+                .build();
+        server.addRoute(HttpMethod.GET, PATH, request -> response);
+
+        final Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        if (!server.awaitStarted(Duration.ofSeconds(10))) {
+            throw new IllegalStateException("Server did not start");
+        }
+
+        final LoadGenerator generator = new LoadGenerator(connections, warmup * 1_000_000_000L, duration * 1_000_000_000L);
+        System.out.printf("%s transport, %s executor, %d connections, %d B bodies: %ds warm-up + %ds measured%n",
+                transport, executor, connections, bodySize, warmup, duration);
+        generator.run(new InetSocketAddress("127.0.0.1", server.getPort()), bodySize);
+        server.stop(Duration.ofSeconds(1));
+        System.exit(0);
+    }
+
+    private void run(InetSocketAddress address, int bodySize) throws InterruptedException {
+        final byte[] request = ("GET " + PATH + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        final long start = System.nanoTime();
+        final long measureFrom = start + warmupNanos;
+        final long end = measureFrom + durationNanos;
+
+        final List<Thread> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            final Thread client = new Thread(() -> drive(address, request, bodySize, measureFrom, end), "client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        final long completed = latency.getCount();
+        final double seconds = durationNanos / 1e9;
+        System.out.printf("Requests:   %d (%d errors)%n", completed, errors.sum());
+        System.out.printf("Throughput: %.1f req/s%n", completed / seconds);
+        System.out.printf("Latency:    mean %s  p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n",
+                millis(completed == 0 ? 0 : latency.getSumNanos() / completed), millis(latency.percentile(0.5)),
+                millis(latency.percentile(0.9)), millis(latency.percentile(0.99)), millis(latency.percentile(0.999)),
+                millis(maxLatency.get()));
+    }
+
+    // One keep-alive connection; reconnects after an error until the run ends
+    private void drive(InetSocketAddress address, byte[] request, int bodySize, long measureFrom, long end) {
+        final ByteBuffer out = ByteBuffer.wrap(request);
+        final ByteBuffer in = ByteBuffer.allocate(Math.max(16 * 1024, bodySize + 1024));
+        while (System.nanoTime() < end) {
+            try (SocketChannel channel = SocketChannel.open(address)) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                in.clear();
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    out.rewind();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    if (readResponse(channel, in) != 200) {
+                        errors.increment();
+                    }
+                    final long elapsed = System.nanoTime() - now;
+                    if (now >= measureFrom) {
+                        latency.record(elapsed);
+                        maxLatency.accumulate(elapsed);
+                    }
+                }
+            } catch (IOException e) {
+                if (System.nanoTime() >= measureFrom) {
+                    errors.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read one Content-Length framed response and return its status code.
+     * - The buffer is in write mode on entry and exit; no bytes are expected beyond the
+     *   response, as there is only ever one request outstanding.
+     */
+    private static int readResponse(SocketChannel channel, ByteBuffer in) throws IOException {
+        int headEnd;
+        while ((headEnd = headEnd(in)) < 0) {
+            fill(channel, in);
+        }
+        final byte[] bytes = in.array();
+        final int status = (bytes[9] - '0') * 100 + (bytes[10] - '0') * 10 + (bytes[11] - '0');
+        final long total = headEnd + contentLength(bytes, headEnd);
+        while (in.position() < total) {
+            fill(channel, in);
+        }
+        in.clear();
+        return status;
+    }
+
+    private static void fill(SocketChannel channel, ByteBuffer in) throws IOException {
+        if (!in.hasRemaining()) {
+            throw new IOException("Response larger than the read buffer");
+        }
+        if (channel.read(in) < 0) {
+            throw new IOException("Connection closed by server");
+        }
+    }
+
+    // Offset just past the blank line ending the head, or -1 if it has not arrived yet
+    private static int headEnd(ByteBuffer in) {
+        final byte[] bytes = in.array();
+        for (int i = 3; i < in.position(); i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static long contentLength(byte[] bytes, int headEnd) throws IOException {
+        final String head = new String(bytes, 0, headEnd, StandardCharsets.US_ASCII);
+        for (String line : head.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                return Long.parseLong(line.substring(15).trim());
+            }
+        }
+        throw new IOException("Response without Content-Length");
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+
+    // name=value options
+    private static Map<String, String> parse(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
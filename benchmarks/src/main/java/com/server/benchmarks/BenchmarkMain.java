@@ -0,0 +1,26 @@
+package com.server.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * BenchmarkMain: entry point of benchmarks.jar; JMH's own Main with the GC profiler on by default.
+ * - Allocation per operation (gc.alloc.rate.norm) is the number these benchmarks are about,
+ *   so "-prof gc" is added unless the command line already names a profiler.
+ * - Everything else is passed through to JMH unchanged (-l, -h, include patterns, -p, ...).
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final boolean profiled = Arrays.asList(args).contains("-prof");
+        final String[] jmhArgs = profiled ? args : prepend(args, "-prof", "gc");
+        org.openjdk.jmh.Main.main(jmhArgs);
+    }
+
+    private static String[] prepend(String[] args, String... first) {
+        final String[] all = Arrays.copyOf(first, first.length + args.length);
+        System.arraycopy(args, 0, all, first.length, args.length);
+        return all;
+    }
+}
@@ -0,0 +1,111 @@
+package com.server.benchmarks;
+
+import com.server.http.HttpDecoder;
+import com.server.http.HttpParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpDecoderBenchmark: cost of decoding one request head with a reused HttpDecoder.
+ * - small: request-line plus Host, the shape of a load balancer health check.
+ * - headerHeavy: browser-like request with ~20 headers, cookies and a long user agent.
+ * - malformed: header line without a colon; measures the rejection path (HttpParseException).
+ * - decodeSplit feeds the same bytes in 64-byte slices, as a slow client's packets would arrive.
+ * - gc.alloc.rate.norm (GC profiler, on by default) shows bytes allocated per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpDecoderBenchmark {
+    private static final int SLICE = 64;
+
+    @Param({"small", "headerHeavy", "malformed"})
+    public String shape;
+
+    private HttpDecoder decoder;
+    private ByteBuffer input;
+
+    @Setup
+    public void setUp() {
+        decoder = new HttpDecoder();
+        input = ByteBuffer.wrap(request(shape).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public Object decode() {
+        input.rewind();
+        return decodeFrom(input);
+    }
+
+    @Benchmark
+    public Object decodeSplit() {
+        final ByteBuffer slice = input.duplicate();
+        Object result = null;
+        for (int start = 0; start < input.capacity() && result == null; start += SLICE) {
+            slice.limit(Math.min(start + SLICE, input.capacity())).position(start);
+            result = decodeFrom(slice);
+        }
+        return result;
+    }
+
+    // Request on success, the exception on a parse error (decoder reset for the next round)
+    private Object decodeFrom(final ByteBuffer buffer) {
+        try {
+            return decoder.decode(buffer);
+        } catch (HttpParseException e) {
+            decoder.reset();
+            return e;
+        }
+    }
+
+    static String request(final String shape) {
+        return switch (shape) {
+            case "small" -> "GET /health HTTP/1.1\r\n"
+                    + "Host: localhost:8080\r\n"
+                    + "\r\n";
+            case "headerHeavy" -> "GET /api/v1/users/12345/orders?page=2&size=50&sort=createdAt,desc HTTP/1.1\r\n"
+                    + "Host: shop.example.com\r\n"
+                    + "Connection: keep-alive\r\n"
+                    + "Cache-Control: max-age=0\r\n"
+                    + "sec-ch-ua: \"Chromium\";v=\"124\", \"Google Chrome\";v=\"124\", \"Not-A.Brand\";v=\"99\"\r\n"
+                    + "sec-ch-ua-mobile: ?0\r\n"
+                    + "sec-ch-ua-platform: \"Linux\"\r\n"
+                    + "Upgrade-Insecure-Requests: 1\r\n"
+                    + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36\r\n"
+                    + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n"
+                    + "Sec-Fetch-Site: same-origin\r\n"
+                    + "Sec-Fetch-Mode: navigate\r\n"
+                    + "Sec-Fetch-User: ?1\r\n"
+                    + "Sec-Fetch-Dest: document\r\n"
+                    + "Referer: https://shop.example.com/api/v1/users/12345/orders?page=1\r\n"
+                    + "Accept-Encoding: gzip, deflate, br, zstd\r\n"
+                    + "Accept-Language: en-GB,en-US;q=0.9,en;q=0.8\r\n"
+                    + "Cookie: session=9f8e7d6c5b4a39281706f5e4d3c2b1a0; theme=dark; _ga=GA1.1.123456789.1712345678; cart=3\r\n"
+                    + "If-None-Match: \"5d41402abc4b2a76b9719d911017c592\"\r\n"
+                    + "X-Request-Id: 0b9c7e1e-6f0e-4c1b-9d8a-3f2e1d0c9b8a\r\n"
+                    + "X-Forwarded-For: 203.0.113.7, 198.51.100.23\r\n"
+                    + "\r\n";
+            case "malformed" -> "GET /api/v1/users HTTP/1.1\r\n"
+                    + "Host: localhost:8080\r\n"
+                    + "Accept text/html\r\n"
+                    + "\r\n";
+            default -> throw new IllegalArgumentException("Unknown shape " + shape);
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.server.benchmarks;
+
+import com.server.pojos.HttpResponse;
+import com.server.pojos.HttpStatusCode;
+import com.server.writers.ResponseWriter;
+import com.server.writers.StreamResponseSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseWriterBenchmark: cost of serializing one response, per body size.
+ * - writeResponse: the byte-oriented ResponseWriter into a StreamResponseSink over a
+ *   discarding channel (pooled buffer, pre-encoded status line, one write per flush).
+ * - buildAndWrite: same, including HttpResponse.Builder (header container, cached Date).
+ * - stringBaseline: the previous approach for comparison: a HashMap of List values with a
+ *   freshly formatted Date per response, then String concatenation through a BufferedWriter
+ *   with the body re-encoded and measured with getBytes.
+ * - Compare gc.alloc.rate.norm (bytes allocated per response; the GC profiler is on by default).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseWriterBenchmark {
+    @Param({"16", "1024", "65536"})
+    public int bodySize;
+
+    private HttpResponse response;
+    private String body;
+    private StreamResponseSink sink;
+    private DiscardChannel channel;
+    private BufferedWriter writer;
+
+    @Setup
+    public void setUp() {
+        body = "x".repeat(bodySize);
+        response = new HttpResponse.Builder()
+                .setStatusCode(200)
+                .addHeader("Content-Type", "text/plain")
+                .setEntity(body)
+                .build();
+        channel = new DiscardChannel();
+        sink = new StreamResponseSink(OutputStream.nullOutputStream(), channel);
+        writer = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public long writeResponse() throws IOException {
+        ResponseWriter.writeResponse(sink, response, false);
+        sink.flush();
+        return channel.written;
+    }
+
+    @Benchmark
+    public long buildAndWrite() throws IOException {
+        final HttpResponse built = new HttpResponse.Builder()
+                .setStatusCode(200)
+                .addHeader("Content-Type", "text/plain")
+                .setEntity(body)
+                .build();
+        ResponseWriter.writeResponse(sink, built, false);
+        sink.flush();
+        return channel.written;
+    }
+
+    @Benchmark
+    public BufferedWriter stringBaseline() throws IOException {
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Server", List.of("MyServer"));
+        headers.put("Date", List.of(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC))));
+        headers.put("Content-Type", List.of("text/plain"));
+
+        final int statusCode = 200;
+        writer.write("HTTP/1.1 " + statusCode + " " + HttpStatusCode.STATUS_CODES.get(statusCode) + "\r\n");
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            final StringBuilder values = new StringBuilder();
+            header.getValue().forEach(values::append);
+            values.append(";");
+            writer.write(header.getKey() + ": " + values + "\r\n");
+        }
+        final String body = new String(this.body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        writer.write("Content-Length: " + body.getBytes().length + "\r\n");
+        writer.write("\r\n");
+        writer.write(body);
+        writer.flush();
+        return writer;
+    }
+
+    // Socket stand-in: accepts every byte (gathering, like a SocketChannel)
+    static final class DiscardChannel implements GatheringByteChannel {
+        long written;
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int n = src.remaining();
+            src.position(src.limit());
+            written += n;
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long n = 0;
+            for (int i = offset; i < offset + length; i++) {
+                n += write(srcs[i]);
+            }
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.server.benchmarks;
+
+import com.server.contract.HttpMethod;
+import com.server.contract.RequestRunner;
+import com.server.routing.RouteMatch;
+import com.server.routing.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RouterBenchmark: route lookup cost as the route table grows from 10 to 10k routes.
+ * - Half of the routes are static ("/api/v1/resource42/list"), half carry a parameter
+ *   ("/api/v1/resource42/{id}"); a few wildcard routes sit next to them.
+ * - staticHit / paramHit / wildcardHit look up the route registered last (deepest sibling
+ *   scan); miss looks up a path that shares the common prefix but matches nothing (404).
+ * - allowedMethods is the 405 probe HttpHandler runs after a miss for the request's method.
+ * - frozen: the router as the server uses it after start() (static paths answered from the
+ *   exact-path table) versus still open for registration (trees only).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+    private static final RequestRunner RUNNER = request -> null;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int routeCount;
+
+    @Param({"true", "false"})
+    public boolean frozen;
+
+    private Router router;
+    private String staticPath;
+    private String paramPath;
+    private String wildcardPath;
+    private String missPath;
+
+    @Setup
+    public void setUp() {
+        router = new Router();
+        final int resources = Math.max(routeCount / 2, 1);
+        for (int i = 0; i < resources; i++) {
+            router.add(HttpMethod.GET, "/api/v1/resource" + i + "/list", RUNNER);
+            router.add(HttpMethod.GET, "/api/v1/resource" + i + "/{id}", RUNNER);
+        }
+        router.add(HttpMethod.GET, "/static/*", RUNNER);
+        router.add(HttpMethod.POST, "/api/v1/resource0/{id}", RUNNER);
+        if (frozen) {
+            router.freeze();
+        }
+
+        final int last = resources - 1;
+        staticPath = "/api/v1/resource" + last + "/list";
+        paramPath = "/api/v1/resource" + last + "/987654";
+        wildcardPath = "/static/css/site/main.css";
+        missPath = "/api/v1/resource" + resources + "/list";
+    }
+
+    @Benchmark
+    public RouteMatch staticHit() {
+        return router.match(HttpMethod.GET, staticPath);
+    }
+
+    @Benchmark
+    public RouteMatch paramHit() {
+        return router.match(HttpMethod.GET, paramPath);
+    }
+
+    @Benchmark
+    public RouteMatch wildcardHit() {
+        return router.match(HttpMethod.GET, wildcardPath);
+    }
+
+    @Benchmark
+    public RouteMatch miss() {
+        return router.match(HttpMethod.GET, missPath);
+    }
+
+    @Benchmark
+    public Object allowedMethods() {
+        return router.allowedMethods(missPath);
+    }
+}
@@ -1,12 +1,15 @@
+import com.server.config.ServerConfig;
 import com.server.pojos.HttpResponse;
 
 import java.io.IOException;
+import java.time.Duration;
 
 import static com.server.contract.HttpMethod.GET;
 
 public class App {
     public static void main(String[] args) throws IOException {
-        Server myServer = new Server(8080);
+        // Warm the request path before the port opens (see README: Fast startup)
+        Server myServer = new Server(8080, new ServerConfig.Builder().setWarmupRequests(10_000).build());
         myServer.addRoute(GET, "/testOne",
                 (req) -> new HttpResponse.Builder()
                         .setStatusCode(200)
@@ -19,6 +22,8 @@ public class App {
                         .addHeader("Content-Type", "text/plain")
                         .setEntity("Response for /testTwo")
                         .build());
+        // SIGTERM (rolling deploy): stop accepting and let in-flight requests finish
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> myServer.stop(Duration.ofSeconds(10))));
         myServer.start();
     }
 }
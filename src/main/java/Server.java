@@ -1,64 +1,537 @@
+import com.server.admission.AdmissionController;
+import com.server.cache.CachePolicy;
+import com.server.cache.ResponseCache;
+import com.server.config.ServerConfig;
+import com.server.contract.AsyncRequestRunner;
+import com.server.contract.Filter;
 import com.server.contract.HttpMethod;
 import com.server.contract.RequestRunner;
+import com.server.executor.ExecutorMetrics;
+import com.server.executor.WorkerExecutor;
+import com.server.http.AsyncRoute;
 import com.server.http.HttpHandler;
+import com.server.logging.Logger;
+import com.server.logging.Logging;
+import com.server.metrics.ServerMetrics;
+import com.server.pojos.HttpResponse;
+import com.server.push.PushPolicy;
+import com.server.push.WebSocket;
+import com.server.push.WebSocketListener;
+import com.server.routing.Router;
+import com.server.tls.TlsChannel;
+import com.server.tls.TlsContext;
+import com.server.transport.NioTransport;
+import com.server.transport.SocketTuning;
 
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Server: minimal multithreaded HTTP server.
  * - Binds to a TCP port, accepts client sockets, and dispatches each to a worker thread.
- * - Keeps a registry of routes keyed by "HTTP_METHOD + path" mapping to RequestRunner handlers.
+ * - Keeps a Router of per-method route trees ("/users", "/users/{id}", "/static/*") mapping to RequestRunner handlers.
  * - Delegates per-connection HTTP parsing, routing, and response writing to HttpHandler.
- * - Lifecycle: start() blocks on accept(), submits a task per connection, ensures socket cleanup.
+ * - Connections are persistent (keep-alive); idle timeout and per-connection limits come from ServerConfig.
+ * - Transport (ServerConfig): BLOCKING parks a worker per connection; NIO multiplexes connections
+ *   over selector event loops and only uses workers to run handlers.
+ * - Workers (ServerConfig.ExecutorMode): fixed platform pool, virtual thread per task, or bounded
+ *   virtual threads; in bounded mode the accept loop waits for a free slot before accepting.
+ * - Async routes (AsyncRequestRunner + timeout) complete later without holding an NIO worker;
+ *   late ones get 504, and they are cancelled when the client disconnects.
+ * - Filters (global via addFilter, per route via addRoute) are composed with each handler into
+ *   a single RequestRunner when start() registers the routes.
+ * - Routes registered with a CachePolicy are served through a shared ResponseCache (ETag/304,
+ *   TTL, LRU bounded by ServerConfig.responseCacheMaxBytes).
+ * - Admission (ServerConfig.admission): connections over maxConnections, or that find the
+ *   worker queue full, are answered with a canned 503 + Retry-After and closed right at accept;
+ *   per-request rate and concurrency limits are applied by HttpHandler.
+ * - Metrics: connection, executor and per-route latency metrics are collected in ServerMetrics;
+ *   ServerConfig.metricsPath exposes them as a Prometheus scrape endpoint.
+ * - Acceptors (ServerConfig.acceptorThreads): several threads accept, each on its own
+ *   SO_REUSEPORT socket where supported; NIO acceptors feed disjoint shards of event loops.
+ * - Lifecycle: start() serves until stop(timeout), which stops accepting, drains in-flight
+ *   requests up to the deadline, then closes connections and workers.
+ * - TLS (ServerConfig.tls): connections are TLS via SSLEngine (TlsChannel) on both transports,
+ *   with session resumption and ALPN; NIO runs handshake computation on a dedicated executor.
+ * - HTTP/2 (ServerConfig.http2, NIO only): "h2" is offered first in ALPN, plaintext connections
+ *   accept prior-knowledge h2c and "Upgrade: h2c"; requests of a connection are multiplexed.
+ * - Push (com.server.push): WebSocket routes (addWebSocket, NIO only) and EventStream responses
+ *   hand the connection to the stream after the head; on NIO no thread is held per stream and
+ *   a Broadcaster fans messages out from a small shared scheduler.
+ * - Boot: the constructor only records settings; start() freezes the routes into the
+ *   Router's compiled tables, creates workers and event loops, optionally warms the request
+ *   path (ServerConfig.warmupRequests), and binds the port last, so an instance only takes
+ *   connections once it can serve them at full speed. The boot time is logged and exported.
  */
 public class Server {
-    private final Map<String, RequestRunner> routes;   // "METHOD + route" -> handler
-    private final ServerSocket socket;                 // listening socket
-    private final Executor threadPool;                 // worker pool for concurrency
-    private HttpHandler handler;                       // shared handler using routes
+    private static final Logger LOG = Logging.getLogger(Server.class);
+    private static final long DRAIN_POLL_MILLIS = 10;
+    private static final long ACCEPT_RETRY_MILLIS = 10;
+
+    private final Router router;                       // (METHOD, route pattern) -> handler
+    private final int port;                            // requested port (0 = ephemeral)
+    private final ServerConfig config;                 // keep-alive and connection settings
+    private final ServerMetrics metrics;               // counters, gauges, latency histograms
+    private final ResponseCache responseCache;         // serialized responses of cached routes
+    private final List<Filter> filters = new ArrayList<>();                 // global, outermost first
+    private final List<RouteDefinition> routes = new ArrayList<>();         // added to the router by start()
+    private final List<Thread> acceptorThreads = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final CountDownLatch terminated = new CountDownLatch(1);       // released when stop() is done
+    private final CountDownLatch ready = new CountDownLatch(1);            // released once start() listens (or fails)
+    private volatile boolean drained;                  // outcome of stop()
+    private volatile long startupNanos;                // start() call to listening
+    private volatile ServerSocketChannel[] sockets;    // listening sockets: one per acceptor with SO_REUSEPORT, else one
+    private volatile WorkerExecutor threadPool;        // worker strategy for concurrency
+    private volatile HttpHandler handler;              // shared handler using the router
+    private volatile NioTransport nio;                 // event loops (NIO transport only)
+    private volatile TlsContext tls;                   // key material and handshake executor (TLS only)
+
+    // A registered route; start() composes it with the global and its own filters
+    private record RouteDefinition(HttpMethod method, String pattern, RequestRunner runner,
+                                   AsyncRequestRunner asyncRunner, long timeoutNanos, List<Filter> filters) {
+    }
 
     public Server(int port) throws IOException {
-        routes = new HashMap<>();
-        threadPool = Executors.newFixedThreadPool(100);
-        socket = new ServerSocket(port);
+        this(port, ServerConfig.defaults());
+    }
+
+    public Server(int port, ServerConfig config) throws IOException {
+        this.port = port;
+        this.config = config;
+        router = new Router();
+        metrics = new ServerMetrics();
+        responseCache = new ResponseCache(config.getResponseCacheMaxBytes());
+        metrics.registerResponseCache(responseCache);
+        metrics.registerGauge("http_server_startup_seconds", "Time from start() until the port was listening",
+                () -> startupNanos / 1e9);
+    }
+
+    // Listening sockets: with reusePort, one per acceptor on the same port (the first picks it if 0)
+    private static ServerSocketChannel[] bind(int port, ServerConfig config) throws IOException {
+        final boolean reusePort = config.isReusePort() && SocketTuning.supportsReusePort();
+        if (config.isReusePort() && !reusePort) {
+            LOG.warn("SO_REUSEPORT is not supported here; acceptors share one listening socket");
+        }
+        final ServerSocketChannel[] sockets = new ServerSocketChannel[reusePort ? config.getAcceptorThreads() : 1];
+        try {
+            sockets[0] = SocketTuning.bind(port, config, reusePort);
+            for (int i = 1; i < sockets.length; i++) {
+                sockets[i] = SocketTuning.bind(sockets[0].socket().getLocalPort(), config, true);
+            }
+        } catch (IOException e) {
+            for (ServerSocketChannel socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+            throw e;
+        }
+        return sockets;
     }
 
-    // Register a route handler, e.g. addRoute(GET, "/users", runner)
+    // Register a route handler, e.g. addRoute(GET, "/users/{id}", runner); read parameters via request.getPathParameter("id")
     public void addRoute(HttpMethod opCode, String route, RequestRunner runner) {
-        routes.put(opCode.name().concat(route), runner);
+        addRoute(opCode, route, runner, new Filter[0]);
+    }
+
+    // Same, wrapped in route-specific filters (inside the global ones, first outermost)
+    public void addRoute(HttpMethod opCode, String route, RequestRunner runner, Filter... routeFilters) {
+        checkNotStarted();
+        routes.add(new RouteDefinition(opCode, route, runner, null, 0, List.of(routeFilters)));
+    }
+
+    // Same, with responses cached per the policy (GET only; see ResponseCache); filters run before the cache
+    public void addRoute(HttpMethod opCode, String route, RequestRunner runner, CachePolicy policy, Filter... routeFilters) {
+        addRoute(opCode, route, responseCache.wrap(runner, policy), routeFilters);
+    }
+
+    // WebSocket endpoint: GET upgrades to a socket driven by the listener (NIO transport only)
+    public void addWebSocket(String route, WebSocketListener listener, Filter... routeFilters) {
+        addWebSocket(route, listener, PushPolicy.defaults(), routeFilters);
+    }
+
+    public void addWebSocket(String route, WebSocketListener listener, PushPolicy policy, Filter... routeFilters) {
+        Objects.requireNonNull(listener, "listener");
+        addRoute(HttpMethod.GET, route, request -> WebSocket.accept(request, listener, policy), routeFilters);
+    }
+
+    // Filter applied to every route (whenever registered), in the order added, outside route filters
+    public void addFilter(Filter filter) {
+        checkNotStarted();
+        filters.add(Objects.requireNonNull(filter, "filter"));
+    }
+
+    /**
+     * Register an asynchronous handler; the NIO transport frees the worker while its stage is
+     * pending (the blocking transport waits for it on the connection's thread).
+     * - timeout: answered with 504 (and the stage cancelled) if not completed by then;
+     *   Duration.ZERO disables it.
+     * - Every filter on the route (global ones included) must implement Filter.filterAsync;
+     *   start() fails otherwise.
+     */
+    public void addRoute(HttpMethod opCode, String route, AsyncRequestRunner runner, Duration timeout, Filter... routeFilters) {
+        checkNotStarted();
+        routes.add(new RouteDefinition(opCode, route, null, runner, timeout.toNanos(), List.of(routeFilters)));
+    }
+
+    /**
+     * Start serving and block until stop() has finished.
+     * - Freezes the routes (later addRoute/addFilter calls throw), builds the handler, workers
+     *   and event loops and runs the configured warm-up before binding, so the port only opens
+     *   once the server is ready.
+     * - Then runs config.acceptorThreads acceptor threads, each on its own SO_REUSEPORT
+     *   listening socket when available (otherwise on the shared one).
+     */
+    public void start() throws IOException {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        final long begin = System.nanoTime();
+        try {
+            boot();
+        } catch (IOException | RuntimeException e) {
+            abortStart();
+            throw e;
+        } finally {
+            ready.countDown();
+        }
+        startupNanos = System.nanoTime() - begin;
+        LOG.info(() -> "Listening on port " + getPort() + " with " + config.getAcceptorThreads() + " acceptor(s) on "
+                + sockets.length + " socket(s), transport " + config.getTransport() + "; started in "
+                + TimeUnit.NANOSECONDS.toMillis(startupNanos) + " ms (JVM up " + jvmUptimeMillis() + " ms)");
+
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while serving");
+        }
+    }
+
+    // Everything start() sets up, in order; binding comes last
+    private void boot() throws IOException {
+        if (config.getMetricsPath() != null) {
+            routes.add(new RouteDefinition(HttpMethod.GET, config.getMetricsPath(), request -> new HttpResponse.Builder()
+                    .setStatusCode(200)
+                    .addHeader("Content-Type", ServerMetrics.CONTENT_TYPE)
+                    .setEntity(metrics.scrape())
+                    .build(), null, 0, List.of()));
+        }
+        registerRoutes();
+        handler = new HttpHandler(router, config, metrics);    // freezes the router
+        metrics.registerAdmission(handler.getAdmission());
+        if (config.getWarmupRequests() > 0) {
+            final long warmupStart = System.nanoTime();
+            handler.warmUp(config.getWarmupRequests());
+            LOG.info(() -> "Warmed up the request path with " + config.getWarmupRequests() + " requests in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - warmupStart) + " ms");
+        }
+
+        if (config.getTls() != null) {
+            tls = new TlsContext(config.getTls(), config.getHttp2() != null);
+            metrics.registerTls(tls);
+        }
+        threadPool = WorkerExecutor.create(config);
+        metrics.registerExecutor(threadPool.getMetrics(), executorCapacity(config));
+        if (config.getTransport() == ServerConfig.Transport.NIO) {
+            nio = new NioTransport(handler, threadPool, tls);
+        }
+        sockets = bind(port, config);
+
+        final int acceptors = config.getAcceptorThreads();
+        for (int i = 0; i < acceptors; i++) {
+            final ServerSocketChannel socket = sockets[i % sockets.length];
+            final int index = i;
+            final Thread acceptor = new Thread(() -> runAcceptor(socket, index, acceptors), "acceptor-" + i);
+            acceptor.setDaemon(true);
+            acceptorThreads.add(acceptor);
+        }
+        // stop() sets the flag before reading sockets: one of the two sees the other
+        if (stopping.get()) {
+            throw new IllegalStateException("Server was stopped before it started");
+        }
+        acceptorThreads.forEach(Thread::start);
+    }
+
+    // start() failed or raced with stop(): release what boot() created and unblock stop() callers
+    private void abortStart() {
+        closeSockets();
+        if (nio != null) {
+            nio.shutdown();
+        }
+        if (threadPool != null) {
+            try {
+                threadPool.shutdown(0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (tls != null) {
+            tls.shutdown();
+        }
+        terminated.countDown();
+    }
+
+    /**
+     * Wait until start() has opened the port; false on timeout or if start() failed.
+     * - start() blocks while serving, so callers that run it on another thread use this
+     *   before getPort().
+     */
+    public boolean awaitStarted(Duration timeout) throws InterruptedException {
+        return ready.await(timeout.toNanos(), TimeUnit.NANOSECONDS) && terminated.getCount() > 0 && sockets != null;
+    }
+
+    // Time start() took to open the port (0 until it has)
+    public Duration getStartupTime() {
+        return Duration.ofNanos(startupNanos);
+    }
+
+    private static long jvmUptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    private void checkNotStarted() {
+        if (started.get()) {
+            throw new IllegalStateException("Routes and filters must be added before start()");
+        }
+    }
+
+    /**
+     * Graceful shutdown; returns true if every connection finished within the timeout.
+     * - Stops accepting: the listening sockets are closed (with SO_REUSEPORT, a new instance
+     *   bound to the same port keeps taking connections meanwhile; Linux resets connections
+     *   still queued in a closed socket's backlog).
+     * - Drains: idle keep-alive connections close at once, busy ones after their current
+     *   response (sent with "Connection: close").
+     * - After the timeout, remaining connections are closed and workers interrupted.
+     * - Concurrent callers wait for the first one; start() returns once this completes.
+     */
+    public boolean stop(Duration timeout) {
+        if (!stopping.compareAndSet(false, true)) {
+            awaitTermination();
+            return drained;
+        }
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        LOG.info(() -> "Stopping: draining connections for up to " + timeout.toMillis() + " ms");
+
+        closeSockets();
+        // Also wakes acceptors waiting for a worker slot
+        acceptorThreads.forEach(Thread::interrupt);
+
+        boolean clean = true;
+        if (handler != null) {
+            handler.drain();
+            if (nio != null) {
+                nio.drain();
+            }
+            clean = awaitConnectionsClosed(deadline);
+            if (!clean) {
+                LOG.warn("Drain timeout expired with " + metrics.getConnectionsActive() + " connection(s) open; closing them");
+                handler.closeAll();
+            }
+            if (nio != null) {
+                nio.shutdown();
+            }
+        }
+        final WorkerExecutor workers = threadPool;
+        if (workers != null) {
+            try {
+                clean &= workers.shutdown(Math.max(0, deadline - System.nanoTime()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                clean = false;
+            }
+        }
+        if (tls != null) {
+            tls.shutdown();
+        }
+        drained = clean;
+        terminated.countDown();
+        LOG.info(() -> "Stopped");
+        return clean;
+    }
+
+    private void closeSockets() {
+        final ServerSocketChannel[] listening = sockets;
+        if (listening != null) {
+            for (ServerSocketChannel socket : listening) {
+                try { socket.close(); } catch (IOException e) { /* ignore */ }
+            }
+        }
+    }
+
+    private void awaitTermination() {
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Poll until every connection has closed or the deadline passes
+    private boolean awaitConnectionsClosed(long deadline) {
+        while (metrics.getConnectionsActive() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
     }
 
-    // Start accept loop: create handler, accept sockets, hand off to workers
-    public void start() throws IOException{
-        handler = new HttpHandler(routes);
+    /**
+     * One acceptor thread: accept until the listening socket is closed by stop().
+     * - Other accept() failures (e.g. out of file descriptors during a connection storm) are
+     *   logged and retried after a short pause instead of ending the acceptor.
+     */
+    private void runAcceptor(ServerSocketChannel socket, int index, int acceptors) {
+        while (!stopping.get()) {
+            try {
+                if (nio != null) {
+                    nio.serve(socket, index, acceptors);
+                } else {
+                    acceptBlocking(socket);
+                }
+            } catch (ClosedChannelException e) {
+                return;                                    // includes AsynchronousCloseException
+            } catch (IOException e) {
+                if (stopping.get()) {
+                    return;
+                }
+                LOG.warn("accept() failed on " + Thread.currentThread().getName(), e);
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Blocking transport: accept and hand each connection to a worker; returns when interrupted
+    private void acceptBlocking(ServerSocketChannel socket) throws IOException {
+        final AdmissionController admission = handler.getAdmission();
+        while (true) {
+            // Backpressure: with bounded workers, stop accepting until a slot frees up
+            try {
+                threadPool.acquireSlot();
+            } catch (InterruptedException e) {
+                return;
+            }
 
-        while(true) {
-            Socket clientConnection = socket.accept();
-            System.out.println("-----------Socket Connection-----------");
-            System.out.println(clientConnection);
-            System.out.println("\n");
-            handleConnection(clientConnection);
+            final SocketChannel clientChannel;
+            try {
+                clientChannel = socket.accept();
+            } catch (IOException e) {
+                threadPool.releaseSlot();
+                throw e;
+            }
+            if (!admission.tryOpenConnection()) {
+                threadPool.releaseSlot();
+                admission.shed(clientChannel);
+                continue;
+            }
+            Socket clientConnection = clientChannel.socket();
+            metrics.connectionOpened();
+            LOG.debug(() -> "Accepted connection " + clientConnection);
+            try {
+                handleConnection(clientChannel, clientConnection);
+            } catch (RejectedExecutionException e) {
+                // Worker queue full (or shutting down): refuse the connection instead of queueing it
+                admission.overloaded();
+                admission.shed(clientChannel);
+                admission.connectionClosed();
+                metrics.connectionClosed();
+            }
         }
     }
 
     // Encapsulate per-connection work into a task and execute asynchronously
-    private void handleConnection(Socket clientConnection) {
+    private void handleConnection(SocketChannel clientChannel, Socket clientConnection) {
         Runnable httpRequestRunner = () -> {
             try {
-                handler.handleConnection(clientConnection.getInputStream(), clientConnection.getOutputStream());
+                SocketTuning.configureClient(clientChannel, config);
+                // Read timeout doubles as the keep-alive idle timeout
+                clientConnection.setSoTimeout(config.getIdleTimeoutMillis());
+                final TlsContext context = tls;
+                if (context == null) {
+                    handler.handleConnection(clientConnection.getInputStream(), clientConnection.getOutputStream(), clientChannel);
+                } else {
+                    // This thread owns the connection, so it also runs the handshake (bounded by SO_TIMEOUT)
+                    final TlsChannel secure = TlsChannel.blocking(clientChannel, context);
+                    handler.handleConnection(Channels.newInputStream(secure), Channels.newOutputStream(secure), secure);
+                }
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                // Connection reset or similar: the client is gone, nothing to answer
+                LOG.debug(() -> "Connection ended with " + e);
             } finally {
                 try { clientConnection.close(); } catch (IOException e) { /* ignore */ }
+                metrics.connectionClosed();
+                handler.getAdmission().connectionClosed();
             }
         };
 
-        threadPool.execute(httpRequestRunner);
+        threadPool.executeAcquired(httpRequestRunner);
+    }
+
+    // Compose each route's filter chain once and add the resulting handler to the router
+    private void registerRoutes() {
+        for (RouteDefinition route : routes) {
+            final List<Filter> chain = new ArrayList<>(filters);
+            chain.addAll(route.filters());
+            if (route.asyncRunner() != null) {
+                router.add(route.method(), route.pattern(),
+                        new AsyncRoute(Filter.composeAsync(chain, route.asyncRunner()), route.timeoutNanos()));
+            } else {
+                router.add(route.method(), route.pattern(), Filter.compose(chain, route.runner()));
+            }
+        }
+        routes.clear();
+    }
+
+    // Per-mode worker counters (submitted, active, queue depth, waits); null before start()
+    public ExecutorMetrics getExecutorMetrics() {
+        final WorkerExecutor workers = threadPool;
+        return workers == null ? null : workers.getMetrics();
+    }
+
+    // Port the listening socket is bound to (the ephemeral one when constructed with port 0); -1 before start() binds
+    public int getPort() {
+        final ServerSocketChannel[] listening = sockets;
+        return listening == null ? -1 : listening[0].socket().getLocalPort();
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Worker capacity behind the saturation gauge (virtual thread per task is unbounded)
+    private static int executorCapacity(ServerConfig config) {
+        return switch (config.getExecutorMode()) {
+            case FIXED -> config.getWorkerThreads();
+            case BOUNDED_VIRTUAL -> config.getMaxConcurrency();
+            case VIRTUAL -> 0;
+        };
     }
 }
\ No newline at end of file
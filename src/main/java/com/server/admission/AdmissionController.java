@@ -0,0 +1,176 @@
+package com.server.admission;
+
+import com.server.pojos.HttpResponse;
+import com.server.writers.ResponseWriter;
+import com.server.writers.StreamResponseSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AdmissionController: decides, as early and cheaply as possible, whether work is accepted.
+ * - Connections: tryOpenConnection() at accept against maxConnections; refused sockets get a
+ *   canned 503 + Retry-After via shed() and are closed before any worker is involved.
+ * - Requests: admit() applies the client's token bucket (429) and the adaptive concurrency
+ *   limit (503) before a handler runs; admitted requests report back through complete().
+ * - Rejection responses are canned and carry Retry-After, so shedding costs a few bytes of
+ *   writing and no handler, executor queue slot or allocation.
+ * - Limits that are 0 in the AdmissionPolicy are skipped entirely.
+ * - On a TLS port shed() only closes: a plaintext 503 before the handshake means nothing
+ *   to the client.
+ */
+public class AdmissionController {
+    private final int maxConnections;
+    private final boolean secure;                          // TLS port: shed() closes without a response
+    private final TokenBucketLimiter rateLimiter;          // null when rate limiting is off
+    private final AimdLimiter concurrencyLimiter;          // null when the adaptive limit is off
+    private final AtomicInteger connections = new AtomicInteger();
+    private final HttpResponse tooManyRequests;
+    private final HttpResponse serviceUnavailable;
+
+    private final LongAdder shedConnections = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+
+    public AdmissionController(AdmissionPolicy policy) {
+        this(policy, false);
+    }
+
+    public AdmissionController(AdmissionPolicy policy, boolean secure) {
+        this.maxConnections = policy.getMaxConnections();
+        this.secure = secure;
+        this.rateLimiter = policy.getRateLimitPerSecond() > 0
+                ? new TokenBucketLimiter(policy.getRateLimitPerSecond(), policy.getRateLimitBurst())
+                : null;
+        this.concurrencyLimiter = policy.getLatencyTargetMillis() > 0
+                ? new AimdLimiter(policy.getLatencyTargetMillis() * 1_000_000L, policy.getInitialConcurrency(),
+                policy.getMinConcurrency(), policy.getMaxConcurrency())
+                : null;
+
+        final int refillSeconds = policy.getRateLimitPerSecond() > 0 ? Math.max(1, (int) Math.ceil(1.0 / policy.getRateLimitPerSecond())) : 1;
+        this.tooManyRequests = rejection(429, "Too Many Requests....", refillSeconds);
+        this.serviceUnavailable = rejection(503, "Service Unavailable....", policy.getRetryAfterSeconds());
+    }
+
+    // Count a newly accepted connection; false when over maxConnections (caller sheds it)
+    public boolean tryOpenConnection() {
+        if (maxConnections <= 0) {
+            connections.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            final int open = connections.get();
+            if (open >= maxConnections) {
+                shedConnections.increment();
+                return false;
+            }
+            if (connections.compareAndSet(open, open + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Admission check for one request from the given client (null when unknown).
+     * - Returns null when admitted: the caller runs the handler and must then call complete().
+     * - Otherwise the canned rejection to send instead (429 or 503).
+     */
+    public HttpResponse admit(final InetAddress client) {
+        if (rateLimiter != null && client != null && !rateLimiter.tryAcquire(client)) {
+            rateLimited.increment();
+            return tooManyRequests;
+        }
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+            overloaded.increment();
+            return serviceUnavailable;
+        }
+        return null;
+    }
+
+    // An admitted request finished; its handler latency feeds the adaptive limit
+    public void complete(final long latencyNanos) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release(latencyNanos);
+        }
+    }
+
+    // An admitted request was not run after all; frees its slot without a latency sample
+    public void abandon() {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.abandon();
+        }
+    }
+
+    // Canned 503 for work refused after admission (e.g. a full worker queue)
+    public HttpResponse overloaded() {
+        overloaded.increment();
+        return serviceUnavailable;
+    }
+
+    /**
+     * Refuse a freshly accepted (blocking-mode) socket: write the 503 and close it.
+     * - A new socket's send buffer is empty, so the small write does not block in practice.
+     */
+    public void shed(final SocketChannel channel) {
+        if (secure) {
+            try { channel.close(); } catch (IOException e) { /* ignore */ }
+            return;
+        }
+        final StreamResponseSink sink = new StreamResponseSink(OutputStream.nullOutputStream(), channel);
+        try (channel) {
+            ResponseWriter.writeResponse(sink, serviceUnavailable, true);
+            sink.flush();
+        } catch (IOException e) {
+            // Client already gone; nothing else to do
+        } finally {
+            sink.release();
+        }
+    }
+
+    // Client IP of a remote socket address, or null
+    public static InetAddress clientAddress(final Object remote) {
+        return remote instanceof InetSocketAddress address ? address.getAddress() : null;
+    }
+
+    private static HttpResponse rejection(final int statusCode, final String body, final int retryAfterSeconds) {
+        return new HttpResponse.Builder()
+                .setStatusCode(statusCode)
+                .addHeader("Retry-After", Integer.toString(retryAfterSeconds))
+                .setEntity(body)
+                .build();
+    }
+
+    public int getOpenConnections() {
+        return connections.get();
+    }
+
+    public long getShedConnections() {
+        return shedConnections.sum();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    public long getOverloaded() {
+        return overloaded.sum();
+    }
+
+    // Current adaptive concurrency limit (0 when disabled)
+    public double getConcurrencyLimit() {
+        return concurrencyLimiter == null ? 0 : concurrencyLimiter.getLimit();
+    }
+
+    public int getInFlight() {
+        return concurrencyLimiter == null ? 0 : concurrencyLimiter.getInFlight();
+    }
+}
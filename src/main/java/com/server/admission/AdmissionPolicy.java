@@ -0,0 +1,156 @@
+package com.server.admission;
+
+/**
+ * AdmissionPolicy: limits that let the server shed load instead of queueing without bound.
+ * - maxConnections: open connections beyond this are answered 503 at accept and closed.
+ * - maxQueuedRequests: bound of the worker queue (FIXED pool queue, BOUNDED_VIRTUAL permit
+ *   waiters); work rejected by a full queue is answered 503.
+ * - rateLimitPerSecond / rateLimitBurst: per-client-IP token bucket; requests over it get 429.
+ * - latencyTargetMillis: enables the adaptive concurrency limit (AIMD on handler latency),
+ *   starting at initialConcurrency and kept within [minConcurrency, maxConcurrency]; requests
+ *   over the current limit get 503.
+ * - retryAfterSeconds: Retry-After sent with 503 responses.
+ * - 0 disables a limit; unlimited() disables all of them (the default).
+ */
+public class AdmissionPolicy {
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+    public static final int DEFAULT_INITIAL_CONCURRENCY = 20;
+    public static final int DEFAULT_MIN_CONCURRENCY = 1;
+    public static final int DEFAULT_MAX_CONCURRENCY = 1_000;
+    // Milli-token buckets are packed into 32 bits (see TokenBucketLimiter)
+    public static final int MAX_RATE_LIMIT_BURST = 4_000;
+
+    private final int maxConnections;
+    private final int maxQueuedRequests;
+    private final int retryAfterSeconds;
+    private final int rateLimitPerSecond;
+    private final int rateLimitBurst;
+    private final int latencyTargetMillis;
+    private final int initialConcurrency;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+
+    private AdmissionPolicy(Builder builder) {
+        this.maxConnections = builder.maxConnections;
+        this.maxQueuedRequests = builder.maxQueuedRequests;
+        this.retryAfterSeconds = builder.retryAfterSeconds;
+        this.rateLimitPerSecond = builder.rateLimitPerSecond;
+        this.rateLimitBurst = builder.rateLimitBurst > 0 ? builder.rateLimitBurst : Math.min(builder.rateLimitPerSecond, MAX_RATE_LIMIT_BURST);
+        this.latencyTargetMillis = builder.latencyTargetMillis;
+        this.initialConcurrency = builder.initialConcurrency;
+        this.minConcurrency = builder.minConcurrency;
+        this.maxConcurrency = builder.maxConcurrency;
+    }
+
+    public static AdmissionPolicy unlimited() {
+        return new Builder().build();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    // Requests a client may send at once after being idle (defaults to one second's worth)
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public int getLatencyTargetMillis() {
+        return latencyTargetMillis;
+    }
+
+    public int getInitialConcurrency() {
+        return initialConcurrency;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionPolicy{" + "maxConnections=" + maxConnections + ", maxQueuedRequests=" + maxQueuedRequests
+                + ", retryAfterSeconds=" + retryAfterSeconds + ", rateLimitPerSecond=" + rateLimitPerSecond
+                + ", rateLimitBurst=" + rateLimitBurst + ", latencyTargetMillis=" + latencyTargetMillis
+                + ", initialConcurrency=" + initialConcurrency + ", minConcurrency=" + minConcurrency
+                + ", maxConcurrency=" + maxConcurrency + '}';
+    }
+
+    public static class Builder {
+        private int maxConnections;
+        private int maxQueuedRequests;
+        private int retryAfterSeconds = DEFAULT_RETRY_AFTER_SECONDS;
+        private int rateLimitPerSecond;
+        private int rateLimitBurst;
+        private int latencyTargetMillis;
+        private int initialConcurrency = DEFAULT_INITIAL_CONCURRENCY;
+        private int minConcurrency = DEFAULT_MIN_CONCURRENCY;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+        public Builder setMaxConnections(int maxConnections) {
+            this.maxConnections = nonNegative(maxConnections, "maxConnections");
+            return this;
+        }
+
+        public Builder setMaxQueuedRequests(int maxQueuedRequests) {
+            this.maxQueuedRequests = nonNegative(maxQueuedRequests, "maxQueuedRequests");
+            return this;
+        }
+
+        public Builder setRetryAfterSeconds(int retryAfterSeconds) {
+            this.retryAfterSeconds = nonNegative(retryAfterSeconds, "retryAfterSeconds");
+            return this;
+        }
+
+        public Builder setRateLimit(int perSecond, int burst) {
+            this.rateLimitPerSecond = nonNegative(perSecond, "rateLimitPerSecond");
+            if (burst < 0 || burst > MAX_RATE_LIMIT_BURST) {
+                throw new IllegalArgumentException("rateLimitBurst must be between 0 and " + MAX_RATE_LIMIT_BURST);
+            }
+            this.rateLimitBurst = burst;
+            return this;
+        }
+
+        public Builder setLatencyTargetMillis(int latencyTargetMillis) {
+            this.latencyTargetMillis = nonNegative(latencyTargetMillis, "latencyTargetMillis");
+            return this;
+        }
+
+        public Builder setConcurrencyRange(int initial, int min, int max) {
+            if (min < 1 || initial < min || max < initial) {
+                throw new IllegalArgumentException("Concurrency range must satisfy 1 <= min <= initial <= max");
+            }
+            this.initialConcurrency = initial;
+            this.minConcurrency = min;
+            this.maxConcurrency = max;
+            return this;
+        }
+
+        public AdmissionPolicy build() {
+            return new AdmissionPolicy(this);
+        }
+
+        private static int nonNegative(int value, String name) {
+            if (value < 0) {
+                throw new IllegalArgumentException(name + " must be >= 0");
+            }
+            return value;
+        }
+    }
+}
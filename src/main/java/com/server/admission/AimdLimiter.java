@@ -0,0 +1,74 @@
+package com.server.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AimdLimiter: adaptive cap on concurrently running handlers, driven by their latency.
+ * - Additive increase: a request that finished within the latency target while the limit was
+ *   at least half used raises the limit by 1/limit (about +1 per limit's worth of requests).
+ * - Multiplicative decrease: a request slower than the target cuts the limit by BACKOFF, at
+ *   most once per target interval, so one burst of slow requests does not collapse it.
+ * - Requests over the limit are rejected right away (503) rather than queued, keeping the
+ *   latency of admitted work near the target under overload.
+ * - Lock-free: the limit is a double in an AtomicLong, in-flight an AtomicInteger.
+ */
+final class AimdLimiter {
+    private static final double BACKOFF = 0.9;
+
+    private final long targetNanos;
+    private final double min;
+    private final double max;
+    private final AtomicLong limit;                        // Double bits
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+
+    AimdLimiter(long targetNanos, int initial, int min, int max) {
+        this.targetNanos = targetNanos;
+        this.min = min;
+        this.max = max;
+        this.limit = new AtomicLong(Double.doubleToLongBits(initial));
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= (int) getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Admitted request finished after latencyNanos
+    void release(final long latencyNanos) {
+        final int before = inFlight.getAndDecrement();
+        if (latencyNanos > targetNanos) {
+            final long now = System.nanoTime();
+            final long last = lastDecrease.get();
+            if (now - last >= targetNanos && lastDecrease.compareAndSet(last, now)) {
+                limit.getAndUpdate(bits -> Double.doubleToLongBits(Math.max(min, Double.longBitsToDouble(bits) * BACKOFF)));
+            }
+        } else if (before * 2 >= getLimit()) {
+            limit.getAndUpdate(bits -> {
+                final double current = Double.longBitsToDouble(bits);
+                return Double.doubleToLongBits(Math.min(max, current + 1 / current));
+            });
+        }
+    }
+
+    // Admitted request that never ran (e.g. refused by the executor): no latency sample
+    void abandon() {
+        inFlight.decrementAndGet();
+    }
+
+    double getLimit() {
+        return Double.longBitsToDouble(limit.get());
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,59 @@
+package com.server.admission;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TokenBucketLimiter: per-client-IP token buckets in a fixed, striped table.
+ * - Client addresses hash onto STRIPES buckets; memory stays constant however many clients
+ *   connect, at the price of colliding clients sharing a budget (rare with 4096 stripes).
+ * - Each bucket is one AtomicLongArray slot: last refill time (ms, 32 bits) and milli-tokens
+ *   (32 bits). tryAcquire() refills from the elapsed time and takes a token with one CAS;
+ *   no locks, no allocation, no eviction.
+ * - The 32-bit clock wraps every ~49 days; a bucket idle for exactly that long may refill
+ *   less than fully once.
+ */
+final class TokenBucketLimiter {
+    private static final int STRIPES = 4096;               // power of two
+    private static final long SCALE = 1000;                // milli-tokens per token
+    private static final long LOW_32 = 0xFFFFFFFFL;
+
+    private final long ratePerMilli;                       // milli-tokens per ms == tokens per second
+    private final long capacity;                           // milli-tokens
+    private final long origin = System.nanoTime() - 1_000_000;      // clock starts at 1 so a drained slot never reads 0
+    private final AtomicLongArray buckets = new AtomicLongArray(STRIPES);   // 0 = untouched (full)
+
+    TokenBucketLimiter(int perSecond, int burst) {
+        this.ratePerMilli = perSecond;
+        this.capacity = Math.max(burst, 1) * SCALE;
+    }
+
+    boolean tryAcquire(final InetAddress client) {
+        final int index = stripe(client);
+        final long now = ((System.nanoTime() - origin) / 1_000_000) & LOW_32;
+        while (true) {
+            final long state = buckets.get(index);
+            final long tokens;
+            if (state == 0) {
+                tokens = capacity;
+            } else {
+                final long elapsed = (now - (state >>> 32)) & LOW_32;
+                tokens = Math.min(capacity, (state & LOW_32) + elapsed * ratePerMilli);
+            }
+            if (tokens < SCALE) {
+                return false;
+            }
+            if (buckets.compareAndSet(index, state, (now << 32) | (tokens - SCALE))) {
+                return true;
+            }
+        }
+    }
+
+    private static int stripe(final InetAddress client) {
+        int h = client.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & (STRIPES - 1);
+    }
+}
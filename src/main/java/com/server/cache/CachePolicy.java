@@ -0,0 +1,65 @@
+package com.server.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * CachePolicy: how the responses of one cached route are stored (see ResponseCache).
+ * - ttl: how long a stored response is served before the handler runs again.
+ * - vary: request headers whose values select different stored responses for the same
+ *   path (e.g. Accept-Language); they are also announced in the response's Vary header.
+ * - Built via CachePolicy.Builder; forTtl() covers the common case.
+ */
+public class CachePolicy {
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+
+    private final long ttlNanos;
+    private final List<String> vary;
+
+    private CachePolicy(Builder builder) {
+        this.ttlNanos = builder.ttl.toNanos();
+        this.vary = List.copyOf(builder.vary);
+    }
+
+    public static CachePolicy forTtl(Duration ttl) {
+        return new Builder().setTtl(ttl).build();
+    }
+
+    public long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    public List<String> getVary() {
+        return vary;
+    }
+
+    @Override
+    public String toString() {
+        return "CachePolicy{" + "ttl=" + Duration.ofNanos(ttlNanos) + ", vary=" + vary + '}';
+    }
+
+    public static class Builder {
+        private Duration ttl = DEFAULT_TTL;
+        private final List<String> vary = new ArrayList<>(2);
+
+        public Builder setTtl(Duration ttl) {
+            Objects.requireNonNull(ttl, "ttl");
+            if (ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("ttl must be > 0");
+            }
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder addVary(String header) {
+            vary.add(Objects.requireNonNull(header, "header"));
+            return this;
+        }
+
+        public CachePolicy build() {
+            return new CachePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.server.cache;
+
+import com.server.contract.HttpMethod;
+import com.server.contract.RequestRunner;
+import com.server.http.HeaderNames;
+import com.server.pojos.HttpHeaders;
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+import com.server.writers.EncodedResponse;
+import com.server.writers.HttpDate;
+import com.server.writers.ResponseWriter;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * ResponseCache: opt-in, per-route cache of serialized GET responses.
+ * - wrap() turns a route's RequestRunner into a caching one; the router and transports are
+ *   unchanged. Hits return a shared HttpResponse whose entity is an EncodedResponse, so
+ *   neither the handler nor the header/body encoding runs again.
+ * - Key: method, raw path and query, plus the values of the policy's Vary headers.
+ * - Only 200 responses with an in-memory body are stored, and not when they set cookies or
+ *   say Cache-Control: no-store/private.
+ * - Validators: an ETag (CRC32C of the body unless the handler set one) and Last-Modified
+ *   (time of loading unless set) are added; If-None-Match / If-Modified-Since that match a
+ *   stored response are answered with 304 without invoking the handler.
+ * - Bounded by maxBytes with LRU eviction; entries expire after the policy's TTL. A single
+ *   response larger than an eighth of the cache is served but not stored.
+ * - Single-flight: concurrent misses for one key wait for the first request's handler
+ *   instead of stampeding it; if that response is not cacheable they run their own.
+ */
+public class ResponseCache {
+    private static final int MAX_ENTRY_FRACTION = 8;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);   // guarded by this
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private long bytes;                                                                          // guarded by this
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // One stored response with its validators and precomputed 200 / 304 answers
+    private record Entry(String key, HttpResponse response, HttpResponse notModified, String etag,
+                         long lastModified, long expiresAt, int size) {
+    }
+
+    public ResponseCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must be >= 0");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    // Caching RequestRunner around a route's handler
+    public RequestRunner wrap(final RequestRunner runner, final CachePolicy policy) {
+        return request -> respond(request, runner, policy);
+    }
+
+    private HttpResponse respond(final HttpRequest request, final RequestRunner runner, final CachePolicy policy) {
+        if (request.getHttpMethod() != HttpMethod.GET || maxBytes == 0) {
+            return runner.run(request);
+        }
+        final String key = key(request, policy);
+        final Entry cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            return answer(cached, request);
+        }
+
+        final CompletableFuture<Entry> flight = new CompletableFuture<>();
+        final CompletableFuture<Entry> leader = loading.putIfAbsent(key, flight);
+        if (leader != null) {
+            // Another request is already running the handler for this key
+            final Entry loaded = leader.join();
+            if (loaded != null) {
+                hits.increment();
+                return answer(loaded, request);
+            }
+            return runner.run(request);
+        }
+
+        misses.increment();
+        Entry loaded = null;
+        try {
+            final HttpResponse response = runner.run(request);
+            loaded = store(key, response, policy);
+            return loaded == null ? response : answer(loaded, request);
+        } finally {
+            loading.remove(key, flight);
+            flight.complete(loaded);
+        }
+    }
+
+    // 304 when the request's validators match the stored response (RFC 9110 section 13.2.2)
+    private HttpResponse answer(final Entry entry, final HttpRequest request) {
+        final List<String> ifNoneMatch = request.getHeaders(HeaderNames.IF_NONE_MATCH);
+        final boolean matches;
+        if (!ifNoneMatch.isEmpty()) {
+            matches = matchesEtag(ifNoneMatch, entry.etag());
+        } else {
+            final String ifModifiedSince = request.getHeader(HeaderNames.IF_MODIFIED_SINCE);
+            final long since = ifModifiedSince == null ? -1 : HttpDate.parse(ifModifiedSince);
+            matches = since >= 0 && entry.lastModified() <= since;
+        }
+        if (matches) {
+            notModified.increment();
+            return entry.notModified();
+        }
+        return entry.response();
+    }
+
+    // Weak comparison against every listed tag ("*" matches any stored response)
+    private static boolean matchesEtag(final List<String> values, final String etag) {
+        final String opaque = opaqueTag(etag);
+        for (String value : values) {
+            for (String candidate : value.split(",")) {
+                final String tag = candidate.trim();
+                if (tag.equals("*") || opaqueTag(tag).equals(opaque)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(final String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private synchronized Entry get(final String key) {
+        final Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAt() >= 0) {
+            remove(entry);
+            return null;
+        }
+        return entry;
+    }
+
+    // Build and insert the entry for a handler's response; null if it must not be cached
+    private Entry store(final String key, final HttpResponse response, final CachePolicy policy) {
+        if (!isCacheable(response)) {
+            return null;
+        }
+        final HttpHeaders original = response.getResponseHeaders();
+        final HttpResponse.Builder builder = new HttpResponse.Builder().setStatusCode(response.getStatusCode());
+        for (int i = 0; i < original.size(); i++) {
+            builder.addHeader(original.name(i), original.value(i));
+        }
+        if (!policy.getVary().isEmpty() && !original.contains("Vary")) {
+            builder.addHeader("Vary", String.join(", ", policy.getVary()));
+        }
+
+        // Validators are derived from the body, so encode it once without them first
+        final EncodedResponse plain = ResponseWriter.encode(response);
+        if (plain == null) {
+            return null;
+        }
+        final String etag = original.contains("ETag") ? original.get("ETag") : etagOf(plain.getBody());
+        long lastModified = HttpDate.parse(original.get("Last-Modified"));
+        if (lastModified < 0) {
+            lastModified = System.currentTimeMillis() / 1000;
+            builder.addHeader("Last-Modified", HttpDate.format(lastModified));
+        }
+        if (!original.contains("ETag")) {
+            builder.addHeader("ETag", etag);
+        }
+
+        final HttpResponse validated = builder.setEntity(plain.getBody()).build();
+        final EncodedResponse encoded = ResponseWriter.encode(validated);
+        final HttpResponse cached = withEntity(validated, encoded);
+        final Entry entry = new Entry(key, cached, notModifiedFor(cached), etag, lastModified,
+                System.nanoTime() + policy.getTtlNanos(), encoded.size() + key.length());
+        if (entry.size() <= maxBytes / MAX_ENTRY_FRACTION) {
+            put(entry);
+        }
+        return entry;
+    }
+
+    // Shared 200 answer: the stored headers stay inspectable, the encoded bytes are what gets written
+    private static HttpResponse withEntity(final HttpResponse source, final EncodedResponse encoded) {
+        final HttpResponse.Builder builder = new HttpResponse.Builder().setStatusCode(source.getStatusCode()).setEntity(encoded);
+        final HttpHeaders headers = source.getResponseHeaders();
+        for (int i = 0; i < headers.size(); i++) {
+            builder.addHeader(headers.name(i), headers.value(i));
+        }
+        return builder.build();
+    }
+
+    // 304 carries the validators and caching headers of the stored 200, but no body
+    private static HttpResponse notModifiedFor(final HttpResponse cached) {
+        final HttpResponse.Builder builder = new HttpResponse.Builder().setStatusCode(304);
+        final HttpHeaders headers = cached.getResponseHeaders();
+        for (int i = 0; i < headers.size(); i++) {
+            final String name = headers.name(i);
+            if (name.equalsIgnoreCase("ETag") || name.equalsIgnoreCase("Last-Modified") || name.equalsIgnoreCase("Vary")
+                    || name.equalsIgnoreCase("Cache-Control") || name.equalsIgnoreCase("Expires")
+                    || name.equalsIgnoreCase("Content-Location")) {
+                builder.addHeader(name, headers.value(i));
+            }
+        }
+        return builder.build();
+    }
+
+    private static boolean isCacheable(final HttpResponse response) {
+        if (response.getStatusCode() != 200) {
+            return false;
+        }
+        final HttpHeaders headers = response.getResponseHeaders();
+        if (headers.contains("Set-Cookie")) {
+            return false;
+        }
+        for (String value : headers.getAll("Cache-Control")) {
+            final String directives = value.toLowerCase();
+            if (directives.contains("no-store") || directives.contains("private")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void put(final Entry entry) {
+        final Entry previous = entries.put(entry.key(), entry);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += entry.size();
+
+        // Least recently used first
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            final Entry evicted = eldest.next();
+            eldest.remove();
+            bytes -= evicted.size();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void remove(final Entry entry) {
+        if (entries.remove(entry.key(), entry)) {
+            bytes -= entry.size();
+        }
+    }
+
+    private static String key(final HttpRequest request, final CachePolicy policy) {
+        final StringBuilder key = new StringBuilder(64).append(request.getHttpMethod()).append(' ')
+                .append(request.getUri().getRawPath());
+        final String query = request.getUri().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String header : policy.getVary()) {
+            key.append('\n').append(String.join(",", request.getHeaders(header)));
+        }
+        return key.toString();
+    }
+
+    private static String etagOf(final ByteBuffer body) {
+        final CRC32C crc = new CRC32C();
+        final int length = body.remaining();
+        crc.update(body);
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(length) + "\"";
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+}
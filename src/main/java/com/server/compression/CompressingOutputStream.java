@@ -0,0 +1,105 @@
+package com.server.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * CompressingOutputStream: gzip or zlib ("deflate") encoder over a pooled Deflater.
+ * - Like GZIPOutputStream / DeflaterOutputStream, but the Deflater comes from a DeflaterPool
+ *   and goes back to it on close(); gzip header and trailer are written here.
+ * - flush() does a SYNC_FLUSH, so a streamed body that flushes (e.g. progressive output)
+ *   still reaches the client promptly.
+ * - close() finishes the encoding but does not close the underlying stream.
+ */
+final class CompressingOutputStream extends OutputStream {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final OutputStream out;
+    private final DeflaterPool pool;
+    private final boolean gzip;
+    private final CRC32 crc;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private Deflater deflater;                         // null once closed
+
+    CompressingOutputStream(OutputStream out, DeflaterPool pool, boolean gzip) throws IOException {
+        this.out = out;
+        this.pool = pool;
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+        this.deflater = pool.acquire();
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        if (length == 0) {
+            return;
+        }
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        }
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        int n;
+        do {
+            n = drain(Deflater.SYNC_FLUSH);
+        } while (n == buffer.length);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (deflater == null) {
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            if (gzip) {
+                writeIntLe((int) crc.getValue());
+                writeIntLe((int) deflater.getBytesRead());
+            }
+        } finally {
+            pool.release(deflater);
+            deflater = null;
+        }
+    }
+
+    private int drain(final int flush) throws IOException {
+        final int n = deflater.deflate(buffer, 0, buffer.length, flush);
+        if (n > 0) {
+            out.write(buffer, 0, n);
+        }
+        return n;
+    }
+
+    private void writeIntLe(final int value) throws IOException {
+        out.write(new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)});
+    }
+
+    private void ensureOpen() throws IOException {
+        if (deflater == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.server.compression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.Deflater;
+
+/**
+ * CompressionPolicy: which responses ResponseCompressor encodes, and how.
+ * - minSize: in-memory bodies smaller than this are sent as is (framing overhead outweighs
+ *   the gain); streamed bodies have no known size and are always compressed.
+ * - types: Content-Type allowlist; "text/*" matches a whole top-level type, anything else
+ *   the exact media type (parameters such as charset are ignored).
+ * - level: Deflater level (1 fastest .. 9 smallest).
+ * - cacheCompressed: keep the compressed bytes of cached responses (ResponseCache entries)
+ *   next to them, so a hot payload is compressed once instead of on every hit.
+ */
+public class CompressionPolicy {
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    public static final int DEFAULT_LEVEL = 6;
+    public static final List<String> DEFAULT_TYPES = List.of(
+            "text/*", "application/json", "application/javascript", "application/xml", "image/svg+xml");
+
+    private final int minSize;
+    private final int level;
+    private final List<String> types;
+    private final boolean cacheCompressed;
+
+    private CompressionPolicy(Builder builder) {
+        this.minSize = builder.minSize;
+        this.level = builder.level;
+        this.types = List.copyOf(builder.types);
+        this.cacheCompressed = builder.cacheCompressed;
+    }
+
+    public static CompressionPolicy defaults() {
+        return new Builder().build();
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public List<String> getTypes() {
+        return types;
+    }
+
+    public boolean isCacheCompressed() {
+        return cacheCompressed;
+    }
+
+    // Content-Type header value is on the allowlist
+    public boolean allows(final String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        final int semicolon = contentType.indexOf(';');
+        final String mediaType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+        for (String type : types) {
+            if (type.endsWith("/*") ? mediaType.startsWith(type.substring(0, type.length() - 1)) : mediaType.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionPolicy{" + "minSize=" + minSize + ", level=" + level + ", types=" + types
+                + ", cacheCompressed=" + cacheCompressed + '}';
+    }
+
+    public static class Builder {
+        private int minSize = DEFAULT_MIN_SIZE;
+        private int level = DEFAULT_LEVEL;
+        private List<String> types = new ArrayList<>(DEFAULT_TYPES);
+        private boolean cacheCompressed = true;
+
+        public Builder setMinSize(int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("minSize must be >= 0");
+            }
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Builder setLevel(int level) {
+            if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("level must be between 1 and 9");
+            }
+            this.level = level;
+            return this;
+        }
+
+        // Replaces the allowlist
+        public Builder setTypes(List<String> types) {
+            this.types = new ArrayList<>();
+            types.forEach(this::addType);
+            return this;
+        }
+
+        public Builder addType(String type) {
+            types.add(Objects.requireNonNull(type, "type").toLowerCase(Locale.ROOT));
+            return this;
+        }
+
+        public Builder setCacheCompressed(boolean cacheCompressed) {
+            this.cacheCompressed = cacheCompressed;
+            return this;
+        }
+
+        public CompressionPolicy build() {
+            return new CompressionPolicy(this);
+        }
+    }
+}
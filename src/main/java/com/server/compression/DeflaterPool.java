@@ -0,0 +1,47 @@
+package com.server.compression;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * DeflaterPool: reusable Deflaters of one level and format.
+ * - A Deflater owns native zlib state (~256 KiB with default settings); creating one per
+ *   response churns native memory and leaves cleanup to the GC, so they are reset and reused.
+ * - Shared rather than per thread: with virtual-thread workers a ThreadLocal would hold one
+ *   Deflater per (short-lived) thread.
+ * - At most MAX_POOLED idle instances are kept; extra ones are ended when released.
+ */
+final class DeflaterPool {
+    private static final int MAX_POOLED = 64;
+
+    private final int level;
+    private final boolean nowrap;                      // raw deflate (gzip framing added by the caller)
+    private final Queue<Deflater> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    DeflaterPool(int level, boolean nowrap) {
+        this.level = level;
+        this.nowrap = nowrap;
+    }
+
+    Deflater acquire() {
+        final Deflater deflater = idle.poll();
+        if (deflater == null) {
+            return new Deflater(level, nowrap);
+        }
+        idleCount.decrementAndGet();
+        return deflater;
+    }
+
+    void release(final Deflater deflater) {
+        if (idleCount.incrementAndGet() > MAX_POOLED) {
+            idleCount.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        idle.offer(deflater);
+    }
+}
@@ -0,0 +1,220 @@
+package com.server.compression;
+
+import com.server.contract.StreamingBody;
+import com.server.http.HeaderNames;
+import com.server.pojos.HttpHeaders;
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+import com.server.push.PushStream;
+import com.server.writers.EncodedResponse;
+import com.server.writers.ResponseWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ResponseCompressor: negotiates Content-Encoding and compresses eligible responses.
+ * - Picks gzip or deflate from the request's Accept-Encoding (q-values honoured, gzip preferred
+ *   on a tie); identity when neither is acceptable. Eligible responses carry
+ *   "Vary: Accept-Encoding" either way, so shared caches keep the representations apart.
+ * - Eligible: a body-carrying response without Content-Encoding whose Content-Type is on the
+ *   policy's allowlist. In-memory bodies (String, byte[], ByteBuffer, EncodedResponse) below
+ *   minSize are left alone; streamed bodies (InputStream, StreamingBody) are compressed on the
+ *   fly inside the chunked writer. Files keep going out uncompressed via transferTo.
+ * - Compressed responses also get a weakened ETag (W/), so
+ *   If-None-Match still matches the identity representation's validator.
+ * - Cached responses (EncodedResponse entities) remember their per-coding variants when the
+ *   policy says so: the payload is compressed once and then served as pre-encoded bytes.
+ */
+public class ResponseCompressor {
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final String IDENTITY = "identity";
+
+    private final CompressionPolicy policy;
+    private final DeflaterPool gzipPool;
+    private final DeflaterPool deflatePool;
+
+    public ResponseCompressor(CompressionPolicy policy) {
+        this.policy = policy;
+        this.gzipPool = new DeflaterPool(policy.getLevel(), true);
+        this.deflatePool = new DeflaterPool(policy.getLevel(), false);
+    }
+
+    // The response to send for this request: compressed when negotiated and eligible, else unchanged
+    public HttpResponse compress(final HttpRequest request, final HttpResponse response) {
+        final Object entity = response.getEntity().orElse(null);
+        final HttpHeaders headers = response.getResponseHeaders();
+        // Push streams are written event by event; a compressor would hold events back
+        if (entity == null || entity instanceof PushStream || headers.contains("Content-Encoding")
+                || !policy.allows(headers.get("Content-Type"))) {
+            return response;
+        }
+        final String encoding = negotiate(request.getHeaders(HeaderNames.ACCEPT_ENCODING));
+
+        if (entity instanceof EncodedResponse encoded) {
+            if (encoded.getBody().remaining() < policy.getMinSize()) {
+                return response;
+            }
+            if (policy.isCacheCompressed()) {
+                return encoded.variant(encoding, () -> compressEncoded(response, encoded, encoding));
+            }
+            return compressEncoded(response, encoded, encoding);
+        }
+        if (entity instanceof StreamingBody body) {
+            return rebuild(response, encoding, IDENTITY.equals(encoding) ? body : compressing(body, encoding));
+        }
+        if (entity instanceof InputStream in) {
+            return rebuild(response, encoding, IDENTITY.equals(encoding) ? in : compressing(out -> {
+                try (in) {
+                    in.transferTo(out);
+                }
+            }, encoding));
+        }
+
+        final byte[] bytes = bytesOf(entity);
+        if (bytes == null || bytes.length < policy.getMinSize()) {
+            return response;
+        }
+        return rebuild(response, encoding, IDENTITY.equals(encoding) ? bytes : compress(bytes, encoding));
+    }
+
+    // Variant of a pre-encoded response for the coding, itself pre-encoded so it can be reused
+    private HttpResponse compressEncoded(final HttpResponse response, final EncodedResponse encoded, final String encoding) {
+        final ByteBuffer body = encoded.getBody();
+        final byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        final HttpResponse variant = rebuild(response, encoding, IDENTITY.equals(encoding) ? bytes : compress(bytes, encoding));
+        return rebuild(variant, null, ResponseWriter.encode(variant));
+    }
+
+    private byte[] compress(final byte[] bytes, final String encoding) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (CompressingOutputStream compressing = open(out, encoding)) {
+            compressing.write(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);                    // in-memory streams do not fail
+        }
+        return out.toByteArray();
+    }
+
+    private StreamingBody compressing(final StreamingBody body, final String encoding) {
+        return out -> {
+            try (CompressingOutputStream compressing = open(out, encoding)) {
+                body.writeTo(compressing);
+            }
+        };
+    }
+
+    private CompressingOutputStream open(final OutputStream out, final String encoding) throws IOException {
+        return GZIP.equals(encoding)
+                ? new CompressingOutputStream(out, gzipPool, true)
+                : new CompressingOutputStream(out, deflatePool, false);
+    }
+
+    /**
+     * Copy of the response with a new entity; with a coding, also the headers describing it:
+     * Vary always, Content-Encoding and a weak ETag unless it is identity.
+     */
+    private static HttpResponse rebuild(final HttpResponse response, final String encoding, final Object entity) {
+        final HttpResponse.Builder builder = new HttpResponse.Builder().setStatusCode(response.getStatusCode()).setEntity(entity);
+        final HttpHeaders headers = response.getResponseHeaders();
+        final boolean encoded = encoding != null && !IDENTITY.equals(encoding);
+        boolean varies = false;
+        for (int i = 0; i < headers.size(); i++) {
+            final String name = headers.name(i);
+            String value = headers.value(i);
+            if (encoded && name.equalsIgnoreCase("ETag") && !value.startsWith("W/")) {
+                value = "W/" + value;
+            } else if (encoding != null && name.equalsIgnoreCase("Vary")) {
+                varies = true;
+                if (!value.toLowerCase(Locale.ROOT).contains("accept-encoding") && !value.trim().equals("*")) {
+                    value = value + ", Accept-Encoding";
+                }
+            }
+            builder.addHeader(name, value);
+        }
+        if (encoding != null && !varies) {
+            builder.addHeader("Vary", "Accept-Encoding");
+        }
+        if (encoded) {
+            builder.addHeader("Content-Encoding", encoding);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Best acceptable coding: the highest q among gzip and deflate ("x-gzip" and "*" included);
+     * identity when neither is acceptable or the header is absent.
+     */
+    static String negotiate(final List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return IDENTITY;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String value : acceptEncoding) {
+            for (String element : value.split(",")) {
+                final int semicolon = element.indexOf(';');
+                final String coding = (semicolon < 0 ? element : element.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+                final double q = semicolon < 0 ? 1 : quality(element.substring(semicolon + 1));
+                switch (coding) {
+                    case GZIP, "x-gzip" -> gzip = Math.max(gzip, q);
+                    case DEFLATE -> deflate = Math.max(deflate, q);
+                    case "*" -> any = Math.max(any, q);
+                    default -> {
+                    }
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return IDENTITY;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    // "q=0.5" parameter of an Accept-Encoding element; malformed weights count as 0
+    private static double quality(final String parameters) {
+        for (String parameter : parameters.split(";")) {
+            final String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static byte[] bytesOf(final Object entity) {
+        if (entity instanceof String string) {
+            return string.getBytes(StandardCharsets.UTF_8);
+        }
+        if (entity instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (entity instanceof ByteBuffer buffer) {
+            final ByteBuffer copy = buffer.duplicate();
+            final byte[] bytes = new byte[copy.remaining()];
+            copy.get(bytes);
+            return bytes;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,460 @@
+package com.server.config;
+
+import com.server.admission.AdmissionPolicy;
+import com.server.compression.CompressionPolicy;
+import com.server.http2.Http2Policy;
+import com.server.tls.TlsPolicy;
+
+import java.util.Objects;
+
+/**
+ * ServerConfig: immutable tuning knobs shared by Server and HttpHandler.
+ * - Built via ServerConfig.Builder; unset values fall back to the defaults below.
+ * - Connection settings control HTTP/1.1 persistent connections (keep-alive).
+ * - Transport selects blocking thread-per-connection I/O or selector-based NIO event loops.
+ * - ExecutorMode selects the worker strategy that runs connections (BLOCKING) or handlers (NIO).
+ * - Parser limits bound the request-line and header section HttpDecoder will buffer.
+ * - Body limits bound request bodies (413 beyond maxBodySize) and how much unread body is
+ *   skipped to keep a connection alive after the handler returns.
+ * - Acceptors: acceptorThreads threads accept connections, each on its own SO_REUSEPORT
+ *   listening socket when reusePort is set (and supported), otherwise sharing one socket.
+ * - Socket options: accept backlog, TCP_NODELAY and socket buffer sizes (0 = OS default).
+ * - tls, when set, terminates TLS on the listening port (key store, session resumption, ALPN).
+ * - http2, when set, also serves HTTP/2: h2 negotiated by ALPN over TLS, h2c with prior
+ *   knowledge or "Upgrade: h2c" on plaintext. NIO transport only.
+ * - warmupRequests synthetic requests are run through the request path by start() before
+ *   the port opens (0 = serve cold).
+ * - responseCacheMaxBytes bounds the cache used by routes registered with a CachePolicy.
+ * - compression, when set, enables negotiated gzip/deflate response encoding.
+ * - admission bounds connections, queued requests, per-client request rate and handler
+ *   concurrency; overload is shed early with 503/429 + Retry-After (unlimited by default).
+ * - metricsPath, when set, exposes the server's metrics in Prometheus text format via GET.
+ */
+public class ServerConfig {
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 1_000;
+    public static final int DEFAULT_WORKER_THREADS = 100;
+    public static final int DEFAULT_MAX_CONCURRENCY = 10_000;
+    public static final int DEFAULT_MAX_REQUEST_LINE_LENGTH = 8 * 1024;
+    public static final int DEFAULT_MAX_HEADER_SIZE = 16 * 1024;
+    public static final long DEFAULT_MAX_BODY_SIZE = 10L * 1024 * 1024;
+    public static final long DEFAULT_MAX_BODY_DRAIN = 64 * 1024;
+    public static final long DEFAULT_RESPONSE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_BACKLOG = 1_024;
+
+    /**
+     * How connections are served.
+     * - BLOCKING: ServerSocket-style accept loop, one worker thread parked per connection.
+     * - NIO: Selector event loops own the sockets; workers only run RequestRunner handlers.
+     */
+    public enum Transport {
+        BLOCKING,
+        NIO
+    }
+
+    /**
+     * Worker strategy.
+     * - FIXED: pool of workerThreads platform threads with an unbounded queue.
+     * - VIRTUAL: one virtual thread per task, unbounded.
+     * - BOUNDED_VIRTUAL: virtual threads capped at maxConcurrency by a semaphore; the blocking
+     *   accept loop waits for a permit before accepting (backpressure into the listen backlog).
+     */
+    public enum ExecutorMode {
+        FIXED,
+        VIRTUAL,
+        BOUNDED_VIRTUAL
+    }
+
+    private final int idleTimeoutMillis;
+    private final int maxRequestsPerConnection;
+    private final Transport transport;
+    private final int eventLoopThreads;
+    private final ExecutorMode executorMode;
+    private final int workerThreads;
+    private final int maxConcurrency;
+    private final int maxRequestLineLength;
+    private final int maxHeaderSize;
+    private final long maxBodySize;
+    private final long maxBodyDrain;
+    private final int acceptorThreads;
+    private final boolean reusePort;
+    private final int backlog;
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    private final int warmupRequests;
+    private final TlsPolicy tls;
+    private final Http2Policy http2;
+    private final long responseCacheMaxBytes;
+    private final CompressionPolicy compression;
+    private final AdmissionPolicy admission;
+    private final String metricsPath;
+
+    private ServerConfig(Builder builder) {
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxRequestsPerConnection = builder.maxRequestsPerConnection;
+        this.transport = builder.transport;
+        this.eventLoopThreads = builder.eventLoopThreads;
+        this.executorMode = builder.executorMode;
+        this.workerThreads = builder.workerThreads;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.maxRequestLineLength = builder.maxRequestLineLength;
+        this.maxHeaderSize = builder.maxHeaderSize;
+        this.maxBodySize = builder.maxBodySize;
+        this.maxBodyDrain = builder.maxBodyDrain;
+        this.acceptorThreads = builder.acceptorThreads;
+        this.reusePort = builder.reusePort;
+        this.backlog = builder.backlog;
+        this.tcpNoDelay = builder.tcpNoDelay;
+        this.sendBufferSize = builder.sendBufferSize;
+        this.receiveBufferSize = builder.receiveBufferSize;
+        this.warmupRequests = builder.warmupRequests;
+        this.tls = builder.tls;
+        this.http2 = builder.http2;
+        this.responseCacheMaxBytes = builder.responseCacheMaxBytes;
+        this.compression = builder.compression;
+        this.admission = builder.admission;
+        this.metricsPath = builder.metricsPath;
+    }
+
+    public static ServerConfig defaults() {
+        return new Builder().build();
+    }
+
+    // Max time a kept-alive connection may sit idle between requests (0 = wait forever)
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    // Requests served on one connection before it is closed (<= 0 = unlimited)
+    public int getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    // Number of selector threads used by the NIO transport
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    // Pool size for ExecutorMode.FIXED
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    // Concurrent task limit for ExecutorMode.BOUNDED_VIRTUAL
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    // Longest accepted request-line in bytes (longer -> 414)
+    public int getMaxRequestLineLength() {
+        return maxRequestLineLength;
+    }
+
+    // Largest accepted header section in bytes (larger -> 431)
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    // Largest accepted request body in bytes (larger -> 413); NIO also buffers up to this much
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    // Unread body bytes discarded after a handler returns before giving up and closing instead
+    public long getMaxBodyDrain() {
+        return maxBodyDrain;
+    }
+
+    // Threads calling accept(); with reusePort each gets its own listening socket
+    public int getAcceptorThreads() {
+        return acceptorThreads;
+    }
+
+    // Bind one SO_REUSEPORT socket per acceptor (falls back to a shared socket where unsupported)
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    // Pending connection queue length of each listening socket
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    // SO_SNDBUF of accepted sockets in bytes (0 = OS default)
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    // SO_RCVBUF in bytes, set on the listening socket and inherited (0 = OS default)
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    // Synthetic requests HttpHandler.warmUp() runs before the listening socket opens
+    public int getWarmupRequests() {
+        return warmupRequests;
+    }
+
+    // TLS settings (null = plaintext)
+    public TlsPolicy getTls() {
+        return tls;
+    }
+
+    // HTTP/2 settings (null = HTTP/1.1 only)
+    public Http2Policy getHttp2() {
+        return http2;
+    }
+
+    // Memory bound of the response cache (0 = cached routes always run their handler)
+    public long getResponseCacheMaxBytes() {
+        return responseCacheMaxBytes;
+    }
+
+    // Response compression settings (null = responses are never compressed)
+    public CompressionPolicy getCompression() {
+        return compression;
+    }
+
+    // Connection, queue, rate and concurrency limits (all off by default)
+    public AdmissionPolicy getAdmission() {
+        return admission;
+    }
+
+    // GET route serving the Prometheus scrape (null = not exposed)
+    public String getMetricsPath() {
+        return metricsPath;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerConfig{" + "idleTimeoutMillis=" + idleTimeoutMillis + ", maxRequestsPerConnection=" + maxRequestsPerConnection
+                + ", transport=" + transport + ", eventLoopThreads=" + eventLoopThreads + ", executorMode=" + executorMode
+                + ", workerThreads=" + workerThreads + ", maxConcurrency=" + maxConcurrency
+                + ", maxRequestLineLength=" + maxRequestLineLength + ", maxHeaderSize=" + maxHeaderSize
+                + ", maxBodySize=" + maxBodySize + ", maxBodyDrain=" + maxBodyDrain
+                + ", acceptorThreads=" + acceptorThreads + ", reusePort=" + reusePort + ", backlog=" + backlog
+                + ", tcpNoDelay=" + tcpNoDelay + ", sendBufferSize=" + sendBufferSize + ", receiveBufferSize=" + receiveBufferSize
+                + ", warmupRequests=" + warmupRequests + ", tls=" + tls + ", http2=" + http2
+                + ", responseCacheMaxBytes=" + responseCacheMaxBytes + ", compression=" + compression
+                + ", admission=" + admission + ", metricsPath=" + metricsPath + '}';
+    }
+
+    public static class Builder {
+        private int idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+        private int maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+        private Transport transport = Transport.BLOCKING;
+        private int eventLoopThreads = Runtime.getRuntime().availableProcessors();
+        private ExecutorMode executorMode = ExecutorMode.FIXED;
+        private int workerThreads = DEFAULT_WORKER_THREADS;
+        private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        private int maxRequestLineLength = DEFAULT_MAX_REQUEST_LINE_LENGTH;
+        private int maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+        private long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+        private long maxBodyDrain = DEFAULT_MAX_BODY_DRAIN;
+        private int acceptorThreads = 1;
+        private boolean reusePort;
+        private int backlog = DEFAULT_BACKLOG;
+        private boolean tcpNoDelay = true;
+        private int sendBufferSize;
+        private int receiveBufferSize;
+        private int warmupRequests;
+        private TlsPolicy tls;
+        private Http2Policy http2;
+        private long responseCacheMaxBytes = DEFAULT_RESPONSE_CACHE_MAX_BYTES;
+        private CompressionPolicy compression;
+        private AdmissionPolicy admission = AdmissionPolicy.unlimited();
+        private String metricsPath;
+
+        public Builder() {
+
+        }
+
+        public Builder setIdleTimeoutMillis(int idleTimeoutMillis) {
+            if (idleTimeoutMillis < 0) {
+                throw new IllegalArgumentException("idleTimeoutMillis must be >= 0");
+            }
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public Builder setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+            this.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        public Builder setTransport(Transport transport) {
+            this.transport = Objects.requireNonNull(transport, "transport");
+            return this;
+        }
+
+        public Builder setEventLoopThreads(int eventLoopThreads) {
+            if (eventLoopThreads < 1) {
+                throw new IllegalArgumentException("eventLoopThreads must be >= 1");
+            }
+            this.eventLoopThreads = eventLoopThreads;
+            return this;
+        }
+
+        public Builder setExecutorMode(ExecutorMode executorMode) {
+            this.executorMode = Objects.requireNonNull(executorMode, "executorMode");
+            return this;
+        }
+
+        public Builder setWorkerThreads(int workerThreads) {
+            if (workerThreads < 1) {
+                throw new IllegalArgumentException("workerThreads must be >= 1");
+            }
+            this.workerThreads = workerThreads;
+            return this;
+        }
+
+        public Builder setMaxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("maxConcurrency must be >= 1");
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder setMaxRequestLineLength(int maxRequestLineLength) {
+            if (maxRequestLineLength < 16) {
+                throw new IllegalArgumentException("maxRequestLineLength must be >= 16");
+            }
+            this.maxRequestLineLength = maxRequestLineLength;
+            return this;
+        }
+
+        public Builder setMaxHeaderSize(int maxHeaderSize) {
+            if (maxHeaderSize < 2) {
+                throw new IllegalArgumentException("maxHeaderSize must be >= 2");
+            }
+            this.maxHeaderSize = maxHeaderSize;
+            return this;
+        }
+
+        public Builder setMaxBodySize(long maxBodySize) {
+            if (maxBodySize < 0) {
+                throw new IllegalArgumentException("maxBodySize must be >= 0");
+            }
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        public Builder setMaxBodyDrain(long maxBodyDrain) {
+            if (maxBodyDrain < 0) {
+                throw new IllegalArgumentException("maxBodyDrain must be >= 0");
+            }
+            this.maxBodyDrain = maxBodyDrain;
+            return this;
+        }
+
+        public Builder setAcceptorThreads(int acceptorThreads) {
+            if (acceptorThreads < 1) {
+                throw new IllegalArgumentException("acceptorThreads must be >= 1");
+            }
+            this.acceptorThreads = acceptorThreads;
+            return this;
+        }
+
+        public Builder setReusePort(boolean reusePort) {
+            this.reusePort = reusePort;
+            return this;
+        }
+
+        public Builder setBacklog(int backlog) {
+            if (backlog < 1) {
+                throw new IllegalArgumentException("backlog must be >= 1");
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        public Builder setTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        public Builder setSendBufferSize(int sendBufferSize) {
+            if (sendBufferSize < 0) {
+                throw new IllegalArgumentException("sendBufferSize must be >= 0");
+            }
+            this.sendBufferSize = sendBufferSize;
+            return this;
+        }
+
+        public Builder setReceiveBufferSize(int receiveBufferSize) {
+            if (receiveBufferSize < 0) {
+                throw new IllegalArgumentException("receiveBufferSize must be >= 0");
+            }
+            this.receiveBufferSize = receiveBufferSize;
+            return this;
+        }
+
+        public Builder setWarmupRequests(int warmupRequests) {
+            if (warmupRequests < 0) {
+                throw new IllegalArgumentException("warmupRequests must be >= 0");
+            }
+            this.warmupRequests = warmupRequests;
+            return this;
+        }
+
+        // null = plaintext
+        public Builder setTls(TlsPolicy tls) {
+            this.tls = tls;
+            return this;
+        }
+
+        // null = HTTP/1.1 only; requires the NIO transport
+        public Builder setHttp2(Http2Policy http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public Builder setResponseCacheMaxBytes(long responseCacheMaxBytes) {
+            if (responseCacheMaxBytes < 0) {
+                throw new IllegalArgumentException("responseCacheMaxBytes must be >= 0");
+            }
+            this.responseCacheMaxBytes = responseCacheMaxBytes;
+            return this;
+        }
+
+        public Builder setCompression(CompressionPolicy compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public Builder setAdmission(AdmissionPolicy admission) {
+            this.admission = Objects.requireNonNull(admission, "admission");
+            return this;
+        }
+
+        public Builder setMetricsPath(String metricsPath) {
+            if (metricsPath != null && !metricsPath.startsWith("/")) {
+                throw new IllegalArgumentException("metricsPath must start with '/'");
+            }
+            this.metricsPath = metricsPath;
+            return this;
+        }
+
+        public ServerConfig build() {
+            if (http2 != null && transport != Transport.NIO) {
+                // A blocking connection is one thread reading one request at a time: no multiplexing
+                throw new IllegalArgumentException("http2 requires the NIO transport");
+            }
+            return new ServerConfig(this);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.server.contract;
+
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * AsyncRequestRunner: non-blocking counterpart of RequestRunner.
+ * - Returns at once with a stage that completes with the response later (e.g. when a
+ *   downstream call finishes), so no worker thread waits for it on the NIO transport.
+ * - The stage is cancelled when the client disconnects or the route's timeout expires.
+ * - Completing exceptionally yields a 500; with a RejectedExecutionException, a 503.
+ */
+public interface AsyncRequestRunner {
+    CompletionStage<HttpResponse> run(HttpRequest request);
+}
@@ -0,0 +1,105 @@
+package com.server.contract;
+
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Filter: cross-cutting step around route handlers (auth checks, header injection, CORS, timing).
+ * - filter() gets the request and the rest of the chain: it may call next.run() (passing a
+ *   changed request or returning a changed response), or return its own response without
+ *   calling next to short-circuit; the handler then never runs. Over HTTP/1.1 (either
+ *   transport) a client expecting "100 Continue" is then never asked for the body, and
+ *   the connection closes after the response.
+ * - compose() turns a filter list into one RequestRunner when routes are registered: one
+ *   wrapping lambda per filter, so a request costs a call per filter, with no list iteration
+ *   or allocation.
+ * - Async routes go through filterAsync(), which must not wait for the handler's stage:
+ *   before() and after() implement it, and composeAsync() rejects filters that do not
+ *   (lambdas included), since running filter() there would block a worker per request.
+ */
+public interface Filter {
+    HttpResponse filter(HttpRequest request, RequestRunner next);
+
+    default CompletionStage<HttpResponse> filterAsync(HttpRequest request, AsyncRequestRunner next) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not implement filterAsync");
+    }
+
+    /**
+     * Filter that only looks at the request: check returns the response to send instead of
+     * running the handler, or null to continue.
+     */
+    static Filter before(Function<HttpRequest, HttpResponse> check) {
+        return new Filter() {
+            @Override
+            public HttpResponse filter(HttpRequest request, RequestRunner next) {
+                final HttpResponse rejected = check.apply(request);
+                return rejected != null ? rejected : next.run(request);
+            }
+
+            @Override
+            public CompletionStage<HttpResponse> filterAsync(HttpRequest request, AsyncRequestRunner next) {
+                final HttpResponse rejected = check.apply(request);
+                return rejected != null ? CompletableFuture.completedFuture(rejected) : next.run(request);
+            }
+        };
+    }
+
+    // Filter that rewrites the handler's response, e.g. to add headers
+    static Filter after(BiFunction<HttpRequest, HttpResponse, HttpResponse> transform) {
+        return new Filter() {
+            @Override
+            public HttpResponse filter(HttpRequest request, RequestRunner next) {
+                return transform.apply(request, next.run(request));
+            }
+
+            @Override
+            public CompletionStage<HttpResponse> filterAsync(HttpRequest request, AsyncRequestRunner next) {
+                return next.run(request).thenApply(response -> transform.apply(request, response));
+            }
+        };
+    }
+
+    // Wrap handler in filters, first filter outermost; no filters returns handler itself
+    static RequestRunner compose(List<Filter> filters, RequestRunner handler) {
+        RequestRunner runner = handler;
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            final Filter filter = filters.get(i);
+            final RequestRunner next = runner;
+            runner = request -> filter.filter(request, next);
+        }
+        return runner;
+    }
+
+    /**
+     * Wrap an async handler in filters, first filter outermost.
+     * - Throws IllegalArgumentException for a filter without its own filterAsync().
+     */
+    static AsyncRequestRunner composeAsync(List<Filter> filters, AsyncRequestRunner handler) {
+        AsyncRequestRunner runner = handler;
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            final Filter filter = filters.get(i);
+            if (!implementsAsync(filter)) {
+                throw new IllegalArgumentException("Filter " + filter.getClass().getName()
+                        + " is used on an async route but does not implement filterAsync");
+            }
+            final AsyncRequestRunner next = runner;
+            runner = request -> filter.filterAsync(request, next);
+        }
+        return runner;
+    }
+
+    private static boolean implementsAsync(Filter filter) {
+        try {
+            return filter.getClass().getMethod("filterAsync", HttpRequest.class, AsyncRequestRunner.class)
+                    .getDeclaringClass() != Filter.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
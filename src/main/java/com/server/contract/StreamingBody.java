@@ -0,0 +1,15 @@
+package com.server.contract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * StreamingBody: response entity produced incrementally by the handler.
+ * - The server calls writeTo() after sending the head and frames the bytes with
+ *   Transfer-Encoding: chunked, so the total length does not need to be known up front.
+ * - out.flush() pushes what was written so far to the client; the stream must not be closed.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+    void writeTo(OutputStream out) throws IOException;
+}
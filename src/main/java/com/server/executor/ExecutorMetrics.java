@@ -0,0 +1,110 @@
+package com.server.executor;
+
+import com.server.config.ServerConfig.ExecutorMode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * ExecutorMetrics: counters for one WorkerExecutor, used to compare executor modes under load.
+ * - Counters are LongAdders, so recording from many workers does not contend on one cache line.
+ * - queueWait is submit-to-start time (includes the semaphore wait in BOUNDED_VIRTUAL mode).
+ * - admissionWait is time the accept loop spent blocked waiting for a free slot.
+ */
+public class ExecutorMetrics {
+    private final ExecutorMode mode;
+    private final IntSupplier queueDepth;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder admissionWaitNanos = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    ExecutorMetrics(ExecutorMode mode, IntSupplier queueDepth) {
+        this.mode = mode;
+        this.queueDepth = queueDepth;
+    }
+
+    void onSubmit() {
+        submitted.increment();
+    }
+
+    void onStart(long waitedNanos) {
+        queueWaitNanos.add(waitedNanos);
+        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+    }
+
+    void onEnd(boolean success) {
+        active.decrementAndGet();
+        if (success) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    void onReject() {
+        rejected.increment();
+    }
+
+    void onAdmissionWait(long waitedNanos) {
+        admissionWaitNanos.add(waitedNanos);
+    }
+
+    public ExecutorMode getMode() {
+        return mode;
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getPeakActive() {
+        return peakActive.get();
+    }
+
+    // Tasks waiting for a worker (FIXED) or a permit (BOUNDED_VIRTUAL)
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    public long getQueueWaitNanos() {
+        return queueWaitNanos.sum();
+    }
+
+    public long getAdmissionWaitNanos() {
+        return admissionWaitNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        final long started = getCompleted() + getFailed() + getActive();
+        final long avgQueueWaitMicros = started == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(getQueueWaitNanos() / started);
+        return "ExecutorMetrics{" + "mode=" + mode + ", submitted=" + getSubmitted() + ", completed=" + getCompleted()
+                + ", failed=" + getFailed() + ", rejected=" + getRejected() + ", active=" + getActive()
+                + ", peakActive=" + getPeakActive() + ", queueDepth=" + getQueueDepth()
+                + ", avgQueueWaitMicros=" + avgQueueWaitMicros
+                + ", admissionWaitMillis=" + TimeUnit.NANOSECONDS.toMillis(getAdmissionWaitNanos()) + '}';
+    }
+}
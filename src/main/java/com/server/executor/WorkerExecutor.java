@@ -0,0 +1,151 @@
+package com.server.executor;
+
+import com.server.config.ServerConfig;
+import com.server.config.ServerConfig.ExecutorMode;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorkerExecutor: the Server's worker strategy, selected by ServerConfig.ExecutorMode.
+ * - FIXED: platform thread pool (the original newFixedThreadPool behaviour).
+ * - VIRTUAL: a virtual thread per task; blocking RequestRunners no longer exhaust a pool.
+ * - BOUNDED_VIRTUAL: virtual threads gated by a Semaphore of maxConcurrency permits.
+ * - Slots: the blocking accept loop calls acquireSlot() before accept() and hands the slot to
+ *   executeAcquired(); in BOUNDED_VIRTUAL mode this stops accepting while saturated.
+ *   Plain execute() (NIO handlers) takes the permit inside the virtual thread instead, so
+ *   event loops never block.
+ * - Queue bound (AdmissionPolicy.maxQueuedRequests, 0 = unbounded): FIXED uses a bounded work
+ *   queue and BOUNDED_VIRTUAL refuses tasks while that many already wait for a permit; a
+ *   refused task throws RejectedExecutionException so the caller can shed with a 503.
+ *   VIRTUAL has no queue to bound.
+ * - Every task is instrumented into ExecutorMetrics.
+ */
+public class WorkerExecutor implements Executor {
+    private final ExecutorService delegate;
+    private final Semaphore permits;                   // BOUNDED_VIRTUAL only, otherwise null
+    private final int maxQueued;                       // BOUNDED_VIRTUAL waiters allowed (0 = unbounded)
+    private final ExecutorMetrics metrics;
+
+    private WorkerExecutor(ExecutorMode mode, ExecutorService delegate, Semaphore permits, int maxQueued) {
+        this.delegate = delegate;
+        this.permits = permits;
+        this.maxQueued = maxQueued;
+
+        if (delegate instanceof ThreadPoolExecutor pool) {
+            this.metrics = new ExecutorMetrics(mode, () -> pool.getQueue().size());
+        } else if (permits != null) {
+            this.metrics = new ExecutorMetrics(mode, permits::getQueueLength);
+        } else {
+            this.metrics = new ExecutorMetrics(mode, () -> 0);
+        }
+    }
+
+    public static WorkerExecutor create(ServerConfig config) {
+        final int maxQueued = config.getAdmission().getMaxQueuedRequests();
+        return switch (config.getExecutorMode()) {
+            case FIXED -> new WorkerExecutor(ExecutorMode.FIXED,
+                    new ThreadPoolExecutor(config.getWorkerThreads(), config.getWorkerThreads(),
+                            0L, TimeUnit.MILLISECONDS, maxQueued > 0 ? new LinkedBlockingQueue<>(maxQueued) : new LinkedBlockingQueue<>(),
+                            Thread.ofPlatform().name("worker-", 0).factory()),
+                    null, 0);
+            case VIRTUAL -> new WorkerExecutor(ExecutorMode.VIRTUAL,
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vworker-", 0).factory()),
+                    null, 0);
+            case BOUNDED_VIRTUAL -> new WorkerExecutor(ExecutorMode.BOUNDED_VIRTUAL,
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vworker-", 0).factory()),
+                    new Semaphore(config.getMaxConcurrency()), maxQueued);
+        };
+    }
+
+    /**
+     * Block until a worker slot is free (BOUNDED_VIRTUAL); no-op for the other modes.
+     * - Must be paired with executeAcquired() or releaseSlot().
+     */
+    public void acquireSlot() throws InterruptedException {
+        if (permits == null) {
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            final long start = System.nanoTime();
+            permits.acquire();
+            metrics.onAdmissionWait(System.nanoTime() - start);
+        }
+    }
+
+    // Give back a slot taken by acquireSlot() that will not be used (e.g. accept() failed)
+    public void releaseSlot() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    // Run a task that already holds a slot from acquireSlot(); the slot is released when it ends
+    public void executeAcquired(Runnable task) {
+        submit(task, true);
+    }
+
+    // Run a task, taking a slot (if bounded) on the worker itself
+    @Override
+    public void execute(Runnable task) {
+        submit(task, false);
+    }
+
+    /**
+     * Stop taking tasks, let running ones finish for up to timeoutNanos, then interrupt them.
+     * - Returns true if every task completed in time.
+     */
+    public boolean shutdown(long timeoutNanos) throws InterruptedException {
+        delegate.shutdown();
+        if (delegate.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        delegate.shutdownNow();
+        return false;
+    }
+
+    public ExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void submit(Runnable task, boolean holdsPermit) {
+        if (!holdsPermit && maxQueued > 0 && permits != null && permits.availablePermits() == 0
+                && permits.getQueueLength() >= maxQueued) {
+            metrics.onReject();
+            throw new RejectedExecutionException("Worker queue full");
+        }
+        final long submittedAt = System.nanoTime();
+        metrics.onSubmit();
+
+        final Runnable instrumented = () -> {
+            if (permits != null && !holdsPermit) {
+                permits.acquireUninterruptibly();
+            }
+            metrics.onStart(System.nanoTime() - submittedAt);
+            boolean success = false;
+            try {
+                task.run();
+                success = true;
+            } finally {
+                metrics.onEnd(success);
+                releaseSlot();
+            }
+        };
+
+        try {
+            delegate.execute(instrumented);
+        } catch (RejectedExecutionException e) {
+            metrics.onReject();
+            if (holdsPermit) {
+                releaseSlot();
+            }
+            throw e;
+        }
+    }
+}
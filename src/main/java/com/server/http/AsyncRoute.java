@@ -0,0 +1,81 @@
+package com.server.http;
+
+import com.server.contract.AsyncRequestRunner;
+import com.server.contract.RequestRunner;
+import com.server.logging.Logger;
+import com.server.logging.Logging;
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncRoute: an AsyncRequestRunner registered in the Router (which stores RequestRunners).
+ * - start() runs the handler and returns a future that always completes with a response:
+ *   a failed stage becomes 500 (503 for RejectedExecutionException), an expired timeout 504.
+ * - The timeout runs from the start of the call, so it also covers filters and handler code
+ *   that run before the stage is returned.
+ * - Cancelling the returned future, or the timeout firing, cancels the handler's own stage.
+ * - run() is the synchronous view used by the blocking transport: it waits for start().
+ */
+public final class AsyncRoute implements RequestRunner {
+    private static final Logger LOG = Logging.getLogger(AsyncRoute.class);
+
+    private final AsyncRequestRunner runner;
+    private final long timeoutNanos;                   // 0 = no timeout
+
+    public AsyncRoute(AsyncRequestRunner runner, long timeoutNanos) {
+        if (timeoutNanos < 0) {
+            throw new IllegalArgumentException("timeout must be >= 0");
+        }
+        this.runner = runner;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public HttpResponse run(final HttpRequest request) {
+        return start(request).join();
+    }
+
+    /**
+     * Invoke the handler; a RuntimeException it throws before returning a stage propagates
+     * to the caller like a synchronous handler's would.
+     */
+    public CompletableFuture<HttpResponse> start(final HttpRequest request) {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        if (timeoutNanos > 0) {
+            result.completeOnTimeout(HttpHandler.errorResponse(504), timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        final CompletionStage<HttpResponse> stage;
+        try {
+            stage = runner.run(request);
+        } catch (RuntimeException e) {
+            result.cancel(false);
+            throw e;
+        }
+        final CompletableFuture<HttpResponse> source = stage.toCompletableFuture();
+
+        source.whenComplete((response, failure) -> result.complete(failure == null && response != null
+                ? response : failureResponse(request, failure)));
+        // Once result is done (timeout, cancel) the handler's work is no longer wanted
+        result.whenComplete((response, failure) -> source.cancel(true));
+        return result;
+    }
+
+    private static HttpResponse failureResponse(final HttpRequest request, final Throwable failure) {
+        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof RejectedExecutionException) {
+            return HttpHandler.errorResponse(503);
+        }
+        if (cause == null) {
+            LOG.warn("Async handler completed without a response for " + request.getHttpMethod() + " " + request.getUri());
+        } else {
+            LOG.error("Async handler failed for " + request.getHttpMethod() + " " + request.getUri(), cause);
+        }
+        return HttpHandler.errorResponse(500);
+    }
+}
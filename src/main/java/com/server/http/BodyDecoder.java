@@ -0,0 +1,220 @@
+package com.server.http;
+
+import com.server.pojos.HttpRequest;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * BodyDecoder: incremental request-body framing for one request.
+ * - Content-Length: passes through exactly that many bytes.
+ * - Transfer-Encoding: chunked: strips chunk-size lines, extensions and trailers.
+ * - Like HttpDecoder it consumes whatever input is available and resumes on the next call,
+ *   so the same decoder serves the blocking body stream and NIO aggregation.
+ * - Rejects ambiguous framing (both headers, bad lengths, codings other than chunked) with 400
+ *   and bodies beyond maxBodySize with 413.
+ */
+public class BodyDecoder {
+    private static final int MAX_CHUNK_SIZE_DIGITS = 15;
+
+    private enum State {
+        FIXED,              // Content-Length body
+        CHUNK_SIZE,
+        CHUNK_EXTENSION,    // skipping ";ext=..." up to CR
+        CHUNK_SIZE_LF,
+        CHUNK_DATA,
+        CHUNK_DATA_CR,
+        CHUNK_DATA_LF,
+        TRAILER_START,      // beginning of a trailer line or the final blank line
+        TRAILER_LINE,       // skipping a trailer field
+        TRAILER_END_LF,
+        DONE
+    }
+
+    private final long maxBodySize;
+    private final boolean expectContinue;
+    private State state;
+    private long remaining;                            // bytes left in the body (FIXED) or current chunk
+    private long total;                                // decoded body bytes so far
+    private int sizeDigits;
+
+    private BodyDecoder(State state, long remaining, long maxBodySize, boolean expectContinue) {
+        this.state = state;
+        this.remaining = remaining;
+        this.maxBodySize = maxBodySize;
+        this.expectContinue = expectContinue;
+    }
+
+    /**
+     * Choose the framing for a request from its headers.
+     * - Returns null when the request has no body.
+     */
+    public static BodyDecoder forRequest(final HttpRequest request, final long maxBodySize) throws HttpParseException {
+        final List<String> transferEncoding = nullIfEmpty(request.getHeaders(HeaderNames.TRANSFER_ENCODING));
+        final List<String> contentLength = nullIfEmpty(request.getHeaders(HeaderNames.CONTENT_LENGTH));
+        final boolean expectContinue = isExpectContinue(request);
+
+        if (transferEncoding != null) {
+            if (contentLength != null) {
+                throw new HttpParseException(400, "Both Transfer-Encoding and Content-Length present");
+            }
+            if (!isChunkedOnly(transferEncoding)) {
+                throw new HttpParseException(400, "Unsupported Transfer-Encoding");
+            }
+            return new BodyDecoder(State.CHUNK_SIZE, 0, maxBodySize, expectContinue);
+        }
+
+        if (contentLength == null) {
+            return null;
+        }
+        final long length = parseContentLength(contentLength);
+        if (length > maxBodySize) {
+            throw new HttpParseException(413, "Content-Length exceeds " + maxBodySize + " bytes");
+        }
+        return length == 0 ? null : new BodyDecoder(State.FIXED, length, maxBodySize, expectContinue);
+    }
+
+    // True when the client waits for "100 Continue" before sending the body
+    public boolean isExpectContinue() {
+        return expectContinue;
+    }
+
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    // Body bytes still expected for Content-Length framing, or -1 when unknown (chunked)
+    public long getKnownRemaining() {
+        return state == State.FIXED ? remaining : (state == State.DONE ? 0 : -1);
+    }
+
+    /**
+     * Decode body bytes from in into dst.
+     * - Returns the number of body bytes written; 0 means more input is needed or the body is complete.
+     */
+    public int decode(final ByteBuffer in, final byte[] dst, final int offset, final int length) throws HttpParseException {
+        int written = 0;
+
+        while (in.hasRemaining() && state != State.DONE) {
+            if (state == State.FIXED || state == State.CHUNK_DATA) {
+                if (written == length) {
+                    break;
+                }
+                final int n = (int) Math.min(Math.min(remaining, in.remaining()), length - written);
+                in.get(dst, offset + written, n);
+                written += n;
+                remaining -= n;
+                if (remaining == 0) {
+                    state = state == State.FIXED ? State.DONE : State.CHUNK_DATA_CR;
+                }
+                continue;
+            }
+            onFramingByte(in.get());
+        }
+        return written;
+    }
+
+    // Chunked framing: sizes, extensions, CRLFs and trailers
+    private void onFramingByte(final byte b) throws HttpParseException {
+        switch (state) {
+            case CHUNK_SIZE -> {
+                final int digit = Character.digit(b, 16);
+                if (digit >= 0) {
+                    if (++sizeDigits > MAX_CHUNK_SIZE_DIGITS) {
+                        throw new HttpParseException(400, "Chunk size too long");
+                    }
+                    remaining = (remaining << 4) | digit;
+                } else if (sizeDigits == 0) {
+                    throw new HttpParseException(400, "Missing chunk size");
+                } else if (b == ';' || b == ' ' || b == '\t') {
+                    state = State.CHUNK_EXTENSION;
+                } else if (b == '\r') {
+                    state = State.CHUNK_SIZE_LF;
+                } else {
+                    throw new HttpParseException(400, "Invalid chunk size");
+                }
+            }
+            case CHUNK_EXTENSION -> {
+                if (b == '\r') {
+                    state = State.CHUNK_SIZE_LF;
+                }
+            }
+            case CHUNK_SIZE_LF -> {
+                expect(b, '\n');
+                sizeDigits = 0;
+                if (remaining == 0) {
+                    state = State.TRAILER_START;
+                } else {
+                    total += remaining;
+                    if (total > maxBodySize) {
+                        throw new HttpParseException(413, "Chunked body exceeds " + maxBodySize + " bytes");
+                    }
+                    state = State.CHUNK_DATA;
+                }
+            }
+            case CHUNK_DATA_CR -> {
+                expect(b, '\r');
+                state = State.CHUNK_DATA_LF;
+            }
+            case CHUNK_DATA_LF -> {
+                expect(b, '\n');
+                state = State.CHUNK_SIZE;
+            }
+            case TRAILER_START -> {
+                if (b == '\r') {
+                    state = State.TRAILER_END_LF;
+                } else {
+                    state = b == '\n' ? State.DONE : State.TRAILER_LINE;
+                }
+            }
+            case TRAILER_LINE -> {
+                if (b == '\n') {
+                    state = State.TRAILER_START;
+                }
+            }
+            case TRAILER_END_LF -> {
+                expect(b, '\n');
+                state = State.DONE;
+            }
+            default -> throw new IllegalStateException("Unexpected framing state " + state);
+        }
+    }
+
+    private static void expect(final byte actual, final char expected) throws HttpParseException {
+        if (actual != expected) {
+            throw new HttpParseException(400, "Malformed chunked encoding");
+        }
+    }
+
+    // Repeated Content-Length values must agree and be plain decimal digits
+    private static long parseContentLength(final List<String> values) throws HttpParseException {
+        long length = -1;
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                final String trimmed = part.trim();
+                if (trimmed.isEmpty() || trimmed.length() > 18 || !trimmed.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    throw new HttpParseException(400, "Invalid Content-Length");
+                }
+                final long parsed = Long.parseLong(trimmed);
+                if (length >= 0 && parsed != length) {
+                    throw new HttpParseException(400, "Conflicting Content-Length values");
+                }
+                length = parsed;
+            }
+        }
+        return length;
+    }
+
+    // Only plain "chunked" is understood; other codings (gzip, ...) cannot be framed here
+    private static boolean isChunkedOnly(final List<String> values) {
+        return values.size() == 1 && values.get(0).trim().equalsIgnoreCase("chunked");
+    }
+
+    private static boolean isExpectContinue(final HttpRequest request) {
+        return request.getHeaders(HeaderNames.EXPECT).stream().anyMatch(value -> value.equalsIgnoreCase("100-continue"));
+    }
+
+    private static List<String> nullIfEmpty(final List<String> values) {
+        return values.isEmpty() ? null : values;
+    }
+}
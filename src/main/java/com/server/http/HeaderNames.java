@@ -0,0 +1,88 @@
+package com.server.http;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HeaderNames: interned well-known header names.
+ * - The decoder maps raw name bytes onto these constants (case-insensitively) instead of
+ *   allocating a new String for every common header.
+ * - Unknown names fall back to a fresh ISO-8859-1 String.
+ */
+public final class HeaderNames {
+    public static final String ACCEPT = "Accept";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String ACCEPT_LANGUAGE = "Accept-Language";
+    public static final String AUTHORIZATION = "Authorization";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String CONNECTION = "Connection";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String COOKIE = "Cookie";
+    public static final String EXPECT = "Expect";
+    public static final String HOST = "Host";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String ORIGIN = "Origin";
+    public static final String RANGE = "Range";
+    public static final String REFERER = "Referer";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    public static final String UPGRADE = "Upgrade";
+    public static final String USER_AGENT = "User-Agent";
+
+    private static final String[] KNOWN = {
+            ACCEPT, ACCEPT_ENCODING, ACCEPT_LANGUAGE, AUTHORIZATION, CACHE_CONTROL, CONNECTION,
+            CONTENT_LENGTH, CONTENT_TYPE, COOKIE, EXPECT, HOST, IF_MODIFIED_SINCE, IF_NONE_MATCH,
+            ORIGIN, RANGE, REFERER, TRANSFER_ENCODING, UPGRADE, USER_AGENT
+    };
+    private static final byte[][] KNOWN_LOWER = new byte[KNOWN.length][];
+
+    static {
+        for (int i = 0; i < KNOWN.length; i++) {
+            KNOWN_LOWER[i] = KNOWN[i].toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private HeaderNames() {
+    }
+
+    /**
+     * Resolve raw name bytes to an interned constant, or a new String for unknown names.
+     */
+    public static String intern(final byte[] bytes, final int offset, final int length) {
+        for (int i = 0; i < KNOWN_LOWER.length; i++) {
+            if (equalsIgnoreCase(KNOWN_LOWER[i], bytes, offset, length)) {
+                return KNOWN[i];
+            }
+        }
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Same for a decoded name (HTTP/2 names arrive lower case), or the name itself if unknown.
+     */
+    public static String intern(final String name) {
+        for (int i = 0; i < KNOWN.length; i++) {
+            if (KNOWN[i].equalsIgnoreCase(name)) {
+                return KNOWN[i];
+            }
+        }
+        return name;
+    }
+
+    // ASCII case-insensitive compare of raw bytes against a lower-case name
+    static boolean equalsIgnoreCase(final byte[] lower, final byte[] bytes, final int offset, final int length) {
+        if (lower.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lower[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
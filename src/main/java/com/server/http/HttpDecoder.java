@@ -1,136 +1,315 @@
 package com.server.http;
 
+import com.server.config.ServerConfig;
 import com.server.contract.HttpMethod;
 import com.server.pojos.HttpRequest;
 import com.server.pojos.HttpRequest.Builder;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
- * HttpDecoder: parses an HTTP/1.1 request from a socket InputStream into HttpRequest.
+ * HttpDecoder: incremental HTTP/1.1 request-head parser, one instance per connection.
  * - Expects start-line format: "<METHOD> <request-target> HTTP/1.1" per spec. [RFC 7230/9112]
- * - Splits message into lines, validates version, and extracts method + URI.
- * - Parses headers into a multi-valued map; body parsing is not implemented.
- * - Returns Optional.empty() for malformed or unsupported requests.
+ * - A byte-level state machine: decode() consumes whatever bytes are available and resumes
+ *   where it stopped on the next call, so heads split across arbitrary TCP segments work.
+ * - Head bytes are kept in a reusable scratch array with offsets for method, target and each
+ *   header; no per-line Strings are built. Only the target URI is decoded here: the request
+ *   gets a copy of the head bytes plus the header offsets and decodes headers on access.
+ * - Stops exactly at the end of the head: pipelined bytes stay in the caller's buffer.
+ * - Enforces maxRequestLineLength (414) and maxHeaderSize (431) from ServerConfig;
+ *   malformed input raises HttpParseException (400, or 505 for other HTTP versions).
+ * - Header lookups are case-insensitive (see HttpRequest.getHeader); body framing is handled by BodyDecoder.
  */
 public class HttpDecoder {
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte SP = ' ';
+    private static final byte HTAB = '\t';
+    private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final byte[][] METHOD_BYTES = new byte[METHODS.length][];
+    private static final int INITIAL_SCRATCH_SIZE = 512;
 
-    /**
-     * Decode a request from the input stream to a typed HttpRequest, if possible.
-     */
-    public static Optional<HttpRequest> decode(final InputStream inputStream) {
-        return readMessage(inputStream).flatMap(HttpDecoder::buildRequest);
+    static {
+        for (int i = 0; i < METHODS.length; i++) {
+            METHOD_BYTES[i] = METHODS[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private enum State {
+        START,              // skipping stray CRLFs before the request-line
+        METHOD,
+        TARGET,
+        VERSION,
+        REQUEST_LINE_LF,    // saw CR after the version
+        HEADER_START,       // at the beginning of a header line (or the final blank line)
+        HEADER_NAME,
+        HEADER_VALUE_START, // skipping optional whitespace after ':'
+        HEADER_VALUE,
+        HEADER_LF,          // saw CR after a header value
+        HEAD_END_LF         // saw CR on the blank line
+    }
+
+    private final int maxRequestLineLength;
+    private final int maxHeaderSize;
+
+    private byte[] scratch = new byte[INITIAL_SCRATCH_SIZE];
+    private int length;                                // bytes stored in scratch
+    private State state = State.START;
+    private int methodEnd;
+    private int targetStart;
+    private int targetEnd;
+    private int versionStart;
+    private int versionEnd;
+    private int requestLineLength;
+    private int headerSize;
+    private int fieldStart;                            // start of the current header name/value
+    private int valueEnd;                              // end of the value excluding trailing whitespace
+    private int[] headerOffsets = new int[16 * 4];     // nameStart, nameEnd, valueStart, valueEnd per header
+    private int headerCount;
+
+    public HttpDecoder() {
+        this(ServerConfig.defaults());
+    }
+
+    public HttpDecoder(ServerConfig config) {
+        this.maxRequestLineLength = config.getMaxRequestLineLength();
+        this.maxHeaderSize = config.getMaxHeaderSize();
     }
 
     /**
-     * Read raw request bytes as lines.
-     * - Reads available bytes, splits on newline into a list of lines.
-     * - Returns empty if no bytes are available or an error occurs.
+     * Feed readable bytes from the buffer into the parser.
+     * - Returns the request once its head is complete (buffer positioned just after it),
+     *   or null when all bytes were consumed and more input is needed.
+     * - The decoder resets itself after returning a request and can be reused.
      */
-    private static Optional<List<String>> readMessage(final InputStream inputStream) {
-        try {
-            if (!(inputStream.available() > 0)) {
-                return Optional.empty();
+    public HttpRequest decode(final ByteBuffer in) throws HttpParseException {
+        while (in.hasRemaining()) {
+            final byte b = in.get();
+
+            switch (state) {
+                case START -> {
+                    if (b != CR && b != LF) {
+                        state = State.METHOD;
+                        onMethod(b);
+                    }
+                }
+                case METHOD -> onMethod(b);
+                case TARGET -> {
+                    countRequestLine();
+                    if (b == SP) {
+                        if (length == targetStart) {
+                            throw new HttpParseException(400, "Empty request-target");
+                        }
+                        targetEnd = length;
+                        versionStart = length;
+                        state = State.VERSION;
+                    } else if (b > SP && b < 0x7F) {
+                        append(b);
+                    } else {
+                        throw new HttpParseException(400, "Invalid character in request-target");
+                    }
+                }
+                case VERSION -> {
+                    countRequestLine();
+                    if (b == CR || b == LF) {
+                        versionEnd = length;
+                        state = b == CR ? State.REQUEST_LINE_LF : State.HEADER_START;
+                    } else if (b > SP && b < 0x7F) {
+                        append(b);
+                    } else {
+                        throw new HttpParseException(400, "Invalid character in HTTP version");
+                    }
+                }
+                case REQUEST_LINE_LF -> {
+                    expectLf(b);
+                    state = State.HEADER_START;
+                }
+                case HEADER_START -> {
+                    countHeader();
+                    if (b == CR) {
+                        state = State.HEAD_END_LF;
+                    } else if (b == LF) {
+                        return complete();
+                    } else if (b == SP || b == HTAB) {
+                        throw new HttpParseException(400, "Obsolete header line folding");
+                    } else {
+                        fieldStart = length;
+                        state = State.HEADER_NAME;
+                        onHeaderName(b);
+                    }
+                }
+                case HEADER_NAME -> {
+                    countHeader();
+                    onHeaderName(b);
+                }
+                case HEADER_VALUE_START -> {
+                    countHeader();
+                    if (b != SP && b != HTAB) {
+                        fieldStart = length;
+                        valueEnd = length;
+                        state = State.HEADER_VALUE;
+                        onHeaderValue(b);
+                    }
+                }
+                case HEADER_VALUE -> {
+                    countHeader();
+                    onHeaderValue(b);
+                }
+                case HEADER_LF -> {
+                    countHeader();
+                    expectLf(b);
+                    state = State.HEADER_START;
+                }
+                case HEAD_END_LF -> {
+                    expectLf(b);
+                    return complete();
+                }
             }
+        }
+        return null;
+    }
 
-            final char[] inBuffer = new char[inputStream.available()];
-            final InputStreamReader inReader = new InputStreamReader(inputStream);
-            final int read = inReader.read(inBuffer);
+    // True when no bytes of a new request have been consumed (clean point to close on EOF)
+    public boolean isIdle() {
+        return state == State.START;
+    }
 
-            List<String> message = new ArrayList<>();
+    // Drop any partially parsed head (e.g. after an error)
+    public void reset() {
+        state = State.START;
+        length = 0;
+        requestLineLength = 0;
+        headerSize = 0;
+        headerCount = 0;
+    }
 
-            try (Scanner sc = new Scanner(new String(inBuffer))) {
-                while (sc.hasNextLine()) {
-                    String line = sc.nextLine();
-                    message.add(line);
-                }
+    private void onMethod(final byte b) throws HttpParseException {
+        countRequestLine();
+        if (b == SP) {
+            if (length == 0) {
+                throw new HttpParseException(400, "Empty method");
             }
-            System.out.println("-----------Character Array Buffer-----------");
-            for (int i = 0; i < inBuffer.length; i++) {
-                System.out.print(inBuffer[i]);
+            methodEnd = length;
+            targetStart = length;
+            state = State.TARGET;
+        } else if (isTokenChar(b)) {
+            append(b);
+        } else {
+            throw new HttpParseException(400, "Invalid character in method");
+        }
+    }
+
+    private void onHeaderName(final byte b) throws HttpParseException {
+        if (b == ':') {
+            if (length == fieldStart) {
+                throw new HttpParseException(400, "Empty header name");
             }
-            System.out.println("\n");
-            System.out.println("-----------Message-----------");
-            System.out.println(message);
-            System.out.println("\n");
-            return Optional.of(message);
-        } catch (Exception ignored) {
-            return Optional.empty();
+            addHeaderOffset(fieldStart, length);
+            fieldStart = length;
+            valueEnd = length;
+            state = State.HEADER_VALUE_START;
+        } else if (isTokenChar(b)) {
+            append(b);
+        } else {
+            throw new HttpParseException(400, "Invalid character in header name");
         }
     }
 
-    /**
-     * Build a typed HttpRequest from message lines.
-     * - Validates request-line: method, target, and "HTTP/1.1".
-     * - Populates method, URI, and headers; body not parsed.
-     */
-    private static Optional<HttpRequest> buildRequest(List<String> message) {
-        if (message.isEmpty()) {
-            return Optional.empty();
+    private void onHeaderValue(final byte b) throws HttpParseException {
+        if (b == CR || b == LF) {
+            addHeaderOffset(fieldStart, valueEnd);
+            headerCount++;
+            state = b == CR ? State.HEADER_LF : State.HEADER_START;
+        } else if (b == SP || b == HTAB) {
+            append(b);                                 // may be interior whitespace; valueEnd trims trailing OWS
+        } else if ((b & 0xFF) > SP && b != 0x7F) {
+            append(b);
+            valueEnd = length;
+        } else {
+            throw new HttpParseException(400, "Invalid character in header value");
         }
+    }
+
+    private void expectLf(final byte b) throws HttpParseException {
+        if (b != LF) {
+            throw new HttpParseException(400, "Expected LF after CR");
+        }
+    }
 
-        String firstLine = message.get(0);
-        String[] httpInfo = firstLine.split(" ");
+    private void countRequestLine() throws HttpParseException {
+        if (++requestLineLength > maxRequestLineLength) {
+            throw new HttpParseException(414, "Request-line exceeds " + maxRequestLineLength + " bytes");
+        }
+    }
 
-        if (httpInfo.length != 3) {
-            return Optional.empty();
+    private void countHeader() throws HttpParseException {
+        if (++headerSize > maxHeaderSize) {
+            throw new HttpParseException(431, "Header section exceeds " + maxHeaderSize + " bytes");
         }
+    }
 
-        String protocolVersion = httpInfo[2];
-        if (!protocolVersion.equals("HTTP/1.1")) {
-            return Optional.empty();
+    private void append(final byte b) {
+        if (length == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
         }
+        scratch[length++] = b;
+    }
 
-        try {
-            Builder requestBuilder = new Builder();
-            requestBuilder.setHttpMethod(HttpMethod.valueOf(httpInfo[0]));
-            requestBuilder.setUri(new URI(httpInfo[1]));
-            return Optional.of(addRequestHeader(message, requestBuilder));
-        } catch (URISyntaxException | IllegalArgumentException e) {
-            return Optional.empty();
+    // Offsets come in pairs: (nameStart, nameEnd) on ':' then (valueStart, valueEnd) at end of line
+    private void addHeaderOffset(final int start, final int end) {
+        final int index = headerCount * 4 + (state == State.HEADER_NAME ? 0 : 2);
+        if (index + 2 > headerOffsets.length) {
+            headerOffsets = Arrays.copyOf(headerOffsets, headerOffsets.length * 2);
         }
+        headerOffsets[index] = start;
+        headerOffsets[index + 1] = end;
     }
 
     /**
-     * Parse header lines into a multi-valued map and finalize the request.
-     * - Stops parsing when a non-header line is encountered.
+     * Build a typed HttpRequest from the parsed offsets and reset for the next request.
+     * - Validates method and "HTTP/1.1"; populates method, URI, and the raw headers.
      */
-    private static HttpRequest addRequestHeader(final List<String> message, Builder builder) {
-        final Map<String, List<String>> requestHeaders = new HashMap<>();
-
-        if (message.size() > 1) {
-            for (int i = 1; i < message.size(); i++) {
-                String header = message.get(i);
-                System.out.println("-----------Header-----------");
-                System.out.println(header);
-                System.out.println("\n");
-                int colonIndex = header.indexOf(":");
-
-                if (!(colonIndex > 0 && header.length() > colonIndex + 1)) {
-                    break;
-                }
+    private HttpRequest complete() throws HttpParseException {
+        try {
+            if (!Arrays.equals(scratch, versionStart, versionEnd, HTTP_1_1, 0, HTTP_1_1.length)) {
+                throw new HttpParseException(505, "Unsupported HTTP version");
+            }
 
-                String headerName = header.substring(0, colonIndex);
-                String headerValue = header.substring(colonIndex + 1);
+            final Builder requestBuilder = new Builder();
+            requestBuilder.setHttpMethod(resolveMethod());
+            requestBuilder.setUri(new URI(new String(scratch, targetStart, targetEnd - targetStart, StandardCharsets.ISO_8859_1)));
+            // Copies: scratch and headerOffsets are reused by the next request on this connection
+            requestBuilder.setRawHeaders(Arrays.copyOf(scratch, length), Arrays.copyOf(headerOffsets, headerCount * 4), headerCount);
+            return requestBuilder.build();
+        } catch (URISyntaxException e) {
+            throw new HttpParseException(400, "Invalid request-target");
+        } finally {
+            reset();
+        }
+    }
 
-                requestHeaders.compute(headerName, (key, values) -> {
-                    if (values != null) {
-                        values.add(headerValue);
-                    } else {
-                        values = new ArrayList<>();
-                    }
-                    return values;
-                });
+    private HttpMethod resolveMethod() throws HttpParseException {
+        for (int i = 0; i < METHOD_BYTES.length; i++) {
+            if (Arrays.equals(scratch, 0, methodEnd, METHOD_BYTES[i], 0, METHOD_BYTES[i].length)) {
+                return METHODS[i];
             }
         }
-        System.out.println("-----------Request Headers-----------");
-        System.out.println(requestHeaders);
-        System.out.println("\n");
-        builder.setRequestHeaders(requestHeaders);
-        return builder.build();
+        throw new HttpParseException(400, "Unsupported method");
+    }
+
+    // RFC 9110 tchar: "!#$%&'*+-.^_`|~" plus DIGIT and ALPHA
+    private static boolean isTokenChar(final byte b) {
+        if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')) {
+            return true;
+        }
+        return switch (b) {
+            case '!', '#', '$', '%', '&', '\'', '*', '+', '-', '.', '^', '_', '`', '|', '~' -> true;
+            default -> false;
+        };
     }
-}
\ No newline at end of file
+}
@@ -1,82 +1,519 @@
 package com.server.http;
 
-import com.server.contract.RequestRunner;
+import com.server.admission.AdmissionController;
+import com.server.compression.ResponseCompressor;
+import com.server.config.ServerConfig;
+import com.server.contract.HttpMethod;
+import com.server.logging.AccessLog;
+import com.server.logging.Logger;
+import com.server.logging.Logging;
+import com.server.metrics.ServerMetrics;
 import com.server.pojos.HttpRequest;
 import com.server.pojos.HttpResponse;
+import com.server.pojos.HttpStatusCode;
+import com.server.push.PushStream;
+import com.server.push.WebSocket;
+import com.server.routing.RouteMatch;
+import com.server.routing.Router;
+import com.server.tls.TlsChannel;
+import com.server.writers.ResponseSink;
 import com.server.writers.ResponseWriter;
+import com.server.writers.StreamResponseSink;
 
 import java.io.*;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * HttpHandler is responsible for managing a single client connection.
- * - Reads the incoming HTTP request from the InputStream.
- * - Decodes the request using HttpDecoder.
- * - Matches the request (method + URI) against registered routes.
- *     -> If a matching route exists, delegates it to the corresponding RequestRunner.
+ * - Serves requests back-to-back on one persistent HTTP/1.1 connection (keep-alive).
+ * - Reads into one reusable ByteBuffer and feeds it to the connection's incremental HttpDecoder;
+ *   pipelined requests already buffered are answered in order and flushed together once the
+ *   input buffer runs dry.
+ * - Matches the request (method + path) against the Router's per-method trees.
+ *     -> If a matching route exists, delegates it to the corresponding RequestRunner
+ *        (an AsyncRoute is awaited here; dispatchAsync() lets the NIO transport not wait).
+ *     -> If the path only exists for other methods, responds with 405 + Allow.
  *     -> If not, responds with 404 (Route Not Found).
- * - If the request is invalid/unparsable, responds with 400 (Bad Request).
- * - Finally writes the HttpResponse back to the client via OutputStream.
+ * - Request bodies (Content-Length or chunked) are exposed as a lazily read stream; what the
+ *   handler leaves unread is skipped afterwards (up to maxBodyDrain) to keep the connection.
+ * - Responses are written as bytes; file entities go out via transferTo on the socket channel
+ *   and streamed entities with chunked framing (see ResponseWriter).
+ * - If the request is invalid/unparsable, responds with 400 (or 413/414/431/505) and closes;
+ *   a handler throwing a RuntimeException gets a 500 and the connection is closed.
+ * - Every served request is written to the access log; request dumps are DEBUG traces.
+ * - With ServerConfig.compression set, responses are gzip/deflate encoded as negotiated.
+ * - Every request passes the AdmissionController first: over the client's rate it gets a
+ *   canned 429, over the adaptive concurrency limit a canned 503 (and the connection closes);
+ *   admitted requests report their handler latency back to the limiter.
+ * - Handler latency and decode failures are recorded in the server's ServerMetrics.
+ * - drain() starts a graceful shutdown: idle connections close, busy ones after their response.
+ * - EventStream responses are written with the blocking fallback (one thread per stream) and
+ *   ended by drain(); WebSocket needs the NIO transport and is answered with 501 here.
+ * - The Router is frozen on construction; warmUp() runs synthetic requests through the
+ *   decode/match/encode path so a fresh server does not serve its first requests cold.
+ * - Closes the connection on "Connection: close", on EOF, when the idle timeout
+ *   (socket read timeout set by Server) expires, or after maxRequestsPerConnection.
  *
  * In short: Acts as the main controller that routes requests to handlers and sends responses.
  */
 public class HttpHandler {
-    // Stores route mappings: (HTTP Method + Path) -> handler (RequestRunner)
-    private final Map<String, RequestRunner> routes;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    // Synthetic request for warmUp(): a path no application route should use
+    private static final byte[] WARMUP_REQUEST = ("GET /.well-known/server-warmup?probe=1 HTTP/1.1\r\n"
+            + "Host: localhost\r\nUser-Agent: warmup\r\nAccept: */*\r\nAccept-Encoding: gzip, deflate\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final Logger LOG = Logging.getLogger(HttpHandler.class);
 
-    // Constructor initializes route map
-    public HttpHandler(Map<String, RequestRunner> routes) {
-        this.routes = routes;
+    // Canned responses for the common error paths (shared, immutable)
+    private static final HttpResponse NOT_FOUND = new HttpResponse.Builder()
+            .setStatusCode(404)
+            .setEntity("Route Not Found....")
+            .build();
+    private static final HttpResponse[] ERROR_RESPONSES = new HttpResponse[600];
+
+    static {
+        HttpStatusCode.STATUS_CODES.keySet().stream()
+                .filter(code -> code >= 400)
+                .forEach(code -> ERROR_RESPONSES[code] = buildErrorResponse(code));
+    }
+
+    // Route trees: (HTTP Method, path pattern) -> handler (RequestRunner); frozen, so this
+    // final field publishes the compiled tables safely to every transport thread
+    private final Router router;
+    // Keep-alive limits
+    private final ServerConfig config;
+    // Request latency / decode failure counters
+    private final ServerMetrics metrics;
+    // Content-Encoding negotiation (null when compression is off)
+    private final ResponseCompressor compressor;
+    // Connection / rate / concurrency limits shared by every transport
+    private final AdmissionController admission;
+
+    // Blocking connections for drain(): IDLE between requests, BUSY while serving one
+    private final Set<OpenConnection> open = ConcurrentHashMap.newKeySet();
+    // Push streams being written by blocking connections, ended by drain()
+    private final Set<PushStream> pushing = ConcurrentHashMap.newKeySet();
+    private volatile boolean draining;
+
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int CLOSED = 2;
+
+    private static final class OpenConnection {
+        final Closeable socket;
+        final AtomicInteger state = new AtomicInteger(IDLE);
+
+        OpenConnection(Closeable socket) {
+            this.socket = socket;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+
+    // Constructor initializes the router with default connection settings
+    public HttpHandler(Router router) {
+        this(router, ServerConfig.defaults());
+    }
+
+    public HttpHandler(Router router, ServerConfig config) {
+        this(router, config, new ServerMetrics());
     }
 
-    // Handles a single client connection (request/response cycle)
+    public HttpHandler(Router router, ServerConfig config, ServerMetrics metrics) {
+        this.router = router.freeze();
+        this.config = config;
+        this.metrics = metrics;
+        this.compressor = config.getCompression() == null ? null : new ResponseCompressor(config.getCompression());
+        this.admission = new AdmissionController(config.getAdmission(), config.getTls() != null);
+    }
+
+    // Handles a client connection: loops over request/response cycles until the connection should close
     public void handleConnection(final InputStream inputStream, final OutputStream outputStream) throws IOException {
+        handleConnection(inputStream, outputStream, null);
+    }
+
+    // Same, with the socket channel so file entities can be sent with transferTo (sendfile)
+    public void handleConnection(final InputStream inputStream, final OutputStream outputStream,
+                                 final WritableByteChannel channel) throws IOException {
+        // Reusable read buffer (kept in read mode); pipelined bytes stay here between decodes
+        final ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE).flip();
+        final HttpDecoder decoder = new HttpDecoder(config);
 
-        // Writer to send response back to client
-        final BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(outputStream));
+        // Byte sink to send responses back to client (pooled output buffer)
+        final StreamResponseSink sink = new StreamResponseSink(outputStream, channel);
+        final Object remote = remoteAddress(channel);
+        final InetAddress client = AdmissionController.clientAddress(remote);
+        final OpenConnection connection = new OpenConnection(channel != null ? channel : inputStream);
+        open.add(connection);
 
-        // Decode incoming request (returns Optional<HttpRequest>)
-        Optional<HttpRequest> request = HttpDecoder.decode(inputStream);
-        System.out.println("-----------Request-----------");
-        System.out.println(request.toString());
-        System.out.println("\n");
+        try {
+            int served = 0;
+            boolean keepAlive = !draining;
 
-        // Process request if valid, otherwise send error response
-        request.ifPresentOrElse(
-                (r) -> handleRequest(r, bufferedWriter),   // valid request
-                () -> handleInvalidRequest(bufferedWriter) // invalid request
-        );
+            while (keepAlive) {
+                HttpRequest request;
+                final BodyDecoder bodyDecoder;
+                try {
+                    request = readRequest(inputStream, input, decoder);
+                    bodyDecoder = request == null ? null : BodyDecoder.forRequest(request, config.getMaxBodySize());
+                } catch (HttpParseException e) {
+                    // Stream position is unknown after a parse error, so always close
+                    handleInvalidRequest(sink, e);
+                    sink.flush();
+                    break;
+                }
+                if (request == null) {
+                    break;                                                 // EOF
+                }
+                if (!connection.state.compareAndSet(IDLE, BUSY)) {
+                    break;                                                 // closed by drain()
+                }
 
-        bufferedWriter.close();
-        inputStream.close();
+                // Body stays on the wire until the handler reads it
+                RequestBodyStream body = null;
+                if (bodyDecoder != null) {
+                    body = new RequestBodyStream(bodyDecoder, input, inputStream, () -> ResponseWriter.writeContinue(sink));
+                    request = request.withBody(body);
+                }
+                final long start = System.nanoTime();
+                final HttpRequest logged = request;
+                LOG.debug(() -> "Request " + logged);
+
+                served++;
+                keepAlive = !draining && isKeepAlive(request)
+                        && (config.getMaxRequestsPerConnection() <= 0 || served < config.getMaxRequestsPerConnection());
+
+                HttpResponse response = admission.admit(client);
+                if (response != null) {
+                    // Shed: the client should back off, so an overloaded server also drops the connection
+                    keepAlive = keepAlive && response.getStatusCode() != 503;
+                } else {
+                    try {
+                        response = dispatch(request);
+                    } catch (RuntimeException e) {
+                        LOG.error("Handler failed for " + request.getHttpMethod() + " " + request.getUri(), e);
+                        response = errorResponse(500);
+                        keepAlive = false;
+                    } finally {
+                        admission.complete(System.nanoTime() - start);
+                    }
+                }
+                if (body != null && !body.isFinished()) {
+                    keepAlive = keepAlive && skipUnreadBody(body);
+                }
+                // A drain that started while the handler ran still gets "Connection: close"
+                keepAlive = keepAlive && !draining;
+                final PushStream push = response.getEntity().orElse(null) instanceof PushStream stream ? stream : null;
+                if (push instanceof WebSocket && response.getStatusCode() == 101) {
+                    LOG.warn("WebSocket upgrade for " + request.getUri() + " needs the NIO transport");
+                    response = errorResponse(501);
+                } else if (push != null) {
+                    pushing.add(push);
+                }
+                try {
+                    ResponseWriter.writeResponse(sink, response, !keepAlive);
+
+                    // Batch pipelined responses: only flush when no further request is already buffered
+                    if (!keepAlive || !input.hasRemaining()) {
+                        sink.flush();
+                    }
+                } catch (IOException e) {
+                    // Client went away or the entity failed mid-response: the framing is broken, close
+                    LOG.debug(() -> "Response aborted: " + e);
+                    break;
+                } finally {
+                    if (push != null) {
+                        pushing.remove(push);
+                    }
+                }
+                AccessLog.log(remote, request, response.getStatusCode(), start);
+
+                // drain() sets the flag before closing idle connections, so one of the two sees the other
+                connection.state.set(IDLE);
+                if (draining) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            // Idle timeout expired between (or during) requests: close quietly
+        } catch (IOException e) {
+            if (connection.state.get() != CLOSED) {
+                throw e;
+            }
+            // Closed by drain() or closeAll(): not an error
+        } finally {
+            open.remove(connection);
+            sink.release();
+            try {
+                outputStream.close();
+            } finally {
+                inputStream.close();
+            }
+        }
     }
 
-    // Handles case when request cannot be parsed (400 Bad Request)
-    private void handleInvalidRequest(final BufferedWriter bufferedWriter) {
-        HttpResponse notFoundResponse = new HttpResponse.Builder()
-                .setStatusCode(400)
-                .setEntity("Bad Request...") // Response body
-                .build();
+    /**
+     * Feed buffered and then freshly read bytes into the decoder until a request head completes.
+     * - Returns null on EOF (clean between requests, or a truncated head).
+     */
+    private HttpRequest readRequest(final InputStream inputStream, final ByteBuffer input, final HttpDecoder decoder)
+            throws IOException, HttpParseException {
+        while (true) {
+            final HttpRequest request = decoder.decode(input);
+            if (request != null) {
+                return request;
+            }
+            // Decoder consumed everything buffered: refill from the socket
+            input.clear();
+            final int read = inputStream.read(input.array(), input.arrayOffset(), input.capacity());
+            if (read < 0) {
+                input.limit(0);
+                return null;
+            }
+            input.limit(read);
+        }
+    }
+
+    /**
+     * Discard what the handler left of the request body so the connection can be reused.
+     * - Returns false (close instead) if the client still awaits "100 Continue", the rest is
+     *   larger than maxBodyDrain, or the body turns out to be malformed.
+     */
+    private boolean skipUnreadBody(final RequestBodyStream body) {
+        if (!body.isContinueSettled()) {
+            return false;
+        }
+        try {
+            return body.drain(config.getMaxBodyDrain());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Client address for the access log ("-" when not served from a socket channel)
+    private static Object remoteAddress(final WritableByteChannel channel) {
+        try {
+            if (channel instanceof SocketChannel socketChannel) {
+                return socketChannel.getRemoteAddress();
+            }
+            if (channel instanceof TlsChannel tls) {
+                return tls.getRemoteAddress();
+            }
+        } catch (IOException e) {
+            return "-";
+        }
+        return "-";
+    }
+
+    /**
+     * HTTP/1.1 connections are persistent unless the client sends "Connection: close".
+     */
+    public static boolean isKeepAlive(final HttpRequest request) {
+        return !request.hasHeaderToken(HeaderNames.CONNECTION, "close");
+    }
+
+    /**
+     * Start a graceful shutdown of blocking connections.
+     * - Idle ones (between requests) are closed now; busy ones finish their current request,
+     *   answer it with "Connection: close" and then close.
+     * - The NIO transport drains its own connections and checks isDraining().
+     */
+    public void drain() {
+        draining = true;
+        pushing.forEach(PushStream::shutdown);
+        for (OpenConnection connection : open) {
+            if (connection.state.compareAndSet(IDLE, CLOSED)) {
+                connection.close();
+            }
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    // Drain deadline passed: close every blocking connection, busy or not
+    public void closeAll() {
+        pushing.forEach(PushStream::shutdown);
+        for (OpenConnection connection : open) {
+            connection.state.set(CLOSED);
+            connection.close();
+        }
+    }
+
+    /**
+     * Run synthetic requests through decode, route lookup, keep-alive and compression
+     * negotiation and response encoding, writing into a discarding sink.
+     * - Loads and links the request-path classes and gives the JIT the invocation counts it
+     *   compiles on, before the listening socket opens.
+     * - No handler runs (the canned 404 is always written) and no metrics or admission state
+     *   change, so the warm-up is invisible to clients and scrapes.
+     */
+    public void warmUp(final int requests) {
+        final HttpDecoder decoder = new HttpDecoder(config);
+        final StreamResponseSink sink = new StreamResponseSink(OutputStream.nullOutputStream(), null);
+        final ByteBuffer input = ByteBuffer.wrap(WARMUP_REQUEST);
+        try {
+            for (int i = 0; i < requests; i++) {
+                input.rewind();
+                final HttpRequest request = decoder.decode(input);
+                match(request);
+                ResponseWriter.writeResponse(sink, compress(request, NOT_FOUND), !isKeepAlive(request));
+                sink.flush();
+            }
+        } catch (HttpParseException | IOException e) {
+            LOG.warn("Warm-up stopped early", e);
+        } finally {
+            sink.release();
+        }
+    }
+
+    // Connection settings this handler was built with (shared with the transports)
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Route a decoded request to its RequestRunner.
+     * - Transport-agnostic: used by the blocking loop here and by the NIO event loops.
+     * - Path parameters of the matched route are attached to the request.
+     * - Returns 405 with Allow when only other methods match the path, 404 when nothing does.
+     * - Handler latency is recorded per route pattern and status (a throwing handler counts as 500).
+     * - The response is compressed when the client accepts it and the policy allows it.
+     */
+    public HttpResponse dispatch(final HttpRequest request) {
+        return compress(request, route(request, match(request)));
+    }
 
-        ResponseWriter.writeResponse(bufferedWriter, notFoundResponse);
+    /**
+     * Same as dispatch(), without waiting for AsyncRoute handlers (used by the NIO transport).
+     * - Other routes run synchronously and return an already completed future.
+     * - Latency of an async route is recorded when its future completes; cancelling the
+     *   returned future cancels the handler's stage.
+     */
+    public CompletableFuture<HttpResponse> dispatchAsync(final HttpRequest request) {
+        final RouteMatch match = match(request);
+        if (match == null || !(match.getRunner() instanceof AsyncRoute async)) {
+            return CompletableFuture.completedFuture(compress(request, route(request, match)));
+        }
+
+        final long start = System.nanoTime();
+        final HttpMethod method = request.getHttpMethod();
+        final Map<String, String> parameters = match.getPathParameters();
+        final CompletableFuture<HttpResponse> result;
+        try {
+            result = async.start(parameters.isEmpty() ? request : request.withPathParameters(parameters));
+        } catch (RuntimeException e) {
+            metrics.recordRequest(method, match.getPattern(), 500, System.nanoTime() - start);
+            throw e;
+        }
+        final CompletableFuture<HttpResponse> completed = result.thenApply(response -> {
+            metrics.recordRequest(method, match.getPattern(), response.getStatusCode(), System.nanoTime() - start);
+            return compress(request, response);
+        });
+        completed.whenComplete((response, failure) -> result.cancel(true));
+        return completed;
     }
 
-    // Handles valid request by checking if route exists
-    private void handleRequest(final HttpRequest request, final BufferedWriter bufferedWriter) {
-        // Construct key: HTTP_METHOD + URI path (ex: "GET/api/user")
-        final String routeKey = request.getHttpMethod().name().concat(request.getUri().getRawPath());
+    private RouteMatch match(final HttpRequest request) {
+        final String rawPath = request.getUri().getRawPath();
+        return router.match(request.getHttpMethod(), rawPath == null ? "" : rawPath);
+    }
 
-        if (routes.containsKey(routeKey)) {
+    private HttpResponse compress(final HttpRequest request, final HttpResponse response) {
+        return compressor == null ? response : compressor.compress(request, response);
+    }
+
+    private HttpResponse route(final HttpRequest request, final RouteMatch match) {
+        final long start = System.nanoTime();
+        final HttpMethod method = request.getHttpMethod();
+
+        if (match != null) {
             // Valid route → delegate request to corresponding handler
-            ResponseWriter.writeResponse(bufferedWriter, routes.get(routeKey).run(request));
-        } else {
-            // Route not found → return 404
-            ResponseWriter.writeResponse(bufferedWriter,
-                    new HttpResponse.Builder()
-                            .setStatusCode(404)
-                            .setEntity("Route Not Found....")
-                            .build());
+            final Map<String, String> parameters = match.getPathParameters();
+            final HttpResponse response;
+            try {
+                response = match.getRunner().run(parameters.isEmpty() ? request : request.withPathParameters(parameters));
+            } catch (RuntimeException e) {
+                metrics.recordRequest(method, match.getPattern(), 500, System.nanoTime() - start);
+                throw e;
+            }
+            metrics.recordRequest(method, match.getPattern(), response.getStatusCode(), System.nanoTime() - start);
+            return response;
+        }
+
+        final String rawPath = request.getUri().getRawPath();
+        final List<HttpMethod> allowed = router.allowedMethods(rawPath == null ? "" : rawPath);
+        if (!allowed.isEmpty()) {
+            // Path exists for other methods → 405 with the methods that would work
+            final StringJoiner allow = new StringJoiner(", ");
+            allowed.forEach(m -> allow.add(m.name()));
+            metrics.recordRequest(method, ServerMetrics.UNMATCHED_ROUTE, 405, System.nanoTime() - start);
+            return new HttpResponse.Builder()
+                    .setStatusCode(405)
+                    .addHeader("Allow", allow.toString())
+                    .setEntity("Method Not Allowed....")
+                    .build();
         }
+
+        // Route not found → return 404
+        metrics.recordRequest(method, ServerMetrics.UNMATCHED_ROUTE, 404, System.nanoTime() - start);
+        return NOT_FOUND;
+    }
+
+    /**
+     * Canned response for an error status (400 Bad Request, the parser's specific status, 500).
+     * - Built once per status: responses are immutable and the writer adds the current Date.
+     */
+    public static HttpResponse errorResponse(final int statusCode) {
+        final HttpResponse canned = statusCode >= 0 && statusCode < ERROR_RESPONSES.length ? ERROR_RESPONSES[statusCode] : null;
+        return canned != null ? canned : buildErrorResponse(statusCode);
     }
-}
\ No newline at end of file
+
+    private static HttpResponse buildErrorResponse(final int statusCode) {
+        final String body = switch (statusCode) {
+            case 400 -> "Bad Request...";
+            case 500 -> "Internal Server Error...";
+            case 503 -> "Service Unavailable...";
+            case 504 -> "Gateway Timeout...";
+            default -> HttpStatusCode.STATUS_CODES.get(statusCode);
+        };
+        return new HttpResponse.Builder()
+                .setStatusCode(statusCode)
+                .setEntity(body) // Response body
+                .build();
+    }
+
+    // Handles case when request cannot be parsed (400/414/431/505); the stream position is unknown, so always close
+    private void handleInvalidRequest(final ResponseSink sink, final HttpParseException e) throws IOException {
+        metrics.decodeFailure(e.getStatusCode());
+        ResponseWriter.writeResponse(sink, errorResponse(e.getStatusCode()), true);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.server.http;
+
+/**
+ * HttpParseException: a request that cannot be decoded, with the status code to answer it with.
+ * - 400 malformed syntax, 414 request-line too long, 431 header section too large,
+ *   505 unsupported HTTP version.
+ * - The connection is always closed afterwards since the stream position is unreliable.
+ */
+public class HttpParseException extends Exception {
+    private final int statusCode;
+
+    public HttpParseException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
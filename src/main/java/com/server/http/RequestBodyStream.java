@@ -0,0 +1,114 @@
+package com.server.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * RequestBodyStream: lazily consumed request body for the blocking transport.
+ * - Nothing is read until the handler reads: bytes come from the connection's read buffer
+ *   first, then straight from the socket, through the request's BodyDecoder.
+ * - Memory stays bounded by the connection read buffer regardless of body size.
+ * - For "Expect: 100-continue" the interim response is sent on the first read, so a handler
+ *   that rejects the request without reading never makes the client upload the body.
+ */
+final class RequestBodyStream extends InputStream {
+
+    // Sends "100 Continue" when the handler first asks for body bytes
+    interface ContinueCallback {
+        void sendContinue() throws IOException;
+    }
+
+    private final BodyDecoder decoder;
+    private final ByteBuffer input;
+    private final InputStream source;
+    private final ContinueCallback continueCallback;
+    private boolean started;
+
+    RequestBodyStream(BodyDecoder decoder, ByteBuffer input, InputStream source, ContinueCallback continueCallback) {
+        this.decoder = decoder;
+        this.input = input;
+        this.source = source;
+        this.continueCallback = decoder.isExpectContinue() ? continueCallback : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        final int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        start();
+
+        while (!decoder.isComplete()) {
+            final int decoded;
+            try {
+                decoded = decoder.decode(input, b, off, len);
+            } catch (HttpParseException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            if (decoded > 0) {
+                return decoded;
+            }
+            if (!decoder.isComplete()) {
+                refill();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() {
+        final long known = decoder.getKnownRemaining();
+        return known < 0 ? 0 : (int) Math.min(known, input.remaining());
+    }
+
+    // True once the client was told to send (or never had to wait for) the body
+    boolean isContinueSettled() {
+        return continueCallback == null || started;
+    }
+
+    boolean isFinished() {
+        return decoder.isComplete();
+    }
+
+    /**
+     * Discard the unread rest of the body so the next pipelined request can be decoded.
+     * - Gives up (returns false) after maxBytes; the caller should then close the connection.
+     */
+    boolean drain(final long maxBytes) throws IOException {
+        final byte[] discard = new byte[(int) Math.min(8 * 1024, Math.max(1, maxBytes))];
+        long drained = 0;
+        int read;
+        while (!decoder.isComplete() && drained < maxBytes && (read = read(discard, 0, discard.length)) > 0) {
+            drained += read;
+        }
+        return decoder.isComplete();
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            started = true;
+            if (continueCallback != null) {
+                continueCallback.sendContinue();
+            }
+        }
+    }
+
+    private void refill() throws IOException {
+        input.clear();
+        final int read = source.read(input.array(), input.arrayOffset(), input.capacity());
+        if (read < 0) {
+            input.limit(0);
+            throw new EOFException("Connection closed before the request body was complete");
+        }
+        input.limit(read);
+    }
+}
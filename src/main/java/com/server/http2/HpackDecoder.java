@@ -0,0 +1,115 @@
+package com.server.http2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HpackDecoder: turns a connection's header blocks back into name/value pairs (RFC 7541).
+ * - One per connection, fed every header block in the order received, since blocks update
+ *   the shared dynamic table; a decoding error is therefore a connection error.
+ * - Handles indexed fields, literals with/without/never indexing, Huffman strings and
+ *   dynamic table size updates (only at the start of a block, at most the advertised size).
+ * - Strings are ISO-8859-1, like the HTTP/1.1 decoder's header values.
+ */
+final class HpackDecoder {
+    @FunctionalInterface
+    interface Listener {
+        void header(String name, String value) throws Http2Exception;
+    }
+
+    private final HpackTable table;
+    private final int maxTableSize;                    // largest size update accepted
+
+    // The peer encodes with the 4096-byte default until it has seen our SETTINGS
+    HpackDecoder(int advertisedTableSize) {
+        this.table = new HpackTable(Http2Frames.DEFAULT_HEADER_TABLE_SIZE);
+        this.maxTableSize = Math.max(advertisedTableSize, Http2Frames.DEFAULT_HEADER_TABLE_SIZE);
+    }
+
+    // Decode one complete header block (HEADERS + CONTINUATION payloads joined)
+    void decode(final ByteBuffer block, final Listener listener) throws Http2Exception {
+        boolean fieldSeen = false;
+        while (block.hasRemaining()) {
+            final int b = block.get(block.position()) & 0xFF;
+            if ((b & 0x80) != 0) {
+                // Indexed field
+                final int index = readInt(block, 7);
+                if (index == 0) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Header table index 0");
+                }
+                listener.header(table.name(index), table.value(index));
+                fieldSeen = true;
+            } else if ((b & 0x40) != 0) {
+                // Literal with incremental indexing
+                final String name = readName(block, 6);
+                final String value = readString(block);
+                table.add(name, value);
+                listener.header(name, value);
+                fieldSeen = true;
+            } else if ((b & 0x20) != 0) {
+                if (fieldSeen) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Table size update after a header field");
+                }
+                final int size = readInt(block, 5);
+                if (size > maxTableSize) {
+                    throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Table size update above the advertised limit");
+                }
+                table.setMaxSize(size);
+            } else {
+                // Literal without indexing (0000) or never indexed (0001)
+                final String name = readName(block, 4);
+                listener.header(name, readString(block));
+                fieldSeen = true;
+            }
+        }
+    }
+
+    private String readName(final ByteBuffer block, final int prefixBits) throws Http2Exception {
+        final int index = readInt(block, prefixBits);
+        return index == 0 ? readString(block) : table.name(index);
+    }
+
+    private static String readString(final ByteBuffer block) throws Http2Exception {
+        if (!block.hasRemaining()) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated header block");
+        }
+        final boolean huffman = (block.get(block.position()) & 0x80) != 0;
+        final int length = readInt(block, 7);
+        if (length > block.remaining()) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "String longer than the header block");
+        }
+        if (huffman) {
+            return Huffman.decode(block, length);
+        }
+        final String text = new String(block.array(), block.arrayOffset() + block.position(), length, StandardCharsets.ISO_8859_1);
+        block.position(block.position() + length);
+        return text;
+    }
+
+    // Prefix-coded integer (RFC 7541 section 5.1); values beyond int range are rejected
+    static int readInt(final ByteBuffer block, final int prefixBits) throws Http2Exception {
+        final int mask = (1 << prefixBits) - 1;
+        int value = block.get() & mask;
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (!block.hasRemaining()) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Truncated integer");
+            }
+            final int b = block.get() & 0xFF;
+            if (shift > 21 && (b & 0x7F) > (Integer.MAX_VALUE - value) >>> shift) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Integer overflow");
+            }
+            value += (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Integer overflow");
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.server.http2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HpackEncoder: compresses a connection's response header blocks (RFC 7541).
+ * - Fully indexed fields for pairs already in the static or dynamic table; otherwise a literal
+ *   with the name indexed where possible.
+ * - Values that repeat across responses (server, content-type, cache-control, ...) are added to
+ *   the dynamic table, so the next response sends them as a single index byte. Per-response
+ *   values (content-length, etag, set-cookie, ...) are sent as literals without indexing so
+ *   they do not evict the useful entries.
+ * - Strings are Huffman-coded when that is shorter.
+ * - The table is sized by the peer's SETTINGS_HEADER_TABLE_SIZE (capped at our own limit);
+ *   a change is signalled with a size update at the start of the next block.
+ * - Blocks must reach the wire in the order they were encoded; the caller serializes that.
+ */
+final class HpackEncoder {
+    private static final int INITIAL_BLOCK_SIZE = 256;
+
+    private final HpackTable table;
+    private final int maxTableSize;                    // our cap on the encoder table
+    private int pendingMinSize = -1;                   // smallest size set since the last block (-1: none)
+
+    HpackEncoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new HpackTable(Math.min(maxTableSize, Http2Frames.DEFAULT_HEADER_TABLE_SIZE));
+        if (table.maxSize() < Http2Frames.DEFAULT_HEADER_TABLE_SIZE) {
+            pendingMinSize = table.maxSize();
+        }
+    }
+
+    // Peer's SETTINGS_HEADER_TABLE_SIZE changed
+    void setPeerTableSize(final int peerSize) {
+        final int size = Math.min(peerSize, maxTableSize);
+        if (size == table.maxSize() && pendingMinSize < 0) {
+            return;
+        }
+        pendingMinSize = pendingMinSize < 0 ? size : Math.min(pendingMinSize, size);
+        table.setMaxSize(size);
+    }
+
+    // Start a header block in a fresh (write mode) buffer, with any pending table size update
+    ByteBuffer begin() {
+        ByteBuffer out = ByteBuffer.allocate(INITIAL_BLOCK_SIZE);
+        if (pendingMinSize >= 0) {
+            if (pendingMinSize < table.maxSize()) {
+                out = writeInt(out, 0x20, 5, pendingMinSize);
+            }
+            out = writeInt(out, 0x20, 5, table.maxSize());
+            pendingMinSize = -1;
+        }
+        return out;
+    }
+
+    /**
+     * Append one field; name must be lower case. Returns the buffer, which may have been
+     * replaced by a larger one.
+     */
+    ByteBuffer header(ByteBuffer out, final String name, final String value, final boolean index) {
+        final int found = table.find(name, value);
+        if (found > 0) {
+            return writeInt(out, 0x80, 7, found);
+        }
+        if (index) {
+            out = writeInt(out, 0x40, 6, -found);
+            table.add(name, value);
+        } else {
+            out = writeInt(out, 0x00, 4, -found);
+        }
+        if (found == 0) {
+            out = writeString(out, name);
+        }
+        return writeString(out, value);
+    }
+
+    private static ByteBuffer writeString(ByteBuffer out, final String text) {
+        final int huffmanLength = Huffman.encodedLength(text);
+        if (huffmanLength < text.length()) {
+            out = writeInt(out, 0x80, 7, huffmanLength);
+            out = ensure(out, huffmanLength);
+            Huffman.encode(text, out);
+            return out;
+        }
+        out = writeInt(out, 0x00, 7, text.length());
+        out = ensure(out, text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            out.put(c <= 0xFF ? (byte) c : (byte) '?');
+        }
+        return out;
+    }
+
+    // Prefix-coded integer with the representation's leading bits in `flags`
+    private static ByteBuffer writeInt(ByteBuffer out, final int flags, final int prefixBits, int value) {
+        out = ensure(out, 6);
+        final int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            return out.put((byte) (flags | value));
+        }
+        out.put((byte) (flags | mask));
+        value -= mask;
+        while (value >= 0x80) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        return out.put((byte) value);
+    }
+
+    private static ByteBuffer ensure(final ByteBuffer out, final int needed) {
+        if (out.remaining() >= needed) {
+            return out;
+        }
+        final ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + needed));
+        return larger.put(out.flip());
+    }
+}
@@ -0,0 +1,172 @@
+package com.server.http2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HpackTable: HPACK header table (RFC 7541 section 2.3), static entries first, then dynamic.
+ * - Index 1..61 is the static table, 62.. the dynamic table from newest to oldest.
+ * - The dynamic part is a ring of name/value pairs; its size counts name + value + 32 octets
+ *   per entry and inserts evict the oldest entries to stay within maxSize.
+ * - Each connection holds two: the decoder's (sized by our SETTINGS_HEADER_TABLE_SIZE) and
+ *   the encoder's (sized by the peer's); neither is shared between threads unlocked.
+ */
+final class HpackTable {
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"},
+            {":path", "/index.html"}, {":scheme", "http"}, {":scheme", "https"}, {":status", "200"},
+            {":status", "204"}, {":status", "206"}, {":status", "304"}, {":status", "400"},
+            {":status", "404"}, {":status", "500"}, {"accept-charset", ""}, {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""}, {"access-control-allow-origin", ""},
+            {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+            {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+            {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""},
+            {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""},
+            {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+            {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""},
+            {"link", ""}, {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""},
+            {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+            {"www-authenticate", ""}
+    };
+    static final int STATIC_SIZE = STATIC.length;
+
+    // Encoder lookups: first static index of a name, and of a name + value pair
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    private static final Map<String, Integer> STATIC_PAIRS = new HashMap<>();
+
+    static {
+        for (int i = STATIC.length - 1; i >= 0; i--) {
+            STATIC_NAMES.put(STATIC[i][0], i + 1);
+            if (!STATIC[i][1].isEmpty()) {
+                STATIC_PAIRS.put(STATIC[i][0] + '\0' + STATIC[i][1], i + 1);
+            }
+        }
+    }
+
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+    private int head;                                  // slot of the newest entry
+    private int count;
+    private int size;                                  // RFC size of all dynamic entries
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // Name of entry index (1-based over static + dynamic)
+    String name(final int index) throws Http2Exception {
+        if (index >= 1 && index <= STATIC_SIZE) {
+            return STATIC[index - 1][0];
+        }
+        return names[slot(index)];
+    }
+
+    String value(final int index) throws Http2Exception {
+        if (index >= 1 && index <= STATIC_SIZE) {
+            return STATIC[index - 1][1];
+        }
+        return values[slot(index)];
+    }
+
+    void add(final String name, final String value) {
+        final int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+        if (entrySize > maxSize) {
+            // Larger than the whole table: empties it (RFC 7541 section 4.4)
+            clear();
+            return;
+        }
+        while (size + entrySize > maxSize) {
+            evict();
+        }
+        if (count == names.length) {
+            grow();
+        }
+        head = (head + 1) % names.length;
+        names[head] = name;
+        values[head] = value;
+        count++;
+        size += entrySize;
+    }
+
+    void setMaxSize(final int maxSize) {
+        this.maxSize = maxSize;
+        while (size > maxSize) {
+            evict();
+        }
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Encoder lookup: the index of an entry with this name and value, or minus the index of
+     * one with this name only, or 0. Static entries win over dynamic ones.
+     */
+    int find(final String name, final String value) {
+        final Integer pair = STATIC_PAIRS.get(name + '\0' + value);
+        if (pair != null) {
+            return pair;
+        }
+        int nameIndex = 0;
+        for (int i = 0; i < count; i++) {
+            final int slot = Math.floorMod(head - i, names.length);
+            if (names[slot].equals(name)) {
+                if (values[slot].equals(value)) {
+                    return STATIC_SIZE + 1 + i;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = STATIC_SIZE + 1 + i;
+                }
+            }
+        }
+        final Integer staticName = STATIC_NAMES.get(name);
+        if (staticName != null) {
+            return -staticName;
+        }
+        return -nameIndex;
+    }
+
+    private int slot(final int index) throws Http2Exception {
+        final int dynamic = index - STATIC_SIZE - 1;
+        if (index < 1 || dynamic >= count) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid header table index " + index);
+        }
+        return Math.floorMod(head - dynamic, names.length);
+    }
+
+    private void evict() {
+        final int oldest = Math.floorMod(head - count + 1, names.length);
+        size -= names[oldest].length() + values[oldest].length() + ENTRY_OVERHEAD;
+        names[oldest] = null;
+        values[oldest] = null;
+        count--;
+    }
+
+    private void clear() {
+        Arrays.fill(names, null);
+        Arrays.fill(values, null);
+        count = 0;
+        size = 0;
+    }
+
+    // Unroll the ring into a larger array, oldest first
+    private void grow() {
+        final String[] largerNames = new String[names.length * 2];
+        final String[] largerValues = new String[names.length * 2];
+        for (int i = 0; i < count; i++) {
+            final int slot = Math.floorMod(head - count + 1 + i, names.length);
+            largerNames[i] = names[slot];
+            largerValues[i] = values[slot];
+        }
+        names = largerNames;
+        values = largerValues;
+        head = count - 1;
+    }
+}
@@ -0,0 +1,1513 @@
+package com.server.http2;
+
+import com.server.admission.AdmissionController;
+import com.server.contract.HttpMethod;
+import com.server.contract.StreamingBody;
+import com.server.http.HeaderNames;
+import com.server.http.HttpHandler;
+import com.server.logging.AccessLog;
+import com.server.logging.Logger;
+import com.server.logging.Logging;
+import com.server.pojos.HttpHeaders;
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+import com.server.writers.EncodedResponse;
+import com.server.writers.HttpDate;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Http2Connection: one HTTP/2 connection (RFC 9113), independent of the transport below it.
+ * - The event loop feeds it raw bytes (receive()); frames are parsed in place, header blocks
+ *   HPACK-decoded, and every complete request is handed to a worker the way EventLoop does for
+ *   HTTP/1.1 (admission, dispatchAsync, access log), so routes, filters and compression apply.
+ * - Requests are multiplexed: up to maxConcurrentStreams run at once on one connection and
+ *   their responses interleave frame by frame instead of waiting behind each other. A stream
+ *   keeps counting until its handler and response are done, even if the client reset it, and
+ *   a client resetting more than maxResetsPerSecond streams gets GOAWAY(ENHANCE_YOUR_CALM).
+ * - Workers write the responses: headers HPACK-encoded (repeating values indexed), bodies as
+ *   DATA frames within the client's connection and stream windows. Data the windows do not
+ *   cover yet waits on its stream; a producer waits once that backlog, or the transport's
+ *   write queue (Http2Output.awaitWritable), is full.
+ * - A request is dispatched once its head is complete; its body reaches the handler as a
+ *   RequestBody that the loop fills as DATA arrives. Window credit is returned only for bytes
+ *   the handler has read (or that were dropped), so the bodies buffered on a connection never
+ *   exceed its flow-control windows. Bodies are bounded by maxBodySize (413, or a reset once
+ *   the response has started).
+ * - Malformed requests and stream-level violations reset only their stream (RST_STREAM);
+ *   connection errors send GOAWAY and close.
+ * - One lock guards the stream table, windows and HPACK state: the loop holds it while
+ *   processing a read, a worker while encoding frames; nobody holds it waiting for the socket.
+ * - shutdownGracefully() (drain, client GOAWAY, maxRequestsPerConnection) sends GOAWAY and
+ *   closes once the streams in progress have finished.
+ */
+public final class Http2Connection {
+    private static final Logger LOG = Logging.getLogger(Http2Connection.class);
+    private static final String PROTOCOL = "HTTP/2.0";
+    private static final long PENDING_HIGH_WATER_MARK = 256 * 1024;    // unsent DATA per stream before the producer waits
+    private static final int STREAM_CHUNK_SIZE = 16 * 1024;
+    private static final int FILE_CHUNK_SIZE = 64 * 1024;
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    // Connection-specific headers, which HTTP/2 does not allow (RFC 9113 section 8.2.2)
+    private static final Set<String> CONNECTION_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+    // Response headers whose values rarely repeat: sent as literals so they do not evict useful entries
+    private static final Set<String> UNINDEXED = Set.of(
+            "content-length", "etag", "last-modified", "set-cookie", "location", "content-range", "age");
+
+    private static final HttpResponse FILE_NOT_FOUND = new HttpResponse.Builder()
+            .setStatusCode(404)
+            .setEntity("File Not Found....")
+            .build();
+
+    private final HttpHandler handler;
+    private final Executor workers;
+    private final Executor completions;                // writes async responses; runs inline if workers refuse
+    private final AdmissionController admission;
+    private final Http2Policy policy;
+    private final Http2Output output;
+    private final Object remote;                       // client address for admission and the access log
+    private final int maxHeaderListSize;
+    private final long maxBodySize;
+    private final int maxRequests;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writable = lock.newCondition();      // a stream's pending DATA went out
+    private final HpackDecoder decoder;
+    private final HpackEncoder encoder;
+    private final Map<Integer, Http2Stream> streams = new HashMap<>();
+    private final List<Future<?>> cancelled = new ArrayList<>(0);   // cancelled outside the lock
+
+    // Input side (event loop only)
+    private ByteBuffer inbound;                        // partial frame carried over to the next read
+    private boolean prefaceReceived;
+    private boolean settingsReceived;
+    private boolean settingsAcked;
+    private int lastStreamId;                          // highest stream the client opened
+    private int headerStreamId;                        // stream of a header block awaiting CONTINUATION, or 0
+    private long resetWindowStart = System.nanoTime();
+    private int resetsInWindow;                        // client RST_STREAM frames in the current second
+    private int headerFlags;
+    private ByteBuffer headerFragments;
+    private int served;
+
+    // Connection-level receive window (guarded by lock: workers return credit as they read bodies)
+    private int receiveWindow;                         // DATA the client may still send
+    private int connectionCredit;                      // DATA read or dropped, not yet returned by WINDOW_UPDATE
+
+    // Output side (guarded by lock)
+    private int sendWindow = Http2Frames.DEFAULT_WINDOW_SIZE;
+    private int peerInitialWindow = Http2Frames.DEFAULT_WINDOW_SIZE;
+    private int peerMaxFrameSize = Http2Frames.DEFAULT_MAX_FRAME_SIZE;
+    private int detached;                              // streams no longer open whose handler still runs
+    private boolean goingAway;
+    private int goAwayStreamId;
+    private boolean closed;
+
+    public Http2Connection(HttpHandler handler, Executor workers, Http2Policy policy, Http2Output output, Object remote) {
+        this.handler = handler;
+        this.workers = workers;
+        this.completions = task -> {
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        };
+        this.admission = handler.getAdmission();
+        this.policy = policy;
+        this.output = output;
+        this.remote = remote;
+        this.maxHeaderListSize = handler.getConfig().getMaxHeaderSize();
+        this.maxBodySize = handler.getConfig().getMaxBodySize();
+        this.maxRequests = handler.getConfig().getMaxRequestsPerConnection();
+        this.decoder = new HpackDecoder(policy.getHeaderTableSize());
+        this.encoder = new HpackEncoder(policy.getHeaderTableSize());
+    }
+
+    /**
+     * Payload of an HTTP2-Settings header (base64url SETTINGS frame payload), or null when it
+     * is not valid; a request with an invalid one is served as HTTP/1.1 without upgrading.
+     */
+    public static byte[] decodeSettings(final String header) {
+        try {
+            final byte[] payload = Base64.getUrlDecoder().decode(header.trim());
+            return payload.length % 6 == 0 ? payload : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Server preface: our SETTINGS, and the connection window raised to the policy's size
+    public void start() {
+        lock.lock();
+        try {
+            final List<ByteBuffer> frames = new ArrayList<>(2);
+            frames.add(Http2Frames.settings(0,
+                    Http2Frames.SETTINGS_MAX_CONCURRENT_STREAMS, policy.getMaxConcurrentStreams(),
+                    Http2Frames.SETTINGS_INITIAL_WINDOW_SIZE, policy.getInitialWindowSize(),
+                    Http2Frames.SETTINGS_MAX_FRAME_SIZE, policy.getMaxFrameSize(),
+                    Http2Frames.SETTINGS_HEADER_TABLE_SIZE, policy.getHeaderTableSize(),
+                    Http2Frames.SETTINGS_MAX_HEADER_LIST_SIZE, maxHeaderListSize));
+            if (policy.getConnectionWindowSize() > Http2Frames.DEFAULT_WINDOW_SIZE) {
+                frames.add(Http2Frames.windowUpdate(0, policy.getConnectionWindowSize() - Http2Frames.DEFAULT_WINDOW_SIZE));
+            }
+            receiveWindow = policy.getConnectionWindowSize();
+            output.write(frames);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Continue an upgraded HTTP/1.1 connection ("Upgrade: h2c"), after start().
+     * - The upgrade request becomes stream 1, already closed by the client, and its response
+     *   goes out as HTTP/2; the 101 response implicitly acknowledges the settings.
+     */
+    public void upgrade(final HttpRequest request, final byte[] settings) {
+        lock.lock();
+        try {
+            applySettings(ByteBuffer.wrap(settings));
+            final Http2Stream stream = new Http2Stream(1, 0, peerInitialWindow);
+            stream.request = request;
+            stream.remoteClosed = true;
+            streams.put(1, stream);
+            lastStreamId = 1;
+            served = 1;
+            dispatch(stream);
+        } catch (Http2Exception e) {
+            fail(e);
+        } finally {
+            lock.unlock();
+        }
+        cancelAwaited();
+    }
+
+    /**
+     * Process bytes read from the client (event loop); consumes all of them.
+     * - A frame split across reads is kept until the rest arrives.
+     */
+    public void receive(final ByteBuffer input) {
+        ByteBuffer data = input;
+        if (inbound != null) {
+            data = ByteBuffer.allocate(inbound.remaining() + input.remaining()).put(inbound).put(input).flip();
+            inbound = null;
+        }
+        lock.lock();
+        try {
+            if (!prefaceReceived) {
+                final int match = Http2Frames.matchPreface(data);
+                if (match < 0) {
+                    throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid connection preface");
+                }
+                if (match == 0) {
+                    keep(data);
+                    return;
+                }
+                data.position(data.position() + Http2Frames.PREFACE.length);
+                prefaceReceived = true;
+            }
+            while (!closed && data.remaining() >= Http2Frames.HEADER_LENGTH) {
+                final int start = data.position();
+                final int length = (data.get(start) & 0xFF) << 16 | (data.get(start + 1) & 0xFF) << 8 | (data.get(start + 2) & 0xFF);
+                if (length > policy.getMaxFrameSize()) {
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "Frame of " + length + " bytes");
+                }
+                if (data.remaining() < Http2Frames.HEADER_LENGTH + length) {
+                    break;
+                }
+                final int type = data.get(start + 3) & 0xFF;
+                final int flags = data.get(start + 4) & 0xFF;
+                final int streamId = data.getInt(start + 5) & Http2Frames.MAX_WINDOW_SIZE;
+                data.position(start + Http2Frames.HEADER_LENGTH + length);
+                try {
+                    frame(type, flags, streamId, data.slice(start + Http2Frames.HEADER_LENGTH, length));
+                } catch (Http2Exception e) {
+                    if (e.isConnectionError()) {
+                        throw e;
+                    }
+                    streamError(e);
+                }
+            }
+            if (!closed) {
+                keep(data);
+            }
+        } catch (Http2Exception e) {
+            fail(e);
+        } finally {
+            lock.unlock();
+            input.position(input.limit());
+        }
+        cancelAwaited();
+    }
+
+    // GOAWAY naming the last stream we accept; the connection closes once those are done
+    public void shutdownGracefully() {
+        lock.lock();
+        try {
+            shutdownLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // No stream in progress (idle timeout and drain decisions)
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            return streams.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called by the transport once the connection is closed: fail producers, cancel async handlers
+    public void closed() {
+        lock.lock();
+        try {
+            closed = true;
+            abandonStreams();
+        } finally {
+            lock.unlock();
+        }
+        cancelAwaited();
+    }
+
+    private void keep(final ByteBuffer data) {
+        if (data.hasRemaining()) {
+            inbound = ByteBuffer.allocate(data.remaining()).put(data).flip();
+        }
+    }
+
+    private void frame(final int type, final int flags, final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (headerStreamId != 0 && type != Http2Frames.CONTINUATION) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Header block interrupted by frame type " + type);
+        }
+        if (!settingsReceived && type != Http2Frames.SETTINGS) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Expected SETTINGS after the preface");
+        }
+        switch (type) {
+            case Http2Frames.DATA -> onData(flags, streamId, payload);
+            case Http2Frames.HEADERS -> onHeaders(flags, streamId, payload);
+            case Http2Frames.PRIORITY -> onPriority(streamId, payload);
+            case Http2Frames.RST_STREAM -> onReset(streamId, payload);
+            case Http2Frames.SETTINGS -> onSettings(flags, streamId, payload);
+            case Http2Frames.PUSH_PROMISE -> throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PUSH_PROMISE from a client");
+            case Http2Frames.PING -> onPing(flags, streamId, payload);
+            case Http2Frames.GOAWAY -> onGoAway(streamId, payload);
+            case Http2Frames.WINDOW_UPDATE -> onWindowUpdate(streamId, payload);
+            case Http2Frames.CONTINUATION -> onContinuation(flags, streamId, payload);
+            default -> {
+                // Unknown frame types are ignored (RFC 9113 section 4.1)
+            }
+        }
+    }
+
+    private void onData(final int flags, final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "DATA on stream 0");
+        }
+        // The whole frame, padding included, counts against the windows; only body bytes a
+        // handler is going to read keep holding them, everything else is credited back at once
+        final int length = payload.remaining();
+        receiveWindow -= length;
+        if (receiveWindow < 0) {
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Connection window exceeded");
+        }
+        final ByteBuffer data = unpad(flags, payload);
+
+        final Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            if (streamId > lastStreamId) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "DATA on idle stream " + streamId);
+            }
+            creditConnection(length);
+            return;                                    // stream already answered or reset: drop
+        }
+        if (stream.remoteClosed) {
+            creditConnection(length);
+            throw new Http2Exception(Http2Exception.STREAM_CLOSED, streamId, "DATA after END_STREAM");
+        }
+        stream.receiveWindow -= length;
+        if (stream.receiveWindow < 0) {
+            creditConnection(length);
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, streamId, "Stream window exceeded");
+        }
+        creditStream(stream, length - data.remaining());                    // padding
+
+        if (!appendBody(stream, data)) {
+            return;                                    // answered with 413 or reset
+        }
+        if ((flags & Http2Frames.FLAG_END_STREAM) != 0) {
+            endOfRequest(stream);
+        }
+    }
+
+    /**
+     * Hand body bytes to the stream's RequestBody; false once the body exceeds maxBodySize
+     * (answered with 413, or reset if the response has already started).
+     */
+    private boolean appendBody(final Http2Stream stream, final ByteBuffer data) throws Http2Exception {
+        final int n = data.remaining();
+        if (n == 0) {
+            return true;
+        }
+        stream.bodyLength += n;
+        if (stream.contentLength >= 0 && stream.bodyLength > stream.contentLength) {
+            creditConnection(n);
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, stream.id, "Body longer than content-length");
+        }
+        if (stream.bodyLength > maxBodySize) {
+            creditConnection(n);
+            handler.getMetrics().decodeFailure(413);
+            if (stream.responded) {
+                resetLocked(stream, Http2Exception.CANCEL, true);
+            } else {
+                respondInline(stream, stream.request, HttpHandler.errorResponse(413));
+            }
+            return false;
+        }
+        if (stream.body == null || !stream.body.append(data)) {
+            creditConnection(n);                       // the handler closed the body: drop
+        }
+        return true;
+    }
+
+    // Bytes that no longer occupy the connection window; returned in batches of half the window (lock held)
+    private void creditConnection(final int bytes) {
+        connectionCredit += bytes;
+        if (!closed && connectionCredit > 0 && connectionCredit >= policy.getConnectionWindowSize() / 2) {
+            output.write(List.of(Http2Frames.windowUpdate(0, connectionCredit)));
+            receiveWindow += connectionCredit;
+            connectionCredit = 0;
+        }
+    }
+
+    // Body bytes read by the handler (or padding): room for more on the stream and the connection (lock held)
+    private void creditStream(final Http2Stream stream, final int bytes) {
+        creditConnection(bytes);
+        stream.credit += bytes;
+        if (!stream.remoteClosed && !stream.reset && !closed
+                && stream.credit > 0 && stream.credit >= policy.getInitialWindowSize() / 2) {
+            output.write(List.of(Http2Frames.windowUpdate(stream.id, stream.credit)));
+            stream.receiveWindow += stream.credit;
+            stream.credit = 0;
+        }
+    }
+
+    // The stream is done: drop its unread body, returning the window it held (lock held)
+    private void releaseBody(final Http2Stream stream) {
+        if (stream.body != null) {
+            creditConnection(stream.body.discard("Stream " + stream.id + " was closed"));
+        }
+    }
+
+    private void onHeaders(final int flags, final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "HEADERS on stream 0");
+        }
+        final ByteBuffer fragment = unpad(flags, payload);
+        if ((flags & Http2Frames.FLAG_PRIORITY) != 0) {
+            // Stream dependency and weight: prioritization is not implemented, skip them
+            if (fragment.remaining() < 5) {
+                throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "HEADERS too short for its priority");
+            }
+            fragment.position(fragment.position() + 5);
+        }
+        if ((flags & Http2Frames.FLAG_END_HEADERS) != 0) {
+            headerBlock(streamId, flags, fragment);
+            return;
+        }
+        headerStreamId = streamId;
+        headerFlags = flags;
+        headerFragments = ByteBuffer.allocate(Math.max(fragment.remaining() * 2, 1024)).put(fragment);
+    }
+
+    private void onContinuation(final int flags, final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (headerStreamId == 0 || streamId != headerStreamId) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Unexpected CONTINUATION");
+        }
+        // Compressed blocks are smaller than the header list they carry; anything far larger is abuse
+        final int needed = headerFragments.position() + payload.remaining();
+        if (needed > 2L * maxHeaderListSize + policy.getMaxFrameSize()) {
+            throw new Http2Exception(Http2Exception.ENHANCE_YOUR_CALM, "Header block too large");
+        }
+        if (needed > headerFragments.capacity()) {
+            headerFragments = ByteBuffer.allocate(Math.max(headerFragments.capacity() * 2, needed)).put(headerFragments.flip());
+        }
+        headerFragments.put(payload);
+        if ((flags & Http2Frames.FLAG_END_HEADERS) != 0) {
+            final ByteBuffer block = headerFragments.flip();
+            final int id = headerStreamId;
+            headerStreamId = 0;
+            headerFragments = null;
+            headerBlock(id, headerFlags, block);
+        }
+    }
+
+    /**
+     * A complete header block: a new request, or trailers of one whose body is in progress.
+     * - Every block is decoded, even for streams that are refused or ignored, since it
+     *   updates the connection's HPACK table.
+     */
+    private void headerBlock(final int streamId, final int flags, final ByteBuffer block) throws Http2Exception {
+        final boolean endStream = (flags & Http2Frames.FLAG_END_STREAM) != 0;
+        final Http2Stream existing = streams.get(streamId);
+        if (existing != null) {
+            // Trailers: validated, then dropped (HttpRequest has no place for them)
+            final RequestHead trailers = new RequestHead(true);
+            decoder.decode(block, trailers);
+            if (existing.remoteClosed) {
+                throw new Http2Exception(Http2Exception.STREAM_CLOSED, streamId, "HEADERS after END_STREAM");
+            }
+            if (!endStream || trailers.malformed) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, streamId, "Malformed trailers");
+            }
+            endOfRequest(existing);
+            return;
+        }
+        if ((streamId & 1) == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Client stream with even id " + streamId);
+        }
+        final RequestHead head = new RequestHead(false);
+        decoder.decode(block, head);
+        if (streamId <= lastStreamId || (goingAway && streamId > goAwayStreamId)) {
+            return;                                    // reset earlier, or beyond our GOAWAY: ignored
+        }
+        lastStreamId = streamId;
+        if (streams.size() + detached >= policy.getMaxConcurrentStreams()) {
+            throw new Http2Exception(Http2Exception.REFUSED_STREAM, streamId, "Too many concurrent streams");
+        }
+        if (head.size <= maxHeaderListSize && (head.malformed || !head.hasPseudoHeaders())) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, streamId, "Malformed request head");
+        }
+
+        final Http2Stream stream = new Http2Stream(streamId,
+                settingsAcked ? policy.getInitialWindowSize() : Math.max(policy.getInitialWindowSize(), Http2Frames.DEFAULT_WINDOW_SIZE),
+                peerInitialWindow);
+        stream.remoteClosed = endStream;
+        streams.put(streamId, stream);
+        served++;
+        if (maxRequests > 0 && served >= maxRequests) {
+            shutdownLocked();
+        }
+
+        if (head.size > maxHeaderListSize) {
+            handler.getMetrics().decodeFailure(431);
+            respondInline(stream, null, HttpHandler.errorResponse(431));
+            return;
+        }
+        final HttpRequest request = head.toRequest();
+        if (request == null) {
+            handler.getMetrics().decodeFailure(400);
+            respondInline(stream, null, HttpHandler.errorResponse(400));
+            return;
+        }
+        stream.request = request;
+        stream.contentLength = head.contentLength;
+        if (endStream) {
+            endOfRequest(stream);
+            return;
+        }
+        if (head.contentLength > maxBodySize) {
+            handler.getMetrics().decodeFailure(413);
+            respondInline(stream, request, HttpHandler.errorResponse(413));
+            return;
+        }
+        if (head.expectContinue) {
+            ByteBuffer interim = encoder.begin();
+            interim = encoder.header(interim, ":status", "100", true);
+            writeHeaderBlock(streamId, interim.flip(), false);
+        }
+        // The body follows: the handler reads it as it arrives
+        stream.body = new RequestBody(stream);
+        stream.request = request.withBody(stream.body);
+        dispatch(stream);
+    }
+
+    // The client finished the request: check the body against content-length, then dispatch or end the body
+    private void endOfRequest(final Http2Stream stream) throws Http2Exception {
+        stream.remoteClosed = true;
+        if (stream.contentLength >= 0 && stream.contentLength != stream.bodyLength) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, stream.id, "Body length differs from content-length");
+        }
+        if (stream.body != null) {
+            stream.body.finish();
+        } else {
+            dispatch(stream);
+        }
+    }
+
+    private void onPriority(final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PRIORITY on stream 0");
+        }
+        if (payload.remaining() != 5) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, streamId, "PRIORITY of " + payload.remaining() + " bytes");
+        }
+    }
+
+    private void onReset(final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "RST_STREAM on stream 0");
+        }
+        if (payload.remaining() != 4) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "RST_STREAM of " + payload.remaining() + " bytes");
+        }
+        if (streamId > lastStreamId) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "RST_STREAM on idle stream " + streamId);
+        }
+        // Rapid reset: each reset frees a stream slot at once, while its handler may still run
+        final long now = System.nanoTime();
+        if (now - resetWindowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            resetWindowStart = now;
+            resetsInWindow = 0;
+        }
+        if (++resetsInWindow > policy.getMaxResetsPerSecond()) {
+            throw new Http2Exception(Http2Exception.ENHANCE_YOUR_CALM, "Too many stream resets");
+        }
+        final Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            resetLocked(stream, payload.getInt(), false);
+        }
+    }
+
+    private void onSettings(final int flags, final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "SETTINGS on stream " + streamId);
+        }
+        if ((flags & Http2Frames.FLAG_ACK) != 0) {
+            if (payload.hasRemaining()) {
+                throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "SETTINGS ACK with a payload");
+            }
+            settingsAcked = true;
+            return;
+        }
+        applySettings(payload);
+        output.write(List.of(Http2Frames.settings(Http2Frames.FLAG_ACK)));
+        settingsReceived = true;
+        writeAllPending();
+    }
+
+    private void applySettings(final ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() % 6 != 0) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "SETTINGS of " + payload.remaining() + " bytes");
+        }
+        while (payload.hasRemaining()) {
+            final int id = payload.getShort() & 0xFFFF;
+            final int value = payload.getInt();
+            switch (id) {
+                case Http2Frames.SETTINGS_HEADER_TABLE_SIZE -> encoder.setPeerTableSize(value < 0 ? Integer.MAX_VALUE : value);
+                case Http2Frames.SETTINGS_ENABLE_PUSH -> {
+                    if (value != 0 && value != 1) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid ENABLE_PUSH " + value);
+                    }
+                }
+                case Http2Frames.SETTINGS_INITIAL_WINDOW_SIZE -> {
+                    if (value < 0) {
+                        throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Initial window above 2^31-1");
+                    }
+                    // Applies to the open streams too, as a delta (RFC 9113 section 6.9.2)
+                    final int delta = value - peerInitialWindow;
+                    for (Http2Stream stream : streams.values()) {
+                        if ((long) stream.sendWindow + delta > Http2Frames.MAX_WINDOW_SIZE) {
+                            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Stream window above 2^31-1");
+                        }
+                        stream.sendWindow += delta;
+                    }
+                    peerInitialWindow = value;
+                }
+                case Http2Frames.SETTINGS_MAX_FRAME_SIZE -> {
+                    if (value < Http2Frames.DEFAULT_MAX_FRAME_SIZE || value > Http2Frames.MAX_FRAME_SIZE_LIMIT) {
+                        throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Invalid MAX_FRAME_SIZE " + value);
+                    }
+                    peerMaxFrameSize = value;
+                }
+                default -> {
+                    // MAX_CONCURRENT_STREAMS (nothing is pushed), MAX_HEADER_LIST_SIZE and unknown settings
+                }
+            }
+        }
+    }
+
+    private void onPing(final int flags, final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "PING on stream " + streamId);
+        }
+        if (payload.remaining() != 8) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "PING of " + payload.remaining() + " bytes");
+        }
+        if ((flags & Http2Frames.FLAG_ACK) == 0) {
+            output.write(List.of(Http2Frames.ping(payload.getLong())));
+        }
+    }
+
+    private void onGoAway(final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "GOAWAY on stream " + streamId);
+        }
+        if (payload.remaining() < 8) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "GOAWAY of " + payload.remaining() + " bytes");
+        }
+        final int errorCode = payload.getInt(payload.position() + 4);
+        LOG.debug(() -> "Client GOAWAY, error " + errorCode);
+        shutdownLocked();
+    }
+
+    private void onWindowUpdate(final int streamId, final ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() != 4) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "WINDOW_UPDATE of " + payload.remaining() + " bytes");
+        }
+        final int increment = payload.getInt() & Http2Frames.MAX_WINDOW_SIZE;
+        if (increment == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, streamId, "WINDOW_UPDATE of 0");
+        }
+        if (streamId == 0) {
+            if ((long) sendWindow + increment > Http2Frames.MAX_WINDOW_SIZE) {
+                throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, "Connection window above 2^31-1");
+            }
+            sendWindow += increment;
+            writeAllPending();
+            return;
+        }
+        final Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            return;                                    // finished or reset stream
+        }
+        if ((long) stream.sendWindow + increment > Http2Frames.MAX_WINDOW_SIZE) {
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, streamId, "Stream window above 2^31-1");
+        }
+        stream.sendWindow += increment;
+        writePending(stream);
+    }
+
+    // Strip the padding of a PADDED frame
+    private static ByteBuffer unpad(final int flags, final ByteBuffer payload) throws Http2Exception {
+        if ((flags & Http2Frames.FLAG_PADDED) == 0) {
+            return payload;
+        }
+        if (!payload.hasRemaining()) {
+            throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, "PADDED frame without a pad length");
+        }
+        final int padding = payload.get() & 0xFF;
+        if (padding > payload.remaining()) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, "Padding longer than the frame");
+        }
+        return payload.limit(payload.limit() - padding);
+    }
+
+    // Run the RequestRunner off-loop, as EventLoop.dispatch does for HTTP/1.1 (lock held)
+    private void dispatch(final Http2Stream stream) {
+        final HttpRequest request = stream.request;
+        final long start = stream.startNanos;
+        LOG.debug(() -> "Request " + request);
+
+        final HttpResponse rejected = admission.admit(AdmissionController.clientAddress(remote));
+        if (rejected != null) {
+            respondInline(stream, request, rejected);
+            return;
+        }
+        stream.running = true;
+        try {
+            workers.execute(() -> {
+                final CompletableFuture<HttpResponse> result;
+                try {
+                    result = handler.dispatchAsync(request);
+                } catch (RuntimeException e) {
+                    LOG.error("Handler failed for " + request.getHttpMethod() + " " + request.getUri(), e);
+                    admission.complete(System.nanoTime() - start);
+                    writeResponse(stream, request, HttpHandler.errorResponse(500));
+                    return;
+                }
+                if (result.isDone()) {
+                    admission.complete(System.nanoTime() - start);
+                    writeResponse(stream, request, result.join());
+                    return;
+                }
+                // Async handler: this worker is free again; the response is written on completion
+                awaiting(stream, result);
+                result.whenCompleteAsync((response, failure) -> {
+                    admission.complete(System.nanoTime() - start);
+                    if (failure != null) {
+                        reset(stream, Http2Exception.INTERNAL_ERROR);      // no-op if the client reset it
+                        finished(stream);
+                        return;
+                    }
+                    writeResponse(stream, request, response);
+                }, completions);
+            });
+        } catch (RejectedExecutionException e) {
+            // Worker queue full: shed with a 503 instead of queueing
+            stream.running = false;
+            admission.abandon();
+            respondInline(stream, request, admission.overloaded());
+        }
+    }
+
+    // Worker side: write the response on its stream; a failure half-way resets the stream
+    private void writeResponse(final Http2Stream stream, final HttpRequest request, final HttpResponse response) {
+        try {
+            respond(stream, response, true);
+        } catch (IOException | RuntimeException e) {
+            LOG.debug(() -> "Response aborted on stream " + stream.id + ": " + e);
+            reset(stream, Http2Exception.INTERNAL_ERROR);
+            return;
+        } finally {
+            finished(stream);
+        }
+        AccessLog.log(remote, request, response.getStatusCode(), stream.startNanos, PROTOCOL);
+    }
+
+    // The stream's handler and response are done: it stops counting against maxConcurrentStreams
+    private void finished(final Http2Stream stream) {
+        lock.lock();
+        try {
+            if (stream.running) {
+                stream.running = false;
+                if (streams.get(stream.id) != stream) {
+                    detached--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Remove a stream that is done on the wire (lock held); a running handler keeps its slot
+    private void forget(final Http2Stream stream) {
+        if (stream.running) {
+            detached++;
+        }
+    }
+
+    // Answer on the loop with a canned response (lock held; no worker, no waiting)
+    private void respondInline(final Http2Stream stream, final HttpRequest request, final HttpResponse response) {
+        try {
+            respond(stream, response, false);
+        } catch (IOException e) {
+            return;
+        }
+        if (request != null) {
+            AccessLog.log(remote, request, response.getStatusCode(), stream.startNanos, PROTOCOL);
+        }
+    }
+
+    /**
+     * Send a response as HEADERS plus DATA frames.
+     * - Same entity types as ResponseWriter: in-memory entities and files carry content-length,
+     *   InputStream and StreamingBody are streamed without it (HTTP/2 needs no chunked framing).
+     * - wait: whether the producer may block for flow control and transport backpressure.
+     */
+    private void respond(final Http2Stream stream, final HttpResponse response, final boolean wait) throws IOException {
+        final boolean bodyless = isBodyless(response.getStatusCode());
+        Object entity = bodyless ? null : response.getEntity().orElse(null);
+        if (entity instanceof EncodedResponse encoded) {
+            entity = encoded.getBody();                // the HTTP/1.1 head is not used; headers come from the response
+        }
+
+        if (entity instanceof Path || entity instanceof File) {
+            sendFile(stream, response, entity instanceof File file ? file.toPath() : (Path) entity, wait);
+        } else if (entity instanceof InputStream inputStream) {
+            try (inputStream) {
+                sendStreamed(stream, response, out -> inputStream.transferTo(out), wait);
+            }
+        } else if (entity instanceof StreamingBody streamingBody) {
+            sendStreamed(stream, response, streamingBody, wait);
+        } else if (bodyless) {
+            sendHeaders(stream, response, -1, true);
+        } else {
+            final ByteBuffer body = bytes(entity);
+            sendHeaders(stream, response, body.remaining(), !body.hasRemaining());
+            if (body.hasRemaining()) {
+                sendData(stream, body, true, wait);
+            }
+        }
+    }
+
+    private void sendFile(final Http2Stream stream, final HttpResponse response, final Path path, final boolean wait)
+            throws IOException {
+        final FileChannel file;
+        try {
+            file = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            respond(stream, FILE_NOT_FOUND, wait);
+            return;
+        }
+        try (file) {
+            long remaining = file.size();
+            sendHeaders(stream, response, remaining, remaining == 0);
+            while (remaining > 0) {
+                final ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(remaining, FILE_CHUNK_SIZE));
+                while (chunk.hasRemaining()) {
+                    if (file.read(chunk) < 0) {
+                        throw new EOFException("File shrank while sending: " + path);
+                    }
+                }
+                remaining -= chunk.capacity();
+                sendData(stream, chunk.flip(), remaining == 0, wait);
+            }
+        }
+    }
+
+    private void sendStreamed(final Http2Stream stream, final HttpResponse response, final StreamingBody body,
+                              final boolean wait) throws IOException {
+        sendHeaders(stream, response, -1, false);
+        final DataFrameStream out = new DataFrameStream(stream, wait);
+        body.writeTo(out);
+        out.finish();
+    }
+
+    // Encode and queue the response head; endStream when there is no body
+    private void sendHeaders(final Http2Stream stream, final HttpResponse response, final long contentLength,
+                             final boolean endStream) throws IOException {
+        lock.lock();
+        try {
+            checkOpen(stream);
+            if (stream.responded) {
+                throw new IOException("Stream " + stream.id + " was already answered");   // e.g. 413 while the handler ran
+            }
+            ByteBuffer block = encoder.begin();
+            block = encoder.header(block, ":status", Integer.toString(response.getStatusCode()), true);
+            final HttpHeaders headers = response.getResponseHeaders();
+            if (!headers.contains("Server")) {
+                block = encoder.header(block, "server", HttpResponse.SERVER_NAME, true);
+            }
+            if (!headers.contains("Date")) {
+                block = encoder.header(block, "date", HttpDate.now(), true);
+            }
+            for (int i = 0; i < headers.size(); i++) {
+                final String name = headers.name(i).toLowerCase(Locale.ROOT);
+                if (!CONNECTION_HEADERS.contains(name) && !name.equals("content-length")) {
+                    block = encoder.header(block, name, headers.value(i), !UNINDEXED.contains(name));
+                }
+            }
+            if (contentLength >= 0) {
+                block = encoder.header(block, "content-length", Long.toString(contentLength), false);
+            }
+            writeHeaderBlock(stream.id, block.flip(), endStream);
+            stream.responded = true;
+            if (endStream) {
+                endLocal(stream);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // HEADERS, followed by CONTINUATION frames when the block exceeds the client's frame size
+    private void writeHeaderBlock(final int streamId, final ByteBuffer block, final boolean endStream) {
+        final List<ByteBuffer> frames = new ArrayList<>(1);
+        int type = Http2Frames.HEADERS;
+        int flags = endStream ? Http2Frames.FLAG_END_STREAM : 0;
+        do {
+            final int n = Math.min(block.remaining(), peerMaxFrameSize);
+            final boolean last = n == block.remaining();
+            final ByteBuffer frame = ByteBuffer.allocate(Http2Frames.HEADER_LENGTH + n);
+            Http2Frames.putHeader(frame, n, type, flags | (last ? Http2Frames.FLAG_END_HEADERS : 0), streamId);
+            frame.put(block.slice(block.position(), n)).flip();
+            block.position(block.position() + n);
+            frames.add(frame);
+            type = Http2Frames.CONTINUATION;
+            flags = 0;
+        } while (block.hasRemaining());
+        output.write(frames);
+    }
+
+    /**
+     * Queue body bytes (not copied; must not change afterwards) and send what the windows allow.
+     * - With wait, returns once the stream's unsent backlog is below the high-water mark and
+     *   the transport has room again.
+     */
+    private void sendData(final Http2Stream stream, final ByteBuffer data, final boolean end, final boolean wait)
+            throws IOException {
+        lock.lock();
+        try {
+            checkOpen(stream);
+            if (data.hasRemaining()) {
+                stream.pendingData.add(data);
+                stream.pendingBytes += data.remaining();
+            }
+            stream.endPending = end;
+            writePending(stream);
+            while (wait && stream.pendingBytes > PENDING_HIGH_WATER_MARK && !stream.reset) {
+                writable.awaitUninterruptibly();
+            }
+            checkOpen(stream);
+        } finally {
+            lock.unlock();
+        }
+        if (wait) {
+            output.awaitWritable();
+        }
+    }
+
+    // DATA frames for as much pending data as the connection and stream windows allow (lock held)
+    private void writePending(final Http2Stream stream) {
+        if (stream.reset || stream.localClosed) {
+            return;
+        }
+        List<ByteBuffer> frames = null;
+        boolean ended = false;
+        while (true) {
+            final ByteBuffer data = stream.pendingData.peek();
+            if (data == null) {
+                if (stream.endPending) {
+                    frames = frames == null ? new ArrayList<>(1) : frames;
+                    frames.add(Http2Frames.header(0, Http2Frames.DATA, Http2Frames.FLAG_END_STREAM, stream.id));
+                    ended = true;
+                }
+                break;
+            }
+            final int n = Math.min(Math.min(data.remaining(), peerMaxFrameSize), Math.min(sendWindow, stream.sendWindow));
+            if (n <= 0) {
+                break;                                 // window exhausted: WINDOW_UPDATE resumes
+            }
+            final ByteBuffer slice = data.slice(data.position(), n);
+            data.position(data.position() + n);
+            if (!data.hasRemaining()) {
+                stream.pendingData.poll();
+            }
+            stream.pendingBytes -= n;
+            sendWindow -= n;
+            stream.sendWindow -= n;
+            final boolean last = stream.endPending && stream.pendingData.isEmpty();
+            frames = frames == null ? new ArrayList<>(4) : frames;
+            frames.add(Http2Frames.header(n, Http2Frames.DATA, last ? Http2Frames.FLAG_END_STREAM : 0, stream.id));
+            frames.add(slice);
+            if (last) {
+                ended = true;
+                break;
+            }
+        }
+        if (frames != null) {
+            output.write(frames);
+        }
+        if (ended) {
+            endLocal(stream);
+        } else if (stream.pendingBytes <= PENDING_HIGH_WATER_MARK) {
+            writable.signalAll();
+        }
+    }
+
+    private void writeAllPending() {
+        for (Http2Stream stream : new ArrayList<>(streams.values())) {
+            if (sendWindow <= 0) {
+                return;
+            }
+            writePending(stream);
+        }
+    }
+
+    // We sent END_STREAM: the stream is done (lock held)
+    private void endLocal(final Http2Stream stream) {
+        stream.localClosed = true;
+        if (!stream.remoteClosed) {
+            // Answered before the request was complete (413, 431): the rest is not needed
+            output.write(List.of(Http2Frames.rstStream(stream.id, Http2Exception.NO_ERROR)));
+        }
+        streams.remove(stream.id);
+        forget(stream);
+        releaseBody(stream);
+        writable.signalAll();
+        closeIfDone();
+    }
+
+    // Worker side: reset a stream whose response failed
+    private void reset(final Http2Stream stream, final int errorCode) {
+        lock.lock();
+        try {
+            resetLocked(stream, errorCode, true);
+        } finally {
+            lock.unlock();
+        }
+        cancelAwaited();
+    }
+
+    // Reset by us (send) or by the client; the producer gets an IOException on its next write
+    private void resetLocked(final Http2Stream stream, final int errorCode, final boolean send) {
+        if (streams.remove(stream.id) == null) {
+            return;                                    // already finished or reset
+        }
+        forget(stream);
+        stream.reset = true;
+        stream.discardPending();
+        releaseBody(stream);
+        if (send) {
+            output.write(List.of(Http2Frames.rstStream(stream.id, errorCode)));
+        }
+        if (stream.awaited != null) {
+            cancelled.add(stream.awaited);
+            stream.awaited = null;
+        }
+        writable.signalAll();
+        closeIfDone();
+    }
+
+    private void streamError(final Http2Exception e) {
+        LOG.debug(() -> "HTTP/2 stream " + e.getStreamId() + " error " + e.getErrorCode() + ": " + e.getMessage());
+        final Http2Stream stream = streams.get(e.getStreamId());
+        if (stream != null) {
+            resetLocked(stream, e.getErrorCode(), true);
+        } else {
+            output.write(List.of(Http2Frames.rstStream(e.getStreamId(), e.getErrorCode())));
+        }
+    }
+
+    // Connection error: GOAWAY with the code, then close (lock held)
+    private void fail(final Http2Exception e) {
+        LOG.debug(() -> "HTTP/2 connection error " + e.getErrorCode() + ": " + e.getMessage());
+        if (closed) {
+            return;
+        }
+        closed = true;
+        output.write(List.of(Http2Frames.goAway(lastStreamId, e.getErrorCode(), e.getMessage())));
+        abandonStreams();
+        output.close();
+    }
+
+    private void shutdownLocked() {
+        if (goingAway || closed) {
+            return;
+        }
+        goingAway = true;
+        goAwayStreamId = lastStreamId;
+        output.write(List.of(Http2Frames.goAway(lastStreamId, Http2Exception.NO_ERROR, null)));
+        closeIfDone();
+    }
+
+    private void closeIfDone() {
+        if (goingAway && streams.isEmpty() && !closed) {
+            closed = true;
+            output.close();
+        }
+    }
+
+    // Fail every stream in progress (lock held)
+    private void abandonStreams() {
+        for (Http2Stream stream : streams.values()) {
+            forget(stream);
+            stream.reset = true;
+            stream.discardPending();
+            releaseBody(stream);
+            if (stream.awaited != null) {
+                cancelled.add(stream.awaited);
+                stream.awaited = null;
+            }
+        }
+        streams.clear();
+        writable.signalAll();
+    }
+
+    // The response waits for an async handler: cancel its result if the stream is reset first
+    private void awaiting(final Http2Stream stream, final Future<?> result) {
+        lock.lock();
+        try {
+            if (!stream.reset) {
+                stream.awaited = result;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        result.cancel(true);
+    }
+
+    // Cancel async handler results of reset streams, outside the lock (cancellation runs callbacks)
+    private void cancelAwaited() {
+        final List<Future<?>> futures;
+        lock.lock();
+        try {
+            if (cancelled.isEmpty()) {
+                return;
+            }
+            futures = new ArrayList<>(cancelled);
+            cancelled.clear();
+        } finally {
+            lock.unlock();
+        }
+        futures.forEach(future -> future.cancel(true));
+    }
+
+    private static void checkOpen(final Http2Stream stream) throws IOException {
+        if (stream.reset) {
+            throw new IOException("Stream " + stream.id + " was reset");
+        }
+    }
+
+    // Statuses that never carry a body (RFC 9110 section 6.4.1)
+    private static boolean isBodyless(final int statusCode) {
+        return statusCode < 200 || statusCode == 204 || statusCode == 304;
+    }
+
+    // In-memory entity bytes (not copied); other entity types send no body, as in ResponseWriter
+    private static ByteBuffer bytes(final Object entity) {
+        if (entity instanceof String string) {
+            return ByteBuffer.wrap(string.getBytes(StandardCharsets.UTF_8));
+        }
+        if (entity instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes);
+        }
+        if (entity instanceof ByteBuffer buffer) {
+            return buffer.duplicate();
+        }
+        return ByteBuffer.allocate(0);
+    }
+
+    /**
+     * DataFrameStream: OutputStream of a streamed response body, sent as DATA frames.
+     * - Writes are gathered into STREAM_CHUNK_SIZE buffers; flush() sends a partial one.
+     * - finish() sends the rest with END_STREAM; close() does nothing (the server finishes).
+     */
+    private final class DataFrameStream extends OutputStream {
+        private final Http2Stream stream;
+        private final boolean wait;
+        private byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+        private int count;
+
+        DataFrameStream(Http2Stream stream, boolean wait) {
+            this.stream = stream;
+            this.wait = wait;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (count == buffer.length) {
+                send(false);
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(final byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    send(false);
+                }
+                final int n = Math.min(length, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                send(false);
+            }
+        }
+
+        void finish() throws IOException {
+            send(true);
+        }
+
+        // Hand the buffer over (the connection keeps it until sent) and start a new one
+        private void send(final boolean end) throws IOException {
+            final ByteBuffer data = ByteBuffer.wrap(buffer, 0, count);
+            buffer = end ? buffer : new byte[STREAM_CHUNK_SIZE];
+            count = 0;
+            sendData(stream, data, end, wait);
+        }
+    }
+
+    /**
+     * RequestBody: request body of a stream, read by its handler while the client sends it.
+     * - The loop appends DATA payloads (copied: the read buffer is reused); read() waits for
+     *   them and returns their window credit, so the client only sends more once the handler
+     *   has taken what is buffered.
+     * - Reads fail once the stream is reset or the connection closes; close() drops what is
+     *   buffered and what still arrives.
+     * - Guarded by the connection's lock.
+     */
+    final class RequestBody extends InputStream {
+        private final Http2Stream stream;
+        private final Condition readable = lock.newCondition();
+        private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>(4);
+        private int buffered;
+        private boolean finished;                      // END_STREAM arrived
+        private boolean closed;                        // closed by the handler
+        private String failure;                        // why reads fail, or null
+
+        RequestBody(Http2Stream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            final int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                while (chunks.isEmpty() && !finished && !closed && failure == null) {
+                    try {
+                        readable.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while reading the request body");
+                    }
+                }
+                if (failure != null) {
+                    throw new IOException(failure);
+                }
+                final ByteBuffer chunk = chunks.peek();
+                if (chunk == null || closed) {
+                    return -1;
+                }
+                final int n = Math.min(len, chunk.remaining());
+                chunk.get(b, off, n);
+                if (!chunk.hasRemaining()) {
+                    chunks.poll();
+                }
+                buffered -= n;
+                creditStream(stream, n);
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return closed || failure != null ? 0 : buffered;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (!closed) {
+                    closed = true;
+                    creditConnection(drop());
+                    readable.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Loop side: false when the handler no longer reads (the caller drops the bytes)
+        boolean append(final ByteBuffer data) {
+            if (closed || failure != null) {
+                return false;
+            }
+            final byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            chunks.add(ByteBuffer.wrap(copy));
+            buffered += copy.length;
+            readable.signalAll();
+            return true;
+        }
+
+        void finish() {
+            finished = true;
+            readable.signalAll();
+        }
+
+        // The stream is gone: later reads fail unless the body was complete; returns the bytes dropped
+        int discard(final String reason) {
+            if (!finished && !closed && failure == null) {
+                failure = reason;
+            }
+            readable.signalAll();
+            return drop();
+        }
+
+        private int drop() {
+            final int dropped = buffered;
+            chunks.clear();
+            buffered = 0;
+            return dropped;
+        }
+    }
+
+    /**
+     * RequestHead: HPACK listener collecting a request head (or trailers) and checking the
+     * HTTP/2 rules for it (RFC 9113 section 8.2 and 8.3).
+     * - Pseudo-headers must come first, once each; regular names must be lower case and not
+     *   connection-specific; "te" may only be "trailers". Violations mark the head malformed.
+     * - Cookie fields are joined with "; " again; :authority becomes Host when there is none.
+     * - The decoded size is counted like SETTINGS_MAX_HEADER_LIST_SIZE (name + value + 32);
+     *   past maxHeaderSize the rest is decoded but not kept, and the request gets a 431.
+     */
+    private final class RequestHead implements HpackDecoder.Listener {
+        private final boolean trailers;
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private String method;
+        private String scheme;
+        private String authority;
+        private String path;
+        private StringBuilder cookies;
+        private boolean regular;                       // a regular field was seen
+        long size;
+        long contentLength = -1;
+        boolean expectContinue;
+        boolean malformed;
+
+        RequestHead(boolean trailers) {
+            this.trailers = trailers;
+        }
+
+        @Override
+        public void header(final String name, final String value) {
+            size += name.length() + value.length() + HpackTable.ENTRY_OVERHEAD;
+            if (size > maxHeaderListSize) {
+                return;
+            }
+            if (name.startsWith(":")) {
+                if (regular || trailers) {
+                    malformed = true;
+                    return;
+                }
+                switch (name) {
+                    case ":method" -> method = pseudo(method, value);
+                    case ":scheme" -> scheme = pseudo(scheme, value);
+                    case ":authority" -> authority = pseudo(authority, value);
+                    case ":path" -> path = pseudo(path, value);
+                    default -> malformed = true;
+                }
+                return;
+            }
+            regular = true;
+            if (!isLowerCase(name) || CONNECTION_HEADERS.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+                malformed = true;
+                return;
+            }
+            if (trailers) {
+                return;
+            }
+            switch (name) {
+                case "cookie" -> {
+                    cookies = cookies == null ? new StringBuilder(value) : cookies.append("; ").append(value);
+                    return;
+                }
+                case "content-length" -> {
+                    final long length = parseLength(value);
+                    if (length < 0 || (contentLength >= 0 && contentLength != length)) {
+                        malformed = true;
+                    }
+                    contentLength = length;
+                }
+                case "expect" -> expectContinue = value.equalsIgnoreCase("100-continue");
+                default -> {
+                }
+            }
+            headers.computeIfAbsent(HeaderNames.intern(name), key -> new ArrayList<>(1)).add(value);
+        }
+
+        // :method, :scheme and :path are required, except for CONNECT (which is not served)
+        boolean hasPseudoHeaders() {
+            return method != null && (method.equals("CONNECT") || (scheme != null && path != null && !path.isEmpty()));
+        }
+
+        // The request, or null when it cannot be served (unsupported method, invalid target: 400)
+        HttpRequest toRequest() {
+            HttpMethod httpMethod = null;
+            for (HttpMethod candidate : METHODS) {
+                if (candidate.name().equals(method)) {
+                    httpMethod = candidate;
+                }
+            }
+            if (httpMethod == null || path == null) {
+                return null;
+            }
+            final URI uri;
+            try {
+                uri = new URI(path);
+            } catch (URISyntaxException e) {
+                return null;
+            }
+            if (cookies != null) {
+                headers.put(HeaderNames.COOKIE, new ArrayList<>(List.of(cookies.toString())));
+            }
+            if (authority != null && !headers.containsKey(HeaderNames.HOST)) {
+                headers.put(HeaderNames.HOST, new ArrayList<>(List.of(authority)));
+            }
+            final HttpRequest.Builder builder = new HttpRequest.Builder();
+            builder.setHttpMethod(httpMethod);
+            builder.setUri(uri);
+            builder.setRequestHeaders(headers);
+            return builder.build();
+        }
+
+        private String pseudo(final String current, final String value) {
+            if (current != null) {
+                malformed = true;
+            }
+            return value;
+        }
+
+        private static boolean isLowerCase(final String name) {
+            if (name.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long parseLength(final String value) {
+            if (value.isEmpty() || value.length() > 18) {
+                return -1;
+            }
+            long length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                length = length * 10 + (c - '0');
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.server.http2;
+
+/**
+ * Http2Exception: a protocol violation, with the RFC 9113 error code to report it with.
+ * - Connection errors (streamId 0) end the connection with GOAWAY; stream errors reset only
+ *   that stream with RST_STREAM and the connection carries on.
+ */
+public class Http2Exception extends Exception {
+    public static final int NO_ERROR = 0x0;
+    public static final int PROTOCOL_ERROR = 0x1;
+    public static final int INTERNAL_ERROR = 0x2;
+    public static final int FLOW_CONTROL_ERROR = 0x3;
+    public static final int STREAM_CLOSED = 0x5;
+    public static final int FRAME_SIZE_ERROR = 0x6;
+    public static final int REFUSED_STREAM = 0x7;
+    public static final int CANCEL = 0x8;
+    public static final int COMPRESSION_ERROR = 0x9;
+    public static final int ENHANCE_YOUR_CALM = 0xb;
+
+    private final int errorCode;
+    private final int streamId;
+
+    // Connection error
+    public Http2Exception(int errorCode, String message) {
+        this(errorCode, 0, message);
+    }
+
+    // Stream error (streamId > 0) or connection error (0)
+    public Http2Exception(int errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public boolean isConnectionError() {
+        return streamId == 0;
+    }
+}
@@ -0,0 +1,113 @@
+package com.server.http2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Http2Frames: HTTP/2 wire constants and frame encoding (RFC 9113 section 4 and 6).
+ * - Every frame is a 9-byte header (24-bit length, type, flags, 31-bit stream id) followed
+ *   by its payload; the helpers here return flipped heap buffers ready to be queued.
+ * - DATA frames are built as a separate header so a body slice can follow it unchanged.
+ */
+public final class Http2Frames {
+    // Client connection preface, followed by the client's SETTINGS frame
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    static final int HEADER_LENGTH = 9;
+
+    static final int DATA = 0x0;
+    static final int HEADERS = 0x1;
+    static final int PRIORITY = 0x2;
+    static final int RST_STREAM = 0x3;
+    static final int SETTINGS = 0x4;
+    static final int PUSH_PROMISE = 0x5;
+    static final int PING = 0x6;
+    static final int GOAWAY = 0x7;
+    static final int WINDOW_UPDATE = 0x8;
+    static final int CONTINUATION = 0x9;
+
+    static final int FLAG_END_STREAM = 0x1;
+    static final int FLAG_ACK = 0x1;
+    static final int FLAG_END_HEADERS = 0x4;
+    static final int FLAG_PADDED = 0x8;
+    static final int FLAG_PRIORITY = 0x20;
+
+    static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    static final int SETTINGS_ENABLE_PUSH = 0x2;
+    static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    // Protocol defaults that apply until SETTINGS say otherwise
+    static final int DEFAULT_HEADER_TABLE_SIZE = 4_096;
+    static final int DEFAULT_WINDOW_SIZE = 65_535;
+    static final int DEFAULT_MAX_FRAME_SIZE = 16_384;
+    static final int MAX_FRAME_SIZE_LIMIT = 16_777_215;
+    static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private Http2Frames() {
+    }
+
+    /**
+     * How the readable bytes compare to the client preface: 1 when they start with all of it,
+     * 0 when they are a proper prefix of it (read more), -1 when they differ.
+     * - Does not consume anything.
+     */
+    public static int matchPreface(final ByteBuffer in) {
+        final int n = Math.min(in.remaining(), PREFACE.length);
+        for (int i = 0; i < n; i++) {
+            if (in.get(in.position() + i) != PREFACE[i]) {
+                return -1;
+            }
+        }
+        return n == PREFACE.length ? 1 : 0;
+    }
+
+    // Frame header into the buffer (write mode)
+    static void putHeader(final ByteBuffer out, final int length, final int type, final int flags, final int streamId) {
+        out.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length)
+                .put((byte) type).put((byte) flags).putInt(streamId & MAX_WINDOW_SIZE);
+    }
+
+    static ByteBuffer header(final int length, final int type, final int flags, final int streamId) {
+        final ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH);
+        putHeader(out, length, type, flags, streamId);
+        return out.flip();
+    }
+
+    // SETTINGS with (id, value) pairs; none for an ACK
+    static ByteBuffer settings(final int flags, final int... pairs) {
+        final ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + pairs.length / 2 * 6);
+        putHeader(out, pairs.length / 2 * 6, SETTINGS, flags, 0);
+        for (int i = 0; i < pairs.length; i += 2) {
+            out.putShort((short) pairs[i]).putInt(pairs[i + 1]);
+        }
+        return out.flip();
+    }
+
+    static ByteBuffer ping(final long data) {
+        final ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + 8);
+        putHeader(out, 8, PING, FLAG_ACK, 0);
+        return out.putLong(data).flip();
+    }
+
+    static ByteBuffer windowUpdate(final int streamId, final int increment) {
+        final ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + 4);
+        putHeader(out, 4, WINDOW_UPDATE, 0, streamId);
+        return out.putInt(increment).flip();
+    }
+
+    static ByteBuffer rstStream(final int streamId, final int errorCode) {
+        final ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + 4);
+        putHeader(out, 4, RST_STREAM, 0, streamId);
+        return out.putInt(errorCode).flip();
+    }
+
+    static ByteBuffer goAway(final int lastStreamId, final int errorCode, final String debug) {
+        final byte[] debugBytes = debug == null ? new byte[0] : debug.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + 8 + debugBytes.length);
+        putHeader(out, 8 + debugBytes.length, GOAWAY, 0, 0);
+        return out.putInt(lastStreamId).putInt(errorCode).put(debugBytes).flip();
+    }
+}
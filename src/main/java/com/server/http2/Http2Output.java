@@ -0,0 +1,23 @@
+package com.server.http2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Http2Output: the transport side of an Http2Connection.
+ * - write() queues encoded frames for the socket without blocking; the connection calls it
+ *   under its own lock, so frames reach the wire in exactly the order they were written
+ *   (HPACK blocks depend on that).
+ * - awaitWritable() is the transport's backpressure: a worker producing a response body
+ *   waits there (outside the connection lock) while too many written bytes are unsent, and
+ *   gets an IOException once the connection is gone.
+ * - close() closes the connection once the frames already written are sent.
+ */
+public interface Http2Output {
+    void write(List<ByteBuffer> frames);
+
+    void awaitWritable() throws IOException;
+
+    void close();
+}
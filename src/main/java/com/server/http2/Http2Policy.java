@@ -0,0 +1,152 @@
+package com.server.http2;
+
+/**
+ * Http2Policy: HTTP/2 settings the server advertises and enforces (see Http2Connection).
+ * - maxConcurrentStreams: requests one connection may have open at once; more are refused
+ *   with REFUSED_STREAM (the client retries them). A stream the client resets keeps its slot
+ *   until its handler has finished.
+ * - maxResetsPerSecond: RST_STREAM frames a client may send per second; beyond that the
+ *   connection is closed with GOAWAY(ENHANCE_YOUR_CALM) (HEADERS + RST_STREAM floods).
+ * - initialWindowSize: per-stream flow-control window for request bodies; connectionWindowSize:
+ *   the window shared by all streams of a connection (raised from the 64 KiB protocol default
+ *   right after the preface).
+ * - maxFrameSize: largest frame payload accepted from clients.
+ * - headerTableSize: HPACK dynamic table size, for the decoder and as the cap of the encoder.
+ * - h2cUpgrade: honour "Upgrade: h2c" on plaintext HTTP/1.1 requests; prior-knowledge h2c
+ *   and h2 negotiated by ALPN over TLS need no opt-in.
+ * - The largest header list accepted comes from ServerConfig.maxHeaderSize, request bodies
+ *   are bounded by ServerConfig.maxBodySize as for HTTP/1.1.
+ */
+public class Http2Policy {
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 256;
+    public static final int DEFAULT_INITIAL_WINDOW_SIZE = 1024 * 1024;
+    public static final int DEFAULT_CONNECTION_WINDOW_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_RESETS_PER_SECOND = 200;
+
+    private final int maxConcurrentStreams;
+    private final int initialWindowSize;
+    private final int connectionWindowSize;
+    private final int maxFrameSize;
+    private final int headerTableSize;
+    private final int maxResetsPerSecond;
+    private final boolean h2cUpgrade;
+
+    private Http2Policy(Builder builder) {
+        this.maxConcurrentStreams = builder.maxConcurrentStreams;
+        this.initialWindowSize = builder.initialWindowSize;
+        this.connectionWindowSize = builder.connectionWindowSize;
+        this.maxFrameSize = builder.maxFrameSize;
+        this.headerTableSize = builder.headerTableSize;
+        this.maxResetsPerSecond = builder.maxResetsPerSecond;
+        this.h2cUpgrade = builder.h2cUpgrade;
+    }
+
+    public static Http2Policy defaults() {
+        return new Builder().build();
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+    public int getConnectionWindowSize() {
+        return connectionWindowSize;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public int getHeaderTableSize() {
+        return headerTableSize;
+    }
+
+    public int getMaxResetsPerSecond() {
+        return maxResetsPerSecond;
+    }
+
+    public boolean isH2cUpgrade() {
+        return h2cUpgrade;
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Policy{" + "maxConcurrentStreams=" + maxConcurrentStreams + ", initialWindowSize=" + initialWindowSize
+                + ", connectionWindowSize=" + connectionWindowSize + ", maxFrameSize=" + maxFrameSize
+                + ", headerTableSize=" + headerTableSize + ", maxResetsPerSecond=" + maxResetsPerSecond
+                + ", h2cUpgrade=" + h2cUpgrade + '}';
+    }
+
+    public static class Builder {
+        private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+        private int initialWindowSize = DEFAULT_INITIAL_WINDOW_SIZE;
+        private int connectionWindowSize = DEFAULT_CONNECTION_WINDOW_SIZE;
+        private int maxFrameSize = Http2Frames.DEFAULT_MAX_FRAME_SIZE;
+        private int headerTableSize = Http2Frames.DEFAULT_HEADER_TABLE_SIZE;
+        private int maxResetsPerSecond = DEFAULT_MAX_RESETS_PER_SECOND;
+        private boolean h2cUpgrade = true;
+
+        public Builder setMaxConcurrentStreams(int maxConcurrentStreams) {
+            if (maxConcurrentStreams < 1) {
+                throw new IllegalArgumentException("maxConcurrentStreams must be >= 1");
+            }
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            return this;
+        }
+
+        public Builder setInitialWindowSize(int initialWindowSize) {
+            if (initialWindowSize < 1) {
+                throw new IllegalArgumentException("initialWindowSize must be >= 1");
+            }
+            this.initialWindowSize = initialWindowSize;
+            return this;
+        }
+
+        // At least the 65535-byte protocol default, which applies until it is raised
+        public Builder setConnectionWindowSize(int connectionWindowSize) {
+            if (connectionWindowSize < Http2Frames.DEFAULT_WINDOW_SIZE) {
+                throw new IllegalArgumentException("connectionWindowSize must be >= " + Http2Frames.DEFAULT_WINDOW_SIZE);
+            }
+            this.connectionWindowSize = connectionWindowSize;
+            return this;
+        }
+
+        public Builder setMaxFrameSize(int maxFrameSize) {
+            if (maxFrameSize < Http2Frames.DEFAULT_MAX_FRAME_SIZE || maxFrameSize > Http2Frames.MAX_FRAME_SIZE_LIMIT) {
+                throw new IllegalArgumentException("maxFrameSize must be between " + Http2Frames.DEFAULT_MAX_FRAME_SIZE
+                        + " and " + Http2Frames.MAX_FRAME_SIZE_LIMIT);
+            }
+            this.maxFrameSize = maxFrameSize;
+            return this;
+        }
+
+        public Builder setHeaderTableSize(int headerTableSize) {
+            if (headerTableSize < 0) {
+                throw new IllegalArgumentException("headerTableSize must be >= 0");
+            }
+            this.headerTableSize = headerTableSize;
+            return this;
+        }
+
+        public Builder setMaxResetsPerSecond(int maxResetsPerSecond) {
+            if (maxResetsPerSecond < 1) {
+                throw new IllegalArgumentException("maxResetsPerSecond must be >= 1");
+            }
+            this.maxResetsPerSecond = maxResetsPerSecond;
+            return this;
+        }
+
+        public Builder setH2cUpgrade(boolean h2cUpgrade) {
+            this.h2cUpgrade = h2cUpgrade;
+            return this;
+        }
+
+        public Http2Policy build() {
+            return new Http2Policy(this);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.server.http2;
+
+import com.server.pojos.HttpRequest;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Future;
+
+/**
+ * Http2Stream: one request/response exchange of an Http2Connection.
+ * - Request side (filled by the event loop): the decoded head, the body stream the handler
+ *   reads, and the receive window granted to the client with the credit not yet returned.
+ * - Response side (filled by the worker): DATA not yet covered by the flow-control windows
+ *   waits in pendingData, ready to go out as soon as a WINDOW_UPDATE arrives.
+ * - Every field is guarded by the connection's lock.
+ */
+final class Http2Stream {
+    final int id;
+    final long startNanos;                             // System.nanoTime() when the head was decoded
+    HttpRequest request;
+    long contentLength = -1;                           // declared request body length, -1 if unknown
+    Http2Connection.RequestBody body;                  // request body as it arrives, or null without one
+    long bodyLength;                                   // body bytes received so far
+    int receiveWindow;                                 // DATA bytes the client may still send
+    int credit;                                        // DATA bytes read or dropped, not yet returned by WINDOW_UPDATE
+    boolean responded;                                 // final response HEADERS sent
+    int sendWindow;                                    // DATA bytes we may still send
+    final ArrayDeque<ByteBuffer> pendingData = new ArrayDeque<>(2);
+    long pendingBytes;
+    boolean endPending;                                // END_STREAM goes on the last pending frame
+    boolean remoteClosed;                              // client sent END_STREAM
+    boolean localClosed;                               // we sent END_STREAM
+    boolean reset;                                     // reset by either side, or the connection closed
+    boolean running;                                   // handed to a worker; handler or response not finished
+    Future<?> awaited;                                 // async handler result, cancelled on reset
+
+    Http2Stream(int id, int receiveWindow, int sendWindow) {
+        this.id = id;
+        this.startNanos = System.nanoTime();
+        this.receiveWindow = receiveWindow;
+        this.sendWindow = sendWindow;
+    }
+
+    // Drop queued response data (stream reset or connection gone)
+    void discardPending() {
+        pendingData.clear();
+        pendingBytes = 0;
+        endPending = false;
+    }
+}
@@ -0,0 +1,137 @@
+package com.server.http2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Huffman: the static HPACK Huffman code (RFC 7541 Appendix B).
+ * - The code is canonical, so only the bit length of each symbol is tabulated; the codes are
+ *   assigned from it on class load (shorter codes first, symbols in order within a length).
+ * - Decoding walks a flat binary tree one bit at a time; header strings are short, and it
+ *   needs no per-call allocation beyond the output.
+ * - Padding must be at most 7 bits of the EOS prefix (all ones); EOS itself is an error.
+ */
+final class Huffman {
+    private static final int EOS = 256;
+
+    // Code length in bits of symbols 0..255 and EOS
+    private static final byte[] LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30
+    };
+    private static final int[] CODES = new int[LENGTHS.length];
+    // Node n has children TREE[2n] (bit 0) and TREE[2n + 1] (bit 1); leaves are -(symbol + 1)
+    private static final int[] TREE = new int[2 * LENGTHS.length];
+
+    static {
+        int code = 0;
+        int nodes = 1;
+        for (int length = 1; length <= 30; length++) {
+            for (int symbol = 0; symbol < LENGTHS.length; symbol++) {
+                if (LENGTHS[symbol] != length) {
+                    continue;
+                }
+                CODES[symbol] = code;
+                int node = 0;
+                for (int bit = length - 1; bit > 0; bit--) {
+                    final int slot = 2 * node + ((code >>> bit) & 1);
+                    if (TREE[slot] == 0) {
+                        TREE[slot] = nodes++;
+                    }
+                    node = TREE[slot];
+                }
+                TREE[2 * node + (code & 1)] = -(symbol + 1);
+                code++;
+            }
+            code <<= 1;
+        }
+    }
+
+    private Huffman() {
+    }
+
+    static int code(final int symbol) {
+        return CODES[symbol];
+    }
+
+    static int length(final int symbol) {
+        return LENGTHS[symbol];
+    }
+
+    // Encoded size in bytes of the ISO-8859-1 text
+    static int encodedLength(final String text) {
+        long bits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            bits += LENGTHS[text.charAt(i) & 0xFF];
+        }
+        return (int) ((bits + 7) >>> 3);
+    }
+
+    // Caller guarantees encodedLength(text) bytes of room
+    static void encode(final String text, final ByteBuffer out) {
+        long bits = 0;
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final int symbol = text.charAt(i) & 0xFF;
+            bits = (bits << LENGTHS[symbol]) | CODES[symbol];
+            count += LENGTHS[symbol];
+            while (count >= 8) {
+                count -= 8;
+                out.put((byte) (bits >>> count));
+            }
+        }
+        if (count > 0) {
+            // Pad with the most significant bits of EOS (all ones)
+            out.put((byte) ((bits << (8 - count)) | (0xFF >>> count)));
+        }
+    }
+
+    /**
+     * Decode length bytes from the buffer into ISO-8859-1 text.
+     */
+    static String decode(final ByteBuffer in, final int length) throws Http2Exception {
+        final StringBuilder text = new StringBuilder(length + length / 2);
+        int node = 0;
+        int depth = 0;                                 // bits read since the last symbol
+        boolean allOnes = true;                        // those bits are all ones (EOS prefix)
+        for (int i = 0; i < length; i++) {
+            final int b = in.get() & 0xFF;
+            for (int bit = 7; bit >= 0; bit--) {
+                final int one = (b >>> bit) & 1;
+                final int next = TREE[2 * node + one];
+                depth++;
+                allOnes &= one == 1;
+                if (next < 0) {
+                    final int symbol = -next - 1;
+                    if (symbol == EOS) {
+                        throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "EOS in Huffman string");
+                    }
+                    text.append((char) symbol);
+                    node = 0;
+                    depth = 0;
+                    allOnes = true;
+                } else {
+                    node = next;
+                }
+            }
+        }
+        if (depth > 7 || !allOnes) {
+            throw new Http2Exception(Http2Exception.COMPRESSION_ERROR, "Invalid Huffman padding");
+        }
+        return text.toString();
+    }
+}
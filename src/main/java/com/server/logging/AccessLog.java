@@ -0,0 +1,50 @@
+package com.server.logging;
+
+import com.server.pojos.HttpRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccessLog: one line per served request on the "access" logger (INFO).
+ * - Format: <remote> "<METHOD> <target> <protocol>" <status> <elapsed>ms (HTTP/1.1 or HTTP/2.0)
+ * - Nothing is formatted when the "access" logger is disabled
+ *   (Logging.setLevel("access", LogLevel.OFF)).
+ */
+public final class AccessLog {
+    public static final String LOGGER_NAME = "access";
+    private static final Logger LOG = Logging.getLogger(LOGGER_NAME);
+
+    private AccessLog() {
+    }
+
+    public static boolean isEnabled() {
+        return LOG.isEnabled(LogLevel.INFO);
+    }
+
+    // startNanos: System.nanoTime() when the request head was decoded
+    public static void log(final Object remote, final HttpRequest request, final int status, final long startNanos) {
+        log(remote, request, status, startNanos, "HTTP/1.1");
+    }
+
+    public static void log(final Object remote, final HttpRequest request, final int status, final long startNanos,
+                           final String protocol) {
+        if (!isEnabled()) {
+            return;
+        }
+        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        final String target = request.getUri().getRawQuery() == null
+                ? request.getUri().getRawPath()
+                : request.getUri().getRawPath() + "?" + request.getUri().getRawQuery();
+        final StringBuilder line = new StringBuilder(96)
+                .append(remote).append(" \"")
+                .append(request.getHttpMethod()).append(' ').append(target).append(' ').append(protocol).append("\" ")
+                .append(status).append(' ')
+                .append(micros / 1000).append('.');
+        final long fraction = micros % 1000;
+        if (fraction < 100) {
+            line.append(fraction < 10 ? "00" : "0");
+        }
+        line.append(fraction).append("ms");
+        LOG.log(LogLevel.INFO, line.toString(), null);
+    }
+}
@@ -0,0 +1,140 @@
+package com.server.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AsyncAppender: hands events to a background thread through a bounded lock-free ring buffer.
+ * - Producers claim a slot with one CAS and never block or take a lock; when the ring is full
+ *   the event is dropped and counted, so a slow console cannot stall request threads.
+ * - The writer thread drains events in order and flushes the target once per batch
+ *   (when the ring runs empty or after MAX_BATCH events), instead of once per line.
+ * - Dropped events are reported with a WARN line on the next flush.
+ * - close() stops the thread after draining what is already queued.
+ */
+public class AsyncAppender implements LogAppender {
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final LogAppender target;
+    private final AtomicReferenceArray<LogEvent> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();  // next slot to claim
+    private volatile long head;                        // next slot to drain (writer thread only)
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+
+    /**
+     * @param capacity ring size, rounded up to a power of two
+     */
+    public AsyncAppender(LogAppender target, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        final int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.target = target;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.writer = new Thread(this::drainLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head > mask || !running) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+
+        ring.set((int) slot & mask, event);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Events dropped because the ring was full (or the appender closed)
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void flush() {
+        // Wait until everything claimed so far has been written
+        final long target = tail.get();
+        while (head < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+    }
+
+    private void drainLoop() {
+        int batch = 0;
+        long reportedDrops = 0;
+        while (running || head != tail.get()) {
+            final long slot = head;
+            final int index = (int) slot & mask;
+            final LogEvent event = ring.get(index);
+
+            if (event == null) {
+                // Ring empty (or a producer has claimed but not yet published the slot)
+                if (batch > 0) {
+                    reportedDrops = reportDrops(reportedDrops);
+                    target.flush();
+                    batch = 0;
+                }
+                idle = true;
+                if (ring.get(index) == null && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+
+            ring.set(index, null);
+            head = slot + 1;
+            try {
+                target.append(event);
+            } catch (RuntimeException e) {
+                // A failing target must not kill the writer thread
+            }
+            if (++batch >= MAX_BATCH) {
+                reportedDrops = reportDrops(reportedDrops);
+                target.flush();
+                batch = 0;
+            }
+        }
+        reportDrops(reportedDrops);
+        target.flush();
+    }
+
+    private long reportDrops(final long reported) {
+        final long total = dropped.sum();
+        if (total > reported) {
+            target.append(new LogEvent(System.currentTimeMillis(), LogLevel.WARN, AsyncAppender.class.getName(),
+                    writer.getName(), (total - reported) + " log events dropped (ring buffer full)", null));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,17 @@
+package com.server.logging;
+
+/**
+ * LogAppender: destination for log events.
+ * - append() may be called from many threads concurrently.
+ * - flush() pushes buffered output; close() flushes and releases resources.
+ */
+public interface LogAppender {
+    void append(LogEvent event);
+
+    default void flush() {
+    }
+
+    default void close() {
+        flush();
+    }
+}
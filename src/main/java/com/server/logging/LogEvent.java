@@ -0,0 +1,9 @@
+package com.server.logging;
+
+/**
+ * LogEvent: one structured log record handed to a LogAppender.
+ * - The message is already built (a Supplier only runs on the calling thread if the level is enabled).
+ * - timestampMillis and thread are captured where the event was logged, not where it is written.
+ */
+public record LogEvent(long timestampMillis, LogLevel level, String logger, String thread, String message, Throwable error) {
+}
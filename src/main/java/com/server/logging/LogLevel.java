@@ -0,0 +1,13 @@
+package com.server.logging;
+
+/**
+ * LogLevel: severity of a log event, from most to least verbose; OFF disables a logger.
+ */
+public enum LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
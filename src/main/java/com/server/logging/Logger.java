@@ -0,0 +1,80 @@
+package com.server.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Logger: named entry point for log events.
+ * - Level checks are a single volatile read, so disabled levels cost nothing beyond the call;
+ *   Supplier overloads build the message only when the level is enabled.
+ * - Events go to the appender configured in Logging at the time they are logged.
+ * - Obtain instances from Logging.getLogger(); loggers are cached per name.
+ */
+public final class Logger {
+    private final String name;
+    private volatile LogLevel level;
+
+    Logger(String name, LogLevel level) {
+        this.name = name;
+        this.level = level;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(final LogLevel level) {
+        return level.compareTo(this.level) >= 0 && level != LogLevel.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(LogLevel.DEBUG);
+    }
+
+    public void debug(final Supplier<String> message) {
+        if (isEnabled(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message.get(), null);
+        }
+    }
+
+    public void info(final String message) {
+        if (isEnabled(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, null);
+        }
+    }
+
+    public void info(final Supplier<String> message) {
+        if (isEnabled(LogLevel.INFO)) {
+            log(LogLevel.INFO, message.get(), null);
+        }
+    }
+
+    public void warn(final String message) {
+        warn(message, null);
+    }
+
+    public void warn(final String message, final Throwable error) {
+        if (isEnabled(LogLevel.WARN)) {
+            log(LogLevel.WARN, message, error);
+        }
+    }
+
+    public void error(final String message, final Throwable error) {
+        if (isEnabled(LogLevel.ERROR)) {
+            log(LogLevel.ERROR, message, error);
+        }
+    }
+
+    // Unconditional: callers have checked isEnabled(level)
+    public void log(final LogLevel level, final String message, final Throwable error) {
+        Logging.appender().append(new LogEvent(System.currentTimeMillis(), level, name,
+                Thread.currentThread().getName(), message, error));
+    }
+}
@@ -0,0 +1,57 @@
+package com.server.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logging: global logging configuration and logger registry.
+ * - Default level comes from the "server.log.level" system property (INFO if unset); levels
+ *   can be changed at runtime globally or per logger name (e.g. "access" for the access log).
+ * - Default appender: an AsyncAppender over System.out, flushed by a shutdown hook.
+ *   setAppender() plugs in any other LogAppender (the previous one is closed).
+ */
+public final class Logging {
+    private static final int DEFAULT_RING_CAPACITY = 8192;
+
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+    private static final Map<String, LogLevel> LEVEL_OVERRIDES = new ConcurrentHashMap<>();
+    private static volatile LogLevel defaultLevel = LogLevel.valueOf(System.getProperty("server.log.level", "INFO").toUpperCase());
+    private static volatile LogAppender appender;
+
+    static {
+        appender = new AsyncAppender(new StreamAppender(System.out, false), DEFAULT_RING_CAPACITY);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> appender.close(), "log-shutdown"));
+    }
+
+    private Logging() {
+    }
+
+    public static Logger getLogger(final Class<?> type) {
+        return getLogger(type.getName());
+    }
+
+    public static Logger getLogger(final String name) {
+        return LOGGERS.computeIfAbsent(name, n -> new Logger(n, LEVEL_OVERRIDES.getOrDefault(n, defaultLevel)));
+    }
+
+    // Level for every logger without an explicit override
+    public static void setLevel(final LogLevel level) {
+        defaultLevel = level;
+        LOGGERS.values().forEach(logger -> logger.setLevel(LEVEL_OVERRIDES.getOrDefault(logger.getName(), level)));
+    }
+
+    public static void setLevel(final String name, final LogLevel level) {
+        LEVEL_OVERRIDES.put(name, level);
+        getLogger(name).setLevel(level);
+    }
+
+    public static void setAppender(final LogAppender newAppender) {
+        final LogAppender previous = appender;
+        appender = newAppender;
+        previous.close();
+    }
+
+    static LogAppender appender() {
+        return appender;
+    }
+}
@@ -0,0 +1,71 @@
+package com.server.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * StreamAppender: formats events as text lines onto an OutputStream.
+ * - Line format: <ISO-8601 UTC time> <LEVEL> [<thread>] <logger> - <message>, followed by the
+ *   stack trace if the event carries one.
+ * - Writes are buffered; with flushEachEvent every append is flushed (synchronous use),
+ *   otherwise the caller flushes (AsyncAppender flushes once per batch).
+ * - Synchronized, so it is safe but serializing when used directly from many threads; wrap it
+ *   in an AsyncAppender for the request path.
+ */
+public class StreamAppender implements LogAppender {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC);
+
+    private final Writer writer;
+    private final boolean flushEachEvent;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public StreamAppender(OutputStream outputStream, boolean flushEachEvent) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 16 * 1024);
+        this.flushEachEvent = flushEachEvent;
+    }
+
+    @Override
+    public synchronized void append(LogEvent event) {
+        line.setLength(0);
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(event.timestampMillis()), line);
+        line.append(' ').append(event.level().name());
+        for (int pad = event.level().name().length(); pad < 5; pad++) {
+            line.append(' ');
+        }
+        line.append(" [").append(event.thread()).append("] ")
+                .append(event.logger()).append(" - ")
+                .append(event.message()).append('\n');
+        if (event.error() != null) {
+            final StringWriter trace = new StringWriter();
+            event.error().printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+
+        try {
+            writer.append(line);
+            if (flushEachEvent) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // Nowhere left to report logging failures
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            // Nowhere left to report logging failures
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram: lock-free log-linear histogram of durations in nanoseconds (HDR-style).
+ * - Every power of two is split into 16 linear sub-buckets, so any recorded value is known to
+ *   within ~6%; values from 0 ns up to ~68 s (2^36 ns) are kept, larger ones are clamped.
+ * - record() is a few shifts plus one atomic increment and two LongAdder adds; no locks or
+ *   allocation, so it can sit on the request path.
+ * - Reads (count, sum, percentiles, cumulative buckets) are weakly consistent snapshots.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public void record(final long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    /**
+     * Value at the given quantile (0..1), reported as the upper bound of its bucket; 0 if empty.
+     */
+    public long percentile(final double quantile) {
+        final long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return upperBound(i) - 1;
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    /**
+     * Number of recorded values <= limitNanos, to bucket resolution (a bucket counts once all
+     * of it lies at or below the limit).
+     */
+    public long countAtOrBelow(final long limitNanos) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && upperBound(i) - 1 <= limitNanos; i++) {
+            seen += buckets.get(i);
+        }
+        return seen;
+    }
+
+    // Values below 16 map 1:1; above, the exponent selects a row and the next 4 bits the column
+    static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Exclusive upper bound of a bucket
+    static long upperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,233 @@
+package com.server.metrics;
+
+import com.server.admission.AdmissionController;
+import com.server.cache.ResponseCache;
+import com.server.contract.HttpMethod;
+import com.server.executor.ExecutorMetrics;
+import com.server.tls.TlsContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * ServerMetrics: counters, gauges and latency histograms for one server.
+ * - Counters are LongAdders; per-request recording is a map lookup on the (cached) route
+ *   pattern hash, a short scan for the (method, status) pair and a LatencyHistogram update,
+ *   with no locks or allocation once a route/status combination has been seen.
+ * - Handler latency is kept per route pattern (not raw path, to bound cardinality), method
+ *   and status; requests that matched no route are recorded under UNMATCHED_ROUTE.
+ * - Gauges, and counters owned by other components (executor), are sampled only when
+ *   scraped (active connections, executor saturation, ...).
+ * - scrape() renders everything in the Prometheus text exposition format (version 0.0.4).
+ */
+public class ServerMetrics {
+    public static final String UNMATCHED_ROUTE = "<unmatched>";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Prometheus "le" bucket boundaries for latency histograms, in seconds
+    private static final double[] LATENCY_BUCKETS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final LongAdder connectionsAccepted = new LongAdder();
+    private final LongAdder connectionsActive = new LongAdder();
+    private final Map<Integer, LongAdder> decodeFailures = new ConcurrentSkipListMap<>();
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    // Sampled on scrape; type is "gauge" or "counter" (monotonic values owned elsewhere)
+    private record Gauge(String name, String type, String help, DoubleSupplier value) {
+    }
+
+    // Histograms of one route pattern, one per (method, status) seen; copy-on-write array
+    private static final class RouteStats {
+        private volatile StatusHistogram[] entries = new StatusHistogram[0];
+
+        LatencyHistogram get(final HttpMethod method, final int status) {
+            for (StatusHistogram entry : entries) {
+                if (entry.method == method && entry.status == status) {
+                    return entry.histogram;
+                }
+            }
+            return add(method, status);
+        }
+
+        private synchronized LatencyHistogram add(final HttpMethod method, final int status) {
+            for (StatusHistogram entry : entries) {
+                if (entry.method == method && entry.status == status) {
+                    return entry.histogram;
+                }
+            }
+            final StatusHistogram added = new StatusHistogram(method, status, new LatencyHistogram());
+            final StatusHistogram[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = added;
+            entries = grown;
+            return added.histogram;
+        }
+    }
+
+    private record StatusHistogram(HttpMethod method, int status, LatencyHistogram histogram) {
+    }
+
+    public ServerMetrics() {
+        registerGauge("http_server_connections_active", "Open client connections", connectionsActive::sum);
+    }
+
+    public void connectionOpened() {
+        connectionsAccepted.increment();
+        connectionsActive.increment();
+    }
+
+    public void connectionClosed() {
+        connectionsActive.decrement();
+    }
+
+    // Request rejected by the decoder (400/413/414/431/505)
+    public void decodeFailure(final int status) {
+        decodeFailures.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    /**
+     * Record one handled request.
+     * - route: the matched pattern (e.g. "/users/{id}"), or UNMATCHED_ROUTE for 404/405.
+     */
+    public void recordRequest(final HttpMethod method, final String route, final int status, final long nanos) {
+        routes.computeIfAbsent(route, r -> new RouteStats()).get(method, status).record(nanos);
+    }
+
+    // Histogram for one route/method/status, or null if nothing was recorded for it
+    public LatencyHistogram getLatency(final HttpMethod method, final String route, final int status) {
+        final RouteStats stats = routes.get(route);
+        if (stats != null) {
+            for (StatusHistogram entry : stats.entries) {
+                if (entry.method == method && entry.status == status) {
+                    return entry.histogram;
+                }
+            }
+        }
+        return null;
+    }
+
+    public long getConnectionsAccepted() {
+        return connectionsAccepted.sum();
+    }
+
+    public long getConnectionsActive() {
+        return connectionsActive.sum();
+    }
+
+    public void registerGauge(final String name, final String help, final DoubleSupplier value) {
+        gauges.add(new Gauge(name, "gauge", help, value));
+    }
+
+    public void registerCounter(final String name, final String help, final DoubleSupplier value) {
+        gauges.add(new Gauge(name, "counter", help, value));
+    }
+
+    /**
+     * Expose a worker executor's counters and gauges.
+     * - capacity: worker threads / concurrency limit used for the saturation ratio, or <= 0
+     *   when unbounded (virtual thread per task), in which case saturation is not reported.
+     */
+    public void registerExecutor(final ExecutorMetrics executor, final int capacity) {
+        registerGauge("http_server_executor_active", "Tasks currently running", executor::getActive);
+        registerGauge("http_server_executor_peak_active", "Highest number of concurrently running tasks", executor::getPeakActive);
+        registerGauge("http_server_executor_queue_depth", "Tasks waiting for a worker", executor::getQueueDepth);
+        registerCounter("http_server_executor_submitted_total", "Tasks submitted", executor::getSubmitted);
+        registerCounter("http_server_executor_completed_total", "Tasks completed", executor::getCompleted);
+        registerCounter("http_server_executor_failed_total", "Tasks that threw", executor::getFailed);
+        registerCounter("http_server_executor_rejected_total", "Tasks rejected by the executor", executor::getRejected);
+        registerCounter("http_server_executor_queue_wait_seconds_total", "Total submit-to-start wait",
+                () -> executor.getQueueWaitNanos() / 1e9);
+        if (capacity > 0) {
+            registerGauge("http_server_executor_saturation", "Running tasks / capacity",
+                    () -> (double) executor.getActive() / capacity);
+        }
+    }
+
+    public void registerResponseCache(final ResponseCache cache) {
+        registerCounter("http_server_cache_hits_total", "Cached route requests answered from the cache", cache::getHits);
+        registerCounter("http_server_cache_misses_total", "Cached route requests that ran the handler", cache::getMisses);
+        registerCounter("http_server_cache_not_modified_total", "Conditional requests answered with 304", cache::getNotModified);
+        registerCounter("http_server_cache_evictions_total", "Entries evicted to stay within the size bound", cache::getEvictions);
+        registerGauge("http_server_cache_bytes", "Bytes held by cached responses", cache::getBytes);
+        registerGauge("http_server_cache_entries", "Cached responses", cache::getEntries);
+    }
+
+    public void registerTls(final TlsContext tls) {
+        registerCounter("http_server_tls_handshakes_total", "Completed TLS handshakes", tls::getHandshakes);
+        registerCounter("http_server_tls_resumed_total", "TLS handshakes that resumed a session", tls::getResumed);
+        registerCounter("http_server_tls_handshake_failures_total", "TLS handshakes that failed", tls::getFailures);
+        registerCounter("http_server_tls_handshake_seconds_total", "Total time from accept to handshake completion",
+                tls::getHandshakeSeconds);
+    }
+
+    public void registerAdmission(final AdmissionController admission) {
+        registerCounter("http_server_shed_connections_total", "Connections refused at accept with 503", admission::getShedConnections);
+        registerCounter("http_server_rate_limited_total", "Requests refused with 429 by the per-client rate limit", admission::getRateLimited);
+        registerCounter("http_server_overloaded_total", "Requests refused with 503 by the concurrency limit or a full queue", admission::getOverloaded);
+        registerGauge("http_server_concurrency_limit", "Current adaptive concurrency limit (0 = disabled)", admission::getConcurrencyLimit);
+        registerGauge("http_server_concurrency_in_flight", "Requests holding a concurrency permit", admission::getInFlight);
+    }
+
+    // Prometheus text format of all metrics
+    public String scrape() {
+        final StringBuilder out = new StringBuilder(4096);
+
+        family(out, "http_server_connections_accepted_total", "counter", "Accepted client connections");
+        out.append("http_server_connections_accepted_total ").append(connectionsAccepted.sum()).append('\n');
+
+        family(out, "http_server_decode_failures_total", "counter", "Requests rejected while decoding, by status");
+        decodeFailures.forEach((status, count) -> out.append("http_server_decode_failures_total{status=\"")
+                .append(status).append("\"} ").append(count.sum()).append('\n'));
+
+        for (Gauge gauge : gauges) {
+            family(out, gauge.name(), gauge.type(), gauge.help());
+            out.append(gauge.name()).append(' ').append(format(gauge.value().getAsDouble())).append('\n');
+        }
+
+        family(out, "http_server_requests_seconds", "histogram", "Handler latency by route pattern, method and status");
+        final List<String> names = new ArrayList<>(routes.keySet());
+        names.sort(null);
+        for (String route : names) {
+            for (StatusHistogram entry : routes.get(route).entries) {
+                writeHistogram(out, route, entry);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeHistogram(final StringBuilder out, final String route, final StatusHistogram entry) {
+        final String labels = "method=\"" + entry.method() + "\",route=\"" + escape(route) + "\",status=\"" + entry.status() + "\"";
+        final LatencyHistogram histogram = entry.histogram();
+        final long count = histogram.getCount();
+        for (double le : LATENCY_BUCKETS_SECONDS) {
+            out.append("http_server_requests_seconds_bucket{").append(labels).append(",le=\"").append(format(le)).append("\"} ")
+                    .append(histogram.countAtOrBelow((long) (le * 1e9))).append('\n');
+        }
+        out.append("http_server_requests_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+        out.append("http_server_requests_seconds_sum{").append(labels).append("} ").append(format(histogram.getSumNanos() / 1e9)).append('\n');
+        out.append("http_server_requests_seconds_count{").append(labels).append("} ").append(count).append('\n');
+    }
+
+    private static void family(final StringBuilder out, final String name, final String type, final String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String format(final double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    // Label values: escape backslash, double quote and newline
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,131 @@
+package com.server.pojos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HttpHeaders: small ordered multi-map of response headers backed by parallel arrays.
+ * - One entry per value: add() appends (repeated names such as Set-Cookie are kept in order),
+ *   set() replaces every value of a name.
+ * - Name lookups are case-insensitive; a linear scan beats hashing for the handful of
+ *   headers a response carries.
+ * - HttpResponse.Builder freezes the container in build(), so built (and canned) responses
+ *   can be shared between threads; mutating a frozen container throws IllegalStateException.
+ */
+public final class HttpHeaders {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private String[] names;
+    private String[] values;
+    private int size;
+    private boolean frozen;
+
+    public HttpHeaders() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HttpHeaders(int capacity) {
+        names = new String[Math.max(capacity, 1)];
+        values = new String[names.length];
+    }
+
+    public HttpHeaders add(final String name, final String value) {
+        checkMutable();
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+    public HttpHeaders set(final String name, final String value) {
+        remove(name);
+        return add(name, value);
+    }
+
+    public HttpHeaders remove(final String name) {
+        checkMutable();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!matches(i, name)) {
+                names[kept] = names[i];
+                values[kept] = values[i];
+                kept++;
+            }
+        }
+        Arrays.fill(names, kept, size, null);
+        Arrays.fill(values, kept, size, null);
+        size = kept;
+        return this;
+    }
+
+    // First value of the header, or null
+    public String get(final String name) {
+        for (int i = 0; i < size; i++) {
+            if (matches(i, name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    public List<String> getAll(final String name) {
+        List<String> all = Collections.emptyList();
+        for (int i = 0; i < size; i++) {
+            if (matches(i, name)) {
+                if (all.isEmpty()) {
+                    all = new ArrayList<>(2);
+                }
+                all.add(values[i]);
+            }
+        }
+        return all;
+    }
+
+    public boolean contains(final String name) {
+        return get(name) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Positional access for serializers: entry i of size()
+    public String name(final int index) {
+        return names[index];
+    }
+
+    public String value(final int index) {
+        return values[index];
+    }
+
+    HttpHeaders freeze() {
+        frozen = true;
+        return this;
+    }
+
+    private boolean matches(final int index, final String name) {
+        final String candidate = names[index];
+        return candidate == name || candidate.equalsIgnoreCase(name);
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Headers of a built response cannot be modified");
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            text.append(i == 0 ? "" : ", ").append(names[i]).append('=').append(values[i]);
+        }
+        return text.append('}').toString();
+    }
+}
@@ -2,19 +2,31 @@ package com.server.pojos;
 
 import com.server.contract.HttpMethod;
 
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class HttpRequest {
     private final HttpMethod httpMethod;
     private final URI uri;
-    private final Map<String, List<String>> requestHeaders;
+    private final RequestHeaders requestHeaders;
+    private final InputStream body;
+    private final Map<String, String> pathParameters;
+    private volatile Map<String, List<String>> queryParameters; // parsed on first use
 
-    private HttpRequest(HttpMethod httpMethod, URI uri, Map<String, List<String>> requestHeaders) {
+    private HttpRequest(HttpMethod httpMethod, URI uri, RequestHeaders requestHeaders, InputStream body,
+                        Map<String, String> pathParameters) {
         this.httpMethod = httpMethod;
         this.uri = uri;
         this.requestHeaders = requestHeaders;
+        this.body = body != null ? body : InputStream.nullInputStream();
+        this.pathParameters = pathParameters != null ? pathParameters : Collections.emptyMap();
     }
 
     public URI getUri() {
@@ -25,19 +37,132 @@ public class HttpRequest {
         return httpMethod;
     }
 
+    /**
+     * All headers as a case-insensitive multi-valued map.
+     * - Built from the raw head on first call; prefer getHeader()/getHeaders() for single lookups.
+     */
     public Map<String, List<String>> getRequestHeaders() {
-        return requestHeaders;
+        return requestHeaders.asMap();
+    }
+
+    // First value of the header (case-insensitive name), or null when absent
+    public String getHeader(String name) {
+        return requestHeaders.first(name);
+    }
+
+    // Every value of the header (case-insensitive name) in arrival order; empty when absent
+    public List<String> getHeaders(String name) {
+        return requestHeaders.all(name);
+    }
+
+    // A comma-separated element of the header equals token, case-insensitively (Connection, Upgrade)
+    public boolean hasHeaderToken(String name, String token) {
+        for (String value : requestHeaders.all(name)) {
+            for (String element : value.split(",")) {
+                if (element.trim().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Query string parameters, percent-decoded as UTF-8 ('+' is a space).
+     * - Parsed from the raw query on first call; repeated names keep every value in order and
+     *   a name without '=' maps to "". Malformed escapes are kept as raw text.
+     */
+    public Map<String, List<String>> getQueryParameters() {
+        Map<String, List<String>> parameters = queryParameters;
+        if (parameters == null) {
+            parameters = parseQuery(uri == null ? null : uri.getRawQuery());
+            queryParameters = parameters;
+        }
+        return parameters;
+    }
+
+    // First value of the query parameter, or null when absent
+    public String getQueryParameter(String name) {
+        final List<String> values = getQueryParameters().get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * Request body as a stream; empty when the request has none.
+     * - Consumed lazily: bytes are read from the connection only as the handler reads them.
+     * - Can be read once; unread bytes are discarded after the handler returns.
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    // Copy of this request carrying the given body (the head is decoded before framing is known)
+    public HttpRequest withBody(InputStream body) {
+        return new HttpRequest(httpMethod, uri, requestHeaders, body, pathParameters);
+    }
+
+    /**
+     * Parameters captured by the matched route, e.g. {id} in "/users/{id}"; "*" holds a wildcard tail.
+     * - Values are raw path text (still percent-encoded).
+     */
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    public String getPathParameter(String name) {
+        return pathParameters.get(name);
+    }
+
+    // Copy of this request carrying the parameters of the matched route
+    public HttpRequest withPathParameters(Map<String, String> pathParameters) {
+        return new HttpRequest(httpMethod, uri, requestHeaders, body, pathParameters);
+    }
+
+    private static Map<String, List<String>> parseQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, List<String>> parameters = new LinkedHashMap<>();
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start) {
+                final int equals = query.indexOf('=', start);
+                final boolean hasValue = equals >= 0 && equals < end;
+                final String name = decode(query.substring(start, hasValue ? equals : end));
+                final String value = hasValue ? decode(query.substring(equals + 1, end)) : "";
+                parameters.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+            }
+            start = end + 1;
+        }
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    private static String decode(String text) {
+        if (text.indexOf('%') < 0 && text.indexOf('+') < 0) {
+            return text;
+        }
+        try {
+            return URLDecoder.decode(text, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return text;
+        }
     }
 
     @Override
     public String toString() {
-        return "HttpRequest{" + "httpMethod=" + httpMethod + ", uri=" + uri + ", requestHeaders=" + requestHeaders + '}';
+        return "HttpRequest{" + "httpMethod=" + httpMethod + ", uri=" + uri + ", requestHeaders=" + requestHeaders
+                + ", pathParameters=" + pathParameters + '}';
     }
 
     public static class Builder {
         private HttpMethod httpMethod;
         private URI uri;
-        private Map<String, List<String>> requestHeaders;
+        private RequestHeaders requestHeaders = RequestHeaders.EMPTY;
+        private InputStream body;
 
         public Builder() {
 
@@ -48,15 +173,28 @@ public class HttpRequest {
         }
 
         public void setRequestHeaders(Map<String, List<String>> requestHeaders) {
-            this.requestHeaders = requestHeaders;
+            this.requestHeaders = RequestHeaders.of(requestHeaders);
+        }
+
+        /**
+         * Headers still in raw form, decoded lazily by the request.
+         * - offsets holds (nameStart, nameEnd, valueStart, valueEnd) into head for each of the
+         *   count headers; both arrays are owned by the request from here on.
+         */
+        public void setRawHeaders(byte[] head, int[] offsets, int count) {
+            this.requestHeaders = RequestHeaders.of(head, offsets, count);
         }
 
         public void setUri(URI uri) {
             this.uri = uri;
         }
 
+        public void setBody(InputStream body) {
+            this.body = body;
+        }
+
         public HttpRequest build() {
-            return new HttpRequest(httpMethod, uri, requestHeaders);
+            return new HttpRequest(httpMethod, uri, requestHeaders, body, null);
         }
     }
 }
@@ -1,17 +1,14 @@
 package com.server.pojos;
 
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 public class HttpResponse {
-    private final Map<String, List<String>> responseHeaders;
+    public static final String SERVER_NAME = "MyServer";
+    private static final HttpHeaders NO_HEADERS = new HttpHeaders(1).freeze();
+
+    private final HttpHeaders responseHeaders;
     private final int statusCode;
-    private final Optional<Object> entity;
+    private final Object entity;
 
     /**
      * Headers should contain the following:
@@ -19,14 +16,18 @@ public class HttpResponse {
      * Server: < my server >
      * Content-Type: text/plain, application/json etc...
      * Content-Length: size of payload
+     *
+     * Date and Server are added by the ResponseWriter unless set here (Date comes from a
+     * per-second cache), and Content-Length/Transfer-Encoding follow from the entity, so
+     * responses are immutable and can be built once and reused (see HttpHandler's canned errors).
      */
-    private HttpResponse(Map<String, List<String>> responseHeaders, int statusCode, Optional<Object> entity) {
+    private HttpResponse(HttpHeaders responseHeaders, int statusCode, Object entity) {
         this.responseHeaders = responseHeaders;
         this.statusCode = statusCode;
         this.entity = entity;
     }
 
-    public Map<String, List<String>> getResponseHeaders() {
+    public HttpHeaders getResponseHeaders() {
         return responseHeaders;
     }
 
@@ -35,46 +36,52 @@ public class HttpResponse {
     }
 
     public Optional<Object> getEntity() {
-        return entity;
+        return Optional.ofNullable(entity);
     }
 
     @Override
     public String toString() {
-        return "HttpResponse{" + "responseHeaders=" + responseHeaders + ", statusCode=" + statusCode + ", entity=" + entity + '}';
+        return "HttpResponse{" + "responseHeaders=" + responseHeaders + ", statusCode=" + statusCode + ", entity=" + getEntity() + '}';
     }
 
     public static class Builder {
-        private final Map<String, List<String>> responseHeaders;
+        private HttpHeaders responseHeaders;               // allocated on first header
         private int statusCode;
-        private Optional<Object> entity;
-
-        public Builder() {
-            responseHeaders = new HashMap<>();
-            responseHeaders.put("Server", List.of("MyServer"));
-            responseHeaders.put("Date", List.of(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC))));
-
-            entity = Optional.empty();
-        }
+        private Object entity;
 
         public Builder setStatusCode(int statusCode) {
             this.statusCode = statusCode;
             return this;
         }
 
+        // Appends a value; repeated names (e.g. Set-Cookie) are sent as separate header lines
         public Builder addHeader(final String name, final String value) {
-            responseHeaders.put(name, List.of(value));
+            headers().add(name, value);
+            return this;
+        }
+
+        // Replaces all values of the header
+        public Builder setHeader(final String name, final String value) {
+            headers().set(name, value);
             return this;
         }
 
         public Builder setEntity(final Object entity) {
             if (entity != null) {
-                this.entity = Optional.of(entity);
+                this.entity = entity;
             }
             return this;
         }
 
         public HttpResponse build() {
-            return new HttpResponse(responseHeaders, statusCode, entity);
+            return new HttpResponse(responseHeaders == null ? NO_HEADERS : responseHeaders.freeze(), statusCode, entity);
+        }
+
+        private HttpHeaders headers() {
+            if (responseHeaders == null) {
+                responseHeaders = new HttpHeaders();
+            }
+            return responseHeaders;
         }
     }
 }
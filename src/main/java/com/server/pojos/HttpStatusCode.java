@@ -2,14 +2,31 @@ package com.server.pojos;
 
 import java.util.Map;
 
+import static java.util.Map.entry;
+
 /**
  * Map of status code values and meanings.
  */
 public class HttpStatusCode {
-    public static final Map<Integer, String> STATUS_CODES = Map.of(
-            200, "OK",
-            400, "BAD_REQUEST",
-            404, "NOT_FOUND",
-            500, "INTERNAL_SERVER_ERROR"
+    public static final Map<Integer, String> STATUS_CODES = Map.ofEntries(
+            entry(100, "CONTINUE"),
+            entry(101, "SWITCHING_PROTOCOLS"),
+            entry(200, "OK"),
+            entry(304, "NOT_MODIFIED"),
+            entry(400, "BAD_REQUEST"),
+            entry(401, "UNAUTHORIZED"),
+            entry(403, "FORBIDDEN"),
+            entry(404, "NOT_FOUND"),
+            entry(405, "METHOD_NOT_ALLOWED"),
+            entry(413, "PAYLOAD_TOO_LARGE"),
+            entry(414, "URI_TOO_LONG"),
+            entry(426, "UPGRADE_REQUIRED"),
+            entry(429, "TOO_MANY_REQUESTS"),
+            entry(431, "REQUEST_HEADER_FIELDS_TOO_LARGE"),
+            entry(500, "INTERNAL_SERVER_ERROR"),
+            entry(501, "NOT_IMPLEMENTED"),
+            entry(503, "SERVICE_UNAVAILABLE"),
+            entry(504, "GATEWAY_TIMEOUT"),
+            entry(505, "HTTP_VERSION_NOT_SUPPORTED")
     );
 }
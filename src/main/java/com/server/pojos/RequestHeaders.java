@@ -0,0 +1,149 @@
+package com.server.pojos;
+
+import com.server.http.HeaderNames;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * RequestHeaders: the header section of one request, decoded on demand.
+ * - HTTP/1.1 heads keep the raw head bytes and (nameStart, nameEnd, valueStart, valueEnd)
+ *   offsets per header, as the decoder found them; nothing else is built up front.
+ * - first()/all() scan the offsets with an ASCII case-insensitive compare and only create
+ *   Strings for the values they return, so a handler reading one or two headers never pays
+ *   for the rest.
+ * - asMap() materializes the case-insensitive multi-valued map (names interned via
+ *   HeaderNames) on first use and keeps it.
+ * - Heads that already arrive as a map (HTTP/2, hand-built requests) are wrapped as is.
+ */
+final class RequestHeaders {
+    static final RequestHeaders EMPTY = new RequestHeaders(Collections.emptyMap());
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int count;
+    private volatile Map<String, List<String>> map;
+
+    private RequestHeaders(final byte[] bytes, final int[] offsets, final int count) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.count = count;
+    }
+
+    private RequestHeaders(final Map<String, List<String>> map) {
+        this(null, null, 0);
+        this.map = map;
+    }
+
+    static RequestHeaders of(final byte[] bytes, final int[] offsets, final int count) {
+        return count == 0 ? EMPTY : new RequestHeaders(bytes, offsets, count);
+    }
+
+    static RequestHeaders of(final Map<String, List<String>> map) {
+        return map == null ? EMPTY : new RequestHeaders(map);
+    }
+
+    // First value of the named header, or null when absent
+    String first(final String name) {
+        if (bytes == null) {
+            final List<String> values = lookup(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+        for (int i = 0; i < count; i++) {
+            if (nameEquals(i, name)) {
+                return value(i);
+            }
+        }
+        return null;
+    }
+
+    // Every value of the named header in arrival order; empty when absent
+    List<String> all(final String name) {
+        if (bytes == null) {
+            final List<String> values = lookup(name);
+            return values == null ? Collections.emptyList() : values;
+        }
+        List<String> values = Collections.emptyList();
+        for (int i = 0; i < count; i++) {
+            if (nameEquals(i, name)) {
+                if (values.isEmpty()) {
+                    values = new ArrayList<>(1);
+                }
+                values.add(value(i));
+            }
+        }
+        return values;
+    }
+
+    Map<String, List<String>> asMap() {
+        Map<String, List<String>> headers = map;
+        if (headers == null) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < count; i++) {
+                final int base = i * 4;
+                final String name = HeaderNames.intern(bytes, offsets[base], offsets[base + 1] - offsets[base]);
+                headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value(i));
+            }
+            map = headers;
+        }
+        return headers;
+    }
+
+    // Map-backed heads: direct get on case-insensitive maps, else a scan of the keys
+    private List<String> lookup(final String name) {
+        final Map<String, List<String>> headers = map;
+        if (headers instanceof SortedMap<String, List<String>> sorted
+                && sorted.comparator() == String.CASE_INSENSITIVE_ORDER) {
+            return headers.get(name);
+        }
+        final List<String> values = headers.get(name);
+        if (values != null) {
+            return values;
+        }
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private boolean nameEquals(final int index, final String name) {
+        final int start = offsets[index * 4];
+        final int length = offsets[index * 4 + 1] - start;
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int b = bytes[start + i];
+            int c = name.charAt(i);
+            if (b != c) {
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                if (b != c) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private String value(final int index) {
+        final int start = offsets[index * 4 + 2];
+        return new String(bytes, start, offsets[index * 4 + 3] - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.server.push;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broadcaster: fans messages out to a set of push streams (a topic: a chat room, a ticker).
+ * - publish() returns at once; delivery runs on a small shared scheduler (SHARED_THREADS
+ *   daemon threads for every Broadcaster, unless one is given). Messages of one Broadcaster
+ *   are delivered one after another, in publish order; different Broadcasters run in parallel.
+ * - One encoding pass per message and wire format: every subscriber gets a duplicate of the
+ *   same bytes (see Message), so fanning out to thousands of streams copies nothing.
+ * - Per-connection backpressure is the stream's write budget: a subscriber whose unwritten
+ *   bytes would exceed it is evicted (its connection dropped) and unsubscribed; the others
+ *   never wait for it.
+ * - Streams unsubscribe themselves when their connection ends.
+ * - heartbeatInterval (Duration.ZERO: none) sends Message.HEARTBEAT to every subscriber, so
+ *   idle streams stay open through proxies and dead peers are found by failed writes.
+ */
+public class Broadcaster implements AutoCloseable {
+    public static final int SHARED_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 4));
+
+    private final Set<PushStream> subscribers = ConcurrentHashMap.newKeySet();
+    private final Queue<Message> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> heartbeat;        // null without heartbeats
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public Broadcaster() {
+        this(Duration.ZERO);
+    }
+
+    public Broadcaster(Duration heartbeatInterval) {
+        this(heartbeatInterval, Shared.SCHEDULER);
+    }
+
+    public Broadcaster(Duration heartbeatInterval, ScheduledExecutorService scheduler) {
+        if (heartbeatInterval.isNegative()) {
+            throw new IllegalArgumentException("heartbeatInterval must be >= 0");
+        }
+        this.scheduler = scheduler;
+        final long interval = heartbeatInterval.toMillis();
+        this.heartbeat = interval == 0 ? null
+                : scheduler.scheduleAtFixedRate(() -> publish(Message.HEARTBEAT), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Lazily created shared delivery threads (daemon: they never keep the JVM alive)
+    private static final class Shared {
+        static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(SHARED_THREADS, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                final Thread thread = new Thread(task, "push-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Add a stream; it receives every message published from now on. False if it is already closed.
+     */
+    public boolean subscribe(PushStream stream) {
+        if (!subscribers.add(stream)) {
+            return stream.isOpen();
+        }
+        stream.onClose(() -> subscribers.remove(stream));
+        if (!stream.isOpen()) {
+            subscribers.remove(stream);
+            return false;
+        }
+        return true;
+    }
+
+    public void unsubscribe(PushStream stream) {
+        subscribers.remove(stream);
+    }
+
+    // Queue a message for every current subscriber; delivered asynchronously, in order
+    public void publish(Message message) {
+        if (message != Message.HEARTBEAT) {
+            published.increment();
+        }
+        pending.add(message);
+        if (delivering.compareAndSet(false, true)) {
+            scheduler.execute(this::deliverPending);
+        }
+    }
+
+    public void publish(String data) {
+        publish(Message.text(data));
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    // Messages handed to subscribers (one per subscriber and message)
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    // Subscribers dropped as slow consumers
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    // Stop heartbeats; subscribers stay open (close them to end their streams)
+    @Override
+    public void close() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+    }
+
+    private void deliverPending() {
+        do {
+            Message message;
+            while ((message = pending.poll()) != null) {
+                fanOut(message);
+            }
+            delivering.set(false);
+        } while (!pending.isEmpty() && delivering.compareAndSet(false, true));
+    }
+
+    private void fanOut(Message message) {
+        long sent = 0;
+        for (PushStream stream : subscribers) {
+            if (stream.send(message)) {
+                sent++;
+            } else {
+                // A refused send happens once per stream: it is closed (or evicted) from then on
+                subscribers.remove(stream);
+                if (stream.isEvicted()) {
+                    evicted.increment();
+                }
+            }
+        }
+        if (message != Message.HEARTBEAT) {
+            delivered.add(sent);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.server.push;
+
+import com.server.contract.StreamingBody;
+import com.server.pojos.HttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EventStream: a Server-Sent Events response ("text/event-stream") pushed to by the application.
+ * - Return response() from a GET handler (subscribing the stream to a Broadcaster, or keeping
+ *   it to send() to later); events go out as they are sent until close() or the client leaves.
+ * - HTTP/1.1 on the NIO transport: after the head, the stream is detached from the worker;
+ *   each event is one chunk posted to the event loop, so an open stream holds no thread.
+ * - Elsewhere (blocking transport, HTTP/2) it is written as a StreamingBody: the thread that
+ *   writes the response waits for events and flushes each batch. The same write budget applies.
+ * - Heartbeats (Broadcaster) are SSE comments, which clients ignore.
+ */
+public class EventStream extends PushStream implements StreamingBody {
+    public static final String CONTENT_TYPE = "text/event-stream";
+
+    public EventStream() {
+        this(PushPolicy.defaults());
+    }
+
+    public EventStream(PushPolicy policy) {
+        super(policy);
+    }
+
+    /**
+     * 200 response carrying this stream; caches and proxies are told not to store or buffer it.
+     */
+    public HttpResponse response() {
+        return new HttpResponse.Builder()
+                .setStatusCode(200)
+                .addHeader("Content-Type", CONTENT_TYPE)
+                .addHeader("Cache-Control", "no-cache")
+                .addHeader("X-Accel-Buffering", "no")
+                .setEntity(this)
+                .build();
+    }
+
+    // Send one "data:" event
+    public boolean send(String data) {
+        return send(Message.text(data));
+    }
+
+    @Override
+    protected ByteBuffer encode(Message message) {
+        return message.sse();
+    }
+
+    /**
+     * Blocking fallback: attach a queue and write what arrives until the stream closes.
+     * - Evicted streams end with an IOException, which drops the connection.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        final QueueOutlet queue = new QueueOutlet(policy.getMaxQueuedBytes());
+        attach(queue, Runnable::run);
+        try {
+            queue.drainTo(out);
+        } finally {
+            closed();
+        }
+    }
+
+    /**
+     * PushOutlet drained by the thread writing the response.
+     */
+    private static final class QueueOutlet implements PushOutlet {
+        private final long maxQueuedBytes;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private long queued;                           // bytes in the queue and being written
+        private boolean closing;
+        private boolean aborted;
+
+        QueueOutlet(long maxQueuedBytes) {
+            this.maxQueuedBytes = maxQueuedBytes;
+        }
+
+        @Override
+        public boolean offer(ByteBuffer bytes) {
+            lock.lock();
+            try {
+                if (closing || aborted || (queued > 0 && queued + bytes.remaining() > maxQueuedBytes)) {
+                    return false;
+                }
+                queue.add(bytes);
+                queued += bytes.remaining();
+                available.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                closing = true;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void abort() {
+            lock.lock();
+            try {
+                aborted = true;
+                queue.clear();
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void drainTo(OutputStream out) throws IOException {
+            final byte[] copy = new byte[8 * 1024];
+            while (true) {
+                final ArrayDeque<ByteBuffer> batch;
+                lock.lock();
+                try {
+                    while (queue.isEmpty() && !closing && !aborted) {
+                        available.await();
+                    }
+                    if (aborted) {
+                        throw new IOException("Event stream evicted");
+                    }
+                    if (queue.isEmpty()) {
+                        return;                        // closed and everything written
+                    }
+                    batch = new ArrayDeque<>(queue);
+                    queue.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for events");
+                } finally {
+                    lock.unlock();
+                }
+
+                long written = 0;
+                for (ByteBuffer bytes : batch) {
+                    written += bytes.remaining();
+                    while (bytes.hasRemaining()) {
+                        final int n = Math.min(bytes.remaining(), copy.length);
+                        bytes.get(copy, 0, n);
+                        out.write(copy, 0, n);
+                    }
+                }
+                out.flush();
+                lock.lock();
+                try {
+                    queued -= written;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.server.push;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Message: one payload pushed to any number of streams, serialized at most once per format.
+ * - sse() is the Server-Sent Events form ("event:", "id:", one "data:" line per payload line,
+ *   blank line); webSocket() is an unmasked server frame (text, or binary for byte payloads).
+ * - Both are built on first use and then shared read-only: every subscriber of a broadcast
+ *   gets a duplicate() of the same bytes, so fan-out costs no copying or encoding.
+ * - Binary payloads travel base64-encoded over SSE, which is text only.
+ * - HEARTBEAT is an SSE comment line and a WebSocket ping: it keeps idle connections (and
+ *   proxies in front of them) open and surfaces dead peers through failed writes.
+ */
+public final class Message {
+    public static final Message HEARTBEAT = new Message(null, null, null, null, true);
+
+    private final String event;
+    private final String id;
+    private final String text;                         // null for binary payloads
+    private final byte[] binary;
+    private final boolean heartbeat;
+    private volatile ByteBuffer sse;                   // encoded on first use (idempotent)
+    private volatile ByteBuffer webSocket;
+
+    private Message(String event, String id, String text, byte[] binary, boolean heartbeat) {
+        this.event = event;
+        this.id = id;
+        this.text = text;
+        this.binary = binary;
+        this.heartbeat = heartbeat;
+    }
+
+    public static Message text(String data) {
+        return new Message(null, null, requireText(data), null, false);
+    }
+
+    // The array is kept, not copied: it must not change after this call
+    public static Message binary(byte[] data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        return new Message(null, null, null, data, false);
+    }
+
+    /**
+     * SSE event with a type and id (either may be null); WebSocket subscribers get the data as text.
+     */
+    public static Message event(String event, String id, String data) {
+        return new Message(requireField(event, "event"), requireField(id, "id"), requireText(data), null, false);
+    }
+
+    // Encoded SSE event (read-only, position 0); callers send duplicates
+    ByteBuffer sse() {
+        ByteBuffer encoded = sse;
+        if (encoded == null) {
+            encoded = ByteBuffer.wrap(encodeSse()).asReadOnlyBuffer();
+            sse = encoded;
+        }
+        return encoded;
+    }
+
+    // Encoded WebSocket frame (read-only, position 0); callers send duplicates
+    ByteBuffer webSocket() {
+        ByteBuffer encoded = webSocket;
+        if (encoded == null) {
+            if (heartbeat) {
+                encoded = WebSocketFrames.encode(WebSocketFrames.PING, new byte[0]);
+            } else if (text != null) {
+                encoded = WebSocketFrames.encode(WebSocketFrames.TEXT, text.getBytes(StandardCharsets.UTF_8));
+            } else {
+                encoded = WebSocketFrames.encode(WebSocketFrames.BINARY, binary);
+            }
+            encoded = encoded.asReadOnlyBuffer();
+            webSocket = encoded;
+        }
+        return encoded;
+    }
+
+    private byte[] encodeSse() {
+        if (heartbeat) {
+            return ":\n\n".getBytes(StandardCharsets.US_ASCII);
+        }
+        final StringBuilder out = new StringBuilder(32 + (text != null ? text.length() : binary.length * 4 / 3));
+        if (event != null) {
+            out.append("event: ").append(event).append('\n');
+        }
+        if (id != null) {
+            out.append("id: ").append(id).append('\n');
+        }
+        final String data = text != null ? text : Base64.getEncoder().encodeToString(binary);
+        // Every line break (CRLF, CR or LF) starts a new data line; the client joins them with LF
+        int start = 0;
+        for (int i = 0; i <= data.length(); i++) {
+            final char c = i < data.length() ? data.charAt(i) : '\n';
+            if (c == '\r' || c == '\n') {
+                out.append("data: ").append(data, start, i).append('\n');
+                if (c == '\r' && i + 1 < data.length() && data.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        return out.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String requireText(String data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        return data;
+    }
+
+    // Field values end at the line break, so they cannot contain one
+    private static String requireField(String value, String name) {
+        if (value != null && (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)) {
+            throw new IllegalArgumentException(name + " must not contain line breaks");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return heartbeat ? "Message{heartbeat}"
+                : "Message{" + "event=" + event + ", id=" + id + ", " + (text != null ? "text=" + text.length() + " chars"
+                : "binary=" + binary.length + " bytes") + '}';
+    }
+}
@@ -0,0 +1,20 @@
+package com.server.push;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PushOutlet: the transport side of an attached PushStream.
+ * - offer() queues bytes for the client without blocking. The buffer is shared with other
+ *   subscribers (a duplicate of one encoded message) and must not be modified. Returns false
+ *   when the bytes do not fit the stream's write budget, or the connection is gone.
+ * - close() ends the stream once the bytes offered so far are written; abort() drops the
+ *   connection at once (slow-consumer eviction).
+ * - The transport reports the end of the connection with PushStream.closed().
+ */
+public interface PushOutlet {
+    boolean offer(ByteBuffer bytes);
+
+    void close();
+
+    void abort();
+}
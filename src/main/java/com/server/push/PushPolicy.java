@@ -0,0 +1,64 @@
+package com.server.push;
+
+/**
+ * PushPolicy: limits of one long-lived push stream (EventStream or WebSocket).
+ * - maxQueuedBytes: bytes sent to the stream but not yet taken by the client; a send that
+ *   would go beyond it evicts the stream as a slow consumer (its connection is closed) instead
+ *   of buffering without bound. A single message on an otherwise drained stream always fits.
+ * - maxMessageSize: largest WebSocket message accepted from the client (fragments included);
+ *   larger ones close the socket with 1009.
+ */
+public class PushPolicy {
+    public static final long DEFAULT_MAX_QUEUED_BYTES = 1024 * 1024;
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 64 * 1024;
+
+    private final long maxQueuedBytes;
+    private final int maxMessageSize;
+
+    private PushPolicy(Builder builder) {
+        this.maxQueuedBytes = builder.maxQueuedBytes;
+        this.maxMessageSize = builder.maxMessageSize;
+    }
+
+    public static PushPolicy defaults() {
+        return new Builder().build();
+    }
+
+    public long getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    @Override
+    public String toString() {
+        return "PushPolicy{" + "maxQueuedBytes=" + maxQueuedBytes + ", maxMessageSize=" + maxMessageSize + '}';
+    }
+
+    public static class Builder {
+        private long maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+        private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+
+        public Builder setMaxQueuedBytes(long maxQueuedBytes) {
+            if (maxQueuedBytes < 1) {
+                throw new IllegalArgumentException("maxQueuedBytes must be >= 1");
+            }
+            this.maxQueuedBytes = maxQueuedBytes;
+            return this;
+        }
+
+        public Builder setMaxMessageSize(int maxMessageSize) {
+            if (maxMessageSize < 1) {
+                throw new IllegalArgumentException("maxMessageSize must be >= 1");
+            }
+            this.maxMessageSize = maxMessageSize;
+            return this;
+        }
+
+        public PushPolicy build() {
+            return new PushPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.server.push;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PushStream: a long-lived response the server keeps writing to after the handler returned.
+ * - Returned as the entity of the handler's response (EventStream, WebSocket); the transport
+ *   sends the head and then attaches a PushOutlet, through which every send() goes out.
+ * - send() never blocks: bytes are handed to the outlet, which bounds what is still unwritten
+ *   (PushPolicy.maxQueuedBytes). A send over that budget evicts the stream: its connection is
+ *   dropped and the stream closes, so one slow client cannot stall a broadcast.
+ * - Sends made before the transport attaches (between the handler subscribing the stream and
+ *   returning it) are kept, within the same budget, and go out first.
+ * - close() ends the stream gracefully; the transport reports the end of the connection with
+ *   closed(), which runs the onClose() callbacks (Broadcaster uses them to unsubscribe).
+ * - All state is guarded by one lock, held while offering so the order of sends is kept.
+ */
+public abstract class PushStream {
+    protected final PushPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<ByteBuffer> early = new ArrayDeque<>(2);       // sends before attach
+    private final List<Runnable> closeCallbacks = new ArrayList<>(1);
+    private long earlyBytes;
+    private PushOutlet outlet;                         // null until the transport attaches
+    private boolean closing;                           // close() called: nothing more is sent
+    private boolean done;                              // connection gone; callbacks ran
+    private boolean evicted;
+
+    protected PushStream(PushPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * Queue a message for this client; false once the stream is closed or was just evicted.
+     */
+    public boolean send(Message message) {
+        return offer(encode(message));
+    }
+
+    public PushPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return !closing && !done;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // True if the stream was dropped for falling behind
+    public boolean isEvicted() {
+        lock.lock();
+        try {
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * End the stream once what was sent so far is written.
+     */
+    public void close() {
+        final PushOutlet target;
+        lock.lock();
+        try {
+            if (closing || done) {
+                return;
+            }
+            final ByteBuffer last = closingBytes();
+            if (last != null) {
+                append(last, true);
+            }
+            closing = true;
+            target = outlet;
+        } finally {
+            lock.unlock();
+        }
+        if (target != null) {
+            target.close();
+        }
+    }
+
+    // Run when the connection ends (at once if it already has)
+    public void onClose(Runnable callback) {
+        lock.lock();
+        try {
+            if (!done) {
+                closeCallbacks.add(callback);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        callback.run();
+    }
+
+    /**
+     * Transport side: the head is sent, bytes can flow. Callbacks of the stream (WebSocket
+     * listener events) run on the given executor.
+     */
+    public void attach(PushOutlet outlet, Executor callbacks) {
+        final boolean overflow;
+        final boolean close;
+        lock.lock();
+        try {
+            this.outlet = outlet;
+            boolean accepted = !evicted;
+            for (ByteBuffer bytes : early) {
+                accepted = accepted && outlet.offer(bytes);
+            }
+            early.clear();
+            earlyBytes = 0;
+            overflow = !accepted;
+            if (overflow) {
+                evicted = true;
+                closing = true;
+            }
+            close = closing && !overflow;
+        } finally {
+            lock.unlock();
+        }
+        if (overflow) {
+            outlet.abort();
+            return;
+        }
+        if (close) {
+            outlet.close();
+        }
+        attached(callbacks);
+    }
+
+    // Transport side: bytes from the client (default: ignored)
+    public void receive(ByteBuffer input) {
+        input.position(input.limit());
+    }
+
+    // Transport side: the server is draining; end the stream gracefully
+    public void shutdown() {
+        close();
+    }
+
+    // Transport side: the connection is gone (closed, failed or evicted)
+    public void closed() {
+        final List<Runnable> callbacks;
+        lock.lock();
+        try {
+            if (done) {
+                return;
+            }
+            done = true;
+            early.clear();
+            callbacks = new ArrayList<>(closeCallbacks);
+            closeCallbacks.clear();
+        } finally {
+            lock.unlock();
+        }
+        ended();
+        callbacks.forEach(Runnable::run);
+    }
+
+    // The bytes of this message in the stream's wire format (shared, read-only)
+    protected abstract ByteBuffer encode(Message message);
+
+    // Bytes that end the stream (WebSocket close frame), or null
+    protected ByteBuffer closingBytes() {
+        return null;
+    }
+
+    protected void attached(Executor callbacks) {
+    }
+
+    protected void ended() {
+    }
+
+    // Offer encoded bytes (messages, control frames); false if closed, or evicted by this offer
+    protected final boolean offer(ByteBuffer bytes) {
+        final PushOutlet target;
+        lock.lock();
+        try {
+            if (closing || done) {
+                return false;
+            }
+            if (append(bytes, false)) {
+                return true;
+            }
+            target = outlet;
+        } finally {
+            lock.unlock();
+        }
+        if (target != null) {
+            target.abort();
+        }
+        return false;
+    }
+
+    // Under the lock: hand the bytes to the outlet or keep them until attach; false = evicted
+    private boolean append(ByteBuffer bytes, boolean force) {
+        if (outlet != null) {
+            if (outlet.offer(bytes.duplicate()) || force) {
+                return true;
+            }
+        } else if (force || earlyBytes == 0 || earlyBytes + bytes.remaining() <= policy.getMaxQueuedBytes()) {
+            early.add(bytes.duplicate());
+            earlyBytes += bytes.remaining();
+            return true;
+        }
+        evicted = true;
+        closing = true;
+        return false;
+    }
+}
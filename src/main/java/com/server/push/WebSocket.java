@@ -0,0 +1,310 @@
+package com.server.push;
+
+import com.server.contract.HttpMethod;
+import com.server.logging.Logger;
+import com.server.logging.Logging;
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebSocket: one server side WebSocket (RFC 6455), upgraded from an HTTP/1.1 GET.
+ * - accept() checks the handshake headers and returns the 101 response carrying the socket
+ *   (or 400/426 when the request cannot be upgraded); the handler returns it as is.
+ * - Needs the NIO transport: after the 101 the connection's reads go to receive(), which
+ *   decodes frames on the event loop, and sends are posted like any PushStream (bounded by
+ *   PushPolicy.maxQueuedBytes, slow clients are evicted). No thread is held per socket.
+ * - Pings are answered with pongs; fragmented messages are reassembled up to
+ *   PushPolicy.maxMessageSize (1009 beyond); text must be valid UTF-8 (1007).
+ * - Listener callbacks run serially on the workers (see WebSocketListener).
+ * - close() sends a close frame and closes the connection once it is written; a close frame
+ *   from the client is echoed the same way. Draining servers close with 1001.
+ */
+public final class WebSocket extends PushStream {
+    public static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    public static final String VERSION = "13";
+    private static final Logger LOG = Logging.getLogger(WebSocket.class);
+    private static final int KEY_LENGTH = 16;
+
+    private final WebSocketListener listener;
+    private final WebSocketFrames.Decoder decoder;     // transport thread only
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private volatile Executor callbacks;               // set on attach; null: never opened
+    private volatile int closeCode = WebSocketFrames.ABNORMAL_CLOSURE;     // reported to onClose
+    private volatile String closeReason = "";
+    private byte[] message;                            // fragments of the current message (transport thread)
+    private int messageLength;
+    private int messageOpcode;                         // TEXT/BINARY while a fragmented message is open, else 0
+    private boolean closeReceived;                     // transport thread
+
+    private WebSocket(WebSocketListener listener, PushPolicy policy) {
+        super(policy);
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.listener = listener;
+        this.decoder = new WebSocketFrames.Decoder(policy.getMaxMessageSize());
+    }
+
+    public static HttpResponse accept(HttpRequest request, WebSocketListener listener) {
+        return accept(request, listener, PushPolicy.defaults());
+    }
+
+    /**
+     * Answer a WebSocket handshake: 101 with Sec-WebSocket-Accept and the socket as entity.
+     * - 426 (with the supported version) for other protocol versions, 400 for anything that
+     *   is not a valid GET upgrade request.
+     */
+    public static HttpResponse accept(HttpRequest request, WebSocketListener listener, PushPolicy policy) {
+        final String key = request.getHeader("Sec-WebSocket-Key");
+        if (request.getHttpMethod() != HttpMethod.GET || !request.hasHeaderToken("Upgrade", "websocket")
+                || !request.hasHeaderToken("Connection", "upgrade") || !isValidKey(key)) {
+            return new HttpResponse.Builder()
+                    .setStatusCode(400)
+                    .setEntity("WebSocket upgrade required....")
+                    .build();
+        }
+        if (!VERSION.equals(request.getHeader("Sec-WebSocket-Version"))) {
+            return new HttpResponse.Builder()
+                    .setStatusCode(426)
+                    .addHeader("Sec-WebSocket-Version", VERSION)
+                    .setEntity("Unsupported WebSocket version....")
+                    .build();
+        }
+        return new HttpResponse.Builder()
+                .setStatusCode(101)
+                .addHeader("Upgrade", "websocket")
+                .addHeader("Connection", "Upgrade")
+                .addHeader("Sec-WebSocket-Accept", acceptKey(key))
+                .setEntity(new WebSocket(listener, policy))
+                .build();
+    }
+
+    // Sec-WebSocket-Accept for a client key: base64(SHA-1(key + GUID))
+    public static String acceptKey(String key) {
+        try {
+            final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    public boolean sendText(String text) {
+        return send(Message.text(text));
+    }
+
+    // The array is kept, not copied: it must not change after this call
+    public boolean sendBinary(byte[] data) {
+        return send(Message.binary(data));
+    }
+
+    /**
+     * Close with a status code (1000 normal, 1001 going away, 1008 policy violation, ...) and reason.
+     */
+    public void close(int code, String reason) {
+        if (!WebSocketFrames.isValidCloseCode(code)) {
+            throw new IllegalArgumentException("Invalid close code " + code);
+        }
+        closeWith(code, reason == null ? "" : reason);
+    }
+
+    @Override
+    public void close() {
+        closeWith(WebSocketFrames.NORMAL_CLOSURE, "");
+    }
+
+    @Override
+    public void shutdown() {
+        closeWith(WebSocketFrames.GOING_AWAY, "Server shutting down");
+    }
+
+    @Override
+    protected ByteBuffer encode(Message message) {
+        return message.webSocket();
+    }
+
+    @Override
+    protected ByteBuffer closingBytes() {
+        final byte[] payload = closeCode == WebSocketFrames.NO_STATUS ? new byte[0]
+                : WebSocketFrames.closePayload(closeCode, closeReason.getBytes(StandardCharsets.UTF_8));
+        return WebSocketFrames.encode(WebSocketFrames.CLOSE, payload);
+    }
+
+    // Transport thread: decode client frames
+    @Override
+    public void receive(ByteBuffer input) {
+        if (closeReceived) {
+            input.position(input.limit());
+            return;
+        }
+        try {
+            decoder.decode(input, this::onFrame);
+        } catch (WebSocketFrames.ProtocolException e) {
+            input.position(input.limit());
+            LOG.debug(() -> "WebSocket protocol error: " + e.getMessage());
+            closeReceived = true;
+            closeWith(e.getCloseCode(), e.getMessage());
+        }
+    }
+
+    @Override
+    protected void attached(Executor callbacks) {
+        this.callbacks = callbacks;
+        dispatch(() -> listener.onOpen(this));
+    }
+
+    @Override
+    protected void ended() {
+        if (callbacks != null) {
+            final int code = closeCode;
+            final String reason = closeReason;
+            dispatch(() -> listener.onClose(this, code, reason));
+        }
+    }
+
+    // The first close (ours or the client's) decides the code reported to onClose
+    private void closeWith(int code, String reason) {
+        if (isOpen()) {
+            closeCode = code;
+            closeReason = reason;
+        }
+        super.close();
+    }
+
+    private void onFrame(boolean fin, int opcode, byte[] payload) throws WebSocketFrames.ProtocolException {
+        if (closeReceived) {
+            return;                                    // nothing may follow the client's close frame
+        }
+        switch (opcode) {
+            case WebSocketFrames.PING -> offer(WebSocketFrames.encode(WebSocketFrames.PONG, payload));
+            case WebSocketFrames.PONG -> {
+                // Reply to a heartbeat: the read itself kept the connection active
+            }
+            case WebSocketFrames.CLOSE -> onCloseFrame(payload);
+            case WebSocketFrames.TEXT, WebSocketFrames.BINARY -> {
+                if (messageOpcode != 0) {
+                    throw new WebSocketFrames.ProtocolException(WebSocketFrames.PROTOCOL_ERROR, "Expected a continuation frame");
+                }
+                if (fin) {
+                    deliver(opcode, payload, payload.length);
+                } else {
+                    messageOpcode = opcode;
+                    message = payload;
+                    messageLength = payload.length;
+                }
+            }
+            default -> {
+                if (messageOpcode == 0) {
+                    throw new WebSocketFrames.ProtocolException(WebSocketFrames.PROTOCOL_ERROR, "Unexpected continuation frame");
+                }
+                if ((long) messageLength + payload.length > policy.getMaxMessageSize()) {
+                    throw new WebSocketFrames.ProtocolException(WebSocketFrames.MESSAGE_TOO_BIG,
+                            "Message exceeds " + policy.getMaxMessageSize() + " bytes");
+                }
+                if (messageLength + payload.length > message.length) {
+                    message = Arrays.copyOf(message, Math.max(messageLength + payload.length, message.length * 2));
+                }
+                System.arraycopy(payload, 0, message, messageLength, payload.length);
+                messageLength += payload.length;
+                if (fin) {
+                    final int complete = messageOpcode;
+                    messageOpcode = 0;
+                    final byte[] bytes = message;
+                    message = null;
+                    deliver(complete, bytes, messageLength);
+                }
+            }
+        }
+    }
+
+    private void onCloseFrame(byte[] payload) throws WebSocketFrames.ProtocolException {
+        if (payload.length == 1) {
+            throw new WebSocketFrames.ProtocolException(WebSocketFrames.PROTOCOL_ERROR, "Invalid close frame");
+        }
+        closeReceived = true;
+        if (payload.length == 0) {
+            closeWith(WebSocketFrames.NO_STATUS, "");
+            return;
+        }
+        final int code = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+        if (!WebSocketFrames.isValidCloseCode(code)) {
+            throw new WebSocketFrames.ProtocolException(WebSocketFrames.PROTOCOL_ERROR, "Invalid close code " + code);
+        }
+        closeWith(code, decodeText(payload, 2, payload.length - 2));
+    }
+
+    private void deliver(int opcode, byte[] bytes, int length) throws WebSocketFrames.ProtocolException {
+        if (opcode == WebSocketFrames.TEXT) {
+            final String text = decodeText(bytes, 0, length);
+            dispatch(() -> listener.onText(this, text));
+        } else {
+            final ByteBuffer data = ByteBuffer.wrap(bytes, 0, length).slice();
+            dispatch(() -> listener.onBinary(this, data));
+        }
+    }
+
+    private static String decodeText(byte[] bytes, int offset, int length) throws WebSocketFrames.ProtocolException {
+        try {
+            final CharBuffer text = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, offset, length));
+            return text.toString();
+        } catch (CharacterCodingException e) {
+            throw new WebSocketFrames.ProtocolException(WebSocketFrames.INVALID_PAYLOAD, "Invalid UTF-8");
+        }
+    }
+
+    // Listener events run one at a time, in order, on the callback executor
+    private void dispatch(Runnable event) {
+        events.add(event);
+        if (dispatching.compareAndSet(false, true)) {
+            try {
+                callbacks.execute(this::runEvents);
+            } catch (RejectedExecutionException e) {
+                runEvents();
+            }
+        }
+    }
+
+    private void runEvents() {
+        do {
+            Runnable event;
+            while ((event = events.poll()) != null) {
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    LOG.error("WebSocket listener failed", e);
+                }
+            }
+            dispatching.set(false);
+        } while (!events.isEmpty() && dispatching.compareAndSet(false, true));
+    }
+
+    private static boolean isValidKey(String key) {
+        if (key == null) {
+            return false;
+        }
+        try {
+            return Base64.getDecoder().decode(key.trim()).length == KEY_LENGTH;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.server.push;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * WebSocketFrames: RFC 6455 frame layout.
+ * - encode() builds an unmasked server frame with FIN set (the server never fragments).
+ * - Decoder parses client frames incrementally from whatever bytes arrive, unmasking the
+ *   payload as it goes; a frame split across reads resumes where it stopped, and its
+ *   payload array grows with the bytes received rather than the declared length.
+ * - Protocol violations (unmasked client frame, reserved bits, fragmented or oversized
+ *   control frame, unknown opcode, payload beyond the limit) raise ProtocolException with
+ *   the close code to answer with.
+ */
+final class WebSocketFrames {
+    static final int CONTINUATION = 0x0;
+    static final int TEXT = 0x1;
+    static final int BINARY = 0x2;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+
+    static final int NORMAL_CLOSURE = 1000;
+    static final int GOING_AWAY = 1001;
+    static final int PROTOCOL_ERROR = 1002;
+    static final int NO_STATUS = 1005;
+    static final int ABNORMAL_CLOSURE = 1006;
+    static final int INVALID_PAYLOAD = 1007;
+    static final int MESSAGE_TOO_BIG = 1009;
+
+    private static final int MAX_CONTROL_PAYLOAD = 125;
+    private static final int INITIAL_PAYLOAD_SIZE = 8 * 1024;
+
+    private WebSocketFrames() {
+    }
+
+    static ByteBuffer encode(final int opcode, final byte[] payload) {
+        final int length = payload.length;
+        final int header = length <= 125 ? 2 : length <= 0xFFFF ? 4 : 10;
+        final ByteBuffer frame = ByteBuffer.allocate(header + length);
+        frame.put((byte) (0x80 | opcode));
+        if (length <= 125) {
+            frame.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            frame.put((byte) 126).putShort((short) length);
+        } else {
+            frame.put((byte) 127).putLong(length);
+        }
+        return frame.put(payload).flip();
+    }
+
+    /**
+     * Codes an endpoint may put in a close frame (RFC 6455 section 7.4): the defined ones
+     * except 1004 (reserved), 1005/1006/1015 (only ever reported locally), and the
+     * registered (3000-3999) and private (4000-4999) ranges.
+     */
+    static boolean isValidCloseCode(final int code) {
+        return (code >= 1000 && code <= 1003) || (code >= 1007 && code <= 1014) || (code >= 3000 && code <= 4999);
+    }
+
+    // Close frame payload: the code, then the UTF-8 reason (truncated to fit a control frame)
+    static byte[] closePayload(final int code, final byte[] reason) {
+        final int length = Math.min(reason.length, MAX_CONTROL_PAYLOAD - 2);
+        final byte[] payload = new byte[2 + length];
+        payload[0] = (byte) (code >> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(reason, 0, payload, 2, length);
+        return payload;
+    }
+
+    static final class ProtocolException extends Exception {
+        private final int closeCode;
+
+        ProtocolException(int closeCode, String message) {
+            super(message, null, false, false);
+            this.closeCode = closeCode;
+        }
+
+        int getCloseCode() {
+            return closeCode;
+        }
+    }
+
+    interface FrameListener {
+        void onFrame(boolean fin, int opcode, byte[] payload) throws ProtocolException;
+    }
+
+    /**
+     * Incremental client frame parser; one per connection, driven by the transport thread.
+     */
+    static final class Decoder {
+        private final int maxPayload;
+        private final byte[] head = new byte[14];      // header bytes collected so far
+        private int headLength;
+        private byte[] payload;                        // current frame so far, grown as bytes arrive
+        private int payloadLength;
+        private int payloadSize = -1;                  // declared length; -1 while reading a header
+        private int mask;
+        private boolean fin;
+        private int opcode;
+
+        Decoder(int maxPayload) {
+            this.maxPayload = maxPayload;
+        }
+
+        // Consume every complete frame in the input (and the start of the next one)
+        void decode(final ByteBuffer input, final FrameListener listener) throws ProtocolException {
+            while (input.hasRemaining()) {
+                if (payloadSize < 0) {
+                    if (!readHeader(input)) {
+                        return;
+                    }
+                    if (payloadSize > 0) {
+                        continue;
+                    }
+                } else {
+                    final int n = Math.min(input.remaining(), payloadSize - payloadLength);
+                    if (payloadLength + n > payload.length) {
+                        // Double, but never past the declared length
+                        final long larger = Math.max((long) payload.length * 2, payloadLength + n);
+                        payload = Arrays.copyOf(payload, (int) Math.min(larger, payloadSize));
+                    }
+                    for (int i = 0; i < n; i++) {
+                        final int index = payloadLength + i;
+                        payload[index] = (byte) (input.get() ^ (mask >>> (24 - 8 * (index & 3))));
+                    }
+                    payloadLength += n;
+                    if (payloadLength < payloadSize) {
+                        return;
+                    }
+                }
+                final byte[] complete = payload;
+                payload = null;
+                payloadLength = 0;
+                payloadSize = -1;
+                headLength = 0;
+                listener.onFrame(fin, opcode, complete);
+            }
+        }
+
+        // Collect the header; true once it is complete and the payload can be read
+        private boolean readHeader(final ByteBuffer input) throws ProtocolException {
+            while (input.hasRemaining()) {
+                head[headLength++] = input.get();
+                final int needed = headerLength();
+                if (needed < 0 || headLength < needed) {
+                    continue;
+                }
+                parseHeader(needed);
+                return true;
+            }
+            return false;
+        }
+
+        // Full header length once the second byte is known, -1 before
+        private int headerLength() {
+            if (headLength < 2) {
+                return -1;
+            }
+            final int length = head[1] & 0x7F;
+            return 2 + (length == 126 ? 2 : length == 127 ? 8 : 0) + 4;
+        }
+
+        private void parseHeader(final int length) throws ProtocolException {
+            final int first = head[0] & 0xFF;
+            final int second = head[1] & 0xFF;
+            if ((first & 0x70) != 0) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Reserved bits set");
+            }
+            if ((second & 0x80) == 0) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Client frames must be masked");
+            }
+            fin = (first & 0x80) != 0;
+            opcode = first & 0x0F;
+            final ByteBuffer header = ByteBuffer.wrap(head, 2, length - 2);
+            final long size = switch (second & 0x7F) {
+                case 126 -> header.getShort() & 0xFFFF;
+                case 127 -> header.getLong();
+                default -> second & 0x7F;
+            };
+            mask = header.getInt();
+
+            final boolean control = (opcode & 0x8) != 0;
+            if (control && (!fin || size > MAX_CONTROL_PAYLOAD)) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Invalid control frame");
+            }
+            if (opcode > BINARY && !control || opcode > PONG) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Unknown opcode " + opcode);
+            }
+            if (size < 0 || size > maxPayload) {
+                throw new ProtocolException(MESSAGE_TOO_BIG, "Frame exceeds " + maxPayload + " bytes");
+            }
+            // A declared length alone pins no memory: the array grows with the bytes received
+            payloadSize = (int) size;
+            payload = new byte[(int) Math.min(size, INITIAL_PAYLOAD_SIZE)];
+            payloadLength = 0;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.server.push;
+
+import java.nio.ByteBuffer;
+
+/**
+ * WebSocketListener: application callbacks of one WebSocket.
+ * - Called one at a time per socket, in order, on a worker thread (never on an event loop),
+ *   so a listener may block briefly or send from within a callback.
+ * - onClose() comes last and exactly once: with the client's close code, 1006 when the
+ *   connection dropped without a close frame, or the server's code when it closed first.
+ */
+public interface WebSocketListener {
+    default void onOpen(WebSocket socket) {
+    }
+
+    default void onText(WebSocket socket, String text) {
+    }
+
+    default void onBinary(WebSocket socket, ByteBuffer data) {
+    }
+
+    default void onClose(WebSocket socket, int code, String reason) {
+    }
+}
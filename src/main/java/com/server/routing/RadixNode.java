@@ -0,0 +1,136 @@
+package com.server.routing;
+
+import java.util.Arrays;
+
+/**
+ * RadixNode: one node of a per-method route tree.
+ * - prefix: static text this node consumes (compressed: shared prefixes are split on insert).
+ * - Static children are kept sorted by first character and found by binary search.
+ * - paramChild consumes one path segment ("{name}"); wildcardChild consumes the rest ("*").
+ * - route is set when a registered pattern ends at this node.
+ */
+final class RadixNode {
+    String prefix;
+    char[] indices = new char[0];
+    RadixNode[] children = new RadixNode[0];
+    RadixNode paramChild;
+    String paramName;
+    RadixNode wildcardChild;
+    Route route;
+
+    RadixNode(String prefix) {
+        this.prefix = prefix;
+    }
+
+    int childIndex(char first) {
+        return Arrays.binarySearch(indices, first);
+    }
+
+    /**
+     * Insert static text below this node, splitting an existing child on a partial overlap.
+     * - Returns the node at which the text ends.
+     */
+    RadixNode insertStatic(String text) {
+        if (text.isEmpty()) {
+            return this;
+        }
+        final int index = childIndex(text.charAt(0));
+        if (index < 0) {
+            final RadixNode child = new RadixNode(text);
+            addChild(-index - 1, child);
+            return child;
+        }
+
+        RadixNode child = children[index];
+        final int common = commonPrefixLength(child.prefix, text);
+        if (common < child.prefix.length()) {
+            final RadixNode split = new RadixNode(child.prefix.substring(0, common));
+            child.prefix = child.prefix.substring(common);
+            split.indices = new char[]{child.prefix.charAt(0)};
+            split.children = new RadixNode[]{child};
+            children[index] = split;
+            child = split;
+        }
+        return child.insertStatic(text.substring(common));
+    }
+
+    RadixNode param(String name) {
+        if (paramChild == null) {
+            paramChild = new RadixNode("");
+            paramName = name;
+        } else if (!paramName.equals(name)) {
+            throw new IllegalArgumentException("Conflicting path parameter names {" + paramName + "} and {" + name + "}");
+        }
+        return paramChild;
+    }
+
+    RadixNode wildcard() {
+        if (wildcardChild == null) {
+            wildcardChild = new RadixNode("");
+        }
+        return wildcardChild;
+    }
+
+    /**
+     * Find the route for path[pos..] below this node (this node's prefix already matched).
+     * - Priority at every level: static child, then parameter, then wildcard, with backtracking.
+     * - Walks the path in place: no substrings or other allocation.
+     */
+    Route find(String path, int pos) {
+        final int length = path.length();
+        if (pos == length) {
+            if (route != null) {
+                return route;
+            }
+            return wildcardChild != null ? wildcardChild.route : null;
+        }
+
+        final int index = childIndex(path.charAt(pos));
+        if (index >= 0) {
+            final RadixNode child = children[index];
+            if (path.startsWith(child.prefix, pos)) {
+                final Route found = child.find(path, pos + child.prefix.length());
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+
+        if (paramChild != null) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > pos) {
+                final Route found = paramChild.find(path, end);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+
+        return wildcardChild != null ? wildcardChild.route : null;
+    }
+
+    private void addChild(int at, RadixNode child) {
+        final char[] newIndices = new char[indices.length + 1];
+        final RadixNode[] newChildren = new RadixNode[children.length + 1];
+        System.arraycopy(indices, 0, newIndices, 0, at);
+        System.arraycopy(children, 0, newChildren, 0, at);
+        newIndices[at] = child.prefix.charAt(0);
+        newChildren[at] = child;
+        System.arraycopy(indices, at, newIndices, at + 1, indices.length - at);
+        System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+        indices = newIndices;
+        children = newChildren;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        final int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
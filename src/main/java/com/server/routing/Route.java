@@ -0,0 +1,114 @@
+package com.server.routing;
+
+import com.server.contract.RequestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Route: a registered pattern compiled into segments.
+ * - Segments are static text, "{name}" (one path segment) or a trailing "*" (rest of the path).
+ * - Parameter values are only extracted once the tree lookup has picked this route.
+ */
+final class Route {
+    enum Kind { STATIC, PARAM, WILDCARD }
+
+    record Segment(Kind kind, String text) {
+    }
+
+    final String pattern;
+    final RequestRunner runner;
+    final List<Segment> segments;
+    final int paramCount;
+    final RouteMatch staticMatch;                      // shared result when the route has no parameters
+
+    Route(String pattern, RequestRunner runner) {
+        this.pattern = pattern;
+        this.runner = runner;
+        this.segments = parse(pattern);
+        this.paramCount = (int) segments.stream().filter(segment -> segment.kind() != Kind.STATIC).count();
+        this.staticMatch = paramCount == 0 ? new RouteMatch(pattern, runner, Collections.emptyMap()) : null;
+    }
+
+    /**
+     * Build the match for a path already known to fit this route.
+     */
+    RouteMatch match(String path) {
+        if (staticMatch != null) {
+            return staticMatch;
+        }
+
+        final Map<String, String> parameters = new HashMap<>(paramCount * 2);
+        int pos = 0;
+        for (Segment segment : segments) {
+            switch (segment.kind()) {
+                case STATIC -> pos += segment.text().length();
+                case PARAM -> {
+                    int end = path.indexOf('/', pos);
+                    if (end < 0) {
+                        end = path.length();
+                    }
+                    parameters.put(segment.text(), path.substring(pos, end));
+                    pos = end;
+                }
+                case WILDCARD -> {
+                    parameters.put("*", path.substring(pos));
+                    pos = path.length();
+                }
+            }
+        }
+        return new RouteMatch(pattern, runner, parameters);
+    }
+
+    // Split "/users/{id}/files/*" into static, parameter and wildcard segments
+    static List<Segment> parse(String pattern) {
+        if (pattern.isEmpty() || pattern.charAt(0) != '/') {
+            throw new IllegalArgumentException("Route must start with '/': " + pattern);
+        }
+
+        final List<Segment> segments = new ArrayList<>();
+        final StringBuilder text = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            final char c = pattern.charAt(i);
+            final boolean segmentStart = i > 0 && pattern.charAt(i - 1) == '/';
+
+            if (c == '{') {
+                final int close = pattern.indexOf('}', i);
+                final int next = close + 1;
+                if (close < 0 || !segmentStart || (next < pattern.length() && pattern.charAt(next) != '/')) {
+                    throw new IllegalArgumentException("Path parameter must be a whole segment: " + pattern);
+                }
+                final String name = pattern.substring(i + 1, close);
+                if (name.isEmpty() || name.indexOf('/') >= 0 || name.indexOf('{') >= 0) {
+                    throw new IllegalArgumentException("Invalid path parameter name in " + pattern);
+                }
+                flush(text, segments);
+                segments.add(new Segment(Kind.PARAM, name));
+                i = next;
+            } else if (c == '*') {
+                if (!segmentStart || i != pattern.length() - 1) {
+                    throw new IllegalArgumentException("Wildcard must be the last segment: " + pattern);
+                }
+                flush(text, segments);
+                segments.add(new Segment(Kind.WILDCARD, "*"));
+                i++;
+            } else {
+                text.append(c);
+                i++;
+            }
+        }
+        flush(text, segments);
+        return segments;
+    }
+
+    private static void flush(StringBuilder text, List<Segment> segments) {
+        if (text.length() > 0) {
+            segments.add(new Segment(Kind.STATIC, text.toString()));
+            text.setLength(0);
+        }
+    }
+}
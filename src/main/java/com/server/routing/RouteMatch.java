@@ -0,0 +1,41 @@
+package com.server.routing;
+
+import com.server.contract.RequestRunner;
+
+import java.util.Map;
+
+/**
+ * RouteMatch: result of a Router lookup.
+ * - Static routes return one shared instance per route, so matching them allocates nothing.
+ * - Path parameters hold the raw (still percent-encoded) path segments keyed by name;
+ *   a trailing "*" wildcard is captured under the name "*".
+ */
+public class RouteMatch {
+    private final String pattern;
+    private final RequestRunner runner;
+    private final Map<String, String> pathParameters;
+
+    RouteMatch(String pattern, RequestRunner runner, Map<String, String> pathParameters) {
+        this.pattern = pattern;
+        this.runner = runner;
+        this.pathParameters = pathParameters;
+    }
+
+    // Registered pattern, e.g. "/users/{id}"
+    public String getPattern() {
+        return pattern;
+    }
+
+    public RequestRunner getRunner() {
+        return runner;
+    }
+
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteMatch{" + "pattern=" + pattern + ", pathParameters=" + pathParameters + '}';
+    }
+}
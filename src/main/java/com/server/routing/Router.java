@@ -0,0 +1,101 @@
+package com.server.routing;
+
+import com.server.contract.HttpMethod;
+import com.server.contract.RequestRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Router: per-HttpMethod radix trees mapping path patterns to RequestRunners.
+ * - Patterns: static ("/users"), parameters ("/users/{id}") and a trailing wildcard ("/static/*").
+ * - Static text wins over parameters, parameters over wildcards, at every level.
+ * - Lookups walk the raw request path in place; static routes match without allocating.
+ * - allowedMethods() lets the caller answer 405 + Allow instead of 404.
+ * - freeze() ends registration: routes without parameters are compiled into an immutable
+ *   exact-path table (one hash probe, checked before the trees) and add() is rejected.
+ * - Freeze before sharing the router with other threads (HttpHandler does it in its
+ *   constructor); lookups are read-only afterwards.
+ */
+public class Router {
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    private final RadixNode[] trees = new RadixNode[METHODS.length];
+    private final Map<String, RouteMatch[]> exactRoutes = new HashMap<>();     // path -> match per method ordinal
+    private Map<String, RouteMatch[]> frozenExact;                            // immutable copy, set by freeze()
+
+    // Register (or replace) the runner for METHOD + pattern
+    public void add(HttpMethod method, String pattern, RequestRunner runner) {
+        if (frozenExact != null) {
+            throw new IllegalStateException("Router is frozen; routes must be added before the server starts");
+        }
+        final Route route = new Route(pattern, runner);
+        if (route.staticMatch != null) {
+            exactRoutes.computeIfAbsent(pattern, p -> new RouteMatch[METHODS.length])[method.ordinal()] = route.staticMatch;
+        }
+        RadixNode node = trees[method.ordinal()];
+        if (node == null) {
+            node = new RadixNode("");
+            trees[method.ordinal()] = node;
+        }
+
+        for (Route.Segment segment : route.segments) {
+            node = switch (segment.kind()) {
+                case STATIC -> node.insertStatic(segment.text());
+                case PARAM -> node.param(segment.text());
+                case WILDCARD -> node.wildcard();
+            };
+        }
+        node.route = route;
+    }
+
+    /**
+     * Compile the registered routes for serving; later add() calls throw. Idempotent.
+     * - A static pattern always wins the tree walk for its own path (static text beats
+     *   parameters at every level), so the exact table can answer first without changing results.
+     */
+    public Router freeze() {
+        if (frozenExact == null) {
+            frozenExact = Map.copyOf(exactRoutes);
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozenExact != null;
+    }
+
+    /**
+     * Look up the route for a method and raw path; null if none matches.
+     */
+    public RouteMatch match(HttpMethod method, String path) {
+        if (frozenExact != null) {
+            final RouteMatch[] exact = frozenExact.get(path);
+            if (exact != null && exact[method.ordinal()] != null) {
+                return exact[method.ordinal()];
+            }
+        }
+        final RadixNode tree = trees[method.ordinal()];
+        if (tree == null) {
+            return null;
+        }
+        final Route route = tree.find(path, 0);
+        return route == null ? null : route.match(path);
+    }
+
+    /**
+     * Methods that have a route for this path (empty when the path is unknown altogether).
+     */
+    public List<HttpMethod> allowedMethods(String path) {
+        final List<HttpMethod> allowed = new ArrayList<>(2);
+        for (HttpMethod method : METHODS) {
+            final RadixNode tree = trees[method.ordinal()];
+            if (tree != null && tree.find(path, 0) != null) {
+                allowed.add(method);
+            }
+        }
+        return allowed;
+    }
+}
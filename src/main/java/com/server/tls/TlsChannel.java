@@ -0,0 +1,376 @@
+package com.server.tls;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * TlsChannel: a SocketChannel seen through an SSLEngine, as a plaintext byte channel.
+ * - read() returns decrypted application bytes, write() encrypts them; the handshake is
+ *   driven by whichever of the two runs first, so both transports use it unchanged.
+ * - Blocking mode (BLOCKING transport): reads go through the socket's stream adaptor so
+ *   SO_TIMEOUT still bounds them, writes block, and delegated tasks run on the caller.
+ * - Non-blocking mode (NIO transport): read()/write() return 0 when the socket or the
+ *   handshake cannot make progress. Encrypted bytes the socket did not take stay buffered
+ *   (hasPendingOutput(); flush() retries them). Delegated handshake tasks run on the
+ *   TlsContext's handshake executor and onTaskDone is called when they finish.
+ * - Buffered input (hasBufferedInput()) can hold whole records the caller has not read
+ *   yet; they do not make the socket readable again, so callers read until read() returns 0.
+ * - Only the owning thread (the connection's worker, or its event loop) may read or write.
+ *   close() from another thread (drain) just closes the socket; the owner also sends
+ *   close_notify first.
+ */
+public final class TlsChannel implements ByteChannel, GatheringByteChannel {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel socket;
+    private final ReadableByteChannel source;          // socket, or its stream adaptor in blocking mode
+    private final SSLEngine engine;
+    private final TlsContext context;
+    private final Executor taskExecutor;               // null: run delegated tasks on the caller
+    private final Runnable onTaskDone;
+    private final Thread owner;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private ByteBuffer netIn;                          // read mode: received, not yet unwrapped
+    private ByteBuffer netOut;                         // read mode: wrapped, not yet sent
+    private ByteBuffer appIn;                          // read mode: decrypted, not yet returned
+    private volatile boolean taskRunning;
+    private boolean handshakeDone;
+    private boolean inboundDone;
+
+    private TlsChannel(SocketChannel socket, ReadableByteChannel source, TlsContext context,
+                       Executor taskExecutor, Runnable onTaskDone) throws SSLException {
+        this.socket = socket;
+        this.source = source;
+        this.context = context;
+        this.engine = context.createEngine();
+        this.taskExecutor = taskExecutor;
+        this.onTaskDone = onTaskDone;
+        this.owner = Thread.currentThread();
+        final int packetSize = engine.getSession().getPacketBufferSize();
+        this.netIn = ByteBuffer.allocate(packetSize).flip();
+        this.netOut = ByteBuffer.allocate(packetSize).flip();
+        this.appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize()).flip();
+        engine.beginHandshake();
+    }
+
+    // Blocking socket served by one thread; SO_TIMEOUT applies to handshake and reads
+    public static TlsChannel blocking(SocketChannel socket, TlsContext context) throws IOException {
+        return new TlsChannel(socket, Channels.newChannel(socket.socket().getInputStream()), context, null, null);
+    }
+
+    // Non-blocking socket owned by an event loop; onTaskDone must resume reading on that loop
+    public static TlsChannel nonBlocking(SocketChannel socket, TlsContext context, Runnable onTaskDone) throws SSLException {
+        return new TlsChannel(socket, socket, context, context.getHandshakeExecutor(), onTaskDone);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!handshake()) {
+            return 0;
+        }
+        while (true) {
+            if (appIn.hasRemaining()) {
+                final int n = Math.min(appIn.remaining(), dst.remaining());
+                dst.put(appIn.slice(appIn.position(), n));
+                appIn.position(appIn.position() + n);
+                return n;
+            }
+            if (inboundDone) {
+                return -1;
+            }
+            final SSLEngineResult result = unwrap();
+            switch (result.getStatus()) {
+                case OK -> {
+                    // Post-handshake messages (key update) may ask for a reply
+                    if (!handshake()) {
+                        return 0;
+                    }
+                }
+                case BUFFER_UNDERFLOW -> {
+                    final int read = readNetwork();
+                    if (read < 0) {
+                        inboundDone = true;
+                        return -1;
+                    }
+                    if (read == 0) {
+                        return 0;
+                    }
+                }
+                case CLOSED -> inboundDone = true;                    // close_notify received
+                case BUFFER_OVERFLOW -> throw new IllegalStateException("appIn sized from the session");
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        return (int) write(new ByteBuffer[]{src}, 0, 1);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    /**
+     * Encrypt as many bytes as the socket takes; returns the plaintext bytes consumed.
+     * - The last record may stay partly unsent (hasPendingOutput()): its plaintext counts as
+     *   consumed, so callers wait for writability and flush() before the next write.
+     */
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (!handshake() || !flush()) {
+            return 0;
+        }
+        long consumed = 0;
+        while (hasRemaining(srcs, offset, length)) {
+            netOut.clear();
+            final SSLEngineResult result;
+            try {
+                result = engine.wrap(srcs, offset, length, netOut);
+            } finally {
+                netOut.flip();
+            }
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                throw new ClosedChannelException();
+            }
+            consumed += result.bytesConsumed();
+            if (!flush()) {
+                break;
+            }
+        }
+        return consumed;
+    }
+
+    // Send buffered encrypted bytes; false if the (non-blocking) socket did not take them all
+    public boolean flush() throws IOException {
+        while (netOut.hasRemaining()) {
+            if (socket.write(netOut) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasPendingOutput() {
+        return netOut.hasRemaining();
+    }
+
+    public boolean hasBufferedInput() {
+        return appIn.hasRemaining() || netIn.hasRemaining();
+    }
+
+    // A delegated handshake task is running; reading resumes through onTaskDone
+    public boolean isTaskPending() {
+        return taskRunning;
+    }
+
+    public boolean isHandshakeComplete() {
+        return handshakeDone;
+    }
+
+    // Protocol chosen by ALPN ("" when the client offered none, null before the handshake)
+    public String getApplicationProtocol() {
+        return engine.getApplicationProtocol();
+    }
+
+    public SocketAddress getRemoteAddress() throws IOException {
+        return socket.getRemoteAddress();
+    }
+
+    public SocketChannel getSocket() {
+        return socket;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (Thread.currentThread() == owner && handshakeDone && socket.isOpen() && !netOut.hasRemaining()) {
+                // close_notify, best effort: a single write, not retried when the socket is full
+                engine.closeOutbound();
+                netOut.clear();
+                engine.wrap(EMPTY, netOut);
+                netOut.flip();
+                socket.write(netOut);
+            }
+        } catch (IOException e) {
+            // Peer gone
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Advance the handshake as far as possible; true once application data can flow.
+     * - Non-blocking: false when waiting for input, for the socket to take output, or for a
+     *   delegated task. Blocking: runs to completion or throws.
+     */
+    private boolean handshake() throws IOException {
+        try {
+            while (true) {
+                switch (engine.getHandshakeStatus()) {
+                    case NOT_HANDSHAKING, FINISHED -> {
+                        if (!handshakeDone) {
+                            handshakeDone = true;
+                            context.handshakeCompleted(engine.getSession(), startMillis, System.nanoTime() - startNanos);
+                        }
+                        return true;
+                    }
+                    case NEED_TASK -> {
+                        if (!runDelegatedTasks()) {
+                            return false;
+                        }
+                    }
+                    case NEED_WRAP -> {
+                        if (!flush()) {
+                            return false;
+                        }
+                        netOut.clear();
+                        final SSLEngineResult result;
+                        try {
+                            result = engine.wrap(EMPTY, netOut);
+                        } finally {
+                            netOut.flip();
+                        }
+                        if (!flush()) {
+                            return false;
+                        }
+                        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new EOFException("TLS connection closed during handshake");
+                        }
+                    }
+                    case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                        final SSLEngineResult result = unwrap();
+                        if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                            final int read = readNetwork();
+                            if (read < 0) {
+                                throw new EOFException("Connection closed during TLS handshake");
+                            }
+                            if (read == 0) {
+                                return false;
+                            }
+                        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new EOFException("TLS connection closed during handshake");
+                        }
+                    }
+                }
+            }
+        } catch (SSLException e) {
+            if (!handshakeDone) {
+                context.handshakeFailed();
+                sendAlert();
+            }
+            throw e;
+        }
+    }
+
+    // Run the engine's delegated tasks: inline (blocking) or on the handshake executor
+    private boolean runDelegatedTasks() {
+        if (taskExecutor == null) {
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+            return true;
+        }
+        if (taskRunning) {
+            return false;
+        }
+        taskRunning = true;
+        final Runnable tasks = () -> {
+            try {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+            } finally {
+                taskRunning = false;
+                onTaskDone.run();
+            }
+        };
+        try {
+            taskExecutor.execute(tasks);
+        } catch (RejectedExecutionException e) {
+            tasks.run();                                       // shutting down
+        }
+        return false;
+    }
+
+    private SSLEngineResult unwrap() throws SSLException {
+        appIn.compact();
+        try {
+            while (true) {
+                final SSLEngineResult result = engine.unwrap(netIn, appIn);
+                if (result.getStatus() != SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    return result;
+                }
+                appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+            }
+        } finally {
+            appIn.flip();
+        }
+    }
+
+    // Read more ciphertext behind what netIn holds; returns the byte count, 0 or -1
+    private int readNetwork() throws IOException {
+        netIn.compact();
+        try {
+            if (!netIn.hasRemaining()) {
+                netIn = grow(netIn, engine.getSession().getPacketBufferSize());
+            }
+            return source.read(netIn);
+        } finally {
+            netIn.flip();
+        }
+    }
+
+    // Try to tell the peer why the handshake failed; the engine has queued the alert
+    private void sendAlert() {
+        try {
+            if (engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP && !netOut.hasRemaining()) {
+                netOut.clear();
+                engine.wrap(EMPTY, netOut);
+                netOut.flip();
+                flush();
+            }
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    // Write-mode buffer with the same contents and at least `size` (or double) capacity
+    private static ByteBuffer grow(ByteBuffer buffer, int size) {
+        final ByteBuffer larger = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffers[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
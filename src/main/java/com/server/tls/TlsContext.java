@@ -0,0 +1,138 @@
+package com.server.tls;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TlsContext: server-side TLS state shared by every connection of one server.
+ * - Loads the key store named by the TlsPolicy once and builds the SSLContext from it.
+ * - Configures the server session cache (size, lifetime) that resumption draws on; the JDK
+ *   issues stateless session tickets by default (jdk.tls.server.enableSessionTicketExtension),
+ *   so TLS 1.3 clients resume from a ticket without a server-side lookup.
+ * - createEngine() returns a server-mode SSLEngine with the policy's protocols and ALPN list;
+ *   with HTTP/2 enabled "h2" is offered first, otherwise it is never offered.
+ * - Owns the handshake executor: NIO connections run the engine's delegated tasks there,
+ *   so neither event loops nor request workers stall on handshake cryptography.
+ * - Counts completed handshakes, how many of them resumed a session, and failures.
+ */
+public final class TlsContext {
+    public static final String H2 = "h2";
+    private static final String HTTP_1_1 = "http/1.1";
+
+    private final SSLContext sslContext;
+    private final String[] protocols;
+    private final String[] applicationProtocols;
+    private final ExecutorService handshakeExecutor;
+
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder handshakeNanos = new LongAdder();
+
+    public TlsContext(TlsPolicy policy) throws IOException {
+        this(policy, false);
+    }
+
+    public TlsContext(TlsPolicy policy, boolean http2) throws IOException {
+        try {
+            final KeyStore keyStore = KeyStore.getInstance(policy.getKeyStoreType());
+            try (InputStream in = Files.newInputStream(policy.getKeyStore())) {
+                keyStore.load(in, policy.getKeyStorePassword());
+            }
+            final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, policy.getKeyPassword());
+
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers.getKeyManagers(), null, null);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot load TLS key store " + policy.getKeyStore(), e);
+        }
+
+        final SSLSessionContext sessions = sslContext.getServerSessionContext();
+        sessions.setSessionCacheSize(policy.getSessionCacheSize());
+        sessions.setSessionTimeout(policy.getSessionTimeoutSeconds());
+
+        this.protocols = policy.getProtocols().toArray(String[]::new);
+        this.applicationProtocols = applicationProtocols(policy.getApplicationProtocols(), http2);
+        this.handshakeExecutor = Executors.newFixedThreadPool(policy.getHandshakeThreads(),
+                Thread.ofPlatform().name("tls-handshake-", 0).daemon().factory());
+    }
+
+    // ALPN list: "h2" leads when HTTP/2 is served and is dropped when it is not
+    private static String[] applicationProtocols(List<String> configured, boolean http2) {
+        final List<String> protocols = new ArrayList<>(configured);
+        protocols.remove(H2);
+        if (http2) {
+            protocols.add(0, H2);
+        } else if (protocols.isEmpty()) {
+            protocols.add(HTTP_1_1);
+        }
+        return protocols.toArray(String[]::new);
+    }
+
+    // Server-mode engine for one connection; the handshake starts with the first read
+    public SSLEngine createEngine() {
+        final SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        final SSLParameters parameters = engine.getSSLParameters();
+        parameters.setProtocols(protocols);
+        parameters.setApplicationProtocols(applicationProtocols);
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    ExecutorService getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Record a completed handshake.
+     * - A resumed session keeps the creation time of the session it was resumed from, which
+     *   is older than the handshake; a full handshake creates its session during it.
+     */
+    void handshakeCompleted(SSLSession session, long startMillis, long nanos) {
+        handshakes.increment();
+        handshakeNanos.add(nanos);
+        if (session.getCreationTime() < startMillis) {
+            resumed.increment();
+        }
+    }
+
+    void handshakeFailed() {
+        failures.increment();
+    }
+
+    public void shutdown() {
+        handshakeExecutor.shutdownNow();
+    }
+
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    public long getResumed() {
+        return resumed.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getHandshakeSeconds() {
+        return handshakeNanos.sum() / 1e9;
+    }
+}
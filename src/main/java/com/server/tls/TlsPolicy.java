@@ -0,0 +1,162 @@
+package com.server.tls;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * TlsPolicy: how the server terminates TLS (see TlsContext).
+ * - keyStore: local key store file (PKCS12 by default) holding the server's private key and
+ *   certificate chain; keyPassword defaults to the store password.
+ * - protocols: enabled protocol versions, TLSv1.3 and TLSv1.2 by default.
+ * - applicationProtocols: ALPN protocols in server preference order; a client offering none
+ *   of them fails the handshake (no_application_protocol), one offering no ALPN gets HTTP/1.1.
+ *   "h2" is managed by ServerConfig.http2 (added in front when set, removed when not).
+ * - sessionCacheSize / sessionTimeoutSeconds: server session cache used for resumption
+ *   (session IDs in TLS 1.2, PSKs from session tickets in TLS 1.3).
+ * - handshakeThreads: threads running the CPU-heavy handshake steps (key exchange, signing)
+ *   off the NIO event loops.
+ */
+public class TlsPolicy {
+    public static final List<String> DEFAULT_PROTOCOLS = List.of("TLSv1.3", "TLSv1.2");
+    public static final List<String> DEFAULT_APPLICATION_PROTOCOLS = List.of("http/1.1");
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 20_000;
+    public static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 3_600;
+
+    private final Path keyStore;
+    private final char[] keyStorePassword;
+    private final String keyStoreType;
+    private final char[] keyPassword;
+    private final List<String> protocols;
+    private final List<String> applicationProtocols;
+    private final int sessionCacheSize;
+    private final int sessionTimeoutSeconds;
+    private final int handshakeThreads;
+
+    private TlsPolicy(Builder builder) {
+        this.keyStore = builder.keyStore;
+        this.keyStorePassword = builder.keyStorePassword.clone();
+        this.keyStoreType = builder.keyStoreType;
+        this.keyPassword = (builder.keyPassword != null ? builder.keyPassword : builder.keyStorePassword).clone();
+        this.protocols = List.copyOf(builder.protocols);
+        this.applicationProtocols = List.copyOf(builder.applicationProtocols);
+        this.sessionCacheSize = builder.sessionCacheSize;
+        this.sessionTimeoutSeconds = builder.sessionTimeoutSeconds;
+        this.handshakeThreads = builder.handshakeThreads;
+    }
+
+    public Path getKeyStore() {
+        return keyStore;
+    }
+
+    public char[] getKeyStorePassword() {
+        return keyStorePassword.clone();
+    }
+
+    public String getKeyStoreType() {
+        return keyStoreType;
+    }
+
+    public char[] getKeyPassword() {
+        return keyPassword.clone();
+    }
+
+    public List<String> getProtocols() {
+        return protocols;
+    }
+
+    public List<String> getApplicationProtocols() {
+        return applicationProtocols;
+    }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public int getSessionTimeoutSeconds() {
+        return sessionTimeoutSeconds;
+    }
+
+    public int getHandshakeThreads() {
+        return handshakeThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "TlsPolicy{" + "keyStore=" + keyStore + ", keyStoreType=" + keyStoreType + ", protocols=" + protocols
+                + ", applicationProtocols=" + applicationProtocols + ", sessionCacheSize=" + sessionCacheSize
+                + ", sessionTimeoutSeconds=" + sessionTimeoutSeconds + ", handshakeThreads=" + handshakeThreads + '}';
+    }
+
+    public static class Builder {
+        private final Path keyStore;
+        private final char[] keyStorePassword;
+        private String keyStoreType = "PKCS12";
+        private char[] keyPassword;
+        private List<String> protocols = DEFAULT_PROTOCOLS;
+        private List<String> applicationProtocols = DEFAULT_APPLICATION_PROTOCOLS;
+        private int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+        private int sessionTimeoutSeconds = DEFAULT_SESSION_TIMEOUT_SECONDS;
+        private int handshakeThreads = Runtime.getRuntime().availableProcessors();
+
+        public Builder(Path keyStore, char[] keyStorePassword) {
+            this.keyStore = Objects.requireNonNull(keyStore, "keyStore");
+            this.keyStorePassword = Objects.requireNonNull(keyStorePassword, "keyStorePassword").clone();
+        }
+
+        public Builder setKeyStoreType(String keyStoreType) {
+            this.keyStoreType = Objects.requireNonNull(keyStoreType, "keyStoreType");
+            return this;
+        }
+
+        public Builder setKeyPassword(char[] keyPassword) {
+            this.keyPassword = Objects.requireNonNull(keyPassword, "keyPassword").clone();
+            return this;
+        }
+
+        public Builder setProtocols(List<String> protocols) {
+            if (protocols.isEmpty()) {
+                throw new IllegalArgumentException("protocols must not be empty");
+            }
+            this.protocols = List.copyOf(protocols);
+            return this;
+        }
+
+        public Builder setApplicationProtocols(List<String> applicationProtocols) {
+            if (applicationProtocols.isEmpty()) {
+                throw new IllegalArgumentException("applicationProtocols must not be empty");
+            }
+            this.applicationProtocols = List.copyOf(applicationProtocols);
+            return this;
+        }
+
+        // 0 = unbounded
+        public Builder setSessionCacheSize(int sessionCacheSize) {
+            if (sessionCacheSize < 0) {
+                throw new IllegalArgumentException("sessionCacheSize must be >= 0");
+            }
+            this.sessionCacheSize = sessionCacheSize;
+            return this;
+        }
+
+        public Builder setSessionTimeoutSeconds(int sessionTimeoutSeconds) {
+            if (sessionTimeoutSeconds < 1) {
+                throw new IllegalArgumentException("sessionTimeoutSeconds must be >= 1");
+            }
+            this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+            return this;
+        }
+
+        public Builder setHandshakeThreads(int handshakeThreads) {
+            if (handshakeThreads < 1) {
+                throw new IllegalArgumentException("handshakeThreads must be >= 1");
+            }
+            this.handshakeThreads = handshakeThreads;
+            return this;
+        }
+
+        public TlsPolicy build() {
+            return new TlsPolicy(this);
+        }
+    }
+}
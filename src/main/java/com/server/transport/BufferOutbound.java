@@ -0,0 +1,48 @@
+package com.server.transport;
+
+import com.server.writers.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * BufferOutbound: response bytes held in memory.
+ * - Consecutive buffers are written by the loop in one gathering write.
+ * - Pooled buffers go back to the BufferPool on release().
+ * - When produced by a worker-side producer (NioResponseSink, NioHttp2Output), release()
+ *   returns the bytes to its WriteBudget so a blocked producer can continue.
+ */
+final class BufferOutbound implements Outbound {
+    final ByteBuffer buffer;
+    private final boolean pooled;
+    private final WriteBudget owner;                   // null for loop-generated bytes (100 Continue, errors)
+    private final int length;
+
+    BufferOutbound(ByteBuffer buffer, boolean pooled, WriteBudget owner) {
+        this.buffer = buffer;
+        this.pooled = pooled;
+        this.owner = owner;
+        this.length = buffer.remaining();
+    }
+
+    int length() {
+        return length;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        channel.write(buffer);
+        return !buffer.hasRemaining();
+    }
+
+    @Override
+    public void release() {
+        if (pooled) {
+            BufferPool.release(buffer);
+        }
+        if (owner != null) {
+            owner.written(length);
+        }
+    }
+}
@@ -0,0 +1,876 @@
+package com.server.transport;
+
+import com.server.admission.AdmissionController;
+import com.server.http.BodyDecoder;
+import com.server.http.HttpDecoder;
+import com.server.http.HttpHandler;
+import com.server.http.HttpParseException;
+import com.server.http2.Http2Connection;
+import com.server.http2.Http2Frames;
+import com.server.http2.Http2Policy;
+import com.server.logging.AccessLog;
+import com.server.logging.Logger;
+import com.server.logging.Logging;
+import com.server.pojos.HttpRequest;
+import com.server.pojos.HttpResponse;
+import com.server.push.PushStream;
+import com.server.push.WebSocket;
+import com.server.tls.TlsChannel;
+import com.server.tls.TlsContext;
+import com.server.writers.ResponseWriter;
+import com.server.writers.StreamResponseSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventLoop: one selector thread serving many non-blocking connections.
+ * - Reads land in a loop-wide buffer and are fed straight into the connection's incremental
+ *   HttpDecoder; only pipelined bytes behind an in-flight request are copied out, so idle
+ *   connections hold no read buffer.
+ * - Request bodies are streamed: the handler pulls them through a NioRequestBody, which this
+ *   loop fills as bytes arrive and stops reading for while the handler is behind.
+ * - One request per connection is in flight at a time: reading pauses while the worker
+ *   runs the handler, which keeps pipelined responses in request order.
+ * - Workers write responses into a NioResponseSink, which posts them back through the task
+ *   queue in bounded batches (file entities as transferTo regions); all socket and
+ *   selection-key state is only touched by the loop thread.
+ * - Async routes (HttpHandler.dispatchAsync) release the worker while their future is
+ *   pending; a worker writes the response once it completes, and closing the connection
+ *   cancels it. Reading stays paused meanwhile, so pipelined responses keep their order.
+ * - Admission is checked on the loop before a request is handed to a worker; rejected requests
+ *   (429/503) and requests the worker executor refuses are answered inline with canned
+ *   responses, without a worker.
+ * - drain() closes idle connections and every other one after its current response;
+ *   shutdown() closes them all and ends the loop.
+ * - Connections idle longer than the configured timeout are swept about once per second.
+ * - TLS (when a TlsContext is given): every connection reads and writes through its
+ *   TlsChannel; delegated handshake tasks run on the handshake executor with reading paused,
+ *   and resume on this loop. Encrypted bytes the socket did not take keep OP_WRITE armed.
+ * - HTTP/2 (when ServerConfig.http2 is set): a connection whose ALPN protocol is "h2", whose
+ *   first bytes are the client preface, or whose request upgrades with "Upgrade: h2c" hands
+ *   its reads to an Http2Connection; streams are dispatched to workers concurrently and their
+ *   frames come back through NioHttp2Output. drain() sends such connections GOAWAY.
+ * - Push responses (EventStream on HTTP/1.1, WebSocket after its 101): once the head is
+ *   written the connection is handed to the stream's NioPushOutlet; sends are posted like
+ *   response pieces, client bytes go to the stream, and no worker stays with it. drain()
+ *   ends such streams (last chunk, WebSocket close 1001).
+ */
+final class EventLoop implements Runnable {
+    private static final Logger LOG = Logging.getLogger(EventLoop.class);
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final byte[] CONTINUE = ResponseWriter.CONTINUE.getBytes(StandardCharsets.US_ASCII);
+    private static final long SWEEP_INTERVAL_MILLIS = 1_000;
+    private static final int MAX_GATHER = 16;
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\nUpgrade: h2c\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final Selector selector;
+    private final HttpHandler handler;
+    private final Executor workers;
+    private final AdmissionController admission;
+    private final TlsContext tls;                      // null: plaintext
+    private final Http2Policy http2;                   // null: HTTP/1.1 only
+    private final Executor completions;                // writes async responses; runs inline if workers refuse
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();   // cross-thread hand-offs
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];         // reused for gathering writes
+    private final long idleTimeoutNanos;
+    private final int maxRequestsPerConnection;
+    private final long maxBodySize;
+    private final long maxBodyDrain;
+    private long lastSweep = System.nanoTime();
+    private boolean draining;                          // loop thread only: close connections once idle
+    private boolean running = true;                    // loop thread only
+
+    EventLoop(HttpHandler handler, Executor workers, TlsContext tls) throws IOException {
+        this.selector = Selector.open();
+        this.handler = handler;
+        this.workers = workers;
+        this.admission = handler.getAdmission();
+        this.tls = tls;
+        this.http2 = handler.getConfig().getHttp2();
+        this.completions = task -> {
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        };
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(handler.getConfig().getIdleTimeoutMillis());
+        this.maxRequestsPerConnection = handler.getConfig().getMaxRequestsPerConnection();
+        this.maxBodySize = handler.getConfig().getMaxBodySize();
+        this.maxBodyDrain = handler.getConfig().getMaxBodyDrain();
+    }
+
+    // Called from the accept thread: queue the channel and wake the selector
+    void register(SocketChannel channel) {
+        execute(() -> accept(channel));
+    }
+
+    // Run a task on this loop's thread
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(SWEEP_INTERVAL_MILLIS);
+                runTasks();
+
+                final Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    final SelectionKey key = selected.next();
+                    selected.remove();
+                    processKey(key);
+                }
+
+                sweepIdleConnections();
+            } catch (IOException e) {
+                // Selector failure: nothing sensible to recover, keep looping on the next select
+                LOG.warn("Selector failure in " + Thread.currentThread().getName(), e);
+            }
+        }
+        try { selector.close(); } catch (IOException e) { /* ignore */ }
+    }
+
+    // Graceful shutdown: close idle connections now, busy ones once their response is written
+    void drain() {
+        execute(() -> {
+            draining = true;
+            for (SelectionKey key : selector.keys()) {
+                final NioConnection connection = (NioConnection) key.attachment();
+                if (connection != null && connection.h2 != null) {
+                    connection.h2.shutdownGracefully();        // GOAWAY; closes once its streams are done
+                } else if (connection != null && connection.push != null) {
+                    connection.push.shutdown();                // closes once the stream's last bytes are out
+                } else if (connection != null && !connection.inFlight && connection.outbound.isEmpty()) {
+                    close(connection);
+                }
+            }
+        });
+    }
+
+    // Close every connection and end the loop thread
+    void shutdown() {
+        execute(() -> {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection connection) {
+                    close(connection);
+                }
+            }
+            running = false;
+        });
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void accept(SocketChannel channel) {
+        if (draining) {
+            try { channel.close(); } catch (IOException ignored) { /* ignore */ }
+            admission.connectionClosed();
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            SocketTuning.configureClient(channel, handler.getConfig());
+            final NioConnection connection = new NioConnection(channel, new HttpDecoder(handler.getConfig()));
+            if (tls != null) {
+                connection.tls = TlsChannel.nonBlocking(channel, tls, () -> execute(() -> resumeTls(connection)));
+            }
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connection.remote = channel.getRemoteAddress();
+            connection.lastActive = System.nanoTime();
+            handler.getMetrics().connectionOpened();
+        } catch (IOException e) {
+            try { channel.close(); } catch (IOException ignored) { /* ignore */ }
+            admission.connectionClosed();
+        }
+    }
+
+    private void processKey(SelectionKey key) {
+        final NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isValid() && key.isWritable()) {
+                flush(connection);
+                if (connection.tls != null && !connection.tls.isHandshakeComplete() && !connection.tls.hasPendingOutput()) {
+                    onReadable(connection);                    // handshake output sent: continue it
+                }
+            }
+            if (key.isValid() && key.isReadable()) {
+                onReadable(connection);
+            }
+        } catch (IOException | RuntimeException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Read what the socket has and feed it to the connection's incremental decoder.
+     * - Over TLS, keeps reading until the TlsChannel has nothing buffered: records it already
+     *   holds would not make the socket readable again.
+     */
+    private void onReadable(NioConnection connection) throws IOException {
+        int read;
+        do {
+            readBuffer.clear();
+            read = connection.tls == null ? connection.channel.read(readBuffer) : connection.tls.read(readBuffer);
+            readBuffer.flip();
+            if (read < 0) {
+                close(connection);
+                return;
+            }
+
+            connection.lastActive = System.nanoTime();
+            if (connection.push != null) {
+                connection.push.receive(readBuffer);
+                continue;
+            }
+            if (connection.body != null && connection.body.isPulling()) {
+                feedBody(connection, readBuffer);
+                continue;
+            }
+            if (connection.inFlight) {
+                // Only armed to notice a disconnect during an async handler: keep these bytes for later
+                connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+                appendPending(connection, readBuffer);
+                continue;
+            }
+            processInput(connection, readBuffer);
+            retainPending(connection, readBuffer);
+        } while (read > 0 && connection.tls != null && connection.channel.isOpen() && connection.tls.hasBufferedInput());
+
+        if (connection.tls != null && connection.channel.isOpen()) {
+            if (connection.tls.hasPendingOutput()) {
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+            }
+            if (connection.tls.isTaskPending()) {
+                // Handshake computation in progress: resumeTls() picks up once it is done
+                connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    // A delegated handshake task finished: continue the handshake (and any data behind it)
+    private void resumeTls(NioConnection connection) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+        if (!connection.inFlight) {
+            connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+        }
+        try {
+            onReadable(connection);
+        } catch (IOException | RuntimeException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Resume reading while an async handler is pending, so a client disconnect closes the
+     * connection (cancelling the handler) instead of going unnoticed until the response.
+     * - The first bytes that arrive instead (pipelining) are kept and reading pauses again.
+     */
+    private void watchForDisconnect(NioConnection connection, NioResponseSink sink) {
+        if (connection.sink == sink && !connection.responseComplete && connection.channel.isOpen()) {
+            connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Decode requests from the given bytes and hand the next complete one to a worker.
+     * - Partial heads are absorbed by the decoder, so nothing needs to be kept for them.
+     * - A request with a body is dispatched at its head; the body is fed to it later, as the
+     *   handler reads (feedBody).
+     * - Stops once a request is in flight; any pipelined bytes left over wait for the response.
+     * - HTTP/2 connections pass everything to their Http2Connection instead.
+     */
+    private void processInput(NioConnection connection, ByteBuffer input) {
+        ByteBuffer data = input;
+        if (http2 != null && !connection.protocolChosen && input.hasRemaining()) {
+            data = selectProtocol(connection, input);
+            if (data != input) {
+                input.position(input.limit());         // carried over in data
+                if (data == null) {
+                    return;
+                }
+            }
+        }
+        if (connection.h2 != null) {
+            connection.h2.receive(data);
+            return;
+        }
+        decodeRequests(connection, data);
+        if (data != input) {
+            retainPending(connection, data);
+        }
+    }
+
+    /**
+     * First bytes of a connection while HTTP/2 is enabled: decide the protocol.
+     * - TLS: the ALPN result (the handshake is complete once application data arrives).
+     * - Plaintext: HTTP/2 with prior knowledge if the bytes start with the client preface;
+     *   a prefix of it is held back until more arrives (null), anything else is HTTP/1.1.
+     * - Returns the bytes to continue with: the input, or the held bytes plus the input.
+     */
+    private ByteBuffer selectProtocol(NioConnection connection, ByteBuffer input) {
+        if (connection.tls != null) {
+            connection.protocolChosen = true;
+            if (TlsContext.H2.equals(connection.tls.getApplicationProtocol())) {
+                startHttp2(connection);
+            }
+            return input;
+        }
+        ByteBuffer data = input;
+        if (connection.preface != null) {
+            data = ByteBuffer.allocate(connection.preface.remaining() + input.remaining()).put(connection.preface).put(input).flip();
+            connection.preface = null;
+        }
+        final int match = Http2Frames.matchPreface(data);
+        if (match == 0) {
+            connection.preface = ByteBuffer.allocate(data.remaining()).put(data).flip();
+            return null;
+        }
+        connection.protocolChosen = true;
+        if (match > 0) {
+            startHttp2(connection);
+        }
+        return data;
+    }
+
+    private void startHttp2(NioConnection connection) {
+        connection.protocolChosen = true;
+        connection.h2Output = new NioHttp2Output(this, connection);
+        connection.h2 = new Http2Connection(handler, workers, http2, connection.h2Output, connection.remote);
+        connection.h2.start();
+        LOG.debug(() -> "HTTP/2 connection from " + connection.remote);
+    }
+
+    /**
+     * "Upgrade: h2c" (RFC 7540 section 3.2): answer 101, continue as HTTP/2 with the request
+     * as stream 1, then pass the rest of the input (the client preface) to the new connection.
+     */
+    private void upgradeToHttp2(NioConnection connection, HttpRequest request, byte[] settings, ByteBuffer input) {
+        connection.served++;
+        connection.outbound.add(new BufferOutbound(ByteBuffer.wrap(SWITCHING_PROTOCOLS), false, null));
+        startHttp2(connection);                        // its frames are posted, so they follow the 101
+        connection.h2.upgrade(request, settings);
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        connection.h2.receive(input);
+    }
+
+    // Settings payload of a bodyless plaintext request asking for h2c, or null to stay on HTTP/1.1
+    private byte[] h2cUpgrade(NioConnection connection, HttpRequest request) {
+        if (http2 == null || !http2.isH2cUpgrade() || connection.tls != null || connection.h2 != null) {
+            return null;
+        }
+        final List<String> settings = request.getHeaders("HTTP2-Settings");
+        if (settings.size() != 1
+                || !request.hasHeaderToken("Upgrade", "h2c")
+                || !request.hasHeaderToken("Connection", "upgrade") || !request.hasHeaderToken("Connection", "http2-settings")) {
+            return null;
+        }
+        return Http2Connection.decodeSettings(settings.get(0));
+    }
+
+    private void decodeRequests(NioConnection connection, ByteBuffer input) {
+        while (!connection.inFlight && connection.channel.isOpen() && input.hasRemaining()) {
+            final HttpRequest request;
+            final BodyDecoder body;
+            try {
+                request = connection.decoder.decode(input);
+                body = request == null ? null : BodyDecoder.forRequest(request, maxBodySize);
+            } catch (HttpParseException e) {
+                reject(connection, e.getStatusCode());
+                return;
+            }
+            if (request == null) {
+                return;
+            }
+            if (body == null) {
+                final byte[] settings = h2cUpgrade(connection, request);
+                if (settings != null) {
+                    upgradeToHttp2(connection, request, settings, input);
+                    return;
+                }
+            }
+
+            connection.served++;
+            final boolean close = draining || !HttpHandler.isKeepAlive(request)
+                    || (maxRequestsPerConnection > 0 && connection.served >= maxRequestsPerConnection);
+            if (body == null) {
+                dispatch(connection, request, close, null);
+            } else {
+                // Left on the wire (and in pending) until the handler reads it
+                final NioRequestBody requestBody = new NioRequestBody(this, connection, body, idleTimeoutNanos);
+                connection.body = requestBody;
+                dispatch(connection, request.withBody(requestBody), close, requestBody);
+            }
+        }
+    }
+
+    /**
+     * Loop side of NioRequestBody: the handler asked for body bytes, or has made room for more.
+     * - The first pull answers "Expect: 100-continue", then bytes already held are fed first.
+     */
+    void pullBody(NioConnection connection, NioRequestBody body) {
+        if (connection.body != body || !connection.channel.isOpen()) {
+            return;
+        }
+        if (body.beginPull()) {
+            connection.outbound.add(new BufferOutbound(ByteBuffer.wrap(CONTINUE), false, null));
+            try {
+                flush(connection);
+            } catch (IOException e) {
+                close(connection);
+                return;
+            }
+        }
+        feedBody(connection, null);
+    }
+
+    /**
+     * Decode held and freshly read bytes into the in-flight request's body.
+     * - Reading pauses while the body buffer is full, and stops once the body is complete;
+     *   bytes behind it stay in pending for the next pipelined request.
+     * - A malformed or oversized body fails the handler's reads; the response then closes
+     *   the connection, since the rest of the stream cannot be framed.
+     */
+    private void feedBody(NioConnection connection, ByteBuffer input) {
+        final NioRequestBody body = connection.body;
+        final SelectionKey key = connection.key;
+        try {
+            final ByteBuffer pending = connection.pending;
+            if (pending != null) {
+                body.feed(pending);
+                if (!pending.hasRemaining()) {
+                    connection.pending = null;
+                }
+            }
+            if (input != null && connection.pending == null) {
+                body.feed(input);
+            }
+        } catch (HttpParseException e) {
+            handler.getMetrics().decodeFailure(e.getStatusCode());
+            body.fail(new IOException(e.getMessage(), e));
+            connection.body = null;
+            connection.pending = null;
+            if (input != null) {
+                input.position(input.limit());
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            return;
+        }
+        if (input != null && input.hasRemaining()) {
+            appendPending(connection, input);
+        }
+        if (body.isComplete()) {
+            connection.body = null;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        } else if (body.pauseIfFull()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        } else {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    // Run the RequestRunner off-loop; the worker streams the response back through a sink
+    private void dispatch(NioConnection connection, HttpRequest request, boolean close, NioRequestBody body) {
+        connection.inFlight = true;
+        connection.responseComplete = false;
+        connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+        final long start = System.nanoTime();
+        LOG.debug(() -> "Request " + request);
+
+        final HttpResponse rejected = admission.admit(AdmissionController.clientAddress(connection.remote));
+        if (rejected != null) {
+            // An unread body is still on the wire: close rather than decode it as the next request
+            respondInline(connection, request, rejected, close || body != null || rejected.getStatusCode() == 503, start);
+            return;
+        }
+        final NioResponseSink sink = new NioResponseSink(this, connection);
+        connection.sink = sink;
+
+        try {
+            workers.execute(() -> {
+                final CompletableFuture<HttpResponse> result;
+                try {
+                    result = handler.dispatchAsync(request);
+                } catch (RuntimeException e) {
+                    LOG.error("Handler failed for " + request.getHttpMethod() + " " + request.getUri(), e);
+                    admission.complete(System.nanoTime() - start);
+                    writeResponse(connection, sink, request, body, HttpHandler.errorResponse(500), true, start);
+                    return;
+                }
+                if (result.isDone()) {
+                    admission.complete(System.nanoTime() - start);
+                    writeResponse(connection, sink, request, body, result.join(), close, start);
+                    return;
+                }
+                // Async handler: this worker is free again; the response is written on completion
+                sink.awaiting(result);
+                execute(() -> watchForDisconnect(connection, sink));
+                result.whenCompleteAsync((response, failure) -> {
+                    admission.complete(System.nanoTime() - start);
+                    if (failure != null) {
+                        sink.abort();                                  // cancelled: the connection is gone
+                        return;
+                    }
+                    writeResponse(connection, sink, request, body, response, close, start);
+                }, completions);
+            });
+        } catch (RejectedExecutionException e) {
+            // Worker queue full: shed with a 503 instead of queueing
+            admission.abandon();
+            respondInline(connection, request, admission.overloaded(), true, start);
+        }
+    }
+
+    // Worker side: serialize the response into the connection's sink and complete it
+    private void writeResponse(NioConnection connection, NioResponseSink sink, HttpRequest request,
+                               NioRequestBody body, HttpResponse response, boolean close, long start) {
+        if (response.getEntity().orElse(null) instanceof PushStream push && isPush(response, push)) {
+            startPush(connection, sink, request, response, push, start);
+            return;
+        }
+        boolean closeAfter = close || handler.isDraining();
+        if (body != null && !body.isComplete() && !closeAfter) {
+            // Skip the unread rest like the blocking transport, or close if that is not possible
+            closeAfter = !body.drain(maxBodyDrain);
+        }
+        try {
+            ResponseWriter.writeResponse(sink, response, closeAfter);
+            sink.complete(closeAfter);
+        } catch (IOException | RuntimeException e) {
+            LOG.debug(() -> "Response aborted: " + e);
+            sink.abort();
+            return;
+        }
+        AccessLog.log(connection.remote, request, response.getStatusCode(), start);
+    }
+
+    // WebSocket only with its 101; an EventStream with any status that has a body
+    private static boolean isPush(HttpResponse response, PushStream push) {
+        final int status = response.getStatusCode();
+        return push instanceof WebSocket ? status == 101 : status >= 200 && status != 204 && status != 304;
+    }
+
+    /**
+     * Worker side of a push response: write the head, then hand the connection to the stream.
+     * - The attach task is posted after the head and before anything the stream sends, so the
+     *   loop sees them in that order.
+     */
+    private void startPush(NioConnection connection, NioResponseSink sink, HttpRequest request,
+                           HttpResponse response, PushStream push, long start) {
+        try {
+            ResponseWriter.writePushHead(sink, response);
+            sink.flush();
+        } catch (IOException | RuntimeException e) {
+            LOG.debug(() -> "Push response aborted: " + e);
+            sink.abort();
+            push.closed();
+            return;
+        }
+        final NioPushOutlet outlet = new NioPushOutlet(this, connection, push,
+                push.getPolicy().getMaxQueuedBytes(), !(push instanceof WebSocket));
+        execute(() -> attachPush(connection, outlet));
+        push.attach(outlet, completions);
+        AccessLog.log(connection.remote, request, response.getStatusCode(), start);
+    }
+
+    // Loop side: from now on the connection carries the stream (reads included, to see the client leave)
+    private void attachPush(NioConnection connection, NioPushOutlet outlet) {
+        if (!connection.channel.isOpen()) {
+            outlet.cancel();
+            return;
+        }
+        connection.sink = null;
+        connection.push = outlet;
+        connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+        // Bytes pipelined behind the upgrade request already belong to the new protocol
+        final ByteBuffer pending = connection.pending;
+        connection.pending = null;
+        if (pending != null) {
+            outlet.receive(pending);
+        }
+    }
+
+    // Answer a request on the loop with a canned response (no worker involved)
+    private void respondInline(NioConnection connection, HttpRequest request, HttpResponse response, boolean close, long start) {
+        connection.sink = null;
+        if (queueEncoded(connection, response, close)) {
+            AccessLog.log(connection.remote, request, response.getStatusCode(), start);
+            finishResponse(connection, close);
+        }
+    }
+
+    // Loop side of NioResponseSink: queue response pieces and write what the socket accepts
+    void enqueue(NioConnection connection, List<Outbound> pieces) {
+        if (!connection.channel.isOpen()) {
+            pieces.forEach(Outbound::release);
+            return;
+        }
+        if (pieces.isEmpty()) {
+            return;
+        }
+        connection.outbound.addAll(pieces);
+        try {
+            flush(connection);
+        } catch (IOException | RuntimeException e) {
+            close(connection);
+        }
+    }
+
+    // Loop side of NioResponseSink: everything is queued; resume reading (or close) once written
+    void finishResponse(NioConnection connection, boolean close) {
+        if (!connection.channel.isOpen()) {
+            return;
+        }
+        connection.responseComplete = true;
+        connection.closeAfterWrite = close;
+        try {
+            flush(connection);
+        } catch (IOException | RuntimeException e) {
+            close(connection);
+        }
+    }
+
+    // Malformed or oversized request head: answer with the decoder's status and close
+    private void reject(NioConnection connection, int statusCode) {
+        handler.getMetrics().decodeFailure(statusCode);
+        connection.inFlight = true;
+        connection.pending = null;
+        connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+        if (queueEncoded(connection, HttpHandler.errorResponse(statusCode), true)) {
+            finishResponse(connection, true);
+        }
+    }
+
+    // Serialize a small response on the loop and queue it; false (connection closed) on failure
+    private boolean queueEncoded(NioConnection connection, HttpResponse response, boolean close) {
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream(256);
+        final StreamResponseSink sink = new StreamResponseSink(encoded, null);
+        try {
+            ResponseWriter.writeResponse(sink, response, close);
+            sink.flush();
+        } catch (IOException e) {
+            close(connection);
+            return false;
+        } finally {
+            sink.release();
+        }
+        connection.outbound.add(new BufferOutbound(ByteBuffer.wrap(encoded.toByteArray()), false, null));
+        return true;
+    }
+
+    /**
+     * Write queued response pieces; once the response is complete and written, resume reading (or close).
+     */
+    private void flush(NioConnection connection) throws IOException {
+        final SelectionKey key = connection.key;
+        Outbound head;
+        while (true) {
+            // Encrypted bytes of earlier pieces go first
+            if (connection.tls != null && !connection.tls.flush()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            if ((head = connection.outbound.peek()) == null) {
+                break;
+            }
+            if (head instanceof BufferOutbound) {
+                if (!writeBuffers(connection)) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                continue;
+            }
+            if (!head.writeTo(output(connection))) {
+                // Socket send buffer is full: wait for OP_WRITE
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.outbound.poll();
+            head.release();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+
+        if (connection.h2 != null || connection.push != null) {
+            // HTTP/2 and push streams keep reading throughout; they only ask to close after their last bytes
+            if (connection.closeAfterWrite) {
+                close(connection);
+            }
+            return;
+        }
+        if (!connection.inFlight || !connection.responseComplete) {
+            // Interim bytes (100 Continue, streamed batches): the handler is still producing
+            return;
+        }
+        if (connection.closeAfterWrite || draining || connection.body != null) {
+            close(connection);
+            return;
+        }
+
+        connection.inFlight = false;
+        connection.responseComplete = false;
+        connection.sink = null;
+        connection.lastActive = System.nanoTime();
+
+        // Serve pipelined requests that are already buffered before reading again
+        final ByteBuffer pending = connection.pending;
+        connection.pending = null;
+        if (pending != null) {
+            processInput(connection, pending);
+            retainPending(connection, pending);
+        }
+        if (!connection.inFlight && connection.channel.isOpen()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Write the leading run of queued buffers (head, body, further pipelined responses) with
+     * one gathering write; returns false if the socket did not take all of them.
+     */
+    private boolean writeBuffers(NioConnection connection) throws IOException {
+        int count = 0;
+        for (Outbound piece : connection.outbound) {
+            if (!(piece instanceof BufferOutbound buffer) || count == gather.length) {
+                break;
+            }
+            gather[count++] = buffer.buffer;
+        }
+        try {
+            output(connection).write(gather, 0, count);
+        } finally {
+            Arrays.fill(gather, 0, count, null);
+        }
+
+        for (int i = 0; i < count; i++) {
+            final BufferOutbound piece = (BufferOutbound) connection.outbound.peek();
+            if (piece.buffer.hasRemaining()) {
+                return false;
+            }
+            connection.outbound.poll();
+            piece.release();
+        }
+        return true;
+    }
+
+    private static GatheringByteChannel output(NioConnection connection) {
+        return connection.tls != null ? connection.tls : connection.channel;
+    }
+
+    // Keep pipelined bytes that arrived behind an in-flight request (copied out of the shared read buffer)
+    private void appendPending(NioConnection connection, ByteBuffer input) {
+        final ByteBuffer previous = connection.pending;
+        if (previous == null) {
+            retainPending(connection, input);
+            return;
+        }
+        final ByteBuffer merged = ByteBuffer.allocate(previous.remaining() + input.remaining());
+        merged.put(previous).put(input).flip();
+        connection.pending = merged;
+    }
+
+    private void retainPending(NioConnection connection, ByteBuffer input) {
+        if (!input.hasRemaining() || !connection.channel.isOpen()) {
+            return;
+        }
+        if (input == readBuffer) {
+            final ByteBuffer copy = ByteBuffer.allocate(input.remaining());
+            copy.put(input);
+            copy.flip();
+            connection.pending = copy;
+        } else {
+            connection.pending = input;
+        }
+    }
+
+    private void sweepIdleConnections() {
+        final long now = System.nanoTime();
+        if (idleTimeoutNanos == 0 || now - lastSweep < TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL_MILLIS)) {
+            return;
+        }
+        lastSweep = now;
+
+        for (SelectionKey key : selector.keys()) {
+            final NioConnection connection = (NioConnection) key.attachment();
+            if (connection != null && !connection.inFlight && connection.outbound.isEmpty()
+                    && now - connection.lastActive > idleTimeoutNanos) {
+                if (connection.h2 == null) {
+                    close(connection);
+                } else if (connection.h2.isIdle()) {
+                    connection.h2.shutdownGracefully();
+                }
+            }
+        }
+    }
+
+    void close(NioConnection connection) {
+        if (connection.key != null) {
+            connection.key.cancel();
+        }
+        if (connection.channel.isOpen()) {
+            handler.getMetrics().connectionClosed();
+            admission.connectionClosed();
+        }
+        try {
+            if (connection.tls != null) {
+                connection.tls.close();                        // close_notify, then the socket
+            } else {
+                connection.channel.close();
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+        connection.pending = null;
+        if (connection.body != null) {
+            connection.body.fail(new IOException("Connection closed before the request body was complete"));
+            connection.body = null;
+        }
+        Outbound piece;
+        while ((piece = connection.outbound.poll()) != null) {
+            piece.release();
+        }
+        if (connection.sink != null) {
+            connection.sink.cancel();
+            connection.sink = null;
+        }
+        if (connection.h2 != null) {
+            connection.h2Output.cancel();
+            connection.h2.closed();
+        }
+        if (connection.push != null) {
+            connection.push.cancel();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.server.transport;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * FileOutbound: file region sent with FileChannel.transferTo (sendfile on Linux).
+ * - transferTo on a non-blocking socket sends what fits and returns 0 when the send buffer
+ *   is full; the loop then waits for OP_WRITE and resumes from the saved position.
+ * - Over TLS the target is the connection's TlsChannel: the file is read and encrypted in
+ *   user space (no sendfile), still without holding more than a record at a time.
+ */
+final class FileOutbound implements Outbound {
+    private final FileChannel file;
+    private final long end;
+    private long position;
+
+    FileOutbound(FileChannel file, long count) {
+        this.file = file;
+        this.end = count;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        while (position < end) {
+            final long sent = file.transferTo(position, end - position, channel);
+            if (sent <= 0) {
+                if (file.size() <= position) {
+                    throw new IOException("File truncated while sending");
+                }
+                return false;
+            }
+            position += sent;
+        }
+        return true;
+    }
+
+    @Override
+    public void release() {
+        try { file.close(); } catch (IOException e) { /* ignore */ }
+    }
+}
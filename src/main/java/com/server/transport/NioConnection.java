@@ -0,0 +1,52 @@
+package com.server.transport;
+
+import com.server.http.HttpDecoder;
+import com.server.http2.Http2Connection;
+import com.server.tls.TlsChannel;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * NioConnection: per-connection state owned by a single EventLoop.
+ * - pending: bytes received behind an in-flight request head (read mode), or null: body
+ *   bytes the handler has not asked for yet, then pipelined requests.
+ * - body: the in-flight request's streamed body until it has been fully decoded.
+ * - outbound: response pieces (buffers, file regions) waiting for the socket to accept them.
+ * - tls: the connection's TLS layer (null for plaintext); reads and writes go through it.
+ * - sink: worker-side producer of the in-flight response; responseComplete once it has finished.
+ * - h2: set once the connection speaks HTTP/2; every read goes to it from then on. With
+ *   HTTP/2 enabled, the first bytes decide (ALPN, or the client preface on plaintext).
+ * - push: set once the response became a PushStream (EventStream, WebSocket); the connection
+ *   then belongs to it: reads go to it and nothing else is decoded.
+ * - Only accessed from the owning loop thread, so no synchronization is needed.
+ */
+final class NioConnection {
+    final SocketChannel channel;
+    final HttpDecoder decoder;                         // incremental parser state for this connection
+    final ArrayDeque<Outbound> outbound = new ArrayDeque<>(2);
+    SelectionKey key;
+    TlsChannel tls;                                    // null: plaintext; set on accept
+    SocketAddress remote;                              // client address for the access log
+    ByteBuffer pending;
+    boolean inFlight;                                  // a handler is running for this connection
+    NioResponseSink sink;                              // producer of the in-flight response, or null
+    boolean responseComplete;                          // the in-flight response has been fully posted
+    boolean closeAfterWrite;                           // close once outbound drains
+    int served;                                        // requests decoded so far
+    long lastActive;                                   // System.nanoTime() of last read/response
+    NioRequestBody body;                               // body the in-flight handler is still receiving, or null
+    boolean protocolChosen;                            // HTTP/1.1 or HTTP/2 decided for this connection
+    ByteBuffer preface;                                // first bytes still matching the HTTP/2 preface, or null
+    Http2Connection h2;                                // HTTP/2 state, or null while HTTP/1.1
+    NioHttp2Output h2Output;
+    NioPushOutlet push;                                // attached push stream, or null
+
+    NioConnection(SocketChannel channel, HttpDecoder decoder) {
+        this.channel = channel;
+        this.decoder = decoder;
+    }
+}
@@ -0,0 +1,96 @@
+package com.server.transport;
+
+import com.server.http2.Http2Output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NioHttp2Output: Http2Output of an HTTP/2 connection served by an EventLoop.
+ * - Frames are posted through the loop's task queue, in the order they were written, and
+ *   queued as BufferOutbound pieces; consecutive frames go out in one gathering write.
+ * - Backpressure: awaitWritable() waits while more than HIGH_WATER_MARK posted bytes are
+ *   unwritten, like NioResponseSink, but shared by every stream of the connection.
+ * - cancel() is called by the loop when the connection closes and fails waiting producers.
+ */
+final class NioHttp2Output implements Http2Output, WriteBudget {
+    private static final long HIGH_WATER_MARK = 256 * 1024;
+
+    private final EventLoop loop;
+    private final NioConnection connection;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private long unwritten;                            // posted but not yet written (guarded by lock)
+    private boolean closed;                            // connection gone (guarded by lock)
+
+    NioHttp2Output(EventLoop loop, NioConnection connection) {
+        this.loop = loop;
+        this.connection = connection;
+    }
+
+    @Override
+    public void write(List<ByteBuffer> frames) {
+        final List<Outbound> pieces = new ArrayList<>(frames.size());
+        long bytes = 0;
+        for (ByteBuffer frame : frames) {
+            pieces.add(new BufferOutbound(frame, false, this));
+            bytes += frame.remaining();
+        }
+        lock.lock();
+        try {
+            // Counted even when closed: the loop releases the pieces, which keeps the budget balanced
+            unwritten += bytes;
+        } finally {
+            lock.unlock();
+        }
+        loop.execute(() -> loop.enqueue(connection, pieces));
+    }
+
+    @Override
+    public void awaitWritable() throws IOException {
+        lock.lock();
+        try {
+            while (unwritten > HIGH_WATER_MARK && !closed) {
+                drained.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Close once the frames posted so far are written (GOAWAY, or the last stream after one)
+    @Override
+    public void close() {
+        loop.execute(() -> loop.finishResponse(connection, true));
+    }
+
+    @Override
+    public void written(int bytes) {
+        lock.lock();
+        try {
+            unwritten -= bytes;
+            if (unwritten <= HIGH_WATER_MARK) {
+                drained.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void cancel() {
+        lock.lock();
+        try {
+            closed = true;
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.server.transport;
+
+import com.server.push.PushOutlet;
+import com.server.push.PushStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NioPushOutlet: PushOutlet of an HTTP/1.1 connection whose response became a PushStream.
+ * - offer() posts the (shared, read-only) bytes to the loop as BufferOutbound pieces and
+ *   returns; nothing blocks, and no thread stays with the connection.
+ * - Budget: bytes posted but not yet written are counted (WriteBudget); an offer that would
+ *   take them past maxQueuedBytes is refused, and the stream evicts itself.
+ * - chunked (EventStream): each offer becomes one chunk, the size line and CRLF around the
+ *   shared payload, so the message bytes themselves are never copied; close() ends the body
+ *   with the last chunk. WebSocket frames go out as they are.
+ * - The loop hands client bytes to receive() and calls cancel() when the connection closes.
+ */
+final class NioPushOutlet implements PushOutlet, WriteBudget {
+    private static final ByteBuffer CRLF = ByteBuffer.wrap("\r\n".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    private static final ByteBuffer LAST_CHUNK = ByteBuffer.wrap("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+
+    private final EventLoop loop;
+    private final NioConnection connection;
+    private final PushStream stream;
+    private final long maxQueuedBytes;
+    private final boolean chunked;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long unwritten;                            // posted but not yet written (guarded by lock)
+    private boolean closed;                            // close()/abort() called or connection gone (guarded by lock)
+
+    NioPushOutlet(EventLoop loop, NioConnection connection, PushStream stream, long maxQueuedBytes, boolean chunked) {
+        this.loop = loop;
+        this.connection = connection;
+        this.stream = stream;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.chunked = chunked;
+    }
+
+    @Override
+    public boolean offer(ByteBuffer bytes) {
+        if (!bytes.hasRemaining()) {
+            return true;                               // an empty chunk would end the body
+        }
+        final List<Outbound> pieces = new ArrayList<>(chunked ? 3 : 1);
+        if (chunked) {
+            pieces.add(new BufferOutbound(chunkSize(bytes.remaining()), false, this));
+            pieces.add(new BufferOutbound(bytes, false, this));
+            pieces.add(new BufferOutbound(CRLF.duplicate(), false, this));
+        } else {
+            pieces.add(new BufferOutbound(bytes, false, this));
+        }
+        return post(pieces, false);
+    }
+
+    // Graceful end: the last chunk (EventStream), then close once everything is written
+    @Override
+    public void close() {
+        if (chunked) {
+            post(List.of(new BufferOutbound(LAST_CHUNK.duplicate(), false, this)), true);
+        }
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        loop.execute(() -> loop.finishResponse(connection, true));
+    }
+
+    @Override
+    public void abort() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        loop.execute(() -> loop.close(connection));
+    }
+
+    @Override
+    public void written(int bytes) {
+        lock.lock();
+        try {
+            unwritten -= bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Loop thread: client bytes after the head
+    void receive(ByteBuffer input) {
+        stream.receive(input);
+    }
+
+    // Loop thread: the server is draining
+    void shutdown() {
+        stream.shutdown();
+    }
+
+    // Loop thread: the connection is closed
+    void cancel() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        stream.closed();
+    }
+
+    // Within budget (a single message on a drained connection always is): count and post
+    private boolean post(List<Outbound> pieces, boolean force) {
+        int bytes = 0;
+        for (Outbound piece : pieces) {
+            bytes += ((BufferOutbound) piece).length();
+        }
+        lock.lock();
+        try {
+            if (closed || (!force && unwritten > 0 && unwritten + bytes > maxQueuedBytes)) {
+                return false;
+            }
+            unwritten += bytes;
+        } finally {
+            lock.unlock();
+        }
+        loop.execute(() -> loop.enqueue(connection, pieces));
+        return true;
+    }
+
+    private static ByteBuffer chunkSize(int length) {
+        return ByteBuffer.wrap((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
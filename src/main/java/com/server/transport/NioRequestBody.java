@@ -0,0 +1,234 @@
+package com.server.transport;
+
+import com.server.http.BodyDecoder;
+import com.server.http.HttpParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NioRequestBody: request body of a non-blocking connection, read by the handler as it arrives.
+ * - Nothing is read until the handler reads: the first read asks the loop to start (and, for
+ *   "Expect: 100-continue", to send the interim response), so a request rejected without
+ *   reading never makes the client upload the body.
+ * - The loop decodes bytes (BodyDecoder) into at most BUFFER_SIZE buffered bytes; while that
+ *   is full it stops reading the socket, and resumes once the handler has taken half of it.
+ * - Reads wait up to the idle timeout for bytes; they fail once the body turns out to be
+ *   malformed or too large, or the connection closes.
+ */
+final class NioRequestBody extends InputStream {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EventLoop loop;
+    private final NioConnection connection;
+    private final BodyDecoder decoder;                 // loop thread only
+    private final boolean expectContinue;
+    private final long timeoutNanos;                   // 0: wait indefinitely
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>(4);
+    private int buffered;
+    private boolean started;                           // the handler asked for bytes
+    private boolean paused;                            // the loop stopped reading: buffer full
+    private boolean complete;                          // every body byte has been decoded
+    private IOException failure;                       // why reads fail, or null
+    private boolean pulling;                           // loop thread only: feeding has begun
+
+    NioRequestBody(EventLoop loop, NioConnection connection, BodyDecoder decoder, long timeoutNanos) {
+        this.loop = loop;
+        this.connection = connection;
+        this.decoder = decoder;
+        this.expectContinue = decoder.isExpectContinue();
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        final int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            if (!started) {
+                started = true;
+                loop.execute(() -> loop.pullBody(connection, this));
+            }
+            long remaining = timeoutNanos;
+            while (chunks.isEmpty() && !complete && failure == null) {
+                try {
+                    if (timeoutNanos == 0) {
+                        readable.await();
+                    } else if (remaining > 0) {
+                        remaining = readable.awaitNanos(remaining);
+                    } else {
+                        failure = new SocketTimeoutException("Request body not received within "
+                                + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading the request body");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            final ByteBuffer chunk = chunks.peek();
+            if (chunk == null) {
+                return -1;
+            }
+            final int n = Math.min(len, chunk.remaining());
+            chunk.get(b, off, n);
+            if (!chunk.hasRemaining()) {
+                chunks.poll();
+            }
+            buffered -= n;
+            if (paused && buffered <= BUFFER_SIZE / 2) {
+                paused = false;
+                loop.execute(() -> loop.pullBody(connection, this));
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return failure != null ? 0 : buffered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // True once the client was told to send (or never had to wait for) the body
+    boolean isContinueSettled() {
+        if (!expectContinue) {
+            return true;
+        }
+        lock.lock();
+        try {
+            return started;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isComplete() {
+        lock.lock();
+        try {
+            return complete;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard what the handler left of the body so the connection can be reused.
+     * - Returns false (close instead) if the client still awaits "100 Continue", the rest is
+     *   larger than maxBytes, or the body turns out to be malformed.
+     */
+    boolean drain(long maxBytes) {
+        if (!isContinueSettled()) {
+            return false;
+        }
+        final byte[] discard = new byte[(int) Math.min(8 * 1024, Math.max(1, maxBytes))];
+        long drained = 0;
+        try {
+            int read;
+            while (!isComplete() && drained < maxBytes && (read = read(discard, 0, discard.length)) > 0) {
+                drained += read;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return isComplete();
+    }
+
+    // Loop side: the first pull of this body (the caller then sends "100 Continue" if true)
+    boolean beginPull() {
+        if (pulling) {
+            return false;
+        }
+        pulling = true;
+        return expectContinue;
+    }
+
+    boolean isPulling() {
+        return pulling;
+    }
+
+    // Loop side: decode body bytes from input while there is room; the rest of input stays there
+    void feed(ByteBuffer input) throws HttpParseException {
+        while (input.hasRemaining() && !decoder.isComplete()) {
+            final int room;
+            lock.lock();
+            try {
+                room = BUFFER_SIZE - buffered;
+            } finally {
+                lock.unlock();
+            }
+            if (room <= 0) {
+                return;
+            }
+            final int before = input.position();
+            final byte[] bytes = new byte[Math.min(room, input.remaining())];
+            final int n = decoder.decode(input, bytes, 0, bytes.length);
+            lock.lock();
+            try {
+                if (n > 0) {
+                    chunks.add(ByteBuffer.wrap(bytes, 0, n));
+                    buffered += n;
+                }
+                complete = decoder.isComplete();
+                readable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (n == 0 && input.position() == before) {
+                return;
+            }
+        }
+    }
+
+    // Loop side: true (and a resume once the handler catches up) if the buffer is full
+    boolean pauseIfFull() {
+        lock.lock();
+        try {
+            paused = buffered >= BUFFER_SIZE;
+            return paused;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Loop side: the body cannot be completed (malformed, too large, connection closed)
+    void fail(IOException reason) {
+        lock.lock();
+        try {
+            if (failure == null && !complete) {
+                failure = reason;
+            }
+            readable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
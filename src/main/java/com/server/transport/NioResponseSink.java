@@ -0,0 +1,208 @@
+package com.server.transport;
+
+import com.server.writers.BufferPool;
+import com.server.writers.ResponseSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NioResponseSink: worker-side ResponseSink for one response on a non-blocking connection.
+ * - The worker never touches the socket: pieces are staged here and posted to the owning
+ *   EventLoop, which queues them and writes consecutive buffers with one gathering write.
+ * - The encoded head (a pooled buffer) and in-memory body are handed over without copying;
+ *   small writes (chunk frames) are copied into pooled batch buffers.
+ * - Small responses go out as a single post together with the completion signal.
+ * - Backpressure: once more than HIGH_WATER_MARK posted bytes are still unwritten, the
+ *   producing worker waits, so streamed bodies are bounded in memory by slow clients.
+ * - Files are posted as a FileOutbound region and sent with transferTo by the loop.
+ * - If the connection closes mid-response, further writes fail with an IOException, and a
+ *   still pending async handler result is cancelled.
+ */
+final class NioResponseSink implements ResponseSink, WriteBudget {
+    private static final int POST_THRESHOLD = 64 * 1024;
+    private static final long HIGH_WATER_MARK = 256 * 1024;
+
+    private final EventLoop loop;
+    private final NioConnection connection;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private List<Outbound> staged = new ArrayList<>(2);
+    private int stagedBytes;
+    private ByteBuffer batch;                          // pooled, write mode; acquired on first write
+    private long unwritten;                            // posted but not yet written (guarded by lock)
+    private boolean closed;                            // connection gone (guarded by lock)
+    private Future<?> awaited;                         // async handler result, cancelled on close (guarded by lock)
+
+    NioResponseSink(EventLoop loop, NioConnection connection) {
+        this.loop = loop;
+        this.connection = connection;
+    }
+
+    @Override
+    public void send(ByteBuffer head, ByteBuffer body) throws IOException {
+        stageBatch();
+        stage(new BufferOutbound(head, true, this));
+        if (body != null && body.hasRemaining()) {
+            stage(new BufferOutbound(body.duplicate(), false, this));
+        }
+        if (stagedBytes >= POST_THRESHOLD) {
+            post();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (batch == null) {
+                batch = BufferPool.acquire();
+            }
+            final int n = Math.min(length, batch.remaining());
+            batch.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+            if (!batch.hasRemaining()) {
+                stageBatch();
+                if (stagedBytes >= POST_THRESHOLD) {
+                    post();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void transfer(FileChannel file, long count) throws IOException {
+        stageBatch();
+        staged.add(new FileOutbound(file, count));
+        post();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        stageBatch();
+        post();
+    }
+
+    // Post the remaining pieces and let the loop finish the response (resume reading or close)
+    void complete(boolean close) throws IOException {
+        stageBatch();
+        final List<Outbound> last = takeStaged();
+        loop.execute(() -> {
+            loop.enqueue(connection, last);
+            loop.finishResponse(connection, close);
+        });
+    }
+
+    // Response failed half-way: the framing on the wire is broken, so drop the connection
+    void abort() {
+        stageBatch();
+        cancel();
+        try {
+            takeStaged();
+        } catch (IOException e) {
+            // Expected: cancelled, so the staged pieces were released
+        }
+        loop.execute(() -> loop.close(connection));
+    }
+
+    // The response waits for an async handler: cancel its result if the connection closes first
+    void awaiting(Future<?> result) {
+        lock.lock();
+        try {
+            if (!closed) {
+                awaited = result;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        result.cancel(true);
+    }
+
+    // Called by the loop when the connection closes: wake and fail a blocked producer
+    void cancel() {
+        final Future<?> result;
+        lock.lock();
+        try {
+            closed = true;
+            drained.signalAll();
+            result = awaited;
+            awaited = null;
+        } finally {
+            lock.unlock();
+        }
+        if (result != null) {
+            result.cancel(true);
+        }
+    }
+
+    // Called by the loop as posted bytes leave the queue (written or discarded)
+    @Override
+    public void written(int bytes) {
+        lock.lock();
+        try {
+            unwritten -= bytes;
+            if (unwritten <= HIGH_WATER_MARK) {
+                drained.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void stage(BufferOutbound piece) {
+        staged.add(piece);
+        stagedBytes += piece.length();
+    }
+
+    private void stageBatch() {
+        if (batch == null) {
+            return;
+        }
+        if (batch.position() == 0) {
+            BufferPool.release(batch);
+        } else {
+            stage(new BufferOutbound(batch.flip(), true, this));
+        }
+        batch = null;
+    }
+
+    private void post() throws IOException {
+        final List<Outbound> pieces = takeStaged();
+        if (!pieces.isEmpty()) {
+            loop.execute(() -> loop.enqueue(connection, pieces));
+        }
+    }
+
+    // Hand the staged pieces over (waiting for the write budget) and start a fresh list
+    private List<Outbound> takeStaged() throws IOException {
+        final List<Outbound> pieces = staged;
+        staged = new ArrayList<>(2);
+        final int bytes = stagedBytes;
+        stagedBytes = 0;
+
+        final boolean open;
+        lock.lock();
+        try {
+            while (unwritten > HIGH_WATER_MARK && !closed) {
+                drained.awaitUninterruptibly();
+            }
+            // Counted even when closed, so releasing the pieces below keeps the budget balanced
+            unwritten += bytes;
+            open = !closed;
+        } finally {
+            lock.unlock();
+        }
+        if (!open) {
+            pieces.forEach(Outbound::release);
+            throw new IOException("Connection closed");
+        }
+        return pieces;
+    }
+}
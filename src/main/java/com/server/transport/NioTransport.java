@@ -0,0 +1,87 @@
+package com.server.transport;
+
+import com.server.admission.AdmissionController;
+import com.server.http.HttpHandler;
+import com.server.tls.TlsContext;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * NioTransport: selector-based alternative to the blocking accept/worker model.
+ * - Owns N EventLoop threads (default: core count), each with its own Selector.
+ * - Each acceptor thread runs serve() and hands new SocketChannels round-robin to its own
+ *   shard of the event loops, so acceptors never contend on a shared cursor.
+ * - Event loops do all socket reads, request decoding and writes on ByteBuffers;
+ *   RequestRunner handlers run on the worker Executor so blocking handlers never stall a loop.
+ * - Connections over AdmissionPolicy.maxConnections get a canned 503 and are closed on accept.
+ * - With a TlsContext every connection is TLS; handshakes are driven by the loops, their
+ *   CPU-heavy steps run on the context's handshake executor.
+ * - Idle keep-alive connections cost a selection key and a small state object, not a thread.
+ * - drain() / shutdown() forward to every loop (see EventLoop).
+ */
+public class NioTransport {
+    private final EventLoop[] loops;
+    private final AdmissionController admission;
+
+    public NioTransport(HttpHandler handler, Executor workers) throws IOException {
+        this(handler, workers, null);
+    }
+
+    public NioTransport(HttpHandler handler, Executor workers, TlsContext tls) throws IOException {
+        final int threads = handler.getConfig().getEventLoopThreads();
+        loops = new EventLoop[threads];
+        admission = handler.getAdmission();
+
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new EventLoop(handler, workers, tls);
+            final Thread thread = new Thread(loops[i], "nio-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Accept loop of acceptor `acceptor` of `acceptors`: blocks on accept() until the listening
+     * socket is closed (AsynchronousCloseException / ClosedChannelException).
+     */
+    public void serve(ServerSocketChannel serverChannel, int acceptor, int acceptors) throws IOException {
+        final EventLoop[] shard = shard(acceptor, acceptors);
+        int next = 0;
+        while (true) {
+            final SocketChannel clientChannel = serverChannel.accept();
+            if (!admission.tryOpenConnection()) {
+                admission.shed(clientChannel);
+                continue;
+            }
+            shard[next].register(clientChannel);
+            next = next + 1 == shard.length ? 0 : next + 1;
+        }
+    }
+
+    public void drain() {
+        for (EventLoop loop : loops) {
+            loop.drain();
+        }
+    }
+
+    public void shutdown() {
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    // Loops acceptor, acceptor + acceptors, ...; one shared loop when there are more acceptors than loops
+    private EventLoop[] shard(int acceptor, int acceptors) {
+        if (acceptors >= loops.length) {
+            return new EventLoop[]{loops[acceptor % loops.length]};
+        }
+        final EventLoop[] shard = new EventLoop[(loops.length - acceptor + acceptors - 1) / acceptors];
+        for (int i = 0; i < shard.length; i++) {
+            shard[i] = loops[acceptor + i * acceptors];
+        }
+        return shard;
+    }
+}
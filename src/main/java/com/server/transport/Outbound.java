@@ -0,0 +1,15 @@
+package com.server.transport;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Outbound: one queued piece of a response waiting for a non-blocking socket.
+ * - writeTo() writes as much as the socket (or its TlsChannel) accepts and returns true once the piece is done.
+ * - release() is called exactly once, after completion or when the connection closes first.
+ */
+interface Outbound {
+    boolean writeTo(WritableByteChannel channel) throws IOException;
+
+    void release();
+}
@@ -0,0 +1,54 @@
+package com.server.transport;
+
+import com.server.config.ServerConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * SocketTuning: applies ServerConfig socket options, shared by both transports.
+ * - Listening sockets: SO_RCVBUF (set before bind, so accepted sockets inherit it and can
+ *   negotiate window scaling), SO_REUSEPORT when requested, and the accept backlog.
+ * - Accepted sockets: TCP_NODELAY and SO_SNDBUF.
+ * - Sizes of 0 keep the operating system defaults.
+ */
+public final class SocketTuning {
+    private SocketTuning() {
+    }
+
+    // Whether this platform lets several sockets bind the same port (Linux, recent BSDs)
+    public static boolean supportsReusePort() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static ServerSocketChannel bind(final int port, final ServerConfig config, final boolean reusePort) throws IOException {
+        final ServerSocketChannel socket = ServerSocketChannel.open();
+        try {
+            if (reusePort) {
+                socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            if (config.getReceiveBufferSize() > 0) {
+                socket.setOption(StandardSocketOptions.SO_RCVBUF, config.getReceiveBufferSize());
+            }
+            socket.bind(new InetSocketAddress(port), config.getBacklog());
+            return socket;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    public static void configureClient(final SocketChannel channel, final ServerConfig config) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+        if (config.getSendBufferSize() > 0) {
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, config.getSendBufferSize());
+        }
+    }
+}
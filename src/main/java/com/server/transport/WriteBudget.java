@@ -0,0 +1,10 @@
+package com.server.transport;
+
+/**
+ * WriteBudget: a worker-side producer bounding how many of its posted bytes are unwritten.
+ * - written() is called by the loop as the producer's pieces leave the outbound queue
+ *   (written or discarded), so a producer blocked at its high-water mark can continue.
+ */
+interface WriteBudget {
+    void written(int bytes);
+}
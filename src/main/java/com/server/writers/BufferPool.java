@@ -0,0 +1,43 @@
+package com.server.writers;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BufferPool: shared pool of fixed-size direct ByteBuffers for encoding responses.
+ * - Direct buffers are handed to socket writes as-is (no copy into a temporary native buffer).
+ * - acquire() returns a cleared buffer, allocating when the pool is empty; release() keeps at
+ *   most MAX_POOLED buffers and ignores buffers that did not come from the pool.
+ * - Lock-free, so it works the same for platform and virtual threads (no ThreadLocal caches).
+ */
+public final class BufferPool {
+    public static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED = 1024;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private BufferPool() {
+    }
+
+    public static ByteBuffer acquire() {
+        final ByteBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        POOLED.decrementAndGet();
+        return buffer.clear();
+    }
+
+    public static void release(final ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != BUFFER_SIZE) {
+            return;
+        }
+        if (POOLED.incrementAndGet() > MAX_POOLED) {
+            POOLED.decrementAndGet();
+            return;
+        }
+        POOL.offer(buffer);
+    }
+}
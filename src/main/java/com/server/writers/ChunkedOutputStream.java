@@ -0,0 +1,74 @@
+package com.server.writers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ChunkedOutputStream: frames bytes as Transfer-Encoding: chunked onto a ResponseSink.
+ * - Small writes are coalesced into chunks of up to CHUNK_SIZE bytes.
+ * - flush() emits the pending chunk and flushes the sink; finish() writes the last-chunk.
+ * - close() is a no-op so handlers cannot end the response (or the connection) early.
+ */
+class ChunkedOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ResponseSink sink;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int length;
+
+    ChunkedOutputStream(ResponseSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (length == buffer.length) {
+            writeChunk();
+        }
+        buffer[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (length == buffer.length) {
+                writeChunk();
+            }
+            final int n = Math.min(len, buffer.length - length);
+            System.arraycopy(b, off, buffer, length, n);
+            length += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        sink.flush();
+    }
+
+    @Override
+    public void close() {
+        // The response owns the stream; finish() ends it
+    }
+
+    void finish() throws IOException {
+        writeChunk();
+        sink.write(LAST_CHUNK, 0, LAST_CHUNK.length);
+    }
+
+    private void writeChunk() throws IOException {
+        if (length == 0) {
+            return;
+        }
+        final byte[] size = (Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        sink.write(size, 0, size.length);
+        sink.write(buffer, 0, length);
+        sink.write(CRLF, 0, CRLF.length);
+        length = 0;
+    }
+}
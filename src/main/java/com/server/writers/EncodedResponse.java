@@ -0,0 +1,54 @@
+package com.server.writers;
+
+import com.server.pojos.HttpResponse;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * EncodedResponse: a response serialized once, to be written many times (see ResponseCache).
+ * - Created by ResponseWriter.encode() from a response with an in-memory body; used as the
+ *   entity of an HttpResponse, it is written as is instead of being encoded again.
+ * - head holds the status line and header lines including Content-Length, without the
+ *   blank line; the writer patches in the current Date and adds "Connection: close" if needed.
+ * - The body is a private read-only copy, so the instance can be shared between threads.
+ * - variant() memoizes derived responses (e.g. the gzip-compressed one) next to this one; they
+ *   live as long as it does and are not counted in size().
+ */
+public final class EncodedResponse {
+    private final byte[] head;
+    private final int dateOffset;                      // start of the "Date: " line, -1 if the response set its own
+    private final ByteBuffer body;
+    private final Map<String, HttpResponse> variants = new ConcurrentHashMap<>(2);
+
+    EncodedResponse(byte[] head, int dateOffset, ByteBuffer body) {
+        this.head = head;
+        this.dateOffset = dateOffset;
+        this.body = body;
+    }
+
+    byte[] head() {
+        return head;
+    }
+
+    int dateOffset() {
+        return dateOffset;
+    }
+
+    // Read-only view of the body; callers get their own position and limit
+    public ByteBuffer getBody() {
+        return body.duplicate();
+    }
+
+    // Derived response for the key, created once by the factory
+    public HttpResponse variant(String key, Supplier<HttpResponse> factory) {
+        return variants.computeIfAbsent(key, k -> factory.get());
+    }
+
+    // Bytes held by this response (head + body)
+    public int size() {
+        return head.length + body.capacity();
+    }
+}
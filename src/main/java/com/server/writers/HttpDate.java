@@ -0,0 +1,72 @@
+package com.server.writers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * HttpDate: shared cache of the current Date header.
+ * - The IMF-fixdate text and the encoded "Date: ...\r\n" line are formatted at most once per
+ *   second (whichever thread first sees a new second refreshes them), instead of formatting
+ *   a ZonedDateTime for every response.
+ * - Readers get an immutable snapshot through one volatile read.
+ * - format()/parse() convert other header dates (Last-Modified, If-Modified-Since).
+ */
+public final class HttpDate {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+
+    private record Snapshot(long second, String text, byte[] headerLine) {
+    }
+
+    private static volatile Snapshot current = snapshotOf(System.currentTimeMillis() / 1000);
+
+    private HttpDate() {
+    }
+
+    // Current date as header value, e.g. "Sat, 17 Oct 2026 14:06:24 GMT"
+    public static String now() {
+        return snapshot().text();
+    }
+
+    // "Date: <now>\r\n" as bytes (always the same length); callers must not modify the array
+    static byte[] headerLine() {
+        return snapshot().headerLine();
+    }
+
+    // IMF-fixdate of an epoch second
+    public static String format(final long epochSecond) {
+        return FORMAT.format(Instant.ofEpochSecond(epochSecond));
+    }
+
+    // Epoch second of an IMF-fixdate value, or -1 if it is not one (obsolete formats included)
+    public static long parse(final String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(value.trim())).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static Snapshot snapshot() {
+        final long second = System.currentTimeMillis() / 1000;
+        Snapshot snapshot = current;
+        if (snapshot.second() != second) {
+            snapshot = snapshotOf(second);
+            current = snapshot;
+        }
+        return snapshot;
+    }
+
+    private static Snapshot snapshotOf(final long second) {
+        final String text = format(second);
+        return new Snapshot(second, text, ("Date: " + text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
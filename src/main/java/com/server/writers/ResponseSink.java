@@ -0,0 +1,29 @@
+package com.server.writers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ResponseSink: transport-side destination for serialized responses.
+ * - send(): an encoded response head plus optional in-memory body, written together
+ *   (one gathering write, or one batch) where the transport allows it.
+ * - write(): further response bytes (chunk frames, interim responses); copied by the sink.
+ * - transfer(): file region to send without copying through the heap where the transport
+ *   allows it (FileChannel.transferTo / sendfile); the sink owns and closes the file.
+ * - flush(): push buffered bytes to the client, used by streaming bodies.
+ */
+public interface ResponseSink {
+    /**
+     * The head buffer (flipped, usually from BufferPool) is owned by the sink from here on.
+     * The body may be null; the sink may keep a reference until it is written, so it must
+     * not be modified afterwards.
+     */
+    void send(ByteBuffer head, ByteBuffer body) throws IOException;
+
+    void write(byte[] bytes, int offset, int length) throws IOException;
+
+    void transfer(FileChannel file, long count) throws IOException;
+
+    void flush() throws IOException;
+}
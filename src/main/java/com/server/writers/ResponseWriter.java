@@ -1,92 +1,404 @@
 package com.server.writers;
 
+import com.server.contract.StreamingBody;
+import com.server.pojos.HttpHeaders;
 import com.server.pojos.HttpResponse;
 import com.server.pojos.HttpStatusCode;
 
-import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 /**
- * ResponseWriter: serializes an HttpResponse to the wire in HTTP/1.1 format.
- * - Writes status line, headers, blank line, then optional body.
- * - Builds header lines from a multi-valued header map.
- * - Currently supports String entities; other types are ignored.
- * - Silent error handling by design to avoid breaking connection teardown.
+ * ResponseWriter: serializes an HttpResponse to a ResponseSink in HTTP/1.1 format.
+ * - Encodes the head straight into a pooled direct buffer: status lines and common header
+ *   names are pre-encoded once, values and numbers are written byte by byte (no Strings).
+ * - Adds "Server" and the cached "Date" line (HttpDate) unless the response sets them.
+ * - Small in-memory bodies are encoded into the same buffer; larger ones are handed to the
+ *   sink next to the head so they go out in one gathering write.
+ * - Supported entities:
+ *     String (UTF-8), byte[], ByteBuffer          -> Content-Length, in-memory body
+ *     Path, File                                  -> Content-Length, sent via FileChannel.transferTo
+ *     InputStream, StreamingBody                  -> Transfer-Encoding: chunked, streamed
+ *     EncodedResponse                             -> written as pre-encoded (head and body)
+ *   Other entity types are ignored (empty body).
+ * - 1xx, 204 and 304 responses carry no body and no framing headers.
+ * - I/O errors propagate so the transport can close the connection; a response that failed
+ *   half-way cannot be repaired on the wire.
  */
 public class ResponseWriter {
+    public static final String CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n";
+    private static final byte[] CONTINUE_BYTES = ascii(CONTINUE);
+
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+    private static final byte[] TRANSFER_ENCODING_CHUNKED = ascii("Transfer-Encoding: chunked\r\n");
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] SERVER = ascii("Server: " + HttpResponse.SERVER_NAME + "\r\n");
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    // "HTTP/1.1 <code> <reason>\r\n" for every known status code, indexed by code
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    // "<Name>: " for common response header names
+    private static final Map<String, byte[]> HEADER_PREFIXES = new HashMap<>();
+
+    static {
+        HttpStatusCode.STATUS_CODES.forEach((code, reason) ->
+                STATUS_LINES[code] = ascii("HTTP/1.1 " + code + " " + reason + "\r\n"));
+        for (String name : List.of("Server", "Date", "Content-Type", "Content-Encoding", "Content-Language",
+                "Cache-Control", "ETag", "Last-Modified", "Expires", "Vary", "Location", "Allow",
+                "Retry-After", "Set-Cookie", "Access-Control-Allow-Origin")) {
+            HEADER_PREFIXES.put(name, ascii(name + ": "));
+        }
+    }
 
     /**
-     * Write full HTTP/1.1 response to the provided BufferedWriter.
+     * Write full HTTP/1.1 response to the sink.
      * - Status line: HTTP/1.1 <code> <reason>
      * - Headers: one per line, ending with CRLF
-     * - Body: optional; when present, includes Content-Length and a blank line before content
+     * - closeConnection adds "Connection: close" so the client does not reuse the socket.
+     * - Body framing: Content-Length when the size is known (0 without entity), chunked otherwise.
+     * - Does not flush; the caller decides when to flush (e.g. once per pipelined batch).
+     */
+    public static void writeResponse(final ResponseSink sink, final HttpResponse response, final boolean closeConnection) throws IOException {
+        final Object entity = isBodyless(response.getStatusCode()) ? null : response.getEntity().orElse(null);
+
+        if (entity instanceof Path || entity instanceof File) {
+            writeFile(sink, response, entity instanceof File file ? file.toPath() : (Path) entity, closeConnection);
+        } else if (entity instanceof InputStream inputStream) {
+            writeChunked(sink, response, closeConnection, out -> inputStream.transferTo(out), inputStream);
+        } else if (entity instanceof StreamingBody streamingBody) {
+            writeChunked(sink, response, closeConnection, streamingBody, null);
+        } else if (entity instanceof String string) {
+            writeString(sink, response, closeConnection, string);
+        } else if (entity instanceof EncodedResponse encoded) {
+            writeEncoded(sink, encoded, closeConnection);
+        } else {
+            writeBytes(sink, response, closeConnection, getResponseBytes(entity));
+        }
+    }
+
+    /**
+     * Write only the head of a push response (EventStream, WebSocket); the transport sends its
+     * bytes afterwards. Chunked framing unless the status carries no body (101 upgrade).
      */
-    public static void writeResponse(final BufferedWriter outputStream, final HttpResponse response) {
+    public static void writePushHead(final ResponseSink sink, final HttpResponse response) throws IOException {
+        final boolean chunked = !isBodyless(response.getStatusCode());
+        sink.send(encodeHead(response, false, -1, chunked).flip(), null);
+    }
+
+    /**
+     * Write the interim "100 Continue" response and flush it so the client starts sending the body.
+     */
+    public static void writeContinue(final ResponseSink sink) throws IOException {
+        sink.write(CONTINUE_BYTES, 0, CONTINUE_BYTES.length);
+        sink.flush();
+    }
+
+    /**
+     * Serialize a response with an in-memory body (String, byte[], ByteBuffer or none) once,
+     * for keep-alive connections; null for file and streamed entities.
+     */
+    public static EncodedResponse encode(final HttpResponse response) {
+        final Object entity = response.getEntity().orElse(null);
+        final byte[] bytes;
+        if (entity == null) {
+            bytes = new byte[0];
+        } else if (entity instanceof String string) {
+            bytes = string.getBytes(StandardCharsets.UTF_8);
+        } else if (entity instanceof byte[] || entity instanceof ByteBuffer) {
+            final ByteBuffer body = getResponseBytes(entity);
+            bytes = new byte[body.remaining()];
+            body.get(bytes);
+        } else {
+            return null;
+        }
+
+        final ByteBuffer head = encodeHead(response, false, bytes.length, false).flip();
+        final byte[] headBytes = new byte[head.remaining() - CRLF.length];    // without the blank line
+        head.get(headBytes);
+        BufferPool.release(head);
+
+        final HttpHeaders headers = response.getResponseHeaders();
+        int dateOffset = -1;
+        if (!headers.contains("Date")) {
+            // Date follows the status line and the Server line (see encodeHead)
+            dateOffset = indexOfCrlf(headBytes) + CRLF.length + (headers.contains("Server") ? 0 : SERVER.length);
+        }
+        return new EncodedResponse(headBytes, dateOffset, ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    // Pre-encoded response: copy the head, refresh its Date line and add the connection header
+    private static void writeEncoded(final ResponseSink sink, final EncodedResponse encoded, final boolean closeConnection)
+            throws IOException {
+        ByteBuffer head = put(BufferPool.acquire(), encoded.head());
+        if (encoded.dateOffset() >= 0) {
+            head.put(encoded.dateOffset(), HttpDate.headerLine());
+        }
+        if (closeConnection) {
+            head = put(head, CONNECTION_CLOSE);
+        }
+        head = put(head, CRLF);
+
+        final ByteBuffer body = encoded.getBody();
+        if (body.remaining() <= head.remaining()) {
+            head.put(body);
+            sink.send(head.flip(), null);
+        } else {
+            sink.send(head.flip(), body);
+        }
+    }
+
+    // String entity: UTF-8 length first (for Content-Length), then encoded in place when it fits
+    private static void writeString(final ResponseSink sink, final HttpResponse response, final boolean closeConnection,
+                                    final String body) throws IOException {
+        final int length = utf8Length(body);
+        final ByteBuffer head = encodeHead(response, closeConnection, length, false);
+        if (length <= head.remaining()) {
+            putUtf8(head, body);
+            sink.send(head.flip(), null);
+        } else {
+            sink.send(head.flip(), ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    // byte[] / ByteBuffer entity: copied next to the head when small, otherwise sent alongside it
+    private static void writeBytes(final ResponseSink sink, final HttpResponse response, final boolean closeConnection,
+                                   final ByteBuffer body) throws IOException {
+        final ByteBuffer head = encodeHead(response, closeConnection, body.remaining(), false);
+        if (body.remaining() <= head.remaining()) {
+            head.put(body);
+            sink.send(head.flip(), null);
+        } else {
+            sink.send(head.flip(), body);
+        }
+    }
+
+    // File entity: length from the file, body via transferTo; a missing file becomes a 404
+    private static void writeFile(final ResponseSink sink, final HttpResponse response, final Path path,
+                                  final boolean closeConnection) throws IOException {
+        final FileChannel file;
         try {
-            System.out.println("-----------Response-----------");
-            System.out.println(response.toString());
-            System.out.println("\n");
-            final int statusCode = response.getStatusCode();
-            final String statusCodeMeaning = HttpStatusCode.STATUS_CODES.get(statusCode);
-            final List<String> responseHeaders = buildHeaderStrings(response.getResponseHeaders());
+            file = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            writeResponse(sink, new HttpResponse.Builder()
+                    .setStatusCode(404)
+                    .setEntity("File Not Found....")
+                    .build(), closeConnection);
+            return;
+        }
 
-            outputStream.write("HTTP/1.1 " + statusCode + " " + statusCodeMeaning + "\r\n");
+        try {
+            final long size = file.size();
+            sink.send(encodeHead(response, closeConnection, size, false).flip(), null);
+            sink.transfer(file, size);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
 
-            for (String header : responseHeaders) {
-                outputStream.write(header);
+    // Unknown-length entity: chunked framing, bytes produced by the body callback
+    private static void writeChunked(final ResponseSink sink, final HttpResponse response, final boolean closeConnection,
+                                     final StreamingBody body, final InputStream toClose) throws IOException {
+        try {
+            sink.send(encodeHead(response, closeConnection, -1, true).flip(), null);
+            final ChunkedOutputStream chunked = new ChunkedOutputStream(sink);
+            body.writeTo(chunked);
+            chunked.finish();
+        } finally {
+            if (toClose != null) {
+                toClose.close();
             }
+        }
+    }
+
+    /**
+     * Encode status line, headers, framing header and blank line into a pooled buffer (write mode).
+     * - One line per header value, in the order they were added.
+     * - Heads larger than a pool buffer continue in a larger heap buffer.
+     */
+    private static ByteBuffer encodeHead(final HttpResponse response, final boolean closeConnection,
+                                         final long contentLength, final boolean chunked) {
+        ByteBuffer head = BufferPool.acquire();
 
-            final Optional<String> entityString = response.getEntity().flatMap(ResponseWriter::getResponseString);
-            if (entityString.isPresent()) {
-                final String encodedString = new String(entityString.get().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-                System.out.println("-----------Encoded String-----------");
-                System.out.println(encodedString);
-                System.out.println("\n");
-                outputStream.write("Content-Length: " + encodedString.getBytes().length + "\r\n");
-                outputStream.write("\r\n");
-                outputStream.write(encodedString);
+        final int statusCode = response.getStatusCode();
+        final byte[] statusLine = statusCode >= 0 && statusCode < STATUS_LINES.length ? STATUS_LINES[statusCode] : null;
+        if (statusLine != null) {
+            head.put(statusLine);
+        } else {
+            head = putAscii(head, "HTTP/1.1 ");
+            head = putNumber(head, statusCode);
+            head = putAscii(head, " " + HttpStatusCode.STATUS_CODES.get(statusCode) + "\r\n");
+        }
+
+        final HttpHeaders headers = response.getResponseHeaders();
+        if (!headers.contains("Server")) {
+            head = put(head, SERVER);
+        }
+        if (!headers.contains("Date")) {
+            head = put(head, HttpDate.headerLine());
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            final byte[] prefix = HEADER_PREFIXES.get(headers.name(i));
+            if (prefix != null) {
+                head = put(head, prefix);
+            } else {
+                head = putAscii(head, headers.name(i));
+                head = putAscii(head, ": ");
             }
-            else {
-                outputStream.write("\r\n");
+            head = putAscii(head, headers.value(i));
+            head = put(head, CRLF);
+        }
+
+        if (closeConnection) {
+            head = put(head, CONNECTION_CLOSE);
+        }
+        if (chunked) {
+            head = put(head, TRANSFER_ENCODING_CHUNKED);
+        } else if (!isBodyless(statusCode)) {
+            head = put(head, CONTENT_LENGTH);
+            head = putNumber(head, contentLength);
+            head = put(head, CRLF);
+        }
+        return put(head, CRLF);
+    }
+
+    // Statuses that never carry a body (RFC 9112 section 6.3)
+    private static boolean isBodyless(final int statusCode) {
+        return statusCode < 200 || statusCode == 204 || statusCode == 304;
+    }
+
+    private static int indexOfCrlf(final byte[] bytes) {
+        for (int i = 0; i + 1 < bytes.length; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
             }
-        } catch (Exception ignored) {
-            // Intentionally swallow to avoid propagating I/O errors during response writing
         }
+        return -1;
     }
 
-    /**
-     * Convert header map into HTTP header lines.
-     * - Concatenates multiple values with ';' and appends CRLF.
-     */
-    private static List<String> buildHeaderStrings(final Map<String, List<String>> responseHeaders) {
-        final List<String> responseHeadersList = new ArrayList<>();
+    private static ByteBuffer put(ByteBuffer buffer, final byte[] bytes) {
+        buffer = ensure(buffer, bytes.length);
+        return buffer.put(bytes);
+    }
+
+    // Header text is ISO-8859-1; characters outside it become '?'
+    private static ByteBuffer putAscii(ByteBuffer buffer, final String text) {
+        buffer = ensure(buffer, text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            buffer.put(c <= 0xFF ? (byte) c : (byte) '?');
+        }
+        return buffer;
+    }
 
-        responseHeaders.forEach((name, values) -> {
-            final StringBuilder valuesCombined = new StringBuilder();
-            values.forEach(valuesCombined::append);
-            valuesCombined.append(";");
-            responseHeadersList.add(name + ": " + valuesCombined + "\r\n");
-        });
+    private static ByteBuffer putNumber(ByteBuffer buffer, long value) {
+        buffer = ensure(buffer, 20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + (value / divisor) % 10));
+        }
+        return buffer;
+    }
 
-        return responseHeadersList;
+    // Continue in a larger (unpooled) buffer; the pooled one goes back to the pool
+    private static ByteBuffer ensure(final ByteBuffer buffer, final int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        final ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        larger.put(buffer.flip());
+        BufferPool.release(buffer);
+        return larger;
+    }
+
+    // Encoded UTF-8 length, matching String.getBytes (unpaired surrogates become '?')
+    private static int utf8Length(final String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Caller guarantees utf8Length(text) bytes of room
+    private static void putUtf8(final ByteBuffer buffer, final String text) {
+        // ASCII prefix with absolute puts (no position bookkeeping per byte)
+        final int start = buffer.position();
+        final int length = text.length();
+        int i = 0;
+        for (char c; i < length && (c = text.charAt(i)) < 0x80; i++) {
+            buffer.put(start + i, (byte) c);
+        }
+        buffer.position(start + i);
+
+        for (; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
     }
 
     /**
-     * Extract a writeable String from the entity if supported.
-     * - Currently supports String entities; otherwise empty.
+     * Extract in-memory body bytes from the entity.
+     * - byte[] and ByteBuffer (a duplicate, so the entity can be reused); otherwise empty.
      */
-    private static Optional<String> getResponseString(final Object entity) {
-        // Currently only supporting strings
-        if (entity instanceof String) {
-            try {
-                return Optional.of(entity.toString());
-            } catch (Exception ignored) {
-            }
+    private static ByteBuffer getResponseBytes(final Object entity) {
+        if (entity instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes);
+        }
+        if (entity instanceof ByteBuffer buffer) {
+            return buffer.duplicate();
         }
-        return Optional.empty();
+        return EMPTY;
+    }
+
+    private static byte[] ascii(final String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package com.server.writers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * StreamResponseSink: ResponseSink for the blocking transport.
+ * - Buffers into one pooled direct buffer, so pipelined responses go out together on flush();
+ *   the buffer goes back to the pool on every flush.
+ * - A head whose body does not fit in the buffer is sent together with the buffered bytes
+ *   and the body in a single gathering write on the socket channel.
+ * - Files are sent with FileChannel.transferTo straight into the socket channel, which the
+ *   JDK maps to sendfile for SocketChannels; without a channel it falls back to copying.
+ * - release() returns the buffer without writing it (connection ending).
+ */
+public class StreamResponseSink implements ResponseSink {
+    private final OutputStream outputStream;
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;                         // write mode; acquired on first use
+
+    public StreamResponseSink(OutputStream outputStream, WritableByteChannel channel) {
+        this.outputStream = outputStream;
+        this.channel = channel != null ? channel : Channels.newChannel(outputStream);
+    }
+
+    @Override
+    public void send(ByteBuffer head, ByteBuffer body) throws IOException {
+        final int bodyLength = body == null ? 0 : body.remaining();
+        final ByteBuffer out = buffer();
+        if (head.remaining() + bodyLength <= out.remaining()) {
+            out.put(head);
+            if (body != null) {
+                out.put(body);
+            }
+            BufferPool.release(head);
+            return;
+        }
+
+        out.flip();
+        try {
+            if (body == null) {
+                writeFully(out, head);
+            } else {
+                writeFully(out, head, body.duplicate());
+            }
+        } finally {
+            out.clear();
+            BufferPool.release(head);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        final ByteBuffer out = buffer();
+        if (length > out.remaining()) {
+            drain();
+            if (length > out.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes, offset, length));
+                return;
+            }
+        }
+        out.put(bytes, offset, length);
+    }
+
+    @Override
+    public void transfer(FileChannel file, long count) throws IOException {
+        try (file) {
+            // Head bytes must reach the socket before the file region
+            drain();
+            long position = 0;
+            while (position < count) {
+                final long sent = file.transferTo(position, count - position, channel);
+                if (sent <= 0 && file.size() <= position) {
+                    throw new IOException("File truncated while sending");
+                }
+                position += sent;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        // Idle keep-alive connections should not pin a buffer each
+        release();
+        outputStream.flush();
+    }
+
+    public void release() {
+        BufferPool.release(buffer);
+        buffer = null;
+    }
+
+    private ByteBuffer buffer() {
+        if (buffer == null) {
+            buffer = BufferPool.acquire();
+        }
+        return buffer;
+    }
+
+    private void drain() throws IOException {
+        if (buffer == null || buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    // Blocking channel: loop until every buffer is written, gathering when the channel supports it
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        if (channel instanceof GatheringByteChannel gathering) {
+            long remaining = 0;
+            for (ByteBuffer b : buffers) {
+                remaining += b.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= gathering.write(buffers);
+            }
+            return;
+        }
+        for (ByteBuffer b : buffers) {
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+        }
+    }
+}